@@ -17,6 +17,7 @@ public class Main implements Callable<Integer> {
         }
         CommandLine cline = new CommandLine(new Main())
                 .addSubcommand("download", new DownloadCommand())
+                .addSubcommand("compile", new CompileCommand())
                 .addSubcommand("GO", new GoOverrepCommand())
                 .addSubcommand("interpro", new InterproOverrepCommand());
         cline.setToggleBooleanFlags(false);
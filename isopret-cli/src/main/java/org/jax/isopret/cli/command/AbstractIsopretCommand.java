@@ -20,6 +20,11 @@ public abstract class AbstractIsopretCommand {
             description = "directory to download HPO data")
     protected String downloadDirectory="data";
 
+    @CommandLine.Option(names={"-t","--threads"},
+            scope = CommandLine.ScopeType.INHERIT,
+            description = "number of threads used to load the data files, parse the RNA-seq results and run the analyses (default: ${DEFAULT-VALUE})")
+    protected int threads = Runtime.getRuntime().availableProcessors();
+
     /**
      *
      * @param category either gene-ontology or interpro
@@ -0,0 +1,30 @@
+package org.jax.isopret.cli.command;
+
+import org.jax.isopret.core.impl.snapshot.IsopretSnapshotWriter;
+import picocli.CommandLine;
+
+import java.nio.file.Paths;
+import java.util.concurrent.Callable;
+
+/**
+ * Compile the downloaded files into a binary snapshot ({@code isopret.snapshot}) in the same directory.
+ * If the snapshot is present and up to date, the GO and interpro commands (and the GUI) load their data from
+ * the snapshot instead of parsing the original files.
+ */
+@CommandLine.Command(name = "compile",
+        mixinStandardHelpOptions = true,
+        description = "Compile downloaded files into a snapshot for fast startup")
+public class CompileCommand implements Callable<Integer> {
+    @CommandLine.Option(names={"-d","--data"}, description ="directory with downloaded data (default: ${DEFAULT-VALUE})" )
+    private String datadir="data";
+
+    public CompileCommand() {
+    }
+
+    @Override
+    public Integer call() {
+        IsopretSnapshotWriter.compile(Paths.get(datadir));
+        return 0;
+    }
+
+}
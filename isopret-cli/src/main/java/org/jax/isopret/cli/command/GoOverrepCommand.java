@@ -1,8 +1,10 @@
 package org.jax.isopret.cli.command;
 
 import org.jax.isopret.core.GoAnalysisResults;
+import org.jax.isopret.core.GoFdrSweepResult;
 import org.jax.isopret.core.IsopretGoAnalysisRunner;
 import org.jax.isopret.core.IsopretProvider;
+import org.jax.isopret.core.MgsaDiagnostics;
 import org.jax.isopret.core.analysis.IsopretStats;
 import org.jax.isopret.data.AccessionNumber;
 import org.jax.isopret.data.GoMethod;
@@ -10,7 +12,6 @@ import org.jax.isopret.data.MtcMethod;
 import org.jax.isopret.data.Transcript;
 import org.jax.isopret.exception.IsopretRuntimeException;
 import org.jax.isopret.model.*;
-import org.jax.isopret.core.impl.rnaseqdata.RnaSeqResultsParser;
 import org.monarchinitiative.phenol.analysis.AssociationContainer;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.TermId;
@@ -26,6 +27,7 @@ import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This command creates a list of significantly overrepresented GO terms for differential expression and splicing.
@@ -57,7 +59,7 @@ public class GoOverrepCommand extends AbstractRnaseqAnalysisCommand
     }
 
     @CommandLine.Option(names = {"-c", "--calculation"},
-            description = "Ontologizer calculation (Term-for-Term [default], PC-Union, PC-Intersection)")
+            description = "Ontologizer calculation (Term-for-Term [default], PC-Union, PC-Intersection, Elim, Weight, MGSA)")
     private String ontologizerCalculation = "Term-for-Term";
     @CommandLine.Option(names = {"--mtc"},
             description = "Multiple-Testing-Correction for GO analysis (${DEFAULT-VALUE} [default], Benjamini-Hochberg, " +
@@ -72,6 +74,46 @@ public class GoOverrepCommand extends AbstractRnaseqAnalysisCommand
     private File outdir = null;
 
 
+    @CommandLine.Option(names = {"--all-methods"},
+            description = "Run all combinations of Term-for-Term, PC-Union and PC-Intersection with each multiple-testing " +
+                    "correction and write them to one file (the --calculation and --mtc options are ignored)")
+    boolean allMethods = false;
+
+    @CommandLine.Option(names = {"--fdr-sweep"}, split = ",",
+            description = "Comma-separated list of FDR thresholds for differential expression/splicing; " +
+                    "runs the GO analysis for each threshold and writes them to one file (cannot be combined with --all-methods)")
+    double[] fdrSweep = null;
+
+    @CommandLine.Option(names = {"--permutations"},
+            description = "Use empirical p-values from this many permutations of the study set instead of hypergeometric p-values " +
+                    "(default: ${DEFAULT-VALUE}, i.e., hypergeometric p-values)")
+    int permutations = 0;
+
+    @CommandLine.Option(names = {"--stratify-by-gene"},
+            description = "Permute the differentially spliced isoforms among the isoforms of the same gene (with --permutations)")
+    boolean stratifyByGene = false;
+
+    @CommandLine.Option(names = {"--seed"},
+            description = "Seed for the permutations and the MGSA chains (default: ${DEFAULT-VALUE})")
+    long seed = 42L;
+
+    @CommandLine.Option(names = {"--min-term-size"},
+            description = "Only test GO terms annotated to at least this many population genes/isoforms (default: ${DEFAULT-VALUE})")
+    int minTermSize = 1;
+
+    @CommandLine.Option(names = {"--max-term-size"},
+            description = "Only test GO terms annotated to at most this many population genes/isoforms (default: no limit)")
+    int maxTermSize = Integer.MAX_VALUE;
+
+    @CommandLine.Option(names = {"--tarone"},
+            description = "Do not test GO terms that cannot become significant given the population and study-set sizes " +
+                    "(Tarone's procedure, Term-for-Term only)")
+    boolean tarone = false;
+
+    @CommandLine.Option(names = {"--pep-resolution"},
+            description = "Spacing of the candidate HBA-DEALS PEP thresholds (default: ${DEFAULT-VALUE})")
+    double pepResolution = 0.01;
+
     @CommandLine.Option(names = {"--export-all"},
             description = "Export results for all GO terms (i.e., do not threshold by p-value)")
     boolean exportAll = false;
@@ -91,6 +133,9 @@ public class GoOverrepCommand extends AbstractRnaseqAnalysisCommand
     @Override
     public Integer call() {
         checkDownloadDir(downloadDirectory);
+        if (fdrSweep != null && allMethods) {
+            throw new IsopretRuntimeException("--fdr-sweep cannot be combined with --all-methods");
+        }
         // validate input file and determine if it is HBA-DEALS or edgeR
         if (exclusive.edgeRFile == null && exclusive.hbadealsFile != null) {
             isHbaDeals = true;
@@ -109,7 +154,7 @@ public class GoOverrepCommand extends AbstractRnaseqAnalysisCommand
             outfile = "gene-ontology-overrep-" + infilename + ".tsv";
         }
 
-        IsopretProvider provider = IsopretProvider.provider(Paths.get(this.downloadDirectory));
+        IsopretProvider provider = IsopretProvider.provider(Paths.get(this.downloadDirectory), this.threads);
         Ontology geneOntology = provider.geneOntology();
         geneSymbolAccessionListMap = provider.geneSymbolToTranscriptListMap();
         Map<AccessionNumber, GeneModel> hgncMap = provider.ensemblGeneModelMap();
@@ -118,15 +163,6 @@ public class GoOverrepCommand extends AbstractRnaseqAnalysisCommand
         AssociationContainer<TermId> transcriptContainer = provider.transcriptContainer();
         AssociationContainer<TermId> geneContainer = provider.geneContainer();
 
-        // ----------  HBA-DEALS input file  ----------------
-        LOGGER.info("About to create thresholder");
-        Map<AccessionNumber, GeneResult> hbaDealsResults;
-        if (isHbaDeals) {
-            hbaDealsResults = RnaSeqResultsParser.fromHbaDeals(rnaseqDataFile, hgncMap);
-        } else {
-            hbaDealsResults = RnaSeqResultsParser.fromEdgeR(rnaseqDataFile, hgncMap);
-        }
-        LOGGER.trace("Analyzing {} genes.", hbaDealsResults.size());
         MtcMethod mtcMethod = MtcMethod.fromString(mtc);
         /* ---------- 7. Set up HbaDeal GO analysis ------------------------- */
         GoMethod goMethod = GoMethod.fromString(this.ontologizerCalculation);
@@ -141,11 +177,49 @@ public class GoOverrepCommand extends AbstractRnaseqAnalysisCommand
         if (this.exportAll) {
             runner.exportAll();
         }
+        // the runner parses the RNA-seq file
+        runner.setParserThreads(this.threads);
+        ForkJoinPool pool = null;
+        if (this.threads <= 1) {
+            // do not run the DGE and DAS analyses concurrently
+            runner.setExecutor(Runnable::run);
+        } else {
+            pool = new ForkJoinPool(this.threads);
+            runner.setExecutor(pool);
+        }
+        if (this.tarone || this.minTermSize > 1 || this.maxTermSize < Integer.MAX_VALUE) {
+            runner.setTermPruning(this.minTermSize, this.maxTermSize, this.tarone);
+        }
+        runner.setPepResolution(this.pepResolution);
+        if (this.permutations > 0) {
+            runner.setPermutationTest(this.permutations, this.stratifyByGene, this.seed);
+        }
+        runner.setMgsaSeed(this.seed);
 
-        GoAnalysisResults results = runner.run();
-
-
-        writeGoResultsToFile(results, geneOntology);
+        try {
+            if (fdrSweep != null) {
+                List<GoAnalysisResults> resultsList = new ArrayList<>();
+                List<String> prefixes = new ArrayList<>();
+                for (GoFdrSweepResult sweepResult : runner.runFdrSweep(fdrSweep)) {
+                    resultsList.add(sweepResult.goAnalysisResults());
+                    prefixes.add(sweepResult.fdrThreshold() + "\t");
+                }
+                writeGoResultsToFile(resultsList, prefixes, geneOntology);
+            } else if (allMethods) {
+                List<GoAnalysisResults> resultsList = runner.runAllMethods();
+                List<String> prefixes = resultsList.stream()
+                        .map(results -> results.goMethod() + "\t" + results.mtcMethod() + "\t")
+                        .toList();
+                writeGoResultsToFile(resultsList, prefixes, geneOntology);
+            } else {
+                GoAnalysisResults results = runner.run();
+                writeGoResultsToFile(List.of(results), List.of(""), geneOntology);
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
 
         if (verbose) {
             IsopretStats.Builder builder = new IsopretStats.Builder();
@@ -165,12 +239,15 @@ public class GoOverrepCommand extends AbstractRnaseqAnalysisCommand
         return 0;
     }
 
-    private void writeGoResultsToFile(GoAnalysisResults results,
+    /**
+     * @param resultsList results of one or more analyses (e.g., combinations of GO calculation and multiple-testing
+     *                    correction, or FDR thresholds)
+     * @param prefixes for each analysis, the columns that are written after the DAS/DGE column (e.g., the GO
+     *                 calculation and multiple-testing correction); empty for a single analysis
+     */
+    private void writeGoResultsToFile(List<GoAnalysisResults> resultsList,
+                                      List<String> prefixes,
                                       Ontology geneOntology) {
-
-
-        List<GoTerm2PValAndCounts> dasGoTerms = results.dasGoTerms();
-        List<GoTerm2PValAndCounts> dgeGoTerms = results.dgeGoTerms();
         File output_path;
         if (outdir == null) {
             output_path = new File(outfile);
@@ -178,39 +255,46 @@ public class GoOverrepCommand extends AbstractRnaseqAnalysisCommand
             output_path = new File(outdir + File.separator + outfile);
         }
         LOGGER.info("Writing GO Overrepresentation analysis results to {}", output_path.getAbsolutePath());
-        int totalDasGoTerms = dasGoTerms.size();
+        int totalDasGoTerms = 0;
         int outputDasGoTerms = 0;
-        int totalDgeGoTerms = dgeGoTerms.size();
+        int totalDgeGoTerms = 0;
         int outputDgeGoTerms = 0;
         try (BufferedWriter bw = new BufferedWriter(new FileWriter(output_path))) {
-            for (var cts : dasGoTerms) {
-                try {
-                    if (exportAll) {
-                        bw.write("DAS\t" + cts.getRow(geneOntology) + "\n");
-                        outputDasGoTerms++;
-
-                    } else {
-                        if (cts.passesThreshold(GO_PVAL_THRESHOLD)) {
-                            bw.write("DAS\t" + cts.getRow(geneOntology) + "\n");
+            for (int r = 0; r < resultsList.size(); r++) {
+                List<GoTerm2PValAndCounts> dasGoTerms = resultsList.get(r).dasGoTerms();
+                List<GoTerm2PValAndCounts> dgeGoTerms = resultsList.get(r).dgeGoTerms();
+                String prefix = prefixes.get(r);
+                totalDasGoTerms += dasGoTerms.size();
+                totalDgeGoTerms += dgeGoTerms.size();
+                for (var cts : dasGoTerms) {
+                    try {
+                        if (exportAll) {
+                            bw.write("DAS\t" + prefix + cts.getRow(geneOntology) + "\n");
                             outputDasGoTerms++;
+
+                        } else {
+                            if (cts.passesThreshold(GO_PVAL_THRESHOLD)) {
+                                bw.write("DAS\t" + prefix + cts.getRow(geneOntology) + "\n");
+                                outputDasGoTerms++;
+                            }
                         }
+                    } catch (IOException e) {
+                        // some issue with getting terms, probably ontology is not in sync
+                        LOGGER.error("Could not get data for {}: {}", cts, e.getLocalizedMessage());
                     }
-                } catch (IOException e) {
-                    // some issue with getting terms, probably ontology is not in sync
-                    LOGGER.error("Could not get data for {}: {}", cts, e.getLocalizedMessage());
                 }
-            }
-            for (var cts : dgeGoTerms) {
-                try {
-                    if (exportAll) {
-                        bw.write("DGE\t" + cts.getRow(geneOntology) + "\n");
-                    } else if (cts.passesThreshold(GO_PVAL_THRESHOLD)) {
-                        bw.write("DGE\t" + cts.getRow(geneOntology) + "\n");
+                for (var cts : dgeGoTerms) {
+                    try {
+                        if (exportAll) {
+                            bw.write("DGE\t" + prefix + cts.getRow(geneOntology) + "\n");
+                        } else if (cts.passesThreshold(GO_PVAL_THRESHOLD)) {
+                            bw.write("DGE\t" + prefix + cts.getRow(geneOntology) + "\n");
+                        }
+                        outputDgeGoTerms++;
+                    } catch (Exception e) {
+                        // some issue with getting terms, probably ontology is not in sync
+                        LOGGER.error("Could not get data for {}: {}", cts, e.getLocalizedMessage());
                     }
-                    outputDgeGoTerms++;
-                } catch (Exception e) {
-                    // some issue with getting terms, probably ontology is not in sync
-                    LOGGER.error("Could not get data for {}: {}", cts, e.getLocalizedMessage());
                 }
             }
         } catch (IOException e) {
@@ -219,7 +303,21 @@ public class GoOverrepCommand extends AbstractRnaseqAnalysisCommand
         }
         System.out.printf("We output %d/%d DGE GO terms and %d/%d DAS GO terms",
                 outputDgeGoTerms, totalDgeGoTerms, outputDasGoTerms, totalDasGoTerms);
+        for (int r = 0; r < resultsList.size(); r++) {
+            GoAnalysisResults results = resultsList.get(r);
+            String prefix = prefixes.get(r).replace('\t', ' ');
+            results.dgeMgsaDiagnostics().ifPresent(d -> printMgsaDiagnostics("DGE " + prefix, d));
+            results.dasMgsaDiagnostics().ifPresent(d -> printMgsaDiagnostics("DAS " + prefix, d));
+        }
+    }
 
+    private static void printMgsaDiagnostics(String label, MgsaDiagnostics diagnostics) {
+        System.out.printf("%nMGSA %s: %d chains of %d steps, max R-hat %.3f%s, acceptance rate %.3f, " +
+                        "mean alpha %.3f, mean beta %.3f, mean number of active terms %.1f",
+                label, diagnostics.chains(), diagnostics.steps(), diagnostics.maxRhat(),
+                diagnostics.converged() ? "" : " (chains have not converged)",
+                diagnostics.acceptanceRate(), diagnostics.meanAlpha(), diagnostics.meanBeta(),
+                diagnostics.meanActive());
     }
 
 }
@@ -35,9 +35,9 @@ public class InterproOverrepCommand extends AbstractRnaseqAnalysisCommand
 
     @Override
     public Integer call() {
-        IsopretProvider provider = IsopretProvider.provider(Paths.get(this.downloadDirectory));
+        IsopretProvider provider = IsopretProvider.provider(Paths.get(this.downloadDirectory), this.threads);
         Map<AccessionNumber, GeneResult> hbaDealsResults =
-                RnaSeqResultsParser.fromHbaDeals(new File(this.hbadealsFile), provider.ensemblGeneModelMap());
+                RnaSeqResultsParser.fromHbaDeals(new File(this.hbadealsFile), provider.ensemblGeneModelMap(), this.threads);
         LOGGER.trace("Analyzing {} genes.", hbaDealsResults.size());
         AssociationContainer<TermId> transcriptContainer = provider.transcriptContainer();
         AssociationContainer<TermId> geneContainer = provider.geneContainer();
@@ -17,5 +17,6 @@ module org.jax.isopret.core {
     exports org.jax.isopret.core.impl.interpro;
     exports org.jax.isopret.core.impl.go;
     exports org.jax.isopret.core.impl.hgnc;
+    exports org.jax.isopret.core.impl.snapshot;
 
 }
\ No newline at end of file
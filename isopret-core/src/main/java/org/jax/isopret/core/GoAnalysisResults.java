@@ -6,6 +6,7 @@ import org.monarchinitiative.phenol.analysis.stats.GoTerm2PValAndCounts;
 
 import java.io.File;
 import java.util.List;
+import java.util.Optional;
 
 public interface GoAnalysisResults {
 
@@ -18,4 +19,18 @@ public interface GoAnalysisResults {
     List<GoTerm2PValAndCounts> dasGoTerms();
 
     List<GoTerm2PValAndCounts> dgeGoTerms();
+
+    /**
+     * @return convergence diagnostics of the DAS analysis if the GO method is MGSA
+     */
+    default Optional<MgsaDiagnostics> dasMgsaDiagnostics() {
+        return Optional.empty();
+    }
+
+    /**
+     * @return convergence diagnostics of the DGE analysis if the GO method is MGSA
+     */
+    default Optional<MgsaDiagnostics> dgeMgsaDiagnostics() {
+        return Optional.empty();
+    }
 }
@@ -0,0 +1,14 @@
+package org.jax.isopret.core;
+
+/**
+ * GO analysis results for one FDR threshold of a threshold sweep.
+ * @param fdrThreshold FDR threshold for differential expression and splicing
+ * @param expressionPepThreshold PEP (or p-value) threshold for expression that attains {@code fdrThreshold}
+ * @param splicingPepThreshold PEP (or p-value) threshold for splicing that attains {@code fdrThreshold}
+ * @param goAnalysisResults DGE and DAS GO results for the study sets at these thresholds
+ */
+public record GoFdrSweepResult(double fdrThreshold,
+                               double expressionPepThreshold,
+                               double splicingPepThreshold,
+                               GoAnalysisResults goAnalysisResults) {
+}
@@ -2,6 +2,7 @@ package org.jax.isopret.core;
 
 import org.jax.isopret.exception.IsopretRuntimeException;
 import org.jax.isopret.core.impl.interpro.InterproDomainDescParser;
+import org.jax.isopret.core.impl.interpro.InterproAnnotationStore;
 import org.jax.isopret.core.impl.interpro.InterproDomainParser;
 import org.jax.isopret.data.AccessionNumber;
 import org.jax.isopret.model.DisplayInterproAnnotation;
@@ -21,25 +22,53 @@ import java.util.Map;
  * on the isopret GitHub site, {@code interpro_domains.txt} and
  * {@code interpro_domain_desc.txt}, provides access to the maps representing these files
  * and a function {@link #transcriptToInterproHitMap(AccessionNumber)} that gets all interpro
- * hits that are mapped to a specific transcript.
+ * hits that are mapped to a specific transcript. The annotations are kept in an {@link InterproAnnotationStore}.
  * @author Peter N Robinson
  */
 public class InterproMapper {
     private static final Logger LOGGER = LoggerFactory.getLogger(InterproMapper.class);
     private final Map<Integer, InterproEntry> interproDescription;
-    private final Map<AccessionNumber, List<InterproAnnotation>> interproAnnotation;
+    private final InterproAnnotationStore interproAnnotation;
 
 
     public InterproMapper(File interproDescriptionFile, File interproDomainsFile) {
-        this.interproDescription = InterproDomainDescParser.getInterproDescriptionMap(interproDescriptionFile);
-        this.interproAnnotation = InterproDomainParser.getInterproAnnotationMap(interproDomainsFile);
+        this(InterproDomainDescParser.getInterproDescriptionMap(interproDescriptionFile),
+                InterproDomainParser.getInterproAnnotationStore(interproDomainsFile));
+    }
+
+    /**
+     * Create a mapper from maps that were already parsed, e.g., decoded from a compiled snapshot.
+     * The mapper keeps immutable copies of the maps, so it can be shared between threads.
+     * @param interproDescription key: integer part of the interpro id, value: corresponding entry
+     * @param interproAnnotation key: Ensembl gene id, value: interpro annotations of the transcripts of the gene
+     */
+    public InterproMapper(Map<Integer, InterproEntry> interproDescription,
+                          Map<AccessionNumber, List<InterproAnnotation>> interproAnnotation) {
+        this(interproDescription, InterproAnnotationStore.of(interproAnnotation));
+    }
+
+    /**
+     * @param interproDescription key: integer part of the interpro id, value: corresponding entry
+     * @param interproAnnotation interpro annotations of the transcripts (immutable)
+     */
+    public InterproMapper(Map<Integer, InterproEntry> interproDescription,
+                          InterproAnnotationStore interproAnnotation) {
+        this.interproDescription = Map.copyOf(interproDescription);
+        this.interproAnnotation = interproAnnotation;
     }
 
     public Map<Integer, InterproEntry> getInterproDescription() {
         return interproDescription;
     }
 
+    /**
+     * @return read-only map view of the annotations (key: Ensembl gene id)
+     */
     public Map<AccessionNumber, List<InterproAnnotation>> getInterproAnnotation() {
+        return interproAnnotation.asMap();
+    }
+
+    public InterproAnnotationStore getInterproAnnotationStore() {
         return interproAnnotation;
     }
 
@@ -48,7 +77,7 @@ public class InterproMapper {
     }
 
     public int getInterproAnnotationCount() {
-        return interproAnnotation.size();
+        return interproAnnotation.geneCount();
     }
 
     public Map<AccessionNumber, List<DisplayInterproAnnotation>> transcriptToInterproHitMap(AccessionNumber geneAccession) {
@@ -57,20 +86,21 @@ public class InterproMapper {
            throw new IsopretRuntimeException("transcriptToInterproHitMap can only be called with gene ids but we got " + geneAccession);
        }
 
-        if (! this.interproAnnotation.containsKey(geneAccession)) {
+        int g = this.interproAnnotation.geneIndex(geneAccession.getAccessionNumber());
+        if (g < 0) {
             return Map.of(); // no hits
         }
 
-        List<InterproAnnotation> hits = this.interproAnnotation.get(geneAccession);
         Map<AccessionNumber, List<DisplayInterproAnnotation>> hitmap = new HashMap<>();
-        for (InterproAnnotation annot : hits) {
-            if (! this.interproDescription.containsKey(annot.getInterpro())) {
+        for (int row = interproAnnotation.geneFirstRow(g); row < interproAnnotation.geneEndRow(g); row++) {
+            InterproEntry entry = this.interproDescription.get(interproAnnotation.interpro(row));
+            if (entry == null) {
                 notfound++;
                 continue;
             }
-            DisplayInterproAnnotation display = new DisplayInterproAnnotation(annot, this.interproDescription.get(annot.getInterpro()));
-            hitmap.putIfAbsent(annot.getEnst(), new ArrayList<>());
-            hitmap.get(annot.getEnst()).add(display);
+            InterproAnnotation annot = interproAnnotation.annotation(row);
+            DisplayInterproAnnotation display = new DisplayInterproAnnotation(annot, entry);
+            hitmap.computeIfAbsent(annot.getEnst(), k -> new ArrayList<>()).add(display);
         }
         if (notfound > 0) {
             LOGGER.error("Could not find interpro Description for {} items", notfound);
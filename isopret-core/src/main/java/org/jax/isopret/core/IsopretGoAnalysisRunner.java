@@ -6,11 +6,37 @@ import org.jax.isopret.data.GoMethod;
 import org.jax.isopret.data.MtcMethod;
 
 import java.io.File;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 public interface IsopretGoAnalysisRunner {
 
     GoAnalysisResults run();
 
+    /**
+     * Run the analysis for every combination of the given GO methods and multiple testing corrections.
+     * @return one result per combination, ordered by GO method and then by multiple testing correction
+     */
+    List<GoAnalysisResults> runSweep(List<GoMethod> goMethods, List<MtcMethod> mtcMethods);
+
+    /**
+     * The Fisher-type methods (Term-for-Term, Parent-Child-Union and Parent-Child-Intersection) share their term
+     * counts and are therefore swept together. Elim, Weight and MGSA are not included: they are analyses of their own,
+     * and no multiple testing correction is applied to the MGSA marginal probabilities.
+     * @return results for all combinations of the Fisher-type {@link GoMethod}s and the {@link MtcMethod}s
+     */
+    default List<GoAnalysisResults> runAllMethods() {
+        return runSweep(List.of(GoMethod.TFT, GoMethod.PCunion, GoMethod.PCintersect), List.of(MtcMethod.values()));
+    }
+
+    /**
+     * Run the analysis for a grid of FDR thresholds for differential expression and splicing. The study sets grow
+     * with the threshold, and the term counts are updated incrementally from one threshold to the next.
+     * @param fdrThresholds FDR thresholds
+     * @return one result per threshold (same order as {@code fdrThresholds})
+     */
+    List<GoFdrSweepResult> runFdrSweep(double[] fdrThresholds);
+
     static IsopretGoAnalysisRunner hbadeals(IsopretProvider provider,
                                             File hbaDealsFile,
                                             MtcMethod mtcMethod,
@@ -26,4 +52,43 @@ public interface IsopretGoAnalysisRunner {
     }
 
     void exportAll();
+
+    /**
+     * @param executor executor on which the DGE and DAS study sets are built and analyzed concurrently
+     * (default: the common fork-join pool). Use {@code Runnable::run} to run everything on the calling thread.
+     */
+    void setExecutor(Executor executor);
+
+    /**
+     * @param threads maximum number of threads used to parse the RNA-seq results file (default: number of processors)
+     */
+    void setParserThreads(int threads);
+
+    /**
+     * Use empirical p-values from a permutation test of the study-set labels instead of hypergeometric p-values.
+     * @param permutations maximum number of permutations
+     * @param stratifyByGene if true, the DAS study labels are only permuted among the isoforms of the same gene
+     * @param seed seed of the random number generators
+     */
+    void setPermutationTest(int permutations, boolean stratifyByGene, long seed);
+
+    /**
+     * @param seed seed of the MGSA chains (default 42)
+     */
+    void setMgsaSeed(long seed);
+
+    /**
+     * Only test GO terms whose number of annotated population items is within the given bounds, and optionally
+     * skip terms that cannot become significant given the population and study-set sizes (Tarone's procedure).
+     * @param minTermSize minimum number of annotated population items
+     * @param maxTermSize maximum number of annotated population items
+     * @param tarone if true, untestable terms are pruned (Term-for-Term only)
+     */
+    void setTermPruning(int minTermSize, int maxTermSize, boolean tarone);
+
+    /**
+     * @param pepResolution spacing of the candidate PEP thresholds that are checked to attain the FDR for HBA-DEALS
+     *                      results (default 0.01)
+     */
+    void setPepResolution(double pepResolution);
 }
@@ -1,7 +1,11 @@
 package org.jax.isopret.core;
 
+import org.jax.isopret.core.impl.ConcurrentIsopretProvider;
 import org.jax.isopret.core.impl.DefaultIsopretProvider;
+import org.jax.isopret.core.impl.go.GoDag;
+import org.jax.isopret.core.impl.snapshot.SnapshotIsopretProvider;
 import org.jax.isopret.data.AccessionNumber;
+import org.jax.isopret.data.EnsemblIdRegistry;
 import org.jax.isopret.model.GeneModel;
 import org.jax.isopret.model.GeneSymbolAccession;
 import org.jax.isopret.data.Transcript;
@@ -22,6 +26,11 @@ public interface IsopretProvider {
 
     Ontology geneOntology();
 
+    /**
+     * @return the dense graph of {@link #geneOntology()}, shared by the association containers and the analyses
+     */
+    GoDag goDag();
+
     Map<GeneSymbolAccession, List<Transcript>> geneSymbolToTranscriptListMap();
 
     Map<AccessionNumber, GeneModel> ensemblGeneModelMap();
@@ -32,12 +41,45 @@ public interface IsopretProvider {
 
     Map<TermId, TermId> transcriptToGeneIdMap();
 
+    /**
+     * @return registry with a dense index and shared TermId/AccessionNumber instances for every gene and transcript
+     * of {@link #geneSymbolToTranscriptListMap()}
+     */
+    EnsemblIdRegistry idRegistry();
+
     AssociationContainer<TermId> transcriptContainer();
 
     AssociationContainer<TermId> geneContainer();
 
+    /**
+     * Use the compiled snapshot if the directory contains an up-to-date one (see the {@code compile} command),
+     * otherwise parse the source files.
+     * @param directory isopret data directory
+     * @return provider for the data objects required for the analysis
+     */
     static IsopretProvider provider(Path directory ) {
-        return new DefaultIsopretProvider(directory);
+        return provider(directory, 1);
+    }
+
+    /**
+     * Use the compiled snapshot if the directory contains an up-to-date one. Otherwise, if {@code threads} is greater
+     * than one, start loading the source files in parallel (see {@link ConcurrentIsopretProvider}).
+     * @param directory isopret data directory
+     * @param threads maximum number of source files that are loaded at the same time
+     * @return provider for the data objects required for the analysis
+     */
+    static IsopretProvider provider(Path directory, int threads) {
+        return SnapshotIsopretProvider.fromDirectory(directory)
+                .orElseGet(() -> threads > 1 ?
+                        new ConcurrentIsopretProvider(directory, threads) :
+                        new DefaultIsopretProvider(directory));
+    }
+
+    /**
+     * @return timings of the resources loaded by this provider (empty if the provider does not record timings)
+     */
+    default List<ResourceLoadTiming> loadTimings() {
+        return List.of();
     }
 
 
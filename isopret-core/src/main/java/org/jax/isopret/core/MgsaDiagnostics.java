@@ -0,0 +1,21 @@
+package org.jax.isopret.core;
+
+/**
+ * Convergence diagnostics of an MGSA analysis (Markov chain Monte Carlo sampling of the active GO terms).
+ * @param chains number of chains
+ * @param steps number of steps per chain
+ * @param maxRhat largest R-hat of the indicator of a term that was active in at least one chain; values above 1.1
+ *                indicate that the chains have not converged
+ * @param acceptanceRate fraction of accepted moves
+ * @param meanAlpha posterior mean of the false-positive rate
+ * @param meanBeta posterior mean of the false-negative rate
+ * @param meanActive posterior mean of the number of active terms
+ */
+public record MgsaDiagnostics(int chains, int steps, double maxRhat, double acceptanceRate,
+                              double meanAlpha, double meanBeta, double meanActive) {
+
+    /** @return true if the largest R-hat is at most 1.1 */
+    public boolean converged() {
+        return maxRhat <= 1.1;
+    }
+}
@@ -0,0 +1,16 @@
+package org.jax.isopret.core;
+
+/**
+ * Timing of the load of one resource by an {@link IsopretProvider}.
+ * @param resource name of the resource (e.g., Gene Ontology)
+ * @param thread name of the thread that loaded the resource
+ * @param startMillis start of the load relative to the creation of the provider (milliseconds)
+ * @param durationMillis duration of the load (milliseconds)
+ */
+public record ResourceLoadTiming(String resource, String thread, long startMillis, long durationMillis) {
+
+    @Override
+    public String toString() {
+        return String.format("%s: started at %d ms, took %d ms (%s)", resource, startMillis, durationMillis, thread);
+    }
+}
@@ -31,6 +31,14 @@ public class IsopretDataResolver {
     private static final String ISOFORM_FUNCTION_BP_FILENAME = "isoform_function_list_bp.txt";
     private static final String ISOFORM_FUNCTION_CC_URL = ZENODO_BASE_URL + "files/isoform_function_list_cc.txt?download=1";
     private static final String ISOFORM_FUNCTION_CC_FILENAME = "isoform_function_list_cc.txt";
+    /** Binary cache of go.json, written the first time the ontology is loaded. */
+    private static final String GO_CACHE_FILENAME = "go.json.cache";
+    /** Binary index of the used columns of the HGNC file, written the first time the HGNC file is parsed. */
+    private static final String HGNC_INDEX_FILENAME = "hgnc_complete_set.index";
+    /** Columnar copy of the Jannovar transcripts, written by the {@code compile} command. */
+    private static final String TRANSCRIPT_STORE_FILENAME = "hg38_ensembl.transcripts";
+    /** Binary snapshot of all of the above, written by the {@code compile} command. */
+    private static final String SNAPSHOT_FILENAME = "isopret.snapshot";
 
     private final Path dataDirectory;
 
@@ -38,17 +46,29 @@ public class IsopretDataResolver {
         return new IsopretDataResolver(dataDirectory);
     }
 
+    /**
+     * Resolve the paths of the isopret files without checking that the source files exist. This is used
+     * if the data directory contains a compiled snapshot, which is sufficient on its own.
+     */
+    public static IsopretDataResolver withoutResourceCheck(Path dataDirectory) {
+        return new IsopretDataResolver(dataDirectory, false);
+    }
+
     public IsopretDataResolver(Path dataDirectory) throws IsopretRuntimeException {
+        this(dataDirectory, true);
+    }
+
+    private IsopretDataResolver(Path dataDirectory, boolean checkResources) throws IsopretRuntimeException {
         this.dataDirectory = Objects.requireNonNull(dataDirectory, "Data directory must not be null!");
         LOGGER.debug("Using isopret directory at `{}`.", dataDirectory.toAbsolutePath());
-        checkResources();
+        if (checkResources) {
+            checkResources();
+        }
     }
 
     private void checkResources() throws IsopretRuntimeException {
         boolean error = false;
-        List<Path> requiredFiles = List.of(goJson(), isoformFunctionListBp(), isoformFunctionListCc(), isoformFunctionListMf(),
-                hg38Ensembl(), hgncCompleteSet(), interproDomainDescPath(), interproDomainsPath());
-        for (Path file : requiredFiles) {
+        for (Path file : sourceFiles()) {
             if (!Files.isRegularFile(file)) {
                 LOGGER.error("Missing required file `{}` in `{}`.", file.toFile().getName(), dataDirectory.toAbsolutePath());
                 error = true;
@@ -59,9 +79,24 @@ public class IsopretDataResolver {
         }
     }
 
+    /**
+     * @return the source files that are needed to build the data objects used for the analysis
+     */
+    public List<Path> sourceFiles() {
+        return List.of(goJson(), isoformFunctionListBp(), isoformFunctionListCc(), isoformFunctionListMf(),
+                hg38Ensembl(), hgncCompleteSet(), interproDomainDescPath(), interproDomainsPath());
+    }
+
+    public Path dataDirectory() {
+        return dataDirectory;
+    }
+
     public Path goJson() {
         return dataDirectory.resolve(GO_JSON);
     }
+    public Path goCache() {
+        return dataDirectory.resolve(GO_CACHE_FILENAME);
+    }
     public Path isoformFunctionListBp() {
         return dataDirectory.resolve(ISOFORM_FUNCTION_BP_FILENAME);
     }
@@ -75,11 +110,20 @@ public class IsopretDataResolver {
     public Path hgncCompleteSet() {
         return dataDirectory.resolve(HGNC_FILENAME);
     }
+    public Path hgncIndex() {
+        return dataDirectory.resolve(HGNC_INDEX_FILENAME);
+    }
     public Path interproDomainDescPath() {
         return dataDirectory.resolve(INTERPRO_DOMAIN_DESC_FILENAME);
     }
     public Path interproDomainsPath() {
         return dataDirectory.resolve(INTERPRO_DOMAINS_FILENAME);
     }
+    public Path transcriptStore() {
+        return dataDirectory.resolve(TRANSCRIPT_STORE_FILENAME);
+    }
+    public Path snapshot() {
+        return dataDirectory.resolve(SNAPSHOT_FILENAME);
+    }
 
 }
@@ -0,0 +1,127 @@
+package org.jax.isopret.core.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Header and file handling shared by the binary files that isopret derives from its source files (Gene Ontology
+ * cache, HGNC index, transcript store and snapshot). Each file starts with
+ * <pre>
+ * int magic, int version, long[] key
+ * </pre>
+ * where the key identifies the source the file was derived from, e.g., the size and modification time of the
+ * source file (see {@link #fingerprint(Path)}). A file whose magic, version or key differs from the expected values
+ * is stale. Files are written to a temporary file next to the destination and then moved into place, so that
+ * readers never see a partially written file.
+ */
+public final class CacheFile {
+
+    private final int magic;
+
+    private final int version;
+
+    /**
+     * @param magic identifies the file type
+     * @param version version of the encoding; files written with another version are stale
+     */
+    public CacheFile(int magic, int version) {
+        this.magic = magic;
+        this.version = version;
+    }
+
+    /**
+     * @return size in bytes of a header with {@code keyLength} key values
+     */
+    public static int headerBytes(int keyLength) {
+        return 8 + 8 * keyLength;
+    }
+
+    /**
+     * @return {size, last modification time in milliseconds} of {@code source}
+     */
+    public static long[] fingerprint(Path source) throws IOException {
+        return new long[]{Files.size(source), Files.getLastModifiedTime(source).toMillis()};
+    }
+
+    /**
+     * @return the encoded header
+     */
+    public byte[] header(long... key) {
+        ByteBuffer header = ByteBuffer.allocate(headerBytes(key.length));
+        header.putInt(magic).putInt(version);
+        for (long k : key) {
+            header.putLong(k);
+        }
+        return header.array();
+    }
+
+    /**
+     * Read the header from the current position of {@code buffer}.
+     * @return true if the header has the expected magic, version and key
+     */
+    public boolean matches(ByteBuffer buffer, long... key) {
+        if (buffer.remaining() < headerBytes(key.length) || buffer.getInt() != magic || buffer.getInt() != version) {
+            return false;
+        }
+        for (long k : key) {
+            if (buffer.getLong() != k) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the contents of {@code file} positioned after the header, or null if the file does not exist or is stale
+     */
+    public ByteBuffer read(Path file, long... key) throws IOException {
+        if (! Files.isRegularFile(file)) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        return matches(buffer, key) ? buffer : null;
+    }
+
+    /**
+     * Like {@link #read(Path, long...)}, but only the header is read.
+     * @return true if {@code file} exists and is not stale
+     */
+    public boolean isCurrent(Path file, long... key) {
+        if (! Files.isRegularFile(file)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(headerBytes(key.length));
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // read the complete header
+            }
+            header.flip();
+            return matches(header, key);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Write {@code parts} one after the other to a temporary file next to {@code file} and move it into place.
+     */
+    public static void write(Path file, List<byte[]> parts) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (byte[] part : parts) {
+                ByteBuffer buffer = ByteBuffer.wrap(part);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,262 @@
+package org.jax.isopret.core.impl;
+
+import org.jax.isopret.core.InterproMapper;
+import org.jax.isopret.core.IsopretProvider;
+import org.jax.isopret.core.ResourceLoadTiming;
+import org.jax.isopret.core.configuration.IsopretDataResolver;
+import org.jax.isopret.core.impl.go.GoDag;
+import org.jax.isopret.core.impl.go.GoOntologyCache;
+import org.jax.isopret.core.impl.go.IsopretContainerFactory;
+import org.jax.isopret.core.impl.go.SparseAnnotationMatrix;
+import org.jax.isopret.core.impl.go.TranscriptFunctionFileParser;
+import org.jax.isopret.core.impl.hgnc.HgncIndex;
+import org.jax.isopret.core.impl.interpro.InterproDomainDescParser;
+import org.jax.isopret.core.impl.interpro.InterproDomainParser;
+import org.jax.isopret.data.AccessionNumber;
+import org.jax.isopret.data.EnsemblIdRegistry;
+import org.jax.isopret.data.Transcript;
+import org.jax.isopret.model.GeneModel;
+import org.jax.isopret.model.GeneSymbolAccession;
+import org.monarchinitiative.phenol.analysis.AssociationContainer;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.svart.assembly.GenomicAssemblies;
+import org.monarchinitiative.svart.assembly.GenomicAssembly;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link IsopretProvider} that starts loading all resources when it is created. The loads are declared as a
+ * {@link ResourceLoadGraph}; resources that do not depend on each other (the Gene Ontology, the transcripts,
+ * the two Interpro files, and, once the ontology is available, the three isoform function files) are loaded in
+ * parallel on a bounded thread pool. The accessor methods block until the requested resource is available.
+ * <pre>
+ * go.json ----------> isoform functions MF, BP, CC --> transcript GO map --> transcript container
+ *                                                          |
+ * hg38_ensembl.ser -+-> transcript to gene map ----------> gene GO map ------> gene container
+ *                   +-> HGNC gene models
+ * interpro_domain_desc.txt, interpro_domains.txt --> Interpro mapper
+ * </pre>
+ */
+public class ConcurrentIsopretProvider implements IsopretProvider {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrentIsopretProvider.class);
+
+    private final IsopretDataResolver dataResolver;
+
+    private final GenomicAssembly assembly = GenomicAssemblies.GRCh38p13();
+
+    private final ResourceLoadGraph loadGraph;
+
+    private final CompletableFuture<Ontology> geneOntology;
+
+    private final CompletableFuture<GoDag> goDag;
+
+    private final CompletableFuture<Map<GeneSymbolAccession, List<Transcript>>> geneSymbolToTranscriptListMap;
+
+    private final CompletableFuture<Map<AccessionNumber, GeneModel>> ensemblGeneModelMap;
+
+    private final CompletableFuture<EnsemblIdRegistry> idRegistry;
+
+    private final CompletableFuture<Map<TermId, TermId>> transcriptToGeneIdMap;
+
+    private final CompletableFuture<TranscriptFunctionFileParser> functionFileParser;
+
+    private final CompletableFuture<Map<TermId, Set<TermId>>> transcriptToGoMap;
+
+    private final CompletableFuture<Map<TermId, Set<TermId>>> geneIdToGoTermsMap;
+
+    private final CompletableFuture<AssociationContainer<TermId>> transcriptContainer;
+
+    private final CompletableFuture<AssociationContainer<TermId>> geneContainer;
+
+    private final CompletableFuture<InterproMapper> interproMapper;
+
+    /**
+     * @param dataDirectory isopret data directory
+     * @param threads maximum number of resources that are loaded at the same time
+     */
+    public ConcurrentIsopretProvider(Path dataDirectory, int threads) {
+        this.dataResolver = IsopretDataResolver.of(dataDirectory);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), daemonThreadFactory());
+        this.loadGraph = new ResourceLoadGraph(executor);
+        geneOntology = loadGraph.node("Gene Ontology",
+                () -> GoOntologyCache.load(dataResolver.goJson(), dataResolver.goCache()));
+        goDag = loadGraph.node("Gene Ontology DAG",
+                () -> GoDag.of(join(geneOntology)),
+                geneOntology);
+        geneSymbolToTranscriptListMap = loadGraph.node("Transcripts",
+                () -> DefaultIsopretProvider.loadTranscripts(dataResolver, assembly));
+        ensemblGeneModelMap = loadGraph.node("HGNC gene models",
+                () -> HgncIndex.load(dataResolver.hgncCompleteSet(), dataResolver.hgncIndex(), join(geneSymbolToTranscriptListMap)),
+                geneSymbolToTranscriptListMap);
+        idRegistry = loadGraph.node("Ensembl id registry",
+                () -> DefaultIsopretProvider.idRegistry(join(geneSymbolToTranscriptListMap)),
+                geneSymbolToTranscriptListMap);
+        transcriptToGeneIdMap = loadGraph.node("Transcript to gene map",
+                () -> join(idRegistry).transcriptToGeneIdMap(),
+                idRegistry);
+        var functionMf = functionFileNode("Isoform functions (MF)", dataResolver.isoformFunctionListMf());
+        var functionBp = functionFileNode("Isoform functions (BP)", dataResolver.isoformFunctionListBp());
+        var functionCc = functionFileNode("Isoform functions (CC)", dataResolver.isoformFunctionListCc());
+        functionFileParser = loadGraph.node("Transcript GO annotations",
+                () -> new TranscriptFunctionFileParser(join(functionMf), join(functionBp), join(functionCc)),
+                functionMf, functionBp, functionCc);
+        transcriptToGoMap = functionFileParser.thenApply(TranscriptFunctionFileParser::getTranscriptIdToGoTermsMap);
+        geneIdToGoTermsMap = loadGraph.node("Gene GO annotations",
+                () -> join(functionFileParser).getGeneIdToGoTermsMap(join(transcriptToGeneIdMap)),
+                functionFileParser, transcriptToGeneIdMap);
+        transcriptContainer = loadGraph.node("Transcript association container",
+                () -> new IsopretContainerFactory(join(geneOntology), join(goDag), join(idRegistry),
+                        join(transcriptToGoMap), Map.of()).transcriptContainer(),
+                geneOntology, goDag, idRegistry, transcriptToGoMap);
+        geneContainer = loadGraph.node("Gene association container",
+                () -> new IsopretContainerFactory(join(geneOntology), join(goDag), join(idRegistry),
+                        Map.of(), join(geneIdToGoTermsMap)).geneContainer(),
+                geneOntology, goDag, idRegistry, geneIdToGoTermsMap);
+        var interproDescription = loadGraph.node("Interpro descriptions",
+                () -> InterproDomainDescParser.getInterproDescriptionMap(dataResolver.interproDomainDescPath().toFile()));
+        var interproAnnotation = loadGraph.node("Interpro domains",
+                () -> InterproDomainParser.getInterproAnnotationStore(dataResolver.interproDomainsPath().toFile()));
+        interproMapper = loadGraph.node("Interpro mapper",
+                () -> new InterproMapper(join(interproDescription), join(interproAnnotation)),
+                interproDescription, interproAnnotation);
+        loadGraph.completion().whenComplete((v, e) -> {
+            executor.shutdown();
+            for (ResourceLoadTiming timing : loadGraph.timings()) {
+                LOGGER.info("{}", timing);
+            }
+        });
+    }
+
+    private CompletableFuture<SparseAnnotationMatrix> functionFileNode(String name, Path functionFile) {
+        return loadGraph.node(name,
+                () -> TranscriptFunctionFileParser.parseFunctionFile(functionFile.toFile(), join(geneOntology)),
+                geneOntology);
+    }
+
+    private static <T> T join(CompletableFuture<T> node) {
+        return ResourceLoadGraph.join(node);
+    }
+
+    private static ThreadFactory daemonThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "isopret-loader-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * @return timings of the resources that have been loaded so far, in the order in which the loads were started
+     */
+    @Override
+    public List<ResourceLoadTiming> loadTimings() {
+        return loadGraph.timings();
+    }
+
+    @Override
+    public Ontology geneOntology() {
+        return join(geneOntology);
+    }
+
+    @Override
+    public GoDag goDag() {
+        return join(goDag);
+    }
+
+    @Override
+    public Map<GeneSymbolAccession, List<Transcript>> geneSymbolToTranscriptListMap() {
+        return join(geneSymbolToTranscriptListMap);
+    }
+
+    @Override
+    public Map<AccessionNumber, GeneModel> ensemblGeneModelMap() {
+        return join(ensemblGeneModelMap);
+    }
+
+    @Override
+    public Map<TermId, Set<TermId>> transcriptIdToGoTermsMap() {
+        return join(transcriptToGoMap);
+    }
+
+    @Override
+    public Map<TermId, Set<TermId>> gene2GoMap() {
+        return join(geneIdToGoTermsMap);
+    }
+
+    @Override
+    public Map<TermId, TermId> transcriptToGeneIdMap() {
+        return join(transcriptToGeneIdMap);
+    }
+
+    @Override
+    public EnsemblIdRegistry idRegistry() {
+        return join(idRegistry);
+    }
+
+    @Override
+    public AssociationContainer<TermId> transcriptContainer() {
+        return join(transcriptContainer);
+    }
+
+    @Override
+    public AssociationContainer<TermId> geneContainer() {
+        return join(geneContainer);
+    }
+
+    @Override
+    public InterproMapper interproMapper() {
+        return join(interproMapper);
+    }
+
+    @Override
+    public Path goJson() {
+        return dataResolver.goJson();
+    }
+
+    @Override
+    public Path isoformFunctionListBp() {
+        return dataResolver.isoformFunctionListBp();
+    }
+
+    @Override
+    public Path isoformFunctionListCc() {
+        return dataResolver.isoformFunctionListCc();
+    }
+
+    @Override
+    public Path isoformFunctionListMf() {
+        return dataResolver.isoformFunctionListMf();
+    }
+
+    @Override
+    public Path hg38Ensembl() {
+        return dataResolver.hg38Ensembl();
+    }
+
+    @Override
+    public Path hgncCompleteSet() {
+        return dataResolver.hgncCompleteSet();
+    }
+
+    @Override
+    public Path interproDomainDesc() {
+        return dataResolver.interproDomainDescPath();
+    }
+
+    @Override
+    public Path interproDomains() {
+        return dataResolver.interproDomainsPath();
+    }
+}
@@ -2,16 +2,19 @@ package org.jax.isopret.core.impl;
 
 import org.jax.isopret.core.IsopretProvider;
 import org.jax.isopret.core.configuration.IsopretDataResolver;
+import org.jax.isopret.core.impl.go.GoDag;
+import org.jax.isopret.core.impl.go.GoOntologyCache;
 import org.jax.isopret.core.impl.go.IsopretContainerFactory;
-import org.jax.isopret.core.impl.hgnc.HgncParser;
+import org.jax.isopret.core.impl.hgnc.HgncIndex;
 import org.jax.isopret.core.impl.go.TranscriptFunctionFileParser;
 import org.jax.isopret.core.InterproMapper;
 import org.jax.isopret.core.impl.jannovar.JannovarReader;
+import org.jax.isopret.core.impl.transcript.TranscriptStore;
 import org.jax.isopret.data.AccessionNumber;
+import org.jax.isopret.data.EnsemblIdRegistry;
 import org.jax.isopret.data.Transcript;
 import org.jax.isopret.model.*;
 import org.monarchinitiative.phenol.analysis.AssociationContainer;
-import org.monarchinitiative.phenol.io.OntologyLoader;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.TermId;
 import org.monarchinitiative.svart.assembly.GenomicAssemblies;
@@ -21,11 +24,15 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.nio.file.Path;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+/**
+ * Default provider that parses the isopret source files. Each data object is built at most once, on first use,
+ * and is then shared (as an immutable object) by all callers, so that one provider can be used by several analyses
+ * running concurrently in the same JVM.
+ */
 public class DefaultIsopretProvider implements IsopretProvider {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultIsopretProvider.class);
@@ -34,20 +41,31 @@ public class DefaultIsopretProvider implements IsopretProvider {
 
     private final GenomicAssembly assembly = GenomicAssemblies.GRCh38p13();
 
-    private Ontology geneOntology = null;
+    private final LoadOnce<Ontology> geneOntology = new LoadOnce<>(this::loadGeneOntology);
 
-    private Map<TermId, Set<TermId>> transcriptToGoMap = null;
+    private final LoadOnce<GoDag> goDag = new LoadOnce<>(() -> GoDag.of(geneOntology()));
 
-    private Map<TermId, Set<TermId>> geneIdToGoTermsMap = null;
+    private final LoadOnce<Map<GeneSymbolAccession, List<Transcript>>> geneSymbolToTranscriptListMap =
+            new LoadOnce<>(this::loadGeneSymbolToTranscriptListMap);
 
+    private final LoadOnce<Map<AccessionNumber, GeneModel>> ensemblGeneModelMap = new LoadOnce<>(this::loadEnsemblGeneModelMap);
 
-    private Map<TermId, TermId> transcriptToGeneIdMap = null;
+    private final LoadOnce<TranscriptFunctionFileParser> functionFileParser = new LoadOnce<>(this::loadFunctionFileParser);
 
-    private  AssociationContainer<TermId> transcriptContainer = null;
+    private final LoadOnce<Map<TermId, Set<TermId>>> geneIdToGoTermsMap =
+            new LoadOnce<>(() -> functionFileParser.get().getGeneIdToGoTermsMap(transcriptToGeneIdMap()));
 
-    private AssociationContainer<TermId> geneContainer = null;
+    private final LoadOnce<EnsemblIdRegistry> idRegistry =
+            new LoadOnce<>(() -> idRegistry(geneSymbolToTranscriptListMap()));
 
-    private InterproMapper interproMapper = null;
+    private final LoadOnce<Map<TermId, TermId>> transcriptToGeneIdMap =
+            new LoadOnce<>(() -> idRegistry().transcriptToGeneIdMap());
+
+    private final LoadOnce<AssociationContainer<TermId>> transcriptContainer = new LoadOnce<>(this::loadTranscriptContainer);
+
+    private final LoadOnce<AssociationContainer<TermId>> geneContainer = new LoadOnce<>(this::loadGeneContainer);
+
+    private final LoadOnce<InterproMapper> interproMapper = new LoadOnce<>(this::loadInterproMapper);
 
 
     public DefaultIsopretProvider(Path dataDirectory) {
@@ -56,13 +74,19 @@ public class DefaultIsopretProvider implements IsopretProvider {
 
     @Override
     public Ontology geneOntology() {
-        if (geneOntology == null) {
-            Path goPath = dataResolver.goJson();
-            geneOntology = OntologyLoader.loadOntology(goPath.toFile());
-            int n_terms = geneOntology.nonObsoleteTermIdCount();
-            LOGGER.info("Loaded Gene Ontology json file with {} terms.", n_terms);
-        }
-        return geneOntology;
+        return geneOntology.get();
+    }
+
+    @Override
+    public GoDag goDag() {
+        return goDag.get();
+    }
+
+    private Ontology loadGeneOntology() {
+        Ontology ontology = GoOntologyCache.load(dataResolver.goJson(), dataResolver.goCache());
+        int n_terms = ontology.nonObsoleteTermIdCount();
+        LOGGER.info("Loaded Gene Ontology json file with {} terms.", n_terms);
+        return ontology;
     }
 
     /**
@@ -71,21 +95,38 @@ public class DefaultIsopretProvider implements IsopretProvider {
      */
     @Override
     public Map<GeneSymbolAccession, List<Transcript>> geneSymbolToTranscriptListMap() {
-        // hg38_ensembl.ser
-        File jannovarTranscriptFile = dataResolver.hg38Ensembl().toFile();
-        JannovarReader jannovarReader = new JannovarReader(jannovarTranscriptFile, assembly);
-        var symbolToTranscriptMap = jannovarReader.getGeneToTranscriptListMap();
-        LOGGER.info("Loaded JannovarReader with {} symbols",
-                jannovarReader.getGeneToTranscriptListMap().size());
+        return geneSymbolToTranscriptListMap.get();
+    }
+
+    private Map<GeneSymbolAccession, List<Transcript>> loadGeneSymbolToTranscriptListMap() {
+        var symbolToTranscriptMap = loadTranscripts(dataResolver, assembly);
+        LOGGER.info("Loaded transcripts of {} symbols", symbolToTranscriptMap.size());
         return symbolToTranscriptMap;
     }
 
-    @Override
+    /**
+     * Use the columnar transcript store if it was converted from the current {@code hg38_ensembl.ser},
+     * otherwise deserialize the Jannovar file.
+     * @return Map with key: A gene symbol/accession object, value - list of corresponding isoforms
+     */
+    static Map<GeneSymbolAccession, List<Transcript>> loadTranscripts(IsopretDataResolver dataResolver, GenomicAssembly assembly) {
+        Path jannovarTranscriptFile = dataResolver.hg38Ensembl();
+        Path transcriptStore = dataResolver.transcriptStore();
+        if (TranscriptStore.isCurrent(transcriptStore, jannovarTranscriptFile)) {
+            return TranscriptStore.open(transcriptStore, assembly).asMap();
+        }
+        JannovarReader jannovarReader = new JannovarReader(jannovarTranscriptFile.toFile(), assembly);
+        return jannovarReader.getGeneToTranscriptListMap();
+    }
 
+    @Override
     public Map<AccessionNumber, GeneModel> ensemblGeneModelMap() {
-        File hgncFile = dataResolver.hgncCompleteSet().toFile();
-        HgncParser hgncParser = new HgncParser(hgncFile, geneSymbolToTranscriptListMap());
-        Map<AccessionNumber, GeneModel> hgncMap  = hgncParser.ensemblMap();
+        return ensemblGeneModelMap.get();
+    }
+
+    private Map<AccessionNumber, GeneModel> loadEnsemblGeneModelMap() {
+        Map<AccessionNumber, GeneModel> hgncMap = HgncIndex.load(dataResolver.hgncCompleteSet(),
+                dataResolver.hgncIndex(), geneSymbolToTranscriptListMap());
         LOGGER.info("Loaded HGNC Map with {} symbols",
                 hgncMap.size());
         return hgncMap;
@@ -93,85 +134,89 @@ public class DefaultIsopretProvider implements IsopretProvider {
 
     @Override
     public Map<TermId, Set<TermId>> transcriptIdToGoTermsMap() {
-        if (transcriptToGoMap == null) {
-            initFromTranscriptFunctionParser();
-        }
-        return transcriptToGoMap;
+        return functionFileParser.get().getTranscriptIdToGoTermsMap();
     }
 
     @Override
     public Map<TermId, TermId> transcriptToGeneIdMap() {
-        if (this.transcriptToGeneIdMap == null) {
-            Map<TermId, TermId> accessionNumberMap = new HashMap<>();
-            for (var entry : geneSymbolToTranscriptListMap().entrySet()) {
-                var geneAcc = entry.getKey();
-                var geneTermId = geneAcc.accession().toTermId();
-                var transcriptList = entry.getValue();
-                for (var transcript : transcriptList) {
-                    var transcriptAcc = transcript.accessionId();
-                    var transcriptTermId = transcriptAcc.toTermId();
-                    //System.out.println(transcriptAcc.getAccessionString() +": " + geneAcc.getAccessionString());
-                    accessionNumberMap.put(transcriptTermId, geneTermId);
-                }
+        return transcriptToGeneIdMap.get();
+    }
+
+    @Override
+    public EnsemblIdRegistry idRegistry() {
+        return idRegistry.get();
+    }
+
+    /**
+     * @param geneSymbolToTranscriptListMap Map with key: A gene symbol/accession object, value - list of corresponding isoforms
+     * @return registry of the genes and transcripts of the map
+     */
+    public static EnsemblIdRegistry idRegistry(Map<GeneSymbolAccession, List<Transcript>> geneSymbolToTranscriptListMap) {
+        EnsemblIdRegistry.Builder builder = EnsemblIdRegistry.builder();
+        for (var entry : geneSymbolToTranscriptListMap.entrySet()) {
+            AccessionNumber geneAcc = entry.getKey().accession();
+            builder.addGene(geneAcc);
+            for (var transcript : entry.getValue()) {
+                builder.addTranscript(geneAcc, transcript.accessionId());
             }
-            this.transcriptToGeneIdMap = Map.copyOf(accessionNumberMap); // immutable copy
         }
-        return this.transcriptToGeneIdMap;
+        EnsemblIdRegistry registry = builder.build();
+        LOGGER.info("Registered {} genes and {} transcripts", registry.geneCount(), registry.transcriptCount());
+        return registry;
     }
 
     @Override
     public AssociationContainer<TermId> transcriptContainer() {
-        if (this.transcriptContainer == null) {
-            initContainers();
-        }
-        return this.transcriptContainer;
+        return transcriptContainer.get();
     }
 
     @Override
     public AssociationContainer<TermId> geneContainer() {
-        if (this.geneContainer == null) {
-            initContainers();
-        }
-        return this.geneContainer;
+        return geneContainer.get();
     }
 
-    private void initContainers() {
-        IsopretContainerFactory isoContainerFac = new IsopretContainerFactory(geneOntology(),
+    private AssociationContainer<TermId> loadTranscriptContainer() {
+        IsopretContainerFactory isoContainerFac = new IsopretContainerFactory(geneOntology(), goDag(), idRegistry(),
                 transcriptIdToGoTermsMap(), gene2GoMap());
-        this.transcriptContainer = isoContainerFac.transcriptContainer();
-        LOGGER.info("transcriptContainer terms n={}", transcriptContainer.getAnnotatingTermCount());
-        LOGGER.info("transcriptContainer items n={}", transcriptContainer.getAnnotatedDomainItemCount());
-        this.geneContainer = isoContainerFac.geneContainer();
-        LOGGER.info("geneContainer terms n={}", geneContainer.getAnnotatingTermCount());
-        LOGGER.info("geneContainer items n={}", geneContainer.getAnnotatedDomainItemCount());
+        AssociationContainer<TermId> container = isoContainerFac.transcriptContainer();
+        LOGGER.info("transcriptContainer terms n={}", container.getAnnotatingTermCount());
+        LOGGER.info("transcriptContainer items n={}", container.getAnnotatedDomainItemCount());
+        return container;
+    }
+
+    private AssociationContainer<TermId> loadGeneContainer() {
+        IsopretContainerFactory isoContainerFac = new IsopretContainerFactory(geneOntology(), goDag(), idRegistry(),
+                transcriptIdToGoTermsMap(), gene2GoMap());
+        AssociationContainer<TermId> container = isoContainerFac.geneContainer();
+        LOGGER.info("geneContainer terms n={}", container.getAnnotatingTermCount());
+        LOGGER.info("geneContainer items n={}", container.getAnnotatedDomainItemCount());
+        return container;
     }
 
     @Override
     public Map<TermId, Set<TermId>> gene2GoMap() {
-        if (geneIdToGoTermsMap == null) {
-            initFromTranscriptFunctionParser();
-        }
-        return geneIdToGoTermsMap;
+        return geneIdToGoTermsMap.get();
     }
-    private void initFromTranscriptFunctionParser() {
+
+    private TranscriptFunctionFileParser loadFunctionFileParser() {
         File predictionFileMf = dataResolver.isoformFunctionListMf().toFile();
         File predictionFileBp = dataResolver.isoformFunctionListBp().toFile();
         File predictionFileCc = dataResolver.isoformFunctionListCc().toFile();
-        TranscriptFunctionFileParser parser = new TranscriptFunctionFileParser(predictionFileMf,
+        return new TranscriptFunctionFileParser(predictionFileMf,
                 predictionFileBp,
                 predictionFileCc,
-                geneOntology);
-        transcriptToGoMap = parser.getTranscriptIdToGoTermsMap();
-        geneIdToGoTermsMap = parser.getGeneIdToGoTermsMap(transcriptToGeneIdMap());
+                geneOntology());
     }
+
     @Override
     public InterproMapper interproMapper() {
-        if (interproMapper == null) {
-            File interproDescriptionFile = dataResolver.interproDomainDescPath().toFile();
-            File interproDomainsFile = dataResolver.interproDomainsPath().toFile();
-            this.interproMapper = new InterproMapper(interproDescriptionFile, interproDomainsFile);
-        }
-        return this.interproMapper;
+        return interproMapper.get();
+    }
+
+    private InterproMapper loadInterproMapper() {
+        File interproDescriptionFile = dataResolver.interproDomainDescPath().toFile();
+        File interproDomainsFile = dataResolver.interproDomainsPath().toFile();
+        return new InterproMapper(interproDescriptionFile, interproDomainsFile);
     }
 
     @Override
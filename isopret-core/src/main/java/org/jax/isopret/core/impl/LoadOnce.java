@@ -0,0 +1,36 @@
+package org.jax.isopret.core.impl;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * A value that is loaded on first use and then shared. The loader is run at most once, even if several
+ * threads request the value at the same time, and the loaded value is safely published to all threads.
+ * If the loader throws, the exception is propagated and the next call tries again.
+ * @param <T> type of the loaded value
+ */
+public final class LoadOnce<T> implements Supplier<T> {
+
+    private final Supplier<T> loader;
+
+    private volatile T value;
+
+    public LoadOnce(Supplier<T> loader) {
+        this.loader = Objects.requireNonNull(loader);
+    }
+
+    @Override
+    public T get() {
+        T result = value;
+        if (result == null) {
+            synchronized (this) {
+                result = value;
+                if (result == null) {
+                    result = Objects.requireNonNull(loader.get(), "loader returned null");
+                    value = result;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,89 @@
+package org.jax.isopret.core.impl;
+
+import org.jax.isopret.core.ResourceLoadTiming;
+import org.jax.isopret.exception.IsopretRuntimeException;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * A dependency graph of resource loads. Each node is submitted to the executor as soon as all of the nodes
+ * it depends on have completed, so that independent resources are loaded in parallel. If a node fails, all
+ * nodes that depend on it fail with the same exception.
+ */
+class ResourceLoadGraph {
+
+    private final Executor executor;
+
+    private final long createdMillis;
+
+    private final List<CompletableFuture<?>> nodes = new ArrayList<>();
+
+    private final List<ResourceLoadTiming> timings = Collections.synchronizedList(new ArrayList<>());
+
+    ResourceLoadGraph(Executor executor) {
+        this.executor = executor;
+        this.createdMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Add a node to the graph.
+     * @param name name of the resource (used for the timings)
+     * @param loader function that loads the resource; it may call {@link #join} on its dependencies
+     * @param dependencies nodes that must be complete before the loader is started
+     * @return future that completes with the loaded resource
+     */
+    <T> CompletableFuture<T> node(String name, Supplier<T> loader, CompletableFuture<?>... dependencies) {
+        CompletableFuture<T> future = CompletableFuture.allOf(dependencies)
+                .thenApplyAsync(v -> timed(name, loader), executor);
+        nodes.add(future);
+        return future;
+    }
+
+    private <T> T timed(String name, Supplier<T> loader) {
+        long start = System.currentTimeMillis();
+        T result = loader.get();
+        long end = System.currentTimeMillis();
+        timings.add(new ResourceLoadTiming(name, Thread.currentThread().getName(), start - createdMillis, end - start));
+        return result;
+    }
+
+    /**
+     * @return future that completes when all nodes of the graph have completed (normally or exceptionally)
+     */
+    CompletableFuture<Void> completion() {
+        return CompletableFuture.allOf(nodes.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * @return timings of the nodes that have completed so far, in the order they were started
+     */
+    List<ResourceLoadTiming> timings() {
+        synchronized (timings) {
+            return timings.stream()
+                    .sorted(Comparator.comparingLong(ResourceLoadTiming::startMillis))
+                    .toList();
+        }
+    }
+
+    /**
+     * Wait for a node and return its value. Exceptions thrown by the loader are rethrown unwrapped.
+     */
+    static <T> T join(CompletableFuture<T> node) {
+        try {
+            return node.join();
+        } catch (CompletionException e) {
+            Throwable cause = e;
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IsopretRuntimeException("Could not load isopret resource: " + cause.getMessage());
+        }
+    }
+}
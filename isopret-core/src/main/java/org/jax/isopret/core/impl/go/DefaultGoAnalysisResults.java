@@ -1,17 +1,39 @@
 package org.jax.isopret.core.impl.go;
 
 import org.jax.isopret.core.GoAnalysisResults;
+import org.jax.isopret.core.MgsaDiagnostics;
 import org.jax.isopret.data.GoMethod;
 import org.jax.isopret.data.MtcMethod;
 import org.monarchinitiative.phenol.analysis.stats.GoTerm2PValAndCounts;
 
 import java.io.File;
 import java.util.List;
+import java.util.Optional;
 
 public record DefaultGoAnalysisResults(File hbaDealsFile,
                                        MtcMethod mtcMethod,
                                        GoMethod goMethod,
                                        List<GoTerm2PValAndCounts> dasGoTerms,
-                                       List<GoTerm2PValAndCounts> dgeGoTerms)
+                                       List<GoTerm2PValAndCounts> dgeGoTerms,
+                                       MgsaDiagnostics dasMgsa,
+                                       MgsaDiagnostics dgeMgsa)
         implements GoAnalysisResults {
+
+    public DefaultGoAnalysisResults(File hbaDealsFile,
+                                    MtcMethod mtcMethod,
+                                    GoMethod goMethod,
+                                    List<GoTerm2PValAndCounts> dasGoTerms,
+                                    List<GoTerm2PValAndCounts> dgeGoTerms) {
+        this(hbaDealsFile, mtcMethod, goMethod, dasGoTerms, dgeGoTerms, null, null);
+    }
+
+    @Override
+    public Optional<MgsaDiagnostics> dasMgsaDiagnostics() {
+        return Optional.ofNullable(dasMgsa);
+    }
+
+    @Override
+    public Optional<MgsaDiagnostics> dgeMgsaDiagnostics() {
+        return Optional.ofNullable(dgeMgsa);
+    }
 }
@@ -1,15 +1,19 @@
 package org.jax.isopret.core.impl.go;
 
 import org.jax.isopret.core.GoAnalysisResults;
+import org.jax.isopret.core.GoFdrSweepResult;
 import org.jax.isopret.core.IsopretGoAnalysisRunner;
 import org.jax.isopret.core.IsopretProvider;
+import org.jax.isopret.core.MgsaDiagnostics;
 import org.jax.isopret.core.impl.rnaseqdata.IsoformSpecificThresholder;
+import org.jax.isopret.core.impl.rnaseqdata.PosteriorErrorProbThreshold;
 import org.jax.isopret.core.impl.rnaseqdata.RnaSeqAnalysisMethod;
 import org.jax.isopret.core.impl.rnaseqdata.RnaSeqResultsParser;
+import org.jax.isopret.core.impl.rnaseqdata.StudyAndPopulation;
 import org.jax.isopret.data.AccessionNumber;
+import org.jax.isopret.data.EnsemblIdRegistry;
 import org.jax.isopret.data.GoMethod;
 import org.jax.isopret.data.MtcMethod;
-import org.jax.isopret.data.Transcript;
 import org.jax.isopret.exception.IsopretRuntimeException;
 import org.jax.isopret.model.*;
 import org.monarchinitiative.phenol.analysis.AssociationContainer;
@@ -22,9 +26,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 public class DefaultIsopretGoAnalysisRunner implements IsopretGoAnalysisRunner {
@@ -41,6 +47,19 @@ public class DefaultIsopretGoAnalysisRunner implements IsopretGoAnalysisRunner {
     private final double alphaThreshold = 0.05;
 
     private boolean exportAll = false;
+    /** Executor for the concurrent parts of the analysis (study sets, DGE and DAS enrichment, term counts). */
+    private Executor executor = ForkJoinPool.commonPool();
+    /** Maximum number of threads used to parse the RNA-seq results file. */
+    private int parserThreads = Runtime.getRuntime().availableProcessors();
+    /** Number of permutations for empirical p-values (0: hypergeometric p-values). */
+    private int permutations = 0;
+    private boolean stratifyByGene = false;
+    private long permutationSeed = 0L;
+    private long mgsaSeed = GoEnrichmentEngine.DEFAULT_MGSA_SEED;
+    /** Filters applied to the GO terms before testing. */
+    private TermPruning termPruning = TermPruning.none();
+    /** Spacing of the candidate PEP thresholds for HBA-DEALS results. */
+    private double pepResolution = PosteriorErrorProbThreshold.DEFAULT_RESOLUTION;
 
     private final RnaSeqAnalysisMethod rnaSeqAnalysisMethod;
 
@@ -62,64 +81,230 @@ public class DefaultIsopretGoAnalysisRunner implements IsopretGoAnalysisRunner {
 
     @Override
     public GoAnalysisResults run() {
+        return runSweep(List.of(goMethod), List.of(mtcMethod)).get(0);
+    }
+
+    /**
+     * The RNA-seq results are parsed and thresholded once, and the DGE and DAS term counts are computed once for all
+     * combinations of GO method and multiple testing correction.
+     */
+    @Override
+    public List<GoAnalysisResults> runSweep(List<GoMethod> goMethods, List<MtcMethod> mtcMethods) {
         Ontology geneOntology = provider.geneOntology();
-        Map<GeneSymbolAccession, List<Transcript>>  geneSymbolAccessionListMap = provider.geneSymbolToTranscriptListMap();
         Map<AccessionNumber, GeneModel> hgncMap  = provider.ensemblGeneModelMap();
-        Map<GeneSymbolAccession, List<Transcript>> geneSymbolAccessionToTranscriptMap = provider.geneSymbolToTranscriptListMap();
-        Map<TermId, Set<TermId>> transcriptIdToGoTermsMap = provider.transcriptIdToGoTermsMap();
         AssociationContainer<TermId> transcriptContainer = provider.transcriptContainer();
         AssociationContainer<TermId> geneContainer = provider.geneContainer();
 
         // ----------  6. HBA-DEALS input file  ----------------
         LOGGER.info("About to create thresholder for RNA-seq method {}", rnaSeqAnalysisMethod);
-        Map<AccessionNumber, GeneResult> geneResults;
-        if (rnaSeqAnalysisMethod == RnaSeqAnalysisMethod.HBADEALS) {
-            geneResults = RnaSeqResultsParser.fromHbaDeals(this.rnaSeqResultsFile, hgncMap);
-        } else {
-            geneResults = RnaSeqResultsParser.fromEdgeR(this.rnaSeqResultsFile, hgncMap);
-        }
-        LOGGER.trace("Analyzing {} genes.", geneResults.size());
+        Map<AccessionNumber, GeneResult> geneResults = parseRnaSeqResults(hgncMap);
         IsoformSpecificThresholder isoThresholder;
         if (rnaSeqAnalysisMethod == RnaSeqAnalysisMethod.HBADEALS) {
             isoThresholder = IsoformSpecificThresholder.fromHbaDeals(geneResults,
                     fdrThreshold,
                     geneContainer,
-                    transcriptContainer);
+                    transcriptContainer,
+                    pepResolution,
+                    executor);
         } else {
             isoThresholder = IsoformSpecificThresholder.fromEdgeR(geneResults,
                     fdrThreshold,
                     geneContainer,
-                    transcriptContainer);
+                    transcriptContainer,
+                    executor);
         }
         LOGGER.info("Initialized HBADealsThresholder");
         LOGGER.info("isoThresholder.getDgePopulation().getAnnotatedItemCount()={}",
                 isoThresholder.getDgePopulation().getAnnotatedItemCount());
         /* ---------- 7. Set up HbaDeal GO analysis ------------------------- */
-        LOGGER.info("Using Gene Ontology approach {}", goMethod.name());
-        LOGGER.info("About to create HbaDealsGoContainer");
-        List<GoTerm2PValAndCounts> dgeGoTerms = doGoAnalysis(goMethod,
-                mtcMethod,
-                geneOntology,
-                isoThresholder.getDgeStudy(),
-                isoThresholder.getDgePopulation());
-        LOGGER.trace("Go enrichments, DGE");
-        for (var cts : dgeGoTerms) {
-            if (cts.passesThreshold(alphaThreshold))
-                try {
-                    LOGGER.trace(cts.getRow(geneOntology));
-                } catch (Exception e) {
-                    // some issue with getting terms, probably ontology is not in sync
-                    LOGGER.error("Could not get data for {}: {}", cts, e.getLocalizedMessage());
-                }
+        LOGGER.info("Using Gene Ontology approaches {} with multiple testing corrections {}", goMethods, mtcMethods);
+        Map<TermId, TermId> strata = transcriptStrata(geneResults);
+        // the DGE and DAS analyses are independent of each other
+        CompletableFuture<Sweep> dgeFuture = CompletableFuture.supplyAsync(() ->
+                doGoAnalysis(goMethods,
+                        mtcMethods,
+                        geneOntology,
+                        geneContainer,
+                        isoThresholder.getDge(),
+                        null), executor);
+        CompletableFuture<Sweep> dasFuture = CompletableFuture.supplyAsync(() ->
+                doGoAnalysis(goMethods,
+                        mtcMethods,
+                        geneOntology,
+                        transcriptContainer,
+                        isoThresholder.getDas(),
+                        strata), executor);
+        Sweep dgeResults = join(dgeFuture);
+        Sweep dasResults = join(dasFuture);
+        List<GoAnalysisResults> results = new ArrayList<>();
+        for (GoMethod go : goMethods) {
+            for (MtcMethod mtc : mtcMethods) {
+                List<GoTerm2PValAndCounts> dgeGoTerms = dgeResults.goTerms().get(go).get(mtc);
+                List<GoTerm2PValAndCounts> dasGoTerms = dasResults.goTerms().get(go).get(mtc);
+                LOGGER.trace("Go enrichments, DGE ({}/{})", go, mtc);
+                traceResults(dgeGoTerms, geneOntology);
+                LOGGER.trace("Go enrichments, DAS ({}/{})", go, mtc);
+                traceResults(dasGoTerms, geneOntology);
+                boolean mgsa = go == GoMethod.MGSA;
+                results.add(new DefaultGoAnalysisResults(rnaSeqResultsFile, mtc, go, dasGoTerms, dgeGoTerms,
+                        mgsa ? dasResults.mgsaDiagnostics() : null, mgsa ? dgeResults.mgsaDiagnostics() : null));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * The genes (transcripts) are scored by the PEP (or p-value for edgeR) of differential expression (splicing), and
+     * the study sets for all FDR thresholds are analyzed in one pass over the items sorted by score.
+     */
+    @Override
+    public List<GoFdrSweepResult> runFdrSweep(double[] fdrThresholds) {
+        Map<AccessionNumber, GeneModel> hgncMap  = provider.ensemblGeneModelMap();
+        AssociationContainer<TermId> transcriptContainer = provider.transcriptContainer();
+        AssociationContainer<TermId> geneContainer = provider.geneContainer();
+        Map<AccessionNumber, GeneResult> geneResults = parseRnaSeqResults(hgncMap);
+        EnsemblIdRegistry registry = provider.idRegistry();
+        Map<TermId, Double> expressionScores = new HashMap<>();
+        Map<TermId, Double> splicingScores = new HashMap<>();
+        for (GeneResult result : geneResults.values()) {
+            expressionScores.put(registry.termId(result.getGeneAccession()), result.getExpressionP());
+            for (TranscriptResult transcriptResult : result.getTranscriptResults()) {
+                splicingScores.merge(registry.termId(transcriptResult.getTranscriptId()), transcriptResult.getPvalue(), Math::min);
+            }
+        }
+        double[] expressionThresholds = new double[fdrThresholds.length];
+        double[] splicingThresholds = new double[fdrThresholds.length];
+        // the PEPs are sorted once for all FDR thresholds
+        PosteriorErrorProbThreshold expressionProbs = new PosteriorErrorProbThreshold(geneResults.values().stream()
+                .mapToDouble(GeneResult::getExpressionP)
+                .toArray(), fdrThreshold);
+        PosteriorErrorProbThreshold splicingProbs = new PosteriorErrorProbThreshold(geneResults.values().stream()
+                .map(GeneResult::getSplicingPlist)
+                .flatMap(List::stream)
+                .mapToDouble(Double::doubleValue)
+                .toArray(), fdrThreshold);
+        for (int j = 0; j < fdrThresholds.length; j++) {
+            if (rnaSeqAnalysisMethod == RnaSeqAnalysisMethod.HBADEALS) {
+                expressionThresholds[j] = expressionProbs.getPepThreshold(fdrThresholds[j], pepResolution);
+                splicingThresholds[j] = splicingProbs.getPepThreshold(fdrThresholds[j], pepResolution);
+            } else {
+                expressionThresholds[j] = fdrThresholds[j];
+                splicingThresholds[j] = fdrThresholds[j];
+            }
+            LOGGER.info("FDR {}: expression threshold {}, splicing threshold {}", fdrThresholds[j],
+                    expressionThresholds[j], splicingThresholds[j]);
+        }
+        Map<TermId, TermId> strata = transcriptStrata(geneResults);
+        CompletableFuture<List<List<GoTerm2PValAndCounts>>> dgeFuture = CompletableFuture.supplyAsync(() ->
+                fdrSweep(geneContainer, expressionScores, expressionThresholds, "DGE", null), executor);
+        CompletableFuture<List<List<GoTerm2PValAndCounts>>> dasFuture = CompletableFuture.supplyAsync(() ->
+                fdrSweep(transcriptContainer, splicingScores, splicingThresholds, "DAS", strata), executor);
+        List<List<GoTerm2PValAndCounts>> dgeResults = join(dgeFuture);
+        List<List<GoTerm2PValAndCounts>> dasResults = join(dasFuture);
+        List<GoFdrSweepResult> results = new ArrayList<>();
+        for (int j = 0; j < fdrThresholds.length; j++) {
+            GoAnalysisResults goResults = new DefaultGoAnalysisResults(rnaSeqResultsFile, mtcMethod, goMethod,
+                    dasResults.get(j), dgeResults.get(j));
+            results.add(new GoFdrSweepResult(fdrThresholds[j], expressionThresholds[j], splicingThresholds[j], goResults));
+        }
+        return results;
+    }
+
+    /**
+     * @param container GO annotations of the genes (or isoforms)
+     * @param scores PEP (or p-value) of each gene (or isoform); the keys are the population
+     * @param thresholds score thresholds
+     * @param name "DGE" or "DAS"
+     * @param strata strata for the permutation test (see {@link #permutationTest(Map)}), or null
+     * @return GO results for each threshold
+     */
+    private List<List<GoTerm2PValAndCounts>> fdrSweep(AssociationContainer<TermId> container,
+                                                      Map<TermId, Double> scores,
+                                                      double[] thresholds,
+                                                      String name,
+                                                      Map<TermId, TermId> strata) {
+        List<List<GoTerm2PValAndCounts>> results = new ArrayList<>();
+        if (container instanceof IsopretAssociationContainer isopretContainer) {
+            double reportThreshold = this.exportAll ? Double.POSITIVE_INFINITY : alphaThreshold;
+            new GoEnrichmentEngine(isopretContainer, permutationTest(strata), termPruning, executor, mgsaSeed)
+                    .thresholdSweep(goMethod, mtcMethod, scores, thresholds, scores.keySet(), reportThreshold)
+                    .forEach(goTerms -> results.add(thresholdAndSort(goTerms)));
+        } else {
+            warnIfPermutationTest();
+            StudySet populationSet = new StudySet(name + " Population", container.getAssociationMap(scores.keySet()));
+            for (double threshold : thresholds) {
+                Set<TermId> study = scores.entrySet()
+                        .stream()
+                        .filter(e -> e.getValue() <= threshold)
+                        .map(Map.Entry::getKey)
+                        .collect(Collectors.toSet());
+                StudySet studySet = new StudySet(name + " Study", container.getAssociationMap(study));
+                results.add(thresholdAndSort(doPhenolGoAnalysis(goMethod, mtcMethod, provider.geneOntology(),
+                        studySet, populationSet)));
+            }
+        }
+        return results;
+    }
+
+    private Map<AccessionNumber, GeneResult> parseRnaSeqResults(Map<AccessionNumber, GeneModel> hgncMap) {
+        Map<AccessionNumber, GeneResult> geneResults = RnaSeqResultsParser.parse(this.rnaSeqResultsFile, hgncMap,
+                provider.idRegistry(), rnaSeqAnalysisMethod, parserThreads);
+        LOGGER.trace("Analyzing {} genes.", geneResults.size());
+        return geneResults;
+    }
+
+    /**
+     * @return strata of the transcripts for the permutation test (see {@link #transcriptToGene(Map)}), or null if the
+     * permutations are not stratified by gene
+     */
+    private Map<TermId, TermId> transcriptStrata(Map<AccessionNumber, GeneResult> geneResults) {
+        return permutations > 0 && stratifyByGene ? transcriptToGene(geneResults) : null;
+    }
+
+    /**
+     * @return map with key -- transcript id, value -- id of the gene of the transcript
+     */
+    private Map<TermId, TermId> transcriptToGene(Map<AccessionNumber, GeneResult> geneResults) {
+        EnsemblIdRegistry registry = provider.idRegistry();
+        Map<TermId, TermId> transcriptToGene = new HashMap<>();
+        for (GeneResult result : geneResults.values()) {
+            TermId geneId = registry.termId(result.getGeneAccession());
+            for (TranscriptResult transcriptResult : result.getTranscriptResults()) {
+                transcriptToGene.put(registry.termId(transcriptResult.getTranscriptId()), geneId);
+            }
+        }
+        return transcriptToGene;
+    }
+
+    /**
+     * @param strata map with key -- transcript id, value -- gene id; only used if {@link #stratifyByGene} is set
+     * @return the permutation test for empirical p-values, or null if hypergeometric p-values are used
+     */
+    private GoPermutationPValues permutationTest(Map<TermId, TermId> strata) {
+        if (permutations < 1) {
+            return null;
+        }
+        return new GoPermutationPValues(permutations,
+                permutationSeed,
+                GoPermutationPValues.DEFAULT_EARLY_STOP_EXCEEDANCES,
+                stratifyByGene ? strata : null);
+    }
+
+    private void warnIfPermutationTest() {
+        if (permutations > 0) {
+            LOGGER.warn("Empirical p-values are only available for isopret's association containers, "
+                    + "using hypergeometric p-values");
+        }
+        if (! termPruning.equals(TermPruning.none())) {
+            LOGGER.warn("GO term pruning is only available for isopret's association containers");
         }
+    }
 
-        List<GoTerm2PValAndCounts> dasGoTerms = doGoAnalysis(goMethod,
-                mtcMethod,
-                geneOntology,
-                isoThresholder.getDasStudy(),
-                isoThresholder.getDasPopulation());
-        LOGGER.trace("Go enrichments, DAS");
-        for (var cts : dasGoTerms) {
+    private void traceResults(List<GoTerm2PValAndCounts> goTerms, Ontology geneOntology) {
+        if (! LOGGER.isTraceEnabled()) {
+            return;
+        }
+        for (var cts : goTerms) {
             if (cts.passesThreshold(alphaThreshold))
                 try {
                     LOGGER.trace(cts.getRow(geneOntology));
@@ -128,7 +313,6 @@ public class DefaultIsopretGoAnalysisRunner implements IsopretGoAnalysisRunner {
                     LOGGER.error("Could not get data for {}: {}", cts, e.getLocalizedMessage());
                 }
         }
-        return new DefaultGoAnalysisResults(rnaSeqResultsFile, mtcMethod, goMethod, dasGoTerms, dgeGoTerms);
     }
 
     @Override
@@ -136,22 +320,131 @@ public class DefaultIsopretGoAnalysisRunner implements IsopretGoAnalysisRunner {
         this.exportAll = true;
     }
 
+    @Override
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void setParserThreads(int threads) {
+        this.parserThreads = threads;
+    }
+
+    @Override
+    public void setMgsaSeed(long seed) {
+        this.mgsaSeed = seed;
+    }
+
+    @Override
+    public void setPepResolution(double pepResolution) {
+        this.pepResolution = pepResolution;
+    }
+
+    @Override
+    public void setTermPruning(int minTermSize, int maxTermSize, boolean tarone) {
+        this.termPruning = new TermPruning(minTermSize, maxTermSize, tarone, alphaThreshold);
+    }
+
+    @Override
+    public void setPermutationTest(int permutations, boolean stratifyByGene, long seed) {
+        this.permutations = permutations;
+        this.stratifyByGene = stratifyByGene;
+        this.permutationSeed = seed;
+    }
+
+    /**
+     * Wait for the DGE or DAS analysis. Exceptions thrown by the analysis are rethrown unwrapped.
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IsopretRuntimeException("Could not perform GO analysis: " + e.getMessage());
+        }
+    }
+
 
     /**
-     * This method is used to perform GO analysis for either DGE or DAS
-     * @param goMethod One of the {@link GoMethod}s, such as TermForTerm
-     * @param mtcMethod One of the {@link MtcMethod}s, such as Bonferroni
+     * GO results of the DGE or DAS analysis.
+     * @param goTerms map with key -- GO method, value -- map with key -- MTC method, value -- GO results
+     * @param mgsaDiagnostics convergence diagnostics if MGSA was run, otherwise null
+     */
+    private record Sweep(Map<GoMethod, Map<MtcMethod, List<GoTerm2PValAndCounts>>> goTerms,
+                         MgsaDiagnostics mgsaDiagnostics) {}
+
+    /**
+     * This method is used to perform GO analysis for either DGE or DAS. For isopret's own association containers,
+     * the analysis is done by the {@link GoEnrichmentEngine}, which computes the term counts once for all methods;
+     * otherwise, phenol's p-value calculations are used for each combination of methods.
+     * @param goMethods {@link GoMethod}s, such as TermForTerm
+     * @param mtcMethods {@link MtcMethod}s, such as Bonferroni
      * @param geneOntology Link to the phenol {@link Ontology} object for Gene Ontology
-     * @param studySet The set of differentially expressed genes (or the set of differentially spliced isoforms)
-     * @param populationSet The set of all considered genes (or isoforms)
-     * @return list of GO Overrepresentation analysis results
+     * @param container GO annotations of the genes (or isoforms)
+     * @param studyAndPopulation the differentially expressed genes (or differentially spliced isoforms) and all
+     *                           considered genes (or isoforms)
+     * @param strata strata for the permutation test (see {@link #permutationTest(Map)})
+     * @return GO Overrepresentation analysis results for each GO method and MTC method
+     */
+    private Sweep doGoAnalysis(List<GoMethod> goMethods,
+                               List<MtcMethod> mtcMethods,
+                               Ontology geneOntology,
+                               AssociationContainer<TermId> container,
+                               StudyAndPopulation studyAndPopulation,
+                               Map<TermId, TermId> strata) {
+        Map<GoMethod, Map<MtcMethod, List<GoTerm2PValAndCounts>>> results = new EnumMap<>(GoMethod.class);
+        if (container instanceof IsopretAssociationContainer isopretContainer) {
+            GoEnrichmentEngine engine = new GoEnrichmentEngine(isopretContainer, permutationTest(strata), termPruning,
+                    executor, mgsaSeed);
+            double reportThreshold = this.exportAll ? Double.POSITIVE_INFINITY : alphaThreshold;
+            Map<GoMethod, Map<MtcMethod, List<GoTerm2PValAndCounts>>> sweep =
+                    studyAndPopulation.hasItemSets(container)
+                            ? engine.sweep(goMethods, mtcMethods, studyAndPopulation.getStudyItemSet(),
+                                    studyAndPopulation.getPopulationItemSet(), reportThreshold)
+                            : engine.sweep(goMethods, mtcMethods, studyAndPopulation.getStudyItems(),
+                                    studyAndPopulation.getPopulationItems(), reportThreshold);
+            sweep.forEach((go, byMtc) -> byMtc.forEach((mtc, goTerms) ->
+                    results.computeIfAbsent(go, k -> new EnumMap<>(MtcMethod.class))
+                            .put(mtc, thresholdAndSort(goTerms))));
+            return new Sweep(results, engine.mgsaDiagnostics());
+        } else {
+            warnIfPermutationTest();
+            for (GoMethod go : goMethods) {
+                for (MtcMethod mtc : mtcMethods) {
+                    results.computeIfAbsent(go, k -> new EnumMap<>(MtcMethod.class))
+                            .put(mtc, thresholdAndSort(doPhenolGoAnalysis(go, mtc, geneOntology,
+                                    studyAndPopulation.getStudy(), studyAndPopulation.getPopulation())));
+                }
+            }
+            return new Sweep(results, null);
+        }
+    }
+
+    /**
+     * @return the results that pass the p-value threshold (all results if {@link #exportAll} is set), sorted
      */
-    private List<GoTerm2PValAndCounts> doGoAnalysis(GoMethod goMethod,
-                                                    MtcMethod mtcMethod,
-                                                    Ontology geneOntology,
-                                                    StudySet studySet,
-                                                    StudySet populationSet) {
-        final double ALPHA = 0.05;
+    private List<GoTerm2PValAndCounts> thresholdAndSort(List<GoTerm2PValAndCounts> goTerms) {
+        if (this.exportAll) {
+            LOGGER.info("Returning GO Overrepresentation results with no p-value threshold");
+            return goTerms.stream()
+                    .sorted()
+                    .collect(Collectors.toList());
+        } else {
+            LOGGER.info("Returning GO Overrepresentation results with p-value threshold of {}", alphaThreshold);
+            return goTerms.stream()
+                    .filter(item -> item.passesThreshold(alphaThreshold))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private List<GoTerm2PValAndCounts> doPhenolGoAnalysis(GoMethod goMethod,
+                                                          MtcMethod mtcMethod,
+                                                          Ontology geneOntology,
+                                                          StudySet studySet,
+                                                          StudySet populationSet) {
         PValueCalculation pvalcal;
         MultipleTestingCorrection mtc;
         switch (mtcMethod) {
@@ -182,22 +475,12 @@ public class DefaultIsopretGoAnalysisRunner implements IsopretGoAnalysisRunner {
                     populationSet,
                     studySet,
                     mtc);
+        } else if (goMethod == GoMethod.ELIM || goMethod == GoMethod.WEIGHT || goMethod == GoMethod.MGSA) {
+            throw new IsopretRuntimeException("GO method " + goMethod
+                    + " is only available for isopret's association containers");
         } else {
             throw new IsopretRuntimeException("Did not recognise GO Method");
         }
-        if (this.exportAll) {
-            LOGGER.info("Returning GO Overrepresentation results with no p-value threshold");
-            return pvalcal.calculatePVals()
-                    .stream()
-                    .sorted()
-                    .collect(Collectors.toList());
-        } else {
-            LOGGER.info("Returning GO Overrepresentation results with p-value threshold of {}", ALPHA);
-            return pvalcal.calculatePVals()
-                    .stream()
-                    .filter(item -> item.passesThreshold(ALPHA))
-                    .sorted()
-                    .collect(Collectors.toList());
-        }
+        return pvalcal.calculatePVals();
     }
 }
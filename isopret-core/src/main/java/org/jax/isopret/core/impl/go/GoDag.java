@@ -0,0 +1,240 @@
+package org.jax.isopret.core.impl.go;
+
+import org.jax.isopret.exception.IsopretRuntimeException;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.Term;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.*;
+
+/**
+ * The Gene Ontology graph with the terms numbered densely from 0 to {@link #size()}-1. For each term, the parents and
+ * the ancestor closure (all ancestors, excluding the term itself) are precomputed as sorted int arrays, so that
+ * annotation propagation can be done with integer arrays and bitsets instead of graph traversals and TermId sets.
+ * The children of each term and a bottom-up topological order are also precomputed for the algorithms that process
+ * the graph from the leaves to the roots. Alternative ids are mapped to the index of their primary term. Instances
+ * are immutable.
+ * <p>
+ * The closures are int arrays rather than one bitset per term: a GO term has a few dozen ancestors, whereas a bitset
+ * over all terms would need several kilobytes per term. The bitsets are only used as scratch space while the closures
+ * of an item are merged (see {@link IsopretAssociationContainer}).
+ * </p>
+ * <p>
+ * Building the DAG takes a pass over the whole ontology, so the provider builds it once and passes it to the
+ * containers (see {@link IsopretContainerFactory}).
+ * </p>
+ */
+public final class GoDag {
+
+    private final TermId[] termIds;
+
+    private final Map<TermId, Integer> termIndex;
+
+    private final int[][] parents;
+
+    private final int[][] ancestors;
+
+    private final int[][] children;
+
+    /** Rank of each term in a bottom-up topological order (descendants have a smaller rank than their ancestors). */
+    private final int[] bottomUpRank;
+
+    private GoDag(TermId[] termIds, Map<TermId, Integer> termIndex, int[][] parents, int[][] ancestors) {
+        this.termIds = termIds;
+        this.termIndex = termIndex;
+        this.parents = parents;
+        this.ancestors = ancestors;
+        this.children = children(parents);
+        this.bottomUpRank = bottomUpRank(ancestors);
+    }
+
+    /**
+     * Number the terms of the ontology graph and compute their ancestor closures. Terms of the ontology that are not
+     * part of the graph (e.g., obsolete terms) also get an index, but have no ancestors.
+     * @param ontology the Gene Ontology
+     * @return the dense DAG of {@code ontology}
+     */
+    public static GoDag of(Ontology ontology) {
+        List<TermId> ids = new ArrayList<>();
+        Map<TermId, Integer> index = new HashMap<>();
+        for (TermId tid : ontology.graph()) {
+            if (index.putIfAbsent(tid, ids.size()) == null) {
+                ids.add(tid);
+            }
+        }
+        int nGraph = ids.size();
+        for (Term term : ontology.getTerms()) {
+            if (index.putIfAbsent(term.id(), ids.size()) == null) {
+                ids.add(term.id());
+            }
+        }
+        for (Term term : ontology.getTerms()) {
+            int primary = index.get(term.id());
+            for (TermId alt : term.getAltTermIds()) {
+                index.putIfAbsent(alt, primary);
+            }
+        }
+        int n = ids.size();
+        int[][] parents = new int[n][];
+        for (int t = 0; t < n; t++) {
+            if (t < nGraph) {
+                List<Integer> parentList = new ArrayList<>();
+                for (TermId parent : ontology.graph().getParents(ids.get(t), false)) {
+                    parentList.add(index.get(parent));
+                }
+                parents[t] = parentList.stream().mapToInt(Integer::intValue).sorted().distinct().toArray();
+            } else {
+                parents[t] = new int[0];
+            }
+        }
+        int[][] ancestors = closure(parents);
+        return new GoDag(ids.toArray(new TermId[0]), Map.copyOf(index), parents, ancestors);
+    }
+
+    private static int[][] children(int[][] parents) {
+        int n = parents.length;
+        int[] childCount = new int[n];
+        for (int[] termParents : parents) {
+            for (int p : termParents) {
+                childCount[p]++;
+            }
+        }
+        int[][] children = new int[n][];
+        for (int t = 0; t < n; t++) {
+            children[t] = new int[childCount[t]];
+            childCount[t] = 0;
+        }
+        // the terms are visited in increasing order, so the children arrays are sorted
+        for (int t = 0; t < n; t++) {
+            for (int p : parents[t]) {
+                children[p][childCount[p]++] = t;
+            }
+        }
+        return children;
+    }
+
+    /**
+     * An ancestor of a term has strictly fewer ancestors than the term itself, so sorting the terms by decreasing
+     * number of ancestors (counting sort) yields a bottom-up topological order.
+     */
+    private static int[] bottomUpRank(int[][] ancestors) {
+        int n = ancestors.length;
+        int maxAncestors = 0;
+        for (int[] a : ancestors) {
+            maxAncestors = Math.max(maxAncestors, a.length);
+        }
+        int[] start = new int[maxAncestors + 2];
+        for (int[] a : ancestors) {
+            start[maxAncestors - a.length + 1]++;
+        }
+        for (int k = 1; k < start.length; k++) {
+            start[k] += start[k - 1];
+        }
+        int[] rank = new int[n];
+        for (int t = 0; t < n; t++) {
+            rank[t] = start[maxAncestors - ancestors[t].length]++;
+        }
+        return rank;
+    }
+
+    /**
+     * Compute the ancestors of each term from the ancestors of its parents (memoized depth-first search).
+     */
+    private static int[][] closure(int[][] parents) {
+        int n = parents.length;
+        int[][] ancestors = new int[n][];
+        boolean[] inProgress = new boolean[n];
+        int[] stamp = new int[n];
+        Arrays.fill(stamp, -1);
+        int[] buffer = new int[n];
+        for (int t = 0; t < n; t++) {
+            computeClosure(t, parents, ancestors, inProgress, stamp, buffer);
+        }
+        return ancestors;
+    }
+
+    private static void computeClosure(int t, int[][] parents, int[][] ancestors, boolean[] inProgress,
+                                       int[] stamp, int[] buffer) {
+        if (ancestors[t] != null) {
+            return;
+        }
+        if (inProgress[t]) {
+            throw new IsopretRuntimeException("Cycle in Gene Ontology graph at term index " + t);
+        }
+        inProgress[t] = true;
+        for (int p : parents[t]) {
+            computeClosure(p, parents, ancestors, inProgress, stamp, buffer);
+        }
+        // the buffer is only used after all recursive calls have returned
+        int k = 0;
+        for (int p : parents[t]) {
+            if (stamp[p] != t) {
+                stamp[p] = t;
+                buffer[k++] = p;
+            }
+            for (int a : ancestors[p]) {
+                if (stamp[a] != t) {
+                    stamp[a] = t;
+                    buffer[k++] = a;
+                }
+            }
+        }
+        int[] closure = Arrays.copyOf(buffer, k);
+        Arrays.sort(closure);
+        ancestors[t] = closure;
+        inProgress[t] = false;
+    }
+
+    /** @return number of terms */
+    public int size() {
+        return termIds.length;
+    }
+
+    /**
+     * @param termId primary or alternative id of a GO term
+     * @return index of the (primary) term, or -1 if the term is not part of the ontology
+     */
+    public int index(TermId termId) {
+        Integer i = termIndex.get(termId);
+        return i == null ? -1 : i;
+    }
+
+    /** @return primary id of term {@code t} */
+    public TermId termId(int t) {
+        return termIds[t];
+    }
+
+    /**
+     * @return sorted indices of the parents of term {@code t}. The array is shared and must not be modified.
+     */
+    int[] parents(int t) {
+        return parents[t];
+    }
+
+    /**
+     * @return sorted indices of all ancestors of term {@code t}, excluding {@code t}. The array is shared and must
+     * not be modified.
+     */
+    int[] ancestors(int t) {
+        return ancestors[t];
+    }
+
+    /**
+     * @return sorted indices of the children of term {@code t}. The array is shared and must not be modified.
+     */
+    int[] children(int t) {
+        return children[t];
+    }
+
+    /**
+     * @param terms term indices
+     * @return the terms sorted bottom-up, i.e., every term comes before all of its ancestors
+     */
+    int[] bottomUp(int[] terms) {
+        return Arrays.stream(terms)
+                .boxed()
+                .sorted(Comparator.comparingInt(t -> bottomUpRank[t]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+}
@@ -0,0 +1,572 @@
+package org.jax.isopret.core.impl.go;
+
+import org.jax.isopret.core.MgsaDiagnostics;
+import org.jax.isopret.data.GoMethod;
+import org.jax.isopret.data.MtcMethod;
+import org.monarchinitiative.phenol.analysis.stats.GoTerm2PValAndCounts;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * GO overrepresentation analysis (Term-for-Term, Parent-Child-Union, Parent-Child-Intersection and topGO's elim and
+ * weight, see {@link TopGoDecorrelation}; MGSA, see {@link MgsaSampler}) that works on the
+ * integer indices of an {@link IsopretAssociationContainer} instead of phenol's {@code StudySet} objects. Study and
+ * population are represented as bitsets over the items of the container, the annotation counts of all terms are
+ * obtained from the propagated inverted index of the container, and the hypergeometric tails are computed with a
+ * {@link LogFactorialHypergeometric} table sized to the population. The counts and p-values of the terms are
+ * computed in parallel on the executor of the engine (see {@link ParallelTasks}); {@link GoTerm2PValAndCounts}
+ * objects are only created for the terms that are reported.
+ * <p>
+ * The results are the same as those of phenol's {@code TermForTermPValueCalculation},
+ * {@code ParentChildUnionPValueCalculation} and {@code ParentChildIntersectionPValueCalculation}: a term is tested if
+ * at least one study item is annotated to it (directly or via a descendent), and the parent-child methods use the
+ * union (intersection) of the items annotated to the parents of the term, or the whole population for root terms.
+ * Optionally, the tested terms are pruned by term size and by Tarone's minimum achievable p-value before the
+ * p-values are computed (see {@link TermPruning}).
+ * </p>
+ */
+public final class GoEnrichmentEngine {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GoEnrichmentEngine.class);
+    /** Default seed of the MGSA chains, so that repeated analyses give the same results. */
+    public static final long DEFAULT_MGSA_SEED = 42L;
+    /** Number of terms whose counts or p-values are computed by one task. */
+    private static final int GRAIN = 1024;
+
+    private final IsopretAssociationContainer container;
+
+    private final GoDag dag;
+
+    /** If not null, raw p-values are empirical p-values from this permutation test. */
+    private final GoPermutationPValues permutationTest;
+
+    /** Filters applied to the tested terms before the p-values are computed. */
+    private final TermPruning pruning;
+
+    /** Executor for the parallel parts of the analysis. */
+    private final Executor executor;
+
+    /** Seed of the MGSA chains. */
+    private final long mgsaSeed;
+
+    /** Diagnostics of the last MGSA analysis, or null. */
+    private volatile MgsaDiagnostics mgsaDiagnostics = null;
+
+    public GoEnrichmentEngine(IsopretAssociationContainer container) {
+        this(container, null);
+    }
+
+    /**
+     * @param container GO annotations of the genes or transcripts
+     * @param permutationTest permutation test for empirical p-values, or null for hypergeometric p-values
+     */
+    public GoEnrichmentEngine(IsopretAssociationContainer container, GoPermutationPValues permutationTest) {
+        this(container, permutationTest, TermPruning.none());
+    }
+
+    /**
+     * @param container GO annotations of the genes or transcripts
+     * @param permutationTest permutation test for empirical p-values, or null for hypergeometric p-values
+     * @param pruning filters applied to the tested terms
+     */
+    public GoEnrichmentEngine(IsopretAssociationContainer container,
+                              GoPermutationPValues permutationTest,
+                              TermPruning pruning) {
+        this(container, permutationTest, pruning, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param container GO annotations of the genes or transcripts
+     * @param permutationTest permutation test for empirical p-values, or null for hypergeometric p-values
+     * @param pruning filters applied to the tested terms
+     * @param executor executor for the parallel parts of the analysis ({@code Runnable::run} to use only the
+     *                 calling thread)
+     */
+    public GoEnrichmentEngine(IsopretAssociationContainer container,
+                              GoPermutationPValues permutationTest,
+                              TermPruning pruning,
+                              Executor executor) {
+        this(container, permutationTest, pruning, executor, DEFAULT_MGSA_SEED);
+    }
+
+    /**
+     * @param container GO annotations of the genes or transcripts
+     * @param permutationTest permutation test for empirical p-values, or null for hypergeometric p-values
+     * @param pruning filters applied to the tested terms
+     * @param executor executor for the parallel parts of the analysis ({@code Runnable::run} to use only the
+     *                 calling thread)
+     * @param mgsaSeed seed of the MGSA chains
+     */
+    public GoEnrichmentEngine(IsopretAssociationContainer container,
+                              GoPermutationPValues permutationTest,
+                              TermPruning pruning,
+                              Executor executor,
+                              long mgsaSeed) {
+        this.container = container;
+        this.dag = container.dag();
+        this.permutationTest = permutationTest;
+        this.pruning = pruning;
+        this.executor = executor;
+        this.mgsaSeed = mgsaSeed;
+    }
+
+    IsopretAssociationContainer container() {
+        return container;
+    }
+
+    Executor executor() {
+        return executor;
+    }
+
+    /**
+     * @return convergence diagnostics of the last MGSA analysis done by this engine, or null if MGSA was not used
+     */
+    public MgsaDiagnostics mgsaDiagnostics() {
+        return mgsaDiagnostics;
+    }
+
+    /**
+     * Annotated items and per-term annotation counts of a study set and its population.
+     * @param studySize number of study items annotated to at least one GO term
+     * @param populationSize number of population items annotated to at least one GO term
+     * @param study number of study items annotated to each term (indexed by {@link GoDag} term index)
+     * @param population number of population items annotated to each term
+     * @param studyItems bitset of the annotated study items (indexed by container item index)
+     * @param populationItems bitset of the annotated population items
+     */
+    record Counts(int studySize, int populationSize, int[] study, int[] population,
+                  long[] studyItems, long[] populationItems) {
+
+        /** @return term indices of the terms that are tested, i.e., that annotate at least one study item */
+        int[] testedTerms() {
+            return IntStream.range(0, study.length)
+                    .filter(t -> study[t] > 0 && population[t] > 0)
+                    .toArray();
+        }
+    }
+
+    /**
+     * @param goMethod GO analysis method
+     * @param mtcMethod multiple testing correction
+     * @param study ids of the genes or transcripts in the study set
+     * @param population ids of the genes or transcripts in the population
+     * @param reportThreshold only terms whose adjusted p-value is at most this value are returned
+     * @return results of the reported terms, in no particular order
+     */
+    public List<GoTerm2PValAndCounts> calculatePVals(GoMethod goMethod,
+                                                     MtcMethod mtcMethod,
+                                                     Set<TermId> study,
+                                                     Set<TermId> population,
+                                                     double reportThreshold) {
+        return sweep(List.of(goMethod), List.of(mtcMethod), study, population, reportThreshold)
+                .get(goMethod)
+                .get(mtcMethod);
+    }
+
+    /**
+     * Analyze the same study set and population with several GO methods and multiple testing corrections. The term
+     * counts are computed once, the raw p-values once per GO method, and each correction is applied to the same raw
+     * p-values, so the cost is close to that of a single analysis.
+     * @param goMethods GO analysis methods
+     * @param mtcMethods multiple testing corrections
+     * @param study ids of the genes or transcripts in the study set
+     * @param population ids of the genes or transcripts in the population
+     * @param reportThreshold only terms whose adjusted p-value is at most this value are returned
+     * @return map with key -- GO method, value -- map with key -- MTC method, value -- results of the reported terms
+     */
+    public Map<GoMethod, Map<MtcMethod, List<GoTerm2PValAndCounts>>> sweep(List<GoMethod> goMethods,
+                                                                          List<MtcMethod> mtcMethods,
+                                                                          Set<TermId> study,
+                                                                          Set<TermId> population,
+                                                                          double reportThreshold) {
+        return sweep(goMethods, mtcMethods, counts(study, population), reportThreshold);
+    }
+
+    /**
+     * Same as {@link #sweep(List, List, Set, Set, double)} for study and population items given as bitsets over the
+     * item indices of the container, e.g., as selected by the {@code IsoformSpecificThresholder}. Items that are not
+     * annotated to any GO term are ignored.
+     */
+    Map<GoMethod, Map<MtcMethod, List<GoTerm2PValAndCounts>>> sweep(List<GoMethod> goMethods,
+                                                                   List<MtcMethod> mtcMethods,
+                                                                   long[] study,
+                                                                   long[] population,
+                                                                   double reportThreshold) {
+        return sweep(goMethods, mtcMethods, counts(annotated(study), annotated(population)), reportThreshold);
+    }
+
+    private Map<GoMethod, Map<MtcMethod, List<GoTerm2PValAndCounts>>> sweep(List<GoMethod> goMethods,
+                                                                           List<MtcMethod> mtcMethods,
+                                                                           Counts counts,
+                                                                           double reportThreshold) {
+        Map<GoMethod, Map<MtcMethod, List<GoTerm2PValAndCounts>>> results = new EnumMap<>(GoMethod.class);
+        for (GoMethod goMethod : goMethods) {
+            TermPruning.Pruned pruned = pruning.prune(goMethod, counts, counts.testedTerms());
+            int[] tested = pruned.terms();
+            double[] raw = rawPValues(goMethod, counts, tested);
+            Map<MtcMethod, List<GoTerm2PValAndCounts>> byMtc = new EnumMap<>(MtcMethod.class);
+            for (MtcMethod mtcMethod : mtcMethods) {
+                List<GoTerm2PValAndCounts> reported = report(counts, tested, raw,
+                        adjusted(goMethod, mtcMethod, raw, pruned.correctionFactor()), reportThreshold);
+                LOGGER.info("{}/{}: tested {} GO terms with {} study and {} population items, reporting {}.",
+                        goMethod, mtcMethod, tested.length, counts.studySize, counts.populationSize, reported.size());
+                byMtc.put(mtcMethod, reported);
+            }
+            results.put(goMethod, byMtc);
+        }
+        return results;
+    }
+
+    /**
+     * Analyze a series of nested study sets, defined by increasing thresholds on a score of the items (e.g., the PEP
+     * of differential expression). The items are sorted by score once, and the study set is grown by walking the
+     * thresholds in increasing order; each newly added item increments the study counts of its terms and their
+     * ancestors, so the term counts are never recomputed from scratch.
+     * @param goMethod GO analysis method
+     * @param mtcMethod multiple testing correction
+     * @param scores map with key -- gene or transcript id, value -- score; an item is in the study set of a threshold
+     *               if its score is at most the threshold
+     * @param thresholds score thresholds (in any order)
+     * @param population ids of the genes or transcripts in the population
+     * @param reportThreshold only terms whose adjusted p-value is at most this value are returned
+     * @return results of the reported terms for each threshold (same order as {@code thresholds})
+     */
+    public List<List<GoTerm2PValAndCounts>> thresholdSweep(GoMethod goMethod,
+                                                           MtcMethod mtcMethod,
+                                                           Map<TermId, Double> scores,
+                                                           double[] thresholds,
+                                                           Set<TermId> population,
+                                                           double reportThreshold) {
+        long[] populationItems = itemSet(population);
+        Counts populationCounts = counts(new long[populationItems.length], populationItems);
+        // annotated items sorted by increasing score
+        List<Map.Entry<Integer, Double>> scored = new ArrayList<>();
+        for (Map.Entry<TermId, Double> entry : scores.entrySet()) {
+            int i = container.itemIndex(entry.getKey());
+            if (i >= 0 && container.isAnnotated(i)) {
+                scored.add(Map.entry(i, entry.getValue()));
+            }
+        }
+        scored.sort(Map.Entry.comparingByValue());
+        Integer[] order = IntStream.range(0, thresholds.length)
+                .boxed()
+                .sorted(Comparator.comparingDouble(j -> thresholds[j]))
+                .toArray(Integer[]::new);
+        long[] studyItems = new long[populationItems.length];
+        int[] studyCounts = new int[dag.size()];
+        int studySize = 0;
+        long[] seen = new long[(dag.size() + 63) >>> 6];
+        int[] touched = new int[dag.size()];
+        int next = 0;
+        List<List<GoTerm2PValAndCounts>> results = new ArrayList<>(Collections.nCopies(thresholds.length, null));
+        for (int j : order) {
+            while (next < scored.size() && scored.get(next).getValue() <= thresholds[j]) {
+                int i = scored.get(next++).getKey();
+                if (! contains(studyItems, i)) {
+                    studyItems[i >>> 6] |= 1L << i;
+                    studySize++;
+                    int k = container.collectTerms(i, true, seen, touched);
+                    for (int m = 0; m < k; m++) {
+                        studyCounts[touched[m]]++;
+                    }
+                }
+            }
+            Counts counts = new Counts(studySize, populationCounts.populationSize(), studyCounts,
+                    populationCounts.population(), studyItems, populationItems);
+            TermPruning.Pruned pruned = pruning.prune(goMethod, counts, counts.testedTerms());
+            int[] tested = pruned.terms();
+            double[] raw = rawPValues(goMethod, counts, tested);
+            List<GoTerm2PValAndCounts> reported = report(counts, tested, raw,
+                    adjusted(goMethod, mtcMethod, raw, pruned.correctionFactor()), reportThreshold);
+            LOGGER.info("Threshold {}: tested {} GO terms with {} study items, reporting {}.",
+                    thresholds[j], tested.length, studySize, reported.size());
+            results.set(j, reported);
+        }
+        return results;
+    }
+
+    /**
+     * Create the result objects for the tested terms whose adjusted p-value is at most {@code reportThreshold}.
+     */
+    private List<GoTerm2PValAndCounts> report(Counts counts,
+                                              int[] tested,
+                                              double[] raw,
+                                              double[] adjusted,
+                                              double reportThreshold) {
+        List<GoTerm2PValAndCounts> results = new ArrayList<>();
+        for (int j = 0; j < tested.length; j++) {
+            if (adjusted[j] <= reportThreshold) {
+                int t = tested[j];
+                GoTerm2PValAndCounts result = new GoTerm2PValAndCounts(dag.termId(t),
+                        raw[j],
+                        counts.study[t],
+                        counts.studySize,
+                        counts.population[t],
+                        counts.populationSize);
+                result.setAdjustedPValue(adjusted[j]);
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @return bitset (indexed by container item index) of the items of {@code ids} that are annotated to at least
+     * one GO term
+     */
+    long[] itemSet(Set<TermId> ids) {
+        long[] bits = new long[(container.itemCount() + 63) >>> 6];
+        for (TermId id : ids) {
+            int i = container.itemIndex(id);
+            if (i >= 0 && container.isAnnotated(i)) {
+                bits[i >>> 6] |= 1L << i;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * @param items bitset over the item indices of the container
+     * @return the items of {@code items} that are annotated to at least one GO term
+     */
+    private long[] annotated(long[] items) {
+        long[] bits = new long[(container.itemCount() + 63) >>> 6];
+        for (int w = 0; w < Math.min(bits.length, items.length); w++) {
+            for (long word = items[w]; word != 0; word &= word - 1) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(word);
+                if (container.isAnnotated(i)) {
+                    bits[w] |= 1L << i;
+                }
+            }
+        }
+        return bits;
+    }
+
+    Counts counts(Set<TermId> study, Set<TermId> population) {
+        return counts(itemSet(study), itemSet(population));
+    }
+
+    Counts counts(long[] studyItems, long[] populationItems) {
+        IsopretAssociationContainer.Csr index = container.propagatedIndex();
+        int[] studyCounts = new int[dag.size()];
+        int[] populationCounts = new int[dag.size()];
+        ParallelTasks.forRanges(executor, dag.size(), GRAIN, (from, to) -> {
+            for (int t = from; t < to; t++) {
+                int s = 0;
+                int p = 0;
+                for (int k = index.start(t); k < index.end(t); k++) {
+                    int i = index.items()[k];
+                    if (contains(studyItems, i)) s++;
+                    if (contains(populationItems, i)) p++;
+                }
+                studyCounts[t] = s;
+                populationCounts[t] = p;
+            }
+        });
+        return new Counts(cardinality(studyItems), cardinality(populationItems), studyCounts, populationCounts,
+                studyItems, populationItems);
+    }
+
+    /**
+     * @param tested term indices of the tested terms
+     * @return raw p-values of the tested terms (same order as {@code tested}); empirical p-values if a
+     * {@link GoPermutationPValues} is used, otherwise hypergeometric p-values
+     */
+    double[] rawPValues(GoMethod goMethod, Counts counts, int[] tested) {
+        if (goMethod == GoMethod.ELIM || goMethod == GoMethod.WEIGHT || goMethod == GoMethod.MGSA) {
+            if (permutationTest != null) {
+                LOGGER.warn("Empirical p-values are not available for {}, using the method's own scores", goMethod);
+            }
+            if (goMethod == GoMethod.MGSA) {
+                // the "p-value" of a term is the posterior probability that the term is not active
+                MgsaSampler sampler = new MgsaSampler(container, counts, MgsaSampler.DEFAULT_CHAINS,
+                        MgsaSampler.DEFAULT_STEPS, mgsaSeed, executor);
+                double[] posterior = sampler.posteriors(tested);
+                mgsaDiagnostics = sampler.diagnostics();
+                return Arrays.stream(posterior).map(p -> 1.0 - p).toArray();
+            }
+            TopGoDecorrelation decorrelation = new TopGoDecorrelation(container, counts,
+                    new LogFactorialHypergeometric(counts.populationSize));
+            return goMethod == GoMethod.ELIM ? decorrelation.elim(tested) : decorrelation.weight(tested);
+        }
+        if (permutationTest != null) {
+            return permutationTest.pValues(this, goMethod, counts, tested);
+        }
+        return hypergeometricPValues(goMethod, counts, tested,
+                new LogFactorialHypergeometric(counts.populationSize), true);
+    }
+
+    /**
+     * @param tested term indices of the tested terms
+     * @param hypergeometric table for at least {@code counts.populationSize()} items
+     * @param parallel if true, the p-values of the terms are computed in parallel on the executor of the engine
+     * @return hypergeometric p-values of the tested terms (same order as {@code tested})
+     */
+    double[] hypergeometricPValues(GoMethod goMethod,
+                                   Counts counts,
+                                   int[] tested,
+                                   LogFactorialHypergeometric hypergeometric,
+                                   boolean parallel) {
+        double[] raw = new double[tested.length];
+        ParallelTasks.RangeConsumer range = (from, to) -> {
+            for (int j = from; j < to; j++) {
+                raw[j] = hypergeometricPValue(goMethod, counts, tested[j], hypergeometric);
+            }
+        };
+        if (parallel) {
+            ParallelTasks.forRanges(executor, tested.length, GRAIN, range);
+        } else {
+            range.accept(0, tested.length);
+        }
+        return raw;
+    }
+
+    private double hypergeometricPValue(GoMethod goMethod,
+                                        Counts counts,
+                                        int t,
+                                        LogFactorialHypergeometric hypergeometric) {
+        int populationSize = counts.populationSize;
+        int studySize = counts.studySize;
+        if (goMethod != GoMethod.TFT && dag.parents(t).length > 0) {
+            boolean intersect = switch (goMethod) {
+                case PCunion -> false;
+                case PCintersect -> true;
+                default -> throw new IllegalArgumentException("Not a parent-child method: " + goMethod);
+            };
+            populationSize = parentCount(dag.parents(t), counts.populationItems, intersect);
+            studySize = parentCount(dag.parents(t), counts.studyItems, intersect);
+        }
+        return hypergeometric.upperTail(populationSize, counts.population[t], studySize, counts.study[t]);
+    }
+
+    /**
+     * @param parents term indices of the parents of a term
+     * @param members bitset of the study or population items
+     * @param intersect if true, count the members annotated to all parents, otherwise to at least one parent
+     * @return number of members annotated to the union (intersection) of the parents
+     */
+    private int parentCount(int[] parents, long[] members, boolean intersect) {
+        IsopretAssociationContainer.Csr index = container.propagatedIndex();
+        int[] items = index.items();
+        int count = 0;
+        if (intersect) {
+            int smallest = parents[0];
+            for (int p : parents) {
+                if (index.end(p) - index.start(p) < index.end(smallest) - index.start(smallest)) {
+                    smallest = p;
+                }
+            }
+            for (int k = index.start(smallest); k < index.end(smallest); k++) {
+                int i = items[k];
+                if (! contains(members, i)) continue;
+                boolean all = true;
+                for (int p : parents) {
+                    if (p != smallest && Arrays.binarySearch(items, index.start(p), index.end(p), i) < 0) {
+                        all = false;
+                        break;
+                    }
+                }
+                if (all) count++;
+            }
+        } else {
+            for (int j = 0; j < parents.length; j++) {
+                for (int k = index.start(parents[j]); k < index.end(parents[j]); k++) {
+                    int i = items[k];
+                    if (! contains(members, i)) continue;
+                    boolean counted = false;
+                    for (int l = 0; l < j && ! counted; l++) {
+                        counted = Arrays.binarySearch(items, index.start(parents[l]), index.end(parents[l]), i) >= 0;
+                    }
+                    if (! counted) count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * MGSA is a joint model of all terms, so its scores are not corrected for multiple testing.
+     * @param correctionFactor number of hypotheses for the Bonferroni and Sidak corrections (see
+     *                         {@link TermPruning.Pruned})
+     */
+    private static double[] adjusted(GoMethod goMethod, MtcMethod mtcMethod, double[] raw, int correctionFactor) {
+        return goMethod == GoMethod.MGSA ? raw.clone() : adjust(mtcMethod, raw, correctionFactor);
+    }
+
+    /**
+     * Multiple testing correction of a family of p-values (as in R's {@code p.adjust}).
+     * @param mtcMethod correction method
+     * @param p raw p-values
+     * @return adjusted p-values (same order as {@code p})
+     */
+    static double[] adjust(MtcMethod mtcMethod, double[] p) {
+        return adjust(mtcMethod, p, p.length);
+    }
+
+    /**
+     * @param correctionFactor number of hypotheses for the Bonferroni and Sidak corrections; at least
+     *                         {@code p.length}, larger if untestable hypotheses were pruned by Tarone's procedure
+     */
+    static double[] adjust(MtcMethod mtcMethod, double[] p, int correctionFactor) {
+        int m = p.length;
+        double[] adjusted = new double[m];
+        switch (mtcMethod) {
+            case BONFERRONI -> {
+                for (int j = 0; j < m; j++) adjusted[j] = Math.min(1.0, correctionFactor * p[j]);
+            }
+            case SIDAK -> {
+                for (int j = 0; j < m; j++) {
+                    adjusted[j] = Math.min(1.0, 1.0 - Math.pow(1.0 - p[j], correctionFactor));
+                }
+            }
+            case NONE -> System.arraycopy(p, 0, adjusted, 0, m);
+            case BONFERRONI_HOLM -> {
+                int[] order = ascendingOrder(p);
+                double max = 0.0;
+                for (int r = 0; r < m; r++) {
+                    max = Math.max(max, (m - r) * p[order[r]]);
+                    adjusted[order[r]] = Math.min(1.0, max);
+                }
+            }
+            case BENJAMINI_HOCHBERG, BENJAMINI_YEKUTIELI -> {
+                double q = 1.0;
+                if (mtcMethod == MtcMethod.BENJAMINI_YEKUTIELI) {
+                    q = 0.0;
+                    for (int k = 1; k <= m; k++) q += 1.0 / k;
+                }
+                int[] order = ascendingOrder(p);
+                double min = 1.0;
+                for (int r = m - 1; r >= 0; r--) {
+                    min = Math.min(min, q * m / (r + 1) * p[order[r]]);
+                    adjusted[order[r]] = min;
+                }
+            }
+        }
+        return adjusted;
+    }
+
+    private static int[] ascendingOrder(double[] p) {
+        return IntStream.range(0, p.length)
+                .boxed()
+                .sorted(Comparator.comparingDouble(j -> p[j]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    static boolean contains(long[] bits, int i) {
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    static int cardinality(long[] bits) {
+        int n = 0;
+        for (long word : bits) {
+            n += Long.bitCount(word);
+        }
+        return n;
+    }
+}
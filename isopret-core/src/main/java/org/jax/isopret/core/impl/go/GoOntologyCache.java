@@ -0,0 +1,258 @@
+package org.jax.isopret.core.impl.go;
+
+import org.jax.isopret.core.impl.CacheFile;
+import org.jax.isopret.exception.IsopretRuntimeException;
+import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.phenol.ontology.data.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary cache of the Gene Ontology. Parsing {@code go.json} takes several seconds, but the result only depends on
+ * the contents of the file. After the first parse, the terms (ids, labels, obsolete flags), the alt-id to primary-id
+ * mapping and the relationships (as int arrays over the term indices) are written to a cache file together with a
+ * checksum of {@code go.json}. Later loads read the cache if the checksum still matches, and parse (and re-cache)
+ * {@code go.json} otherwise.
+ */
+public class GoOntologyCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GoOntologyCache.class);
+    /** "ISGO"; increment the version whenever the encoding changes. */
+    private static final CacheFile CACHE_FILE = new CacheFile(0x4953474F, 1);
+
+    private GoOntologyCache() {
+    }
+
+    /**
+     * @param goJson path to {@code go.json}
+     * @param cacheFile path to the binary cache (created or replaced if it does not match {@code goJson})
+     * @return the Gene Ontology
+     */
+    public static Ontology load(Path goJson, Path cacheFile) {
+        long start = System.currentTimeMillis();
+        long checksum = checksum(goJson);
+        if (Files.isRegularFile(cacheFile)) {
+            try {
+                ByteBuffer buffer = CACHE_FILE.read(cacheFile, checksum);
+                if (buffer != null) {
+                    Ontology ontology = decode(buffer);
+                    LOGGER.info("Loaded Gene Ontology from cache {} in {} ms.", cacheFile, System.currentTimeMillis() - start);
+                    return ontology;
+                }
+                LOGGER.info("Gene Ontology cache {} does not match {}, rebuilding it.", cacheFile, goJson);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Could not read Gene Ontology cache {}: {}", cacheFile, e.getMessage());
+            }
+        }
+        Ontology ontology = OntologyLoader.loadOntology(goJson.toFile());
+        write(ontology, checksum, cacheFile);
+        return ontology;
+    }
+
+    /**
+     * Without a writable cache file, {@code go.json} is parsed on every load.
+     */
+    private static void write(Ontology ontology, long checksum, Path cacheFile) {
+        try {
+            CacheFile.write(cacheFile, List.of(CACHE_FILE.header(checksum), encode(ontology)));
+            LOGGER.info("Wrote Gene Ontology cache {}", cacheFile.toAbsolutePath());
+        } catch (IOException e) {
+            LOGGER.warn("Could not write Gene Ontology cache {}: {}", cacheFile, e.getMessage());
+        }
+    }
+
+    private static long checksum(Path file) {
+        CRC32C crc = new CRC32C();
+        byte[] chunk = new byte[1 << 16];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(chunk)) > 0) {
+                crc.update(chunk, 0, n);
+            }
+            return (Files.size(file) << 32) ^ crc.getValue();
+        } catch (IOException e) {
+            throw new IsopretRuntimeException("Could not read " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Encode the ontology (without the cache header). The layout is
+     * <pre>
+     * int n_meta, n_meta * (string key, string value)
+     * int n_terms, n_terms * (string id, string label, boolean obsolete)
+     * int n_alt, n_alt * (string alt id, int term index)
+     * int n_types, n_types * (string id, string label)
+     * int n_relationships, int[] source index, int[] target index, int[] relationship id, int[] type index
+     * </pre>
+     * @param ontology the ontology
+     * @return the encoded ontology
+     */
+    public static byte[] encode(Ontology ontology) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        Map<String, String> metaInfo = ontology.getMetaInfo();
+        out.writeInt(metaInfo.size());
+        for (var entry : metaInfo.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+        // getTerms() lists a term once for its primary id and once more for each alt id
+        Map<TermId, Term> terms = new LinkedHashMap<>();
+        for (Term term : ontology.getTerms()) {
+            terms.putIfAbsent(term.id(), term);
+        }
+        Map<TermId, Integer> termIndex = new HashMap<>();
+        List<TermId> altIds = new ArrayList<>();
+        List<Integer> altIdTargets = new ArrayList<>();
+        out.writeInt(terms.size());
+        for (Term term : terms.values()) {
+            int index = termIndex.size();
+            termIndex.put(term.id(), index);
+            writeString(out, term.id().getValue());
+            writeString(out, term.getName());
+            out.writeBoolean(term.isObsolete());
+            for (TermId alt : term.getAltTermIds()) {
+                altIds.add(alt);
+                altIdTargets.add(index);
+            }
+        }
+        out.writeInt(altIds.size());
+        for (int i = 0; i < altIds.size(); i++) {
+            writeString(out, altIds.get(i).getValue());
+            out.writeInt(altIdTargets.get(i));
+        }
+        Collection<Relationship> relationships = ontology.getRelationMap().values();
+        Map<String, Integer> typeIndex = new LinkedHashMap<>();
+        Map<String, String> typeLabels = new HashMap<>();
+        for (Relationship relationship : relationships) {
+            RelationshipType type = relationship.getRelationshipType();
+            typeIndex.putIfAbsent(type.id(), typeIndex.size());
+            typeLabels.putIfAbsent(type.id(), type.label());
+        }
+        out.writeInt(typeIndex.size());
+        for (String typeId : typeIndex.keySet()) {
+            writeString(out, typeId);
+            writeString(out, typeLabels.get(typeId));
+        }
+        int n = relationships.size();
+        int[] source = new int[n];
+        int[] target = new int[n];
+        int[] id = new int[n];
+        int[] type = new int[n];
+        int i = 0;
+        for (Relationship relationship : relationships) {
+            source[i] = index(relationship.getSource(), termIndex);
+            target[i] = index(relationship.getTarget(), termIndex);
+            id[i] = relationship.getId();
+            type[i] = typeIndex.get(relationship.getRelationshipType().id());
+            i++;
+        }
+        out.writeInt(n);
+        for (int[] column : List.of(source, target, id, type)) {
+            for (int value : column) {
+                out.writeInt(value);
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static int index(TermId termId, Map<TermId, Integer> termIndex) {
+        Integer index = termIndex.get(termId);
+        if (index == null) {
+            throw new IsopretRuntimeException("Relationship refers to unknown term " + termId.getValue());
+        }
+        return index;
+    }
+
+    /**
+     * @param buffer an ontology encoded by {@link #encode(Ontology)}, positioned at its start
+     * @return the decoded ontology
+     */
+    public static Ontology decode(ByteBuffer buffer) {
+        int nMeta = buffer.getInt();
+        Map<String, String> metaInfo = new HashMap<>();
+        for (int i = 0; i < nMeta; i++) {
+            metaInfo.put(readString(buffer), readString(buffer));
+        }
+        int nTerms = buffer.getInt();
+        TermId[] termIds = new TermId[nTerms];
+        String[] labels = new String[nTerms];
+        boolean[] obsolete = new boolean[nTerms];
+        for (int i = 0; i < nTerms; i++) {
+            termIds[i] = TermId.of(readString(buffer));
+            labels[i] = readString(buffer);
+            obsolete[i] = buffer.get() != 0;
+        }
+        int nAlt = buffer.getInt();
+        List<List<TermId>> altIds = new ArrayList<>(Collections.nCopies(nTerms, List.of()));
+        for (int i = 0; i < nAlt; i++) {
+            TermId alt = TermId.of(readString(buffer));
+            int target = buffer.getInt();
+            if (altIds.get(target).isEmpty()) {
+                altIds.set(target, new ArrayList<>());
+            }
+            altIds.get(target).add(alt);
+        }
+        List<Term> terms = new ArrayList<>(nTerms);
+        for (int i = 0; i < nTerms; i++) {
+            terms.add(Term.builder(termIds[i]).name(labels[i]).obsolete(obsolete[i]).altTermIds(altIds.get(i)).build());
+        }
+        int nTypes = buffer.getInt();
+        RelationshipType[] types = new RelationshipType[nTypes];
+        for (int i = 0; i < nTypes; i++) {
+            types[i] = RelationshipType.of(readString(buffer), readString(buffer));
+        }
+        int n = buffer.getInt();
+        int[] source = readInts(buffer, n);
+        int[] target = readInts(buffer, n);
+        int[] id = readInts(buffer, n);
+        int[] type = readInts(buffer, n);
+        List<Relationship> relationships = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            relationships.add(new Relationship(termIds[source[i]], termIds[target[i]], id[i], types[type[i]]));
+        }
+        return ImmutableOntology.builder()
+                .metaInfo(metaInfo)
+                .terms(terms)
+                .relationships(relationships)
+                .build();
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int n) {
+        int[] values = new int[n];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + 4 * n);
+        return values;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int len = buffer.getInt();
+        if (len < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[len];
+        buffer.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,252 @@
+package org.jax.isopret.core.impl.go;
+
+import org.jax.isopret.data.GoMethod;
+import org.jax.isopret.exception.IsopretRuntimeException;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Empirical p-values for GO terms obtained by permuting the study-set labels within the population. Each permutation
+ * draws a random study set of the same size as the observed one from the annotated population items (optionally
+ * within strata, e.g. so that each gene keeps its number of differentially spliced isoforms) and recomputes the
+ * study counts of the terms from the precomputed ancestor closures of the drawn items. The statistic of a term is its
+ * study count for Term-for-Term and its hypergeometric p-value for the Parent-Child methods; the empirical p-value is
+ * the fraction of permutations whose statistic is at least as extreme as the observed one.
+ * <p>
+ * The permutations are done in rounds of {@link #ROUND} permutations that are split into chunks of {@link #CHUNK}
+ * permutations, and the chunks are processed in parallel on the executor of the engine. Each chunk has its own
+ * random number generator that is seeded from the seed and the index of the chunk, so the results do not depend on
+ * the number of threads. After each round, terms with at least {@code earlyStopExceedances} exceedances are clearly
+ * not significant and are no longer permuted (sequential p-values of Besag and Clifford, 1991); their p-value is the
+ * fraction of exceedances in the permutations done so far. The other terms get
+ * {@code (exceedances + 1) / (permutations + 1)}.
+ * </p>
+ */
+public final class GoPermutationPValues {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GoPermutationPValues.class);
+
+    /** Number of permutations done by one task. */
+    private static final int CHUNK = 32;
+    /** Number of permutations between two early-stopping checks. */
+    private static final int ROUND = 64 * CHUNK;
+    /** Tolerance for comparing permuted and observed p-values. */
+    private static final double RELATIVE_TOLERANCE = 1e-9;
+
+    /** Default number of exceedances after which a term is no longer permuted. */
+    public static final int DEFAULT_EARLY_STOP_EXCEEDANCES = 10;
+
+    private final int permutations;
+
+    private final long seed;
+
+    private final int earlyStopExceedances;
+
+    private final Map<TermId, TermId> strata;
+
+    /**
+     * @param permutations maximum number of permutations
+     * @param seed seed of the random number generators
+     * @param earlyStopExceedances number of exceedances after which a term is no longer permuted (0 to do all
+     *                             permutations for all terms)
+     * @param strata map with key -- gene or transcript id, value -- stratum (e.g., the gene of a transcript), or null
+     *               to permute the whole population. Items that are not in the map are a stratum of their own.
+     */
+    public GoPermutationPValues(int permutations, long seed, int earlyStopExceedances, Map<TermId, TermId> strata) {
+        if (permutations < 1) {
+            throw new IsopretRuntimeException("Number of permutations must be positive but was " + permutations);
+        }
+        this.permutations = permutations;
+        this.seed = seed;
+        this.earlyStopExceedances = earlyStopExceedances;
+        this.strata = strata;
+    }
+
+    /**
+     * The annotated population items grouped by stratum, with the number of observed study items per stratum.
+     * @param items container item indices; the items of stratum {@code s} are {@code items[start[s] .. start[s+1]-1]}
+     * @param start start of each stratum in {@code items} (length: number of strata + 1)
+     * @param draws number of study items in each stratum
+     * @param closures propagated terms of each item of {@code items} (same order)
+     */
+    private record Pool(int[] items, int[] start, int[] draws, int[][] closures) {}
+
+    /**
+     * @param engine engine whose container and hypergeometric p-values are used
+     * @param counts observed counts
+     * @param tested term indices of the tested terms
+     * @return empirical p-values of the tested terms (same order as {@code tested})
+     */
+    double[] pValues(GoEnrichmentEngine engine, GoMethod goMethod, GoEnrichmentEngine.Counts counts, int[] tested) {
+        IsopretAssociationContainer container = engine.container();
+        Pool pool = pool(container, counts);
+        LogFactorialHypergeometric hypergeometric = new LogFactorialHypergeometric(counts.populationSize());
+        double[] observed = goMethod == GoMethod.TFT
+                ? Arrays.stream(tested).mapToDouble(t -> counts.study()[t]).toArray()
+                : engine.hypergeometricPValues(goMethod, counts, tested, hypergeometric, true);
+        double[] p = new double[tested.length];
+        int[] exceedances = new int[tested.length];
+        int[] active = IntStream.range(0, tested.length).toArray();
+        int done = 0;
+        int chunkOffset = 0;
+        while (done < permutations && active.length > 0) {
+            int roundSize = Math.min(ROUND, permutations - done);
+            int nChunks = (roundSize + CHUNK - 1) / CHUNK;
+            int[] activeTerms = Arrays.stream(active).map(j -> tested[j]).toArray();
+            double[] activeObserved = Arrays.stream(active).mapToDouble(j -> observed[j]).toArray();
+            int firstChunk = chunkOffset;
+            int[][] chunkExceedances = new int[nChunks][];
+            ParallelTasks.run(engine.executor(), nChunks, c -> chunkExceedances[c] = permuteChunk(engine, goMethod,
+                    counts, pool, hypergeometric, activeTerms, activeObserved, Math.min(CHUNK, roundSize - c * CHUNK),
+                    firstChunk + c));
+            int[] roundExceedances = Arrays.stream(chunkExceedances)
+                    .reduce(new int[activeTerms.length], GoPermutationPValues::add);
+            chunkOffset += nChunks;
+            done += roundSize;
+            List<Integer> stillActive = new ArrayList<>();
+            for (int a = 0; a < active.length; a++) {
+                int j = active[a];
+                exceedances[j] += roundExceedances[a];
+                if (earlyStopExceedances > 0 && exceedances[j] >= earlyStopExceedances) {
+                    p[j] = (double) exceedances[j] / done;
+                } else {
+                    stillActive.add(j);
+                }
+            }
+            active = stillActive.stream().mapToInt(Integer::intValue).toArray();
+        }
+        for (int j : active) {
+            p[j] = (exceedances[j] + 1.0) / (done + 1.0);
+        }
+        LOGGER.info("{}: {} permutations for {} GO terms, {} terms were not stopped early.",
+                goMethod, done, tested.length, active.length);
+        return p;
+    }
+
+    /**
+     * Group the annotated population items by stratum and precompute their propagated terms.
+     */
+    private Pool pool(IsopretAssociationContainer container, GoEnrichmentEngine.Counts counts) {
+        Map<TermId, Integer> stratumIndex = new HashMap<>();
+        List<Integer> itemList = new ArrayList<>();
+        List<Integer> stratumList = new ArrayList<>();
+        long[] populationItems = counts.populationItems();
+        for (int w = 0; w < populationItems.length; w++) {
+            for (long word = populationItems[w]; word != 0; word &= word - 1) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(word);
+                TermId key = strata == null ? null : strata.getOrDefault(container.item(i), container.item(i));
+                int s = strata == null ? 0 : stratumIndex.computeIfAbsent(key, k -> stratumIndex.size());
+                itemList.add(i);
+                stratumList.add(s);
+            }
+        }
+        int nStrata = strata == null ? 1 : stratumIndex.size();
+        int[] start = new int[nStrata + 1];
+        int[] draws = new int[nStrata];
+        for (int k = 0; k < itemList.size(); k++) {
+            int s = stratumList.get(k);
+            start[s + 1]++;
+            if (GoEnrichmentEngine.contains(counts.studyItems(), itemList.get(k))) {
+                draws[s]++;
+            }
+        }
+        for (int s = 0; s < nStrata; s++) {
+            start[s + 1] += start[s];
+        }
+        int[] items = new int[itemList.size()];
+        int[] fill = Arrays.copyOf(start, nStrata);
+        for (int k = 0; k < itemList.size(); k++) {
+            items[fill[stratumList.get(k)]++] = itemList.get(k);
+        }
+        GoDag dag = container.dag();
+        long[] seen = new long[(dag.size() + 63) >>> 6];
+        int[] touched = new int[dag.size()];
+        int[][] closures = new int[items.length][];
+        for (int k = 0; k < items.length; k++) {
+            int n = container.collectTerms(items[k], true, seen, touched);
+            closures[k] = Arrays.copyOf(touched, n);
+        }
+        return new Pool(items, start, draws, closures);
+    }
+
+    /**
+     * Do {@code n} permutations and count, for each active term, the permutations whose statistic is at least as
+     * extreme as the observed one.
+     */
+    private int[] permuteChunk(GoEnrichmentEngine engine,
+                               GoMethod goMethod,
+                               GoEnrichmentEngine.Counts counts,
+                               Pool pool,
+                               LogFactorialHypergeometric hypergeometric,
+                               int[] activeTerms,
+                               double[] observed,
+                               int n,
+                               int chunk) {
+        SplittableRandom random = new SplittableRandom(seed ^ (0x9E3779B97F4A7C15L * (chunk + 1L)));
+        // positions in pool.items; the first draws[s] entries of each stratum are the drawn items
+        int[] order = IntStream.range(0, pool.items.length).toArray();
+        int[] studyCounts = new int[counts.study().length];
+        int[] dirty = new int[studyCounts.length];
+        long[] studyItems = new long[counts.populationItems().length];
+        int[] exceedances = new int[activeTerms.length];
+        for (int r = 0; r < n; r++) {
+            int nDirty = 0;
+            for (int s = 0; s < pool.draws.length; s++) {
+                int from = pool.start[s];
+                int to = pool.start[s + 1];
+                // partial Fisher-Yates shuffle: the first draws[s] entries of the stratum are a random sample
+                for (int k = from; k < from + pool.draws[s]; k++) {
+                    int m = k + random.nextInt(to - k);
+                    int tmp = order[k];
+                    order[k] = order[m];
+                    order[m] = tmp;
+                    int i = pool.items[order[k]];
+                    studyItems[i >>> 6] |= 1L << i;
+                    for (int t : pool.closures[order[k]]) {
+                        if (studyCounts[t]++ == 0) {
+                            dirty[nDirty++] = t;
+                        }
+                    }
+                }
+            }
+            if (goMethod == GoMethod.TFT) {
+                for (int a = 0; a < activeTerms.length; a++) {
+                    if (studyCounts[activeTerms[a]] >= observed[a]) {
+                        exceedances[a]++;
+                    }
+                }
+            } else {
+                GoEnrichmentEngine.Counts permuted = new GoEnrichmentEngine.Counts(counts.studySize(),
+                        counts.populationSize(), studyCounts, counts.population(), studyItems,
+                        counts.populationItems());
+                double[] p = engine.hypergeometricPValues(goMethod, permuted, activeTerms, hypergeometric, false);
+                for (int a = 0; a < activeTerms.length; a++) {
+                    if (p[a] <= observed[a] * (1.0 + RELATIVE_TOLERANCE)) {
+                        exceedances[a]++;
+                    }
+                }
+            }
+            for (int d = 0; d < nDirty; d++) {
+                studyCounts[dirty[d]] = 0;
+            }
+            for (int s = 0; s < pool.draws.length; s++) {
+                for (int k = pool.start[s]; k < pool.start[s] + pool.draws[s]; k++) {
+                    int i = pool.items[order[k]];
+                    studyItems[i >>> 6] &= ~(1L << i);
+                }
+            }
+        }
+        return exceedances;
+    }
+
+    private static int[] add(int[] a, int[] b) {
+        int[] sum = new int[a.length];
+        for (int k = 0; k < a.length; k++) {
+            sum[k] = a[k] + b[k];
+        }
+        return sum;
+    }
+}
@@ -3,6 +3,7 @@ package org.jax.isopret.core.impl.go;
 
 import org.jax.isopret.data.GoMethod;
 import org.jax.isopret.data.MtcMethod;
+import org.jax.isopret.exception.IsopretRuntimeException;
 import org.monarchinitiative.phenol.analysis.AssociationContainer;
 import org.monarchinitiative.phenol.analysis.DirectAndIndirectTermAnnotations;
 import org.monarchinitiative.phenol.analysis.StudySet;
@@ -62,6 +63,8 @@ public class HbaDealsGoAnalysis {
             case TFT -> termForTerm();
             case PCunion -> parentChildUnion();
             case PCintersect -> parentChildIntersect();
+            case ELIM, WEIGHT, MGSA -> throw new IsopretRuntimeException("GO method " + goMethod
+                    + " is only available for isopret's association containers");
         };
         pvals.sort(new SortByPvalue());
         return List.copyOf(pvals); // make immutable
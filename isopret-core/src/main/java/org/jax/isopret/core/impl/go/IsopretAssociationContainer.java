@@ -1,10 +1,10 @@
 package org.jax.isopret.core.impl.go;
 
+import org.jax.isopret.data.AccessionNumber;
+import org.jax.isopret.data.EnsemblIdRegistry;
 import org.monarchinitiative.phenol.analysis.AssociationContainer;
 import org.monarchinitiative.phenol.analysis.DirectAndIndirectTermAnnotations;
-import org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
-import org.monarchinitiative.phenol.ontology.data.Term;
 import org.monarchinitiative.phenol.ontology.data.TermAnnotation;
 import org.monarchinitiative.phenol.ontology.data.TermId;
 import org.slf4j.Logger;
@@ -20,6 +20,16 @@ import java.util.stream.Collectors;
  * {@link #associationMap}. The keys for this map are the gene or transcript ids
  * (expressed as TermIds), and the values are {@link IsopretAnnotations} objects
  * that represent the annotated genes.
+ * <p>
+ * For {@link #getAssociationMap(Set)}, the direct annotations of each item are resolved once to term indices of the
+ * {@link GoDag}, and the indirect annotations are obtained by OR-ing the precomputed ancestor closures of the direct
+ * terms into a bitset.
+ * </p>
+ * <p>
+ * The items are indexed by the dense gene and transcript indices of an {@link EnsemblIdRegistry}, so that the item
+ * of an accession number is found without creating a {@link TermId}; only items that are not registered are kept in
+ * a hash map.
+ * </p>
  */
 public class IsopretAssociationContainer implements AssociationContainer<TermId> {
 
@@ -38,15 +48,107 @@ public class IsopretAssociationContainer implements AssociationContainer<TermId>
 
     private final int n_annotations;
 
+    private final GoDag dag;
+
+    /** Gene or transcript ids in the order of {@link #itemTerms}. */
+    private final TermId[] items;
+
+    /** Registry of the Ensembl ids; the registered items use its shared TermIds. */
+    private final EnsemblIdRegistry registry;
+
+    /** Index of the item of each registered gene (by registry gene index), -1 if the gene is not an item. */
+    private final int[] geneItems;
+
+    /** Index of the item of each registered transcript (by registry transcript index), -1 if it is not an item. */
+    private final int[] transcriptItems;
+
+    /**
+     * Key -- id of an item that is not in {@link #registry} (see {@link #unregisteredKey(TermId)}); value -- index of
+     * the item in {@link #itemTerms}.
+     */
+    private final Map<TermId, Integer> unregisteredItems = new HashMap<>();
+
+    /** Sorted, distinct {@link GoDag} indices of the (primary) GO terms that directly annotate each item. */
+    private final int[][] itemTerms;
+
+    /** Inverted indices for drill-down queries, built on first use (see {@link #invertedIndex()}). */
+    private volatile InvertedIndex invertedIndex = null;
+
+    IsopretAssociationContainer(Ontology ontology,
+                                Map<TermId, IsopretAnnotations> assocMap){
+        this(ontology, GoDag.of(ontology), EnsemblIdRegistry.empty(), assocMap);
+    }
+
     IsopretAssociationContainer(Ontology ontology,
+                                GoDag dag,
+                                EnsemblIdRegistry registry,
                                 Map<TermId, IsopretAnnotations> assocMap){
         this.ontology = ontology;
         this.associationMap = assocMap;
+        this.dag = dag;
+        this.registry = registry;
+        this.geneItems = new int[registry.geneCount()];
+        this.transcriptItems = new int[registry.transcriptCount()];
+        Arrays.fill(geneItems, -1);
+        Arrays.fill(transcriptItems, -1);
         n_annotations = assocMap.values()
                 .stream()
                 .map(IsopretAnnotations::getAnnotationCount)
                 .reduce(0, Integer::sum);
+        this.items = new TermId[assocMap.size()];
+        this.itemTerms = new int[assocMap.size()][];
+        int ontology_term_not_found = 0;
+        int i = 0;
+        for (Map.Entry<TermId, IsopretAnnotations> entry : assocMap.entrySet()) {
+            int[] terms = new int[entry.getValue().getAnnotationCount()];
+            int k = 0;
+            for (TermAnnotation termAnnotation : entry.getValue().getAnnotations()) {
+                IsopretTermAnnotation ita = (IsopretTermAnnotation) termAnnotation;
+                // check if the term is in the ontology (sometimes, obsoletes are used in the bla32 files)
+                int t = dag.index(ita.getTermId());
+                if (t < 0) {
+                    ontology_term_not_found++;
+                    continue;
+                }
+                terms[k++] = t;
+            }
+            items[i] = register(entry.getKey(), i);
+            itemTerms[i] = Arrays.stream(terms, 0, k).sorted().distinct().toArray();
+            i++;
+        }
+        if (ontology_term_not_found > 0) {
+            LOGGER.warn("Unable to retrieve {} ontology terms (omitted; are go.json/versions in synch?).", ontology_term_not_found);
+        }
+    }
+
+    /**
+     * Record the index of an item.
+     * @return the shared TermId of the item if it is registered, otherwise {@code item} itself
+     */
+    private TermId register(TermId item, int i) {
+        int r = registry.index(item);
+        if (r < 0) {
+            unregisteredItems.put(unregisteredKey(item), i);
+            return item;
+        }
+        TermId shared;
+        if (item.getPrefix().equals("ENSG")) {
+            geneItems[r] = i;
+            shared = registry.geneTermId(r);
+        } else {
+            transcriptItems[r] = i;
+            shared = registry.transcriptTermId(r);
+        }
+        return shared.equals(item) ? shared : item;
+    }
 
+    /**
+     * @return the canonical form of an Ensembl id (e.g., {@code ENSG:00000000042} for {@code ENSG:42}), so that it
+     * matches {@link AccessionNumber#toTermId()}, or {@code item} itself for other ids
+     */
+    private static TermId unregisteredKey(TermId item) {
+        AccessionNumber accession = EnsemblIdRegistry.parseAccession(item);
+        return accession == null ? item : accession.toTermId();
     }
 
     /**
@@ -75,88 +177,289 @@ public class IsopretAssociationContainer implements AssociationContainer<TermId>
     // TODO use new  Set<T> getDomainItemsAnnotatedByOntologyTerm(TermId tid)
     //  in interface AssociationContainer<T> after PR merged to only use Interface in client code
     public Set<TermId> getDomainItemsAnnotatedByGoTerm(TermId goTermId) {
-        Set<TermId> domainItemSet = new HashSet<>();
-        //ontology.graph().getDescendants(goTermId, )
-        Set<TermId> descendentSet = OntologyAlgorithm.getDescendents(this.ontology, goTermId);
-        for (Map.Entry<TermId, IsopretAnnotations> entry : associationMap.entrySet()) {
-            TermId gene = entry.getKey();
-            for (TermId ontologyTermId : entry.getValue().getAnnotatingTermIds()) {
-                if (descendentSet.contains(ontologyTermId) || ontologyTermId.equals(goTermId)) {
-                    domainItemSet.add(gene);
+        return toItemSet(invertedIndex().propagated, dag.index(goTermId));
+    }
+
+    /**
+     * @param goTermId GO term of interest
+     * @return sorted indices (see {@link #item(int)}) of the domain items that are annotated to this GO term or to
+     * one of its descendents
+     */
+    int[] getDomainItemIndicesAnnotatedByGoTerm(TermId goTermId) {
+        int t = dag.index(goTermId);
+        return t < 0 ? new int[0] : invertedIndex().propagated.row(t);
+    }
+
+    /** @return the gene or transcript id with index {@code i} */
+    TermId item(int i) {
+        return items[i];
+    }
+
+    /** @return number of genes or transcripts in this container (the item indices are {@code 0 .. itemCount()-1}) */
+    public int itemCount() {
+        return items.length;
+    }
+
+    /** @return registry of the Ensembl ids that index the items */
+    public EnsemblIdRegistry registry() {
+        return registry;
+    }
+
+    /** @return index of the gene or transcript (see {@link #item(int)}), or -1 if it is not in this container */
+    int itemIndex(TermId item) {
+        int r = registry.index(item);
+        if (r >= 0) {
+            return item.getPrefix().equals("ENSG") ? geneItems[r] : transcriptItems[r];
+        }
+        if (unregisteredItems.isEmpty()) {
+            return -1;
+        }
+        Integer i = unregisteredItems.get(unregisteredKey(item));
+        return i == null ? -1 : i;
+    }
+
+    /**
+     * @param accession Ensembl gene or transcript accession number
+     * @return index of the gene or transcript (see {@link #itemIndex(TermId)}), or -1 if it is not in this container
+     */
+    public int itemIndex(AccessionNumber accession) {
+        int r = registry.index(accession);
+        if (r >= 0) {
+            return accession.isGene() ? geneItems[r] : transcriptItems[r];
+        }
+        if (unregisteredItems.isEmpty()) {
+            return -1;
+        }
+        Integer i = unregisteredItems.get(accession.toTermId());
+        return i == null ? -1 : i;
+    }
+
+    /** @return true if item {@code i} is annotated to at least one term of the ontology */
+    boolean isAnnotated(int i) {
+        return itemTerms[i].length > 0;
+    }
+
+    GoDag dag() {
+        return dag;
+    }
+
+    /** @return index of the items annotated to each term or to one of its descendents */
+    Csr propagatedIndex() {
+        return invertedIndex().propagated;
+    }
+
+    private Set<TermId> toItemSet(Csr csr, int t) {
+        if (t < 0) {
+            return Set.of();
+        }
+        int[] row = csr.row(t);
+        Set<TermId> domainItemSet = new HashSet<>(2 * row.length);
+        for (int i : row) {
+            domainItemSet.add(items[i]);
+        }
+        return domainItemSet;
+    }
+
+    /**
+     * Term-to-items inverted indices in compressed sparse row format. The items of term {@code t} are
+     * {@code items[offsets[t]] .. items[offsets[t+1]-1]}, sorted in ascending order.
+     */
+    record Csr(int[] offsets, int[] items) {
+        int[] row(int t) {
+            return Arrays.copyOfRange(items, offsets[t], offsets[t + 1]);
+        }
+
+        int start(int t) {
+            return offsets[t];
+        }
+
+        int end(int t) {
+            return offsets[t + 1];
+        }
+    }
+
+    /**
+     * @param direct index of the items directly annotated to each term
+     * @param propagated index of the items annotated to each term or to one of its descendents
+     */
+    private record InvertedIndex(Csr direct, Csr propagated) {}
+
+    private InvertedIndex invertedIndex() {
+        InvertedIndex index = invertedIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = invertedIndex;
+                if (index == null) {
+                    index = new InvertedIndex(buildCsr(false), buildCsr(true));
+                    invertedIndex = index;
                 }
             }
         }
-        return domainItemSet;
+        return index;
+    }
+
+    /**
+     * Build the inverted index with two passes over the items, the first one to count the items of each term and
+     * the second one to fill them in. Because the items are visited in ascending order, each row is sorted.
+     * @param propagate if true, each item is also added to all ancestors of its direct terms
+     */
+    private Csr buildCsr(boolean propagate) {
+        int n = dag.size();
+        int[] offsets = new int[n + 1];
+        long[] seen = new long[(n + 63) >>> 6];
+        int[] touched = new int[n];
+        for (int i = 0; i < itemTerms.length; i++) {
+            int k = collectTerms(i, propagate, seen, touched);
+            for (int j = 0; j < k; j++) {
+                offsets[touched[j] + 1]++;
+            }
+        }
+        for (int t = 0; t < n; t++) {
+            offsets[t + 1] += offsets[t];
+        }
+        int[] csrItems = new int[offsets[n]];
+        int[] fill = Arrays.copyOf(offsets, n);
+        for (int i = 0; i < itemTerms.length; i++) {
+            int k = collectTerms(i, propagate, seen, touched);
+            for (int j = 0; j < k; j++) {
+                csrItems[fill[touched[j]]++] = i;
+            }
+        }
+        return new Csr(offsets, csrItems);
     }
 
+    /**
+     * Write the distinct terms of item {@code i} to {@code touched}.
+     * @param propagate if true, the ancestors of the direct terms are also written
+     * @param seen bitset over the terms; all bits are clear before and after the call
+     * @param touched array with at least {@code dag().size()} elements
+     * @return number of terms written to {@code touched}
+     */
+    int collectTerms(int i, boolean propagate, long[] seen, int[] touched) {
+        int k = 0;
+        for (int t : itemTerms[i]) {
+            k = touch(t, seen, touched, k);
+            if (propagate) {
+                for (int a : dag.ancestors(t)) {
+                    k = touch(a, seen, touched, k);
+                }
+            }
+        }
+        for (int j = 0; j < k; j++) {
+            seen[touched[j] >>> 6] &= ~(1L << touched[j]);
+        }
+        return k;
+    }
 
+    private static int touch(int t, long[] seen, int[] touched, int k) {
+        long bit = 1L << t;
+        if ((seen[t >>> 6] & bit) == 0) {
+            seen[t >>> 6] |= bit;
+            touched[k++] = t;
+        }
+        return k;
+    }
 
+    /**
+     * Each item is directly annotated to its GO terms and indirectly annotated to all of their ancestors. The
+     * ancestors of an item are collected in a bitset over the {@link GoDag} indices, so that each ancestor is visited
+     * once per item even if it is shared by several direct terms.
+     * @param annotatedItemTermIds ids of the genes or transcripts (e.g., a study set or population)
+     * @return immutable map with key -- GO term, value -- the items annotated to the term
+     */
     @Override
     public Map<TermId, DirectAndIndirectTermAnnotations> getAssociationMap(Set<TermId> annotatedItemTermIds) {
-        // 1. Get all of the direct GO annotations to the genes. Key: domain item; value: annotating Ontlogy terms
-        Map<TermId, Set<TermId>> directAnnotationMap = new HashMap<>();
         int domain_termId_not_found = 0;
-        int ontology_term_not_found = 0;
+        int[] indices = new int[annotatedItemTermIds.size()];
+        int n = 0;
         for (TermId domainTermId : annotatedItemTermIds) {
-            if (!this.associationMap.containsKey(domainTermId)) {
+            int i = itemIndex(domainTermId);
+            if (i < 0) {
                 domain_termId_not_found++;
                 continue;
             }
-            IsopretAnnotations assocs = this.associationMap.get(domainTermId);
-            for (TermAnnotation termAnnotation : assocs.getAnnotations()) {
-                IsopretTermAnnotation ita = (IsopretTermAnnotation) termAnnotation;
-                /* In this step add the direct annotations only */
-                TermId ontologyTermId = ita.getTermId();
-                // check if the term is in the ontology (sometimes, obsoletes are used in the bla32 files)
-                Optional<Term> termOpt = ontology.termForTermId(ontologyTermId);
-                if (termOpt.isEmpty()) {
-                    ontology_term_not_found++;
-                    LOGGER.warn("Unable to retrieve ontology term {} (omitted).", ontologyTermId.getValue());
-                    continue;
-                }
-                ontologyTermId = this.ontology.getPrimaryTermId(ontologyTermId);
-                directAnnotationMap.computeIfAbsent(domainTermId, k -> new HashSet<>()).add(ontologyTermId);
-            }
+            indices[n++] = i;
         }
         if (domain_termId_not_found > 0) {
             // expected behavior
             LOGGER.trace("Could not find {} domain item term ids.", domain_termId_not_found);
         }
-        if (ontology_term_not_found > 0) {
-            // expected behavior
-            LOGGER.trace("Could not find {} ontology term ids (are go.json/versions in synch?).", ontology_term_not_found);
+        return associationMap(indices, n);
+    }
+
+    /**
+     * Same as {@link #getAssociationMap(Set)} for items given by their indices, e.g., a study set that was selected
+     * with {@link #itemIndex(AccessionNumber)} without creating {@link TermId} objects.
+     * @param itemSet bitset over the item indices (see {@link #itemCount()})
+     * @return immutable map with key -- GO term, value -- the items annotated to the term
+     */
+    public Map<TermId, DirectAndIndirectTermAnnotations> getAssociationMap(long[] itemSet) {
+        int[] indices = new int[items.length];
+        int n = 0;
+        for (int w = 0; w < itemSet.length; w++) {
+            for (long word = itemSet[w]; word != 0; word &= word - 1) {
+                indices[n++] = (w << 6) + Long.numberOfTrailingZeros(word);
+            }
         }
-        Map<TermId, DirectAndIndirectTermAnnotations> annotationMap = new HashMap<>();
-        for (Map.Entry<TermId, Set<TermId>> entry : directAnnotationMap.entrySet()) {
-            TermId domainItemTermId = entry.getKey();
-            for (TermId ontologyId : entry.getValue()) {
-                annotationMap.putIfAbsent(ontologyId, new DirectAndIndirectTermAnnotations(ontologyId));
-                annotationMap.get(ontologyId).addDirectAnnotatedItem(domainItemTermId);
-                // In addition to the direct annotation, the gene is also indirectly annotated
-                // to all the GO Term's ancestors
-                //Set<TermId> ancs = OntologyAlgorithm.getAncestorTerms(ontology,  ontology.getRootTermId(), ontologyId, false);
-                Iterable<TermId> ancs =  ontology.graph().getAncestors(ontologyId, false);
-                for (TermId ancestor : ancs) {
-                    annotationMap.putIfAbsent(ancestor, new DirectAndIndirectTermAnnotations(ancestor));
-                    annotationMap.get(ancestor).addIndirectAnnotatedItem(domainItemTermId);
+        return associationMap(indices, n);
+    }
+
+    private Map<TermId, DirectAndIndirectTermAnnotations> associationMap(int[] indices, int count) {
+        DirectAndIndirectTermAnnotations[] annotations = new DirectAndIndirectTermAnnotations[dag.size()];
+        long[] seen = new long[(dag.size() + 63) >>> 6];
+        int[] touched = new int[dag.size()];
+        for (int c = 0; c < count; c++) {
+            int i = indices[c];
+            TermId domainTermId = items[i];
+            int n = 0;
+            for (int t : itemTerms[i]) {
+                annotation(annotations, t).addDirectAnnotatedItem(domainTermId);
+                for (int a : dag.ancestors(t)) {
+                    long bit = 1L << a;
+                    if ((seen[a >>> 6] & bit) == 0) {
+                        seen[a >>> 6] |= bit;
+                        touched[n++] = a;
+                    }
                 }
             }
+            for (int j = 0; j < n; j++) {
+                int a = touched[j];
+                annotation(annotations, a).addIndirectAnnotatedItem(domainTermId);
+                seen[a >>> 6] &= ~(1L << a);
+            }
+        }
+        Map<TermId, DirectAndIndirectTermAnnotations> annotationMap = new HashMap<>();
+        for (int t = 0; t < annotations.length; t++) {
+            if (annotations[t] != null) {
+                annotationMap.put(dag.termId(t), annotations[t]);
+            }
         }
         return Map.copyOf(annotationMap); //make immutable
     }
 
+    private DirectAndIndirectTermAnnotations annotation(DirectAndIndirectTermAnnotations[] annotations, int t) {
+        if (annotations[t] == null) {
+            annotations[t] = new DirectAndIndirectTermAnnotations(dag.termId(t));
+        }
+        return annotations[t];
+    }
+
     @Override
     public Set<TermId> getAllAnnotatedGenes() {
         return associationMap.keySet();
     }
 
     /**
-     * TODO ADD TEST
      * @param termId a Gene Ontology id
-     * @return set of genes/transcripts annotation by this GO term
+     * @return set of genes/transcripts directly annotated by this GO term
      */
     @Override
     public Set<TermId> getDomainItemsAnnotatedByOntologyTerm(TermId termId) {
+        int t = dag.index(termId);
+        if (t >= 0) {
+            return toItemSet(invertedIndex().direct, t);
+        }
+        // not a term of the ontology, so it is not in the inverted index
         Set<TermId> annotatedItems = new HashSet<>();
         for (var e : associationMap.entrySet()) {
             if (e.getValue().containsAnnotation(termId)) {
@@ -1,5 +1,6 @@
 package org.jax.isopret.core.impl.go;
 
+import org.jax.isopret.data.EnsemblIdRegistry;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.TermAnnotation;
 import org.monarchinitiative.phenol.ontology.data.TermId;
@@ -22,12 +23,30 @@ public class IsopretContainerFactory {
     private final Map<TermId, Set<TermId>> transcript2associationMap;
     /** Gene Ontology object. */
     private final Ontology ontology;
+    /** Dense graph of {@link #ontology}, shared by both containers. */
+    private final GoDag dag;
+    /** Registry of the Ensembl ids, used by both containers to index their items. */
+    private final EnsemblIdRegistry registry;
 
 
     public IsopretContainerFactory(Ontology ontology,
                                            Map<TermId, Set<TermId>> transcriptIdToGoTermsMap,
                                            Map<TermId, Set<TermId>> geneIdToGoTermsMap){
+        this(ontology, GoDag.of(ontology), EnsemblIdRegistry.empty(), transcriptIdToGoTermsMap, geneIdToGoTermsMap);
+    }
+
+    /**
+     * @param dag the dense graph of {@code ontology}, e.g., {@link org.jax.isopret.core.IsopretProvider#goDag()}
+     * @param registry registry of the Ensembl ids, e.g., {@link org.jax.isopret.core.IsopretProvider#idRegistry()}
+     */
+    public IsopretContainerFactory(Ontology ontology,
+                                   GoDag dag,
+                                   EnsemblIdRegistry registry,
+                                   Map<TermId, Set<TermId>> transcriptIdToGoTermsMap,
+                                   Map<TermId, Set<TermId>> geneIdToGoTermsMap){
         this.ontology = ontology;
+        this.dag = dag;
+        this.registry = registry;
         this.transcript2associationMap = transcriptIdToGoTermsMap;
         this.gene2associationMap = geneIdToGoTermsMap;
     }
@@ -51,7 +70,7 @@ public class IsopretContainerFactory {
             assocMap.put(transcriptId, isopretAnnotations);
         }
         LOGGER.info("Isopret association containiner - map with {} entries", assocmap.size());
-        return new IsopretAssociationContainer(ontology, assocMap);
+        return new IsopretAssociationContainer(ontology, dag, registry, assocMap);
     }
 
 
@@ -0,0 +1,71 @@
+package org.jax.isopret.core.impl.go;
+
+/**
+ * Hypergeometric upper tail probabilities computed from a precomputed table of {@code log(i!)} for
+ * {@code i = 0 .. n}. The table is sized to the population, so that each term of the tail sum needs three table
+ * lookups and one {@code exp} instead of a product of binomial coefficients. The table is filled with compensated
+ * (Kahan) summation to keep the rounding error of {@code log(n!)} at the level of a single addition. Instances are
+ * immutable and may be shared between threads.
+ */
+final class LogFactorialHypergeometric {
+
+    private final double[] logFactorial;
+
+    /**
+     * @param n largest population size for which probabilities will be computed
+     */
+    LogFactorialHypergeometric(int n) {
+        logFactorial = new double[n + 1];
+        double sum = 0.0;
+        double compensation = 0.0;
+        for (int i = 2; i <= n; i++) {
+            double y = Math.log(i) - compensation;
+            double t = sum + y;
+            compensation = (t - sum) - y;
+            sum = t;
+            logFactorial[i] = sum;
+        }
+    }
+
+    /** @return the largest population size supported by this table */
+    int maxPopulation() {
+        return logFactorial.length - 1;
+    }
+
+    /** @return {@code log(n choose k)} */
+    double logChoose(int n, int k) {
+        return logFactorial[n] - logFactorial[k] - logFactorial[n - k];
+    }
+
+    /**
+     * Probability of drawing at least {@code x} marked items if {@code n} items are drawn without replacement from
+     * a population of {@code populationSize} items, {@code marked} of which are marked.
+     * @param populationSize size of the population (at most {@link #maxPopulation()})
+     * @param marked number of marked items in the population (e.g., population items annotated to a GO term)
+     * @param n number of drawn items (e.g., size of the study set)
+     * @param x observed number of marked items among the drawn items
+     * @return P(X &ge; x)
+     */
+    double upperTail(int populationSize, int marked, int n, int x) {
+        int min = Math.max(0, n - (populationSize - marked));
+        int max = Math.min(n, marked);
+        if (x <= min) {
+            return 1.0;
+        }
+        if (x > max) {
+            return 0.0;
+        }
+        double logDenominator = logChoose(populationSize, n);
+        // the terms increase up to the mode and then decrease; past the mode, stop once they are negligible
+        int mode = (int) (((long) (n + 1) * (marked + 1)) / (populationSize + 2));
+        double p = 0.0;
+        for (int i = x; i <= max; i++) {
+            double term = Math.exp(logChoose(marked, i) + logChoose(populationSize - marked, n - i) - logDenominator);
+            p += term;
+            if (i > mode && term < p * 1e-17) {
+                break;
+            }
+        }
+        return Math.min(1.0, p);
+    }
+}
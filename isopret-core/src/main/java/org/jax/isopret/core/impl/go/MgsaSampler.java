@@ -0,0 +1,347 @@
+package org.jax.isopret.core.impl.go;
+
+import org.jax.isopret.core.MgsaDiagnostics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executor;
+import java.util.stream.IntStream;
+
+/**
+ * Model-based gene set analysis (MGSA; Bauer et al., 2010, Nucleic Acids Research 38:3523) as in the Ontologizer.
+ * Each GO term is either active or inactive; an item (gene or transcript) of the population is "on" if it is
+ * annotated to at least one active term. An item that is on is observed in the study set with probability
+ * {@code 1 - beta}, an item that is off with probability {@code alpha}, and each term is active with prior probability
+ * {@code p}. The posterior probability that a term is active is estimated by Markov chain Monte Carlo sampling over
+ * the active terms (toggle and swap moves) and the parameters (random walk on a grid).
+ * <p>
+ * The model contains all terms that annotate at least one population item. The state of a chain is kept in primitive
+ * arrays: the active flag of each term and, for each item, the number of active terms that annotate it. The
+ * likelihood only depends on the number of observed and unobserved items that are on, so a move changes the
+ * likelihood by a delta that is computed from the items of the toggled term(s). Several independent chains are run in
+ * parallel on the executor of the analysis with their own random number generators, and the potential scale
+ * reduction factor (R-hat) of the term indicators is reported as a convergence diagnostic.
+ * </p>
+ */
+final class MgsaSampler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MgsaSampler.class);
+
+    /** Number of independent chains. */
+    static final int DEFAULT_CHAINS = 4;
+    /** Number of MCMC steps per chain; the first half is discarded as burn-in. */
+    static final int DEFAULT_STEPS = 200_000;
+    /** Grid of the false-positive (alpha) and false-negative (beta) rates. */
+    private static final double[] RATE_GRID = IntStream.rangeClosed(1, 19).mapToDouble(k -> k / 20.0).toArray();
+    /** Largest expected number of active terms of the grid of the prior {@code p}. */
+    private static final int MAX_EXPECTED_ACTIVE = 20;
+
+    private final int chains;
+
+    private final int steps;
+
+    private final long seed;
+
+    private final Executor executor;
+
+    /** Sorted term indices (see {@link GoDag}) of the terms of the model. */
+    private final int[] terms;
+
+    /** Items of each model term (CSR over the local item indices 0 .. observed.length-1). */
+    private final int[] termStart;
+    private final int[] termItems;
+
+    /** True if the (local) item is in the study set. */
+    private final boolean[] observed;
+
+    private final int nObserved;
+
+    private MgsaDiagnostics diagnostics = null;
+
+    MgsaSampler(IsopretAssociationContainer container, GoEnrichmentEngine.Counts counts, int chains, int steps,
+                long seed, Executor executor) {
+        this.chains = chains;
+        this.steps = steps;
+        this.seed = seed;
+        this.executor = executor;
+        long[] populationItems = counts.populationItems();
+        int[] localIndex = new int[populationItems.length << 6];
+        int nItems = 0;
+        for (int i = 0; i < localIndex.length; i++) {
+            localIndex[i] = GoEnrichmentEngine.contains(populationItems, i) ? nItems++ : -1;
+        }
+        observed = new boolean[nItems];
+        for (int i = 0; i < localIndex.length; i++) {
+            if (localIndex[i] >= 0 && GoEnrichmentEngine.contains(counts.studyItems(), i)) {
+                observed[localIndex[i]] = true;
+            }
+        }
+        int n = 0;
+        for (boolean o : observed) {
+            if (o) n++;
+        }
+        nObserved = n;
+        terms = IntStream.range(0, counts.population().length)
+                .filter(t -> counts.population()[t] > 0)
+                .toArray();
+        termStart = new int[terms.length + 1];
+        for (int m = 0; m < terms.length; m++) {
+            termStart[m + 1] = termStart[m] + counts.population()[terms[m]];
+        }
+        termItems = new int[termStart[terms.length]];
+        IsopretAssociationContainer.Csr index = container.propagatedIndex();
+        for (int m = 0; m < terms.length; m++) {
+            int k = termStart[m];
+            for (int e = index.start(terms[m]); e < index.end(terms[m]); e++) {
+                int i = index.items()[e];
+                if (localIndex[i] >= 0) {
+                    termItems[k++] = localIndex[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * @param tested term indices of the tested terms
+     * @return posterior probability that each tested term is active (same order as {@code tested})
+     */
+    double[] posteriors(int[] tested) {
+        Chain[] results = new Chain[chains];
+        ParallelTasks.run(executor, chains,
+                c -> results[c] = new Chain(new SplittableRandom(seed ^ (0x9E3779B97F4A7C15L * (c + 1L)))).run());
+        int samples = steps - steps / 2;
+        double[] marginal = new double[terms.length];
+        double maxRhat = 1.0;
+        for (int m = 0; m < terms.length; m++) {
+            double sum = 0.0;
+            double within = 0.0;
+            for (Chain chain : results) {
+                double mean = (double) chain.activeTime[m] / samples;
+                sum += mean;
+                within += mean * (1.0 - mean) * samples / (samples - 1.0);
+            }
+            double mean = sum / chains;
+            marginal[m] = mean;
+            within /= chains;
+            if (chains > 1 && within > 0.0) {
+                double between = 0.0;
+                for (Chain chain : results) {
+                    double d = (double) chain.activeTime[m] / samples - mean;
+                    between += d * d;
+                }
+                between *= samples / (chains - 1.0);
+                double pooled = (samples - 1.0) / samples * within + between / samples;
+                maxRhat = Math.max(maxRhat, Math.sqrt(pooled / within));
+            }
+        }
+        long accepted = 0;
+        double alpha = 0.0;
+        double beta = 0.0;
+        double active = 0.0;
+        for (Chain chain : results) {
+            accepted += chain.accepted;
+            alpha += chain.alphaSum / samples / chains;
+            beta += chain.betaSum / samples / chains;
+            active += chain.activeSum / samples / chains;
+        }
+        diagnostics = new MgsaDiagnostics(chains, steps, maxRhat, (double) accepted / ((long) steps * chains),
+                alpha, beta, active);
+        LOGGER.info("MGSA: {} terms, {} items ({} observed); {}", terms.length, observed.length, nObserved,
+                diagnostics);
+        if (! diagnostics.converged()) {
+            LOGGER.warn("MGSA chains may not have converged (R-hat {}), consider more steps", maxRhat);
+        }
+        double[] posterior = new double[tested.length];
+        for (int j = 0; j < tested.length; j++) {
+            int m = Arrays.binarySearch(terms, tested[j]);
+            posterior[j] = m >= 0 ? marginal[m] : 0.0;
+        }
+        return posterior;
+    }
+
+    /** @return diagnostics of the last call of {@link #posteriors(int[])}, or null */
+    MgsaDiagnostics diagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * One Markov chain. The likelihood is {@code alpha^n01 (1-alpha)^n00 (1-beta)^n11 beta^n10 p^a (1-p)^(T-a)},
+     * where {@code n11} ({@code n10}) is the number of observed (unobserved) items that are on, {@code n01} and
+     * {@code n00} the same for the items that are off, and {@code a} the number of active terms.
+     */
+    private final class Chain {
+        private final SplittableRandom random;
+        private final boolean[] active = new boolean[terms.length];
+        /** Active terms in arbitrary order, and the position of each active term in this list. */
+        private final int[] activeList = new int[terms.length];
+        private final int[] activePosition = new int[terms.length];
+        private int nActive = 0;
+        /** Number of active terms that annotate each item. */
+        private final int[] cover = new int[observed.length];
+        private int onObserved = 0;
+        private int onUnobserved = 0;
+        private int alphaIndex = RATE_GRID.length / 2;
+        private int betaIndex = RATE_GRID.length / 2;
+        private int pIndex = 0;
+        private final int pGridSize = Math.max(1, Math.min(MAX_EXPECTED_ACTIVE, terms.length));
+        /** Result of {@link #delta(int, int)}, reused for every move. */
+        private final int[] onDelta = new int[2];
+
+        /** Number of sampled steps in which each term was active (after burn-in). */
+        private final long[] activeTime = new long[terms.length];
+        /** Step since which each term has been in its current state. */
+        private final int[] since = new int[terms.length];
+        private long accepted = 0;
+        private double alphaSum = 0.0;
+        private double betaSum = 0.0;
+        private double activeSum = 0.0;
+        private int step = 0;
+        private final int burnIn = steps / 2;
+
+        Chain(SplittableRandom random) {
+            this.random = random;
+        }
+
+        Chain run() {
+            double logLikelihood = logLikelihood(onObserved, onUnobserved, nActive, alphaIndex, betaIndex, pIndex);
+            for (step = 0; step < steps; step++) {
+                double u = random.nextDouble();
+                if (u < 0.1) {
+                    logLikelihood = updateParameter(logLikelihood);
+                } else if (u < 0.55) {
+                    logLikelihood = toggle(random.nextInt(terms.length), logLikelihood);
+                } else if (nActive > 0 && nActive < terms.length) {
+                    logLikelihood = swap(logLikelihood);
+                }
+                if (step >= burnIn) {
+                    alphaSum += RATE_GRID[alphaIndex];
+                    betaSum += RATE_GRID[betaIndex];
+                    activeSum += nActive;
+                }
+            }
+            for (int m = 0; m < terms.length; m++) {
+                if (active[m]) {
+                    activeTime[m] += steps - Math.max(since[m], burnIn);
+                }
+            }
+            return this;
+        }
+
+        private double updateParameter(double logLikelihood) {
+            int which = random.nextInt(3);
+            int delta = random.nextBoolean() ? 1 : -1;
+            int a = alphaIndex;
+            int b = betaIndex;
+            int p = pIndex;
+            // proposals outside the grid are rejected, which keeps the random walk symmetric
+            if (which == 0) a += delta;
+            else if (which == 1) b += delta;
+            else p += delta;
+            if (a < 0 || a >= RATE_GRID.length || b < 0 || b >= RATE_GRID.length || p < 0 || p >= pGridSize) {
+                return logLikelihood;
+            }
+            double proposed = logLikelihood(onObserved, onUnobserved, nActive, a, b, p);
+            if (accept(proposed - logLikelihood)) {
+                alphaIndex = a;
+                betaIndex = b;
+                pIndex = p;
+                accepted++;
+                return proposed;
+            }
+            return logLikelihood;
+        }
+
+        private double toggle(int m, double logLikelihood) {
+            delta(m, active[m] ? -1 : 1);
+            int newActive = nActive + (active[m] ? -1 : 1);
+            double proposed = logLikelihood(onObserved + onDelta[0], onUnobserved + onDelta[1], newActive,
+                    alphaIndex, betaIndex, pIndex);
+            if (accept(proposed - logLikelihood)) {
+                setActive(m, ! active[m]);
+                accepted++;
+                return proposed;
+            }
+            return logLikelihood;
+        }
+
+        /**
+         * Exchange a random active term with a random inactive term; the number of active terms is unchanged. The
+         * term that is deactivated is never proposed as the term that is activated.
+         */
+        private double swap(double logLikelihood) {
+            int off = activeList[random.nextInt(nActive)];
+            int on;
+            do {
+                on = random.nextInt(terms.length);
+            } while (on == off || active[on]);
+            setActive(off, false);
+            delta(on, 1);
+            double proposed = logLikelihood(onObserved + onDelta[0], onUnobserved + onDelta[1], nActive + 1,
+                    alphaIndex, betaIndex, pIndex);
+            if (accept(proposed - logLikelihood)) {
+                setActive(on, true);
+                accepted++;
+                return proposed;
+            }
+            setActive(off, true);
+            return logLikelihood;
+        }
+
+        /**
+         * Set {@link #onDelta} to the change of the number of observed and unobserved items that are on.
+         * @param direction 1 to activate term {@code m}, -1 to deactivate it
+         */
+        private void delta(int m, int direction) {
+            onDelta[0] = 0;
+            onDelta[1] = 0;
+            int unchanged = direction > 0 ? 0 : 1;
+            for (int k = termStart[m]; k < termStart[m + 1]; k++) {
+                int i = termItems[k];
+                if (cover[i] == unchanged) {
+                    onDelta[observed[i] ? 0 : 1] += direction;
+                }
+            }
+        }
+
+        private void setActive(int m, boolean on) {
+            if (active[m] && step >= burnIn) {
+                activeTime[m] += step - Math.max(since[m], burnIn);
+            }
+            since[m] = step;
+            active[m] = on;
+            int direction = on ? 1 : -1;
+            for (int k = termStart[m]; k < termStart[m + 1]; k++) {
+                int i = termItems[k];
+                cover[i] += direction;
+                if ((on && cover[i] == 1) || (! on && cover[i] == 0)) {
+                    if (observed[i]) onObserved += direction;
+                    else onUnobserved += direction;
+                }
+            }
+            if (on) {
+                activePosition[m] = nActive;
+                activeList[nActive++] = m;
+            } else {
+                int last = activeList[--nActive];
+                activeList[activePosition[m]] = last;
+                activePosition[last] = activePosition[m];
+            }
+        }
+
+        private boolean accept(double logRatio) {
+            return logRatio >= 0.0 || random.nextDouble() < Math.exp(logRatio);
+        }
+
+        private double logLikelihood(int n11, int n10, int a, int alphaIdx, int betaIdx, int pIdx) {
+            double alpha = RATE_GRID[alphaIdx];
+            double beta = RATE_GRID[betaIdx];
+            double p = (pIdx + 1.0) / (terms.length + 1.0);
+            int n01 = nObserved - n11;
+            int n00 = observed.length - nObserved - n10;
+            return n01 * Math.log(alpha) + n00 * Math.log1p(-alpha)
+                    + n11 * Math.log1p(-beta) + n10 * Math.log(beta)
+                    + a * Math.log(p) + (terms.length - a) * Math.log1p(-p);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.jax.isopret.core.impl.go;
+
+import org.jax.isopret.exception.IsopretRuntimeException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs independent tasks {@code 0 .. n-1} on an {@link Executor}, e.g., the executor of the GO analysis runner, so
+ * that the number of threads chosen by the user is respected. The calling thread works on the tasks as well, and the
+ * helper tasks that are submitted to the executor return as soon as all tasks have been claimed. The tasks are
+ * therefore completed even if the executor runs everything in the calling thread ({@code Runnable::run}) or if all
+ * of its threads are busy, for instance with the analysis that called this class.
+ */
+final class ParallelTasks {
+
+    private ParallelTasks() {
+    }
+
+    /**
+     * Run {@code task.accept(i)} for {@code i = 0 .. n-1} and wait until all tasks are done. If a task throws, the
+     * first exception is rethrown after all tasks are done.
+     */
+    static void run(Executor executor, int n, IntConsumer task) {
+        if (n <= 1) {
+            for (int i = 0; i < n; i++) {
+                task.accept(i);
+            }
+            return;
+        }
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(n);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Runnable worker = () -> {
+            for (int i = next.getAndIncrement(); i < n; i = next.getAndIncrement()) {
+                try {
+                    task.accept(i);
+                } catch (RuntimeException | Error e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            }
+        };
+        int helpers = Math.min(n, Runtime.getRuntime().availableProcessors()) - 1;
+        for (int h = 0; h < helpers && next.get() < n; h++) {
+            try {
+                executor.execute(worker);
+            } catch (RejectedExecutionException e) {
+                break;
+            }
+        }
+        worker.run();
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IsopretRuntimeException("Interrupted while waiting for the GO analysis");
+        }
+        Throwable t = failure.get();
+        if (t instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        } else if (t instanceof Error error) {
+            throw error;
+        }
+    }
+
+    /**
+     * Split {@code 0 .. n-1} into ranges of at most {@code grain} indices and run {@code body} for each range.
+     * @param body called with the start (inclusive) and end (exclusive) of each range
+     */
+    static void forRanges(Executor executor, int n, int grain, RangeConsumer body) {
+        int ranges = (n + grain - 1) / grain;
+        run(executor, ranges, r -> body.accept(r * grain, Math.min(n, (r + 1) * grain)));
+    }
+
+    @FunctionalInterface
+    interface RangeConsumer {
+        void accept(int from, int to);
+    }
+}
@@ -0,0 +1,377 @@
+package org.jax.isopret.core.impl.go;
+
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Item-to-GO-term annotations (e.g., transcript to GO terms) stored as a compressed sparse row (CSR) matrix.
+ * Items and GO terms are numbered densely; the GO terms of item {@code i} are the column indices
+ * {@code columns[rowOffsets[i]] .. columns[rowOffsets[i+1]-1]}, sorted in ascending order. Compared to a map of hash
+ * sets this needs only a few bytes per annotation. {@link #asMap()} provides the usual
+ * {@code Map<TermId, Set<TermId>>} as a read-only view. Instances are immutable.
+ */
+public final class SparseAnnotationMatrix {
+
+    private final TermId[] items;
+
+    private final TermId[] terms;
+
+    private final int[] rowOffsets;
+
+    private final int[] columns;
+
+    private final Map<TermId, Integer> itemIndex;
+
+    private final Map<TermId, Integer> termIndex;
+
+    private SparseAnnotationMatrix(TermId[] items, TermId[] terms, int[] rowOffsets, int[] columns) {
+        this.items = items;
+        this.terms = terms;
+        this.rowOffsets = rowOffsets;
+        this.columns = columns;
+        this.itemIndex = indexOf(items);
+        this.termIndex = indexOf(terms);
+    }
+
+    private static Map<TermId, Integer> indexOf(TermId[] ids) {
+        Map<TermId, Integer> index = new HashMap<>(2 * ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            index.put(ids[i], i);
+        }
+        return Map.copyOf(index);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param annotMap map with key: item, value: annotated GO terms
+     * @return the same annotations as a matrix (the backing matrix if {@code annotMap} was created by {@link #asMap()})
+     */
+    public static SparseAnnotationMatrix of(Map<TermId, Set<TermId>> annotMap) {
+        if (annotMap instanceof MapView view) {
+            return view.matrix();
+        }
+        Builder builder = builder();
+        annotMap.forEach((item, goIds) -> goIds.forEach(goId -> builder.add(item, goId)));
+        return builder.build();
+    }
+
+    /**
+     * @param matrices matrices with annotations of possibly overlapping sets of items
+     * @return a matrix with the union of the annotations of each item
+     */
+    public static SparseAnnotationMatrix merge(List<SparseAnnotationMatrix> matrices) {
+        Builder builder = builder();
+        for (SparseAnnotationMatrix matrix : matrices) {
+            for (int i = 0; i < matrix.items.length; i++) {
+                for (int k = matrix.rowOffsets[i]; k < matrix.rowOffsets[i + 1]; k++) {
+                    builder.add(matrix.items[i], matrix.terms[matrix.columns[k]]);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Combine the rows of several items into one row per group (e.g., transcripts into genes).
+     * @param itemToGroup returns the group of an item, or null if the item is to be skipped
+     * @return matrix with one row per group, annotated with the union of the GO terms of its items
+     */
+    public SparseAnnotationMatrix groupRows(Function<TermId, TermId> itemToGroup) {
+        Map<TermId, Integer> groupIndex = new LinkedHashMap<>();
+        int[] groupOfRow = new int[items.length];
+        int[] rowCount = new int[items.length];
+        for (int i = 0; i < items.length; i++) {
+            TermId group = itemToGroup.apply(items[i]);
+            if (group == null) {
+                groupOfRow[i] = -1;
+                continue;
+            }
+            int g = groupIndex.computeIfAbsent(group, k -> groupIndex.size());
+            groupOfRow[i] = g;
+            rowCount[g] += rowOffsets[i + 1] - rowOffsets[i];
+        }
+        int nGroups = groupIndex.size();
+        int[] offsets = new int[nGroups + 1];
+        for (int g = 0; g < nGroups; g++) {
+            offsets[g + 1] = offsets[g] + rowCount[g];
+        }
+        int[] cols = new int[offsets[nGroups]];
+        int[] fill = Arrays.copyOf(offsets, nGroups);
+        for (int i = 0; i < items.length; i++) {
+            int g = groupOfRow[i];
+            if (g < 0) continue;
+            for (int k = rowOffsets[i]; k < rowOffsets[i + 1]; k++) {
+                cols[fill[g]++] = columns[k];
+            }
+        }
+        TermId[] groups = groupIndex.keySet().toArray(new TermId[0]);
+        return compact(groups, terms, offsets, cols);
+    }
+
+    /**
+     * Sort the columns of each row and remove duplicates.
+     */
+    private static SparseAnnotationMatrix compact(TermId[] items, TermId[] terms, int[] offsets, int[] cols) {
+        int[] newOffsets = new int[items.length + 1];
+        int n = 0;
+        for (int i = 0; i < items.length; i++) {
+            int from = offsets[i];
+            int to = offsets[i + 1];
+            Arrays.sort(cols, from, to);
+            newOffsets[i] = n;
+            for (int k = from; k < to; k++) {
+                if (k == from || cols[k] != cols[k - 1]) {
+                    cols[n++] = cols[k];
+                }
+            }
+        }
+        newOffsets[items.length] = n;
+        return new SparseAnnotationMatrix(items, terms, newOffsets, Arrays.copyOf(cols, n));
+    }
+
+    /** @return number of items (rows) */
+    public int itemCount() {
+        return items.length;
+    }
+
+    /** @return number of distinct GO terms (columns) */
+    public int termCount() {
+        return terms.length;
+    }
+
+    /** @return total number of annotations */
+    public int annotationCount() {
+        return columns.length;
+    }
+
+    /**
+     * @return read-only map view with key: item, value: GO terms annotating the item
+     */
+    public Map<TermId, Set<TermId>> asMap() {
+        return new MapView(this);
+    }
+
+    /**
+     * Write the matrix as
+     * <pre>
+     * int n_items, int n_terms, int n_annotations,
+     * n_items * (int length, UTF-8 item id), n_terms * (int length, UTF-8 GO id),
+     * int[n_items+1] row offsets, int[n_annotations] column indices
+     * </pre>
+     * @return the encoded matrix
+     */
+    public byte[] toByteArray() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(items.length);
+        out.writeInt(terms.length);
+        out.writeInt(columns.length);
+        for (TermId[] ids : List.of(items, terms)) {
+            for (TermId id : ids) {
+                byte[] utf8 = id.getValue().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(utf8.length);
+                out.write(utf8);
+            }
+        }
+        ByteBuffer ints = ByteBuffer.allocate(4 * (rowOffsets.length + columns.length));
+        ints.asIntBuffer().put(rowOffsets).put(columns);
+        out.write(ints.array());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode a matrix written by {@link #toByteArray()}. The row offsets and column indices are read with one bulk
+     * copy each. The buffer is left positioned after the matrix.
+     * @param buffer buffer positioned at the start of the matrix
+     * @return the decoded matrix
+     */
+    public static SparseAnnotationMatrix read(ByteBuffer buffer) {
+        int nItems = buffer.getInt();
+        int nTerms = buffer.getInt();
+        int nAnnotations = buffer.getInt();
+        TermId[] items = readIds(buffer, nItems);
+        TermId[] terms = readIds(buffer, nTerms);
+        int[] rowOffsets = new int[nItems + 1];
+        int[] columns = new int[nAnnotations];
+        buffer.asIntBuffer().get(rowOffsets).get(columns);
+        buffer.position(buffer.position() + 4 * (rowOffsets.length + columns.length));
+        return new SparseAnnotationMatrix(items, terms, rowOffsets, columns);
+    }
+
+    private static TermId[] readIds(ByteBuffer buffer, int n) {
+        TermId[] ids = new TermId[n];
+        for (int i = 0; i < n; i++) {
+            byte[] utf8 = new byte[buffer.getInt()];
+            buffer.get(utf8);
+            ids[i] = TermId.of(new String(utf8, StandardCharsets.UTF_8));
+        }
+        return ids;
+    }
+
+    /**
+     * Collects (item, GO term) pairs in any order; duplicates are removed by {@link #build()}.
+     */
+    public static final class Builder {
+        private final Map<TermId, Integer> itemIndex = new HashMap<>();
+        private final Map<TermId, Integer> termIndex = new HashMap<>();
+        private int[] rows = new int[1024];
+        private int[] cols = new int[1024];
+        private int size = 0;
+
+        private Builder() {
+        }
+
+        public Builder add(TermId item, TermId goId) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, 2 * size);
+                cols = Arrays.copyOf(cols, 2 * size);
+            }
+            rows[size] = itemIndex.computeIfAbsent(item, k -> itemIndex.size());
+            cols[size] = termIndex.computeIfAbsent(goId, k -> termIndex.size());
+            size++;
+            return this;
+        }
+
+        public SparseAnnotationMatrix build() {
+            int nItems = itemIndex.size();
+            int[] offsets = new int[nItems + 1];
+            for (int k = 0; k < size; k++) {
+                offsets[rows[k] + 1]++;
+            }
+            for (int i = 0; i < nItems; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            int[] sorted = new int[size];
+            int[] fill = Arrays.copyOf(offsets, nItems);
+            for (int k = 0; k < size; k++) {
+                sorted[fill[rows[k]]++] = cols[k];
+            }
+            return compact(toArray(itemIndex), toArray(termIndex), offsets, sorted);
+        }
+
+        private static TermId[] toArray(Map<TermId, Integer> index) {
+            TermId[] ids = new TermId[index.size()];
+            index.forEach((id, i) -> ids[i] = id);
+            return ids;
+        }
+    }
+
+    private static final class MapView extends AbstractMap<TermId, Set<TermId>> {
+        private final SparseAnnotationMatrix matrix;
+
+        private MapView(SparseAnnotationMatrix matrix) {
+            this.matrix = matrix;
+        }
+
+        private SparseAnnotationMatrix matrix() {
+            return matrix;
+        }
+
+        @Override
+        public int size() {
+            return matrix.items.length;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return matrix.itemIndex.containsKey(key);
+        }
+
+        @Override
+        public Set<TermId> get(Object key) {
+            Integer i = matrix.itemIndex.get(key);
+            return i == null ? null : new RowView(matrix, i);
+        }
+
+        @Override
+        public Set<TermId> keySet() {
+            return matrix.itemIndex.keySet();
+        }
+
+        @Override
+        public Set<Entry<TermId, Set<TermId>>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<TermId, Set<TermId>>> iterator() {
+                    return new Iterator<>() {
+                        private int i = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return i < matrix.items.length;
+                        }
+
+                        @Override
+                        public Entry<TermId, Set<TermId>> next() {
+                            if (i >= matrix.items.length) {
+                                throw new NoSuchElementException();
+                            }
+                            int row = i++;
+                            return new SimpleImmutableEntry<>(matrix.items[row], new RowView(matrix, row));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return matrix.items.length;
+                }
+            };
+        }
+    }
+
+    /** The GO terms of one item. */
+    private static final class RowView extends AbstractSet<TermId> {
+        private final SparseAnnotationMatrix matrix;
+        private final int from;
+        private final int to;
+
+        private RowView(SparseAnnotationMatrix matrix, int row) {
+            this.matrix = matrix;
+            this.from = matrix.rowOffsets[row];
+            this.to = matrix.rowOffsets[row + 1];
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            Integer column = matrix.termIndex.get(o);
+            return column != null && Arrays.binarySearch(matrix.columns, from, to, column) >= 0;
+        }
+
+        @Override
+        public Iterator<TermId> iterator() {
+            return new Iterator<>() {
+                private int k = from;
+
+                @Override
+                public boolean hasNext() {
+                    return k < to;
+                }
+
+                @Override
+                public TermId next() {
+                    if (k >= to) {
+                        throw new NoSuchElementException();
+                    }
+                    return matrix.terms[matrix.columns[k++]];
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+}
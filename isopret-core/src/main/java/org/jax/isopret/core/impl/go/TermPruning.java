@@ -0,0 +1,104 @@
+package org.jax.isopret.core.impl.go;
+
+import org.jax.isopret.data.GoMethod;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Filters that remove GO terms from the tested terms before any p-value is computed, which reduces both the
+ * computation and the number of hypotheses that count towards the multiple testing correction.
+ * <ul>
+ *     <li>Term size: only terms that annotate between {@code minTermSize} and {@code maxTermSize} population items
+ *     are tested.</li>
+ *     <li>Tarone (1990): with {@code n} study items and {@code N} population items, a term annotating {@code K}
+ *     population items cannot have a p-value below {@code P(X >= min(n, K))}. The smallest {@code k} is found such
+ *     that at most {@code k} terms have a minimum achievable p-value of at most {@code alpha / k}, and only these
+ *     terms are tested; the others could not be significant at level {@code alpha} after Bonferroni correction. The
+ *     Bonferroni factor is {@code k}, not the number of tested terms, which may be smaller (see {@link Pruned}). The
+ *     minimum achievable p-value only depends on the population and study-set sizes for Term-for-Term; for the other
+ *     methods the population of a term depends on the study set, so Tarone pruning is only applied to Term-for-Term.
+ *     </li>
+ * </ul>
+ * @param minTermSize minimum number of population items annotated to a tested term
+ * @param maxTermSize maximum number of population items annotated to a tested term
+ * @param tarone if true, terms that cannot become significant are not tested (Term-for-Term only)
+ * @param alpha significance level for Tarone's procedure
+ */
+public record TermPruning(int minTermSize, int maxTermSize, boolean tarone, double alpha) {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TermPruning.class);
+
+    /** @return filters that keep all terms */
+    public static TermPruning none() {
+        return new TermPruning(1, Integer.MAX_VALUE, false, 0.05);
+    }
+
+    /**
+     * The terms that remain after pruning.
+     * @param terms term indices of the terms that are tested
+     * @param correctionFactor number of hypotheses for the Bonferroni and Sidak corrections: the {@code k} of
+     *                         Tarone's procedure, which may exceed the number of tested terms, or the number of
+     *                         tested terms without Tarone's procedure
+     */
+    record Pruned(int[] terms, int correctionFactor) {
+        static Pruned of(int[] terms) {
+            return new Pruned(terms, terms.length);
+        }
+    }
+
+    /**
+     * @param tested term indices of the tested terms
+     * @return the tested terms that pass the filters (in the same order) and the correction factor
+     */
+    Pruned prune(GoMethod goMethod, GoEnrichmentEngine.Counts counts, int[] tested) {
+        int[] sized = Arrays.stream(tested)
+                .filter(t -> counts.population()[t] >= minTermSize && counts.population()[t] <= maxTermSize)
+                .toArray();
+        if (! tarone || goMethod != GoMethod.TFT || sized.length == 0) {
+            logPruned(tested.length, sized.length, "size");
+            return Pruned.of(sized);
+        }
+        LogFactorialHypergeometric hypergeometric = new LogFactorialHypergeometric(counts.populationSize());
+        int n = counts.studySize();
+        double[] minP = Arrays.stream(sized)
+                .mapToDouble(t -> {
+                    int marked = counts.population()[t];
+                    return hypergeometric.upperTail(counts.populationSize(), marked, n, Math.min(n, marked));
+                })
+                .toArray();
+        double[] sorted = minP.clone();
+        Arrays.sort(sorted);
+        // m(k), the number of terms with minP <= alpha/k, does not increase with k, so the first k with m(k) <= k
+        // is found by a linear scan
+        int k = 1;
+        while (countAtMost(sorted, alpha / k) > k) {
+            k++;
+        }
+        double cutoff = alpha / k;
+        int[] testable = IntStream.range(0, sized.length)
+                .filter(j -> minP[j] <= cutoff)
+                .map(j -> sized[j])
+                .toArray();
+        logPruned(tested.length, testable.length, "size and Tarone");
+        return new Pruned(testable, k);
+    }
+
+    private static int countAtMost(double[] sorted, double x) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] <= x) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static void logPruned(int before, int after, String filters) {
+        if (after < before) {
+            LOGGER.info("Pruned {} of {} GO terms by {} filters.", before - after, before, filters);
+        }
+    }
+}
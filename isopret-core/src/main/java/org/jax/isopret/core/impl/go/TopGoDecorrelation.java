@@ -0,0 +1,229 @@
+package org.jax.isopret.core.impl.go;
+
+import java.util.Arrays;
+
+/**
+ * The elim and weight algorithms of topGO (Alexa et al., 2006, Bioinformatics 22:1600), which decorrelate the GO
+ * graph structure by processing the tested terms bottom-up, i.e., every term after all of its descendants.
+ * <ul>
+ *     <li><b>elim</b>: if the p-value of a term is below {@link #ELIM_CUTOFF}, the items annotated to the term are
+ *     removed from all of its ancestors before the ancestors are tested.</li>
+ *     <li><b>weight</b>: if a child is more significant than its parent, the items of the child are down-weighted in
+ *     the parent and its ancestors by the ratio of the two p-values and the p-value of the parent is recomputed;
+ *     if the parent is more significant, the child is down-weighted instead. The weighted counts are rounded to the
+ *     nearest integer for the hypergeometric test.</li>
+ * </ul>
+ * Instead of copying gene sets for every term, the removed (down-weighted) descendants of a term are recorded in a
+ * per-term list when they are found, and the counts of a term are corrected with one pass over the rows of these
+ * descendants in the propagated inverted index, using one scratch array over the items. The study and population
+ * sizes are not changed, as in topGO.
+ */
+final class TopGoDecorrelation {
+
+    /** p-value below which a term removes its items from its ancestors (default of topGO's elim). */
+    static final double ELIM_CUTOFF = 0.01;
+
+    private final IsopretAssociationContainer.Csr index;
+
+    private final GoDag dag;
+
+    private final GoEnrichmentEngine.Counts counts;
+
+    private final LogFactorialHypergeometric hypergeometric;
+
+    TopGoDecorrelation(IsopretAssociationContainer container,
+                       GoEnrichmentEngine.Counts counts,
+                       LogFactorialHypergeometric hypergeometric) {
+        this.index = container.propagatedIndex();
+        this.dag = container.dag();
+        this.counts = counts;
+        this.hypergeometric = hypergeometric;
+    }
+
+    /**
+     * @param tested term indices of the tested terms
+     * @return elim p-values of the tested terms (same order as {@code tested})
+     */
+    double[] elim(int[] tested) {
+        int[] position = positions(tested);
+        TermLists removedDescendants = new TermLists(tested.length);
+        boolean[] removed = new boolean[counts.populationItems().length << 6];
+        int[] removedItems = new int[removed.length];
+        double[] p = new double[tested.length];
+        for (int t : dag.bottomUp(tested)) {
+            int j = position[t];
+            int population = counts.population()[t];
+            int study = counts.study()[t];
+            int nRemoved = 0;
+            for (int d = 0; d < removedDescendants.size(j); d++) {
+                int descendant = removedDescendants.get(j, d);
+                for (int k = index.start(descendant); k < index.end(descendant); k++) {
+                    int i = index.items()[k];
+                    if (! removed[i]) {
+                        removed[i] = true;
+                        removedItems[nRemoved++] = i;
+                    }
+                }
+            }
+            for (int r = 0; r < nRemoved; r++) {
+                int i = removedItems[r];
+                if (GoEnrichmentEngine.contains(counts.populationItems(), i)) population--;
+                if (GoEnrichmentEngine.contains(counts.studyItems(), i)) study--;
+                removed[i] = false;
+            }
+            p[j] = hypergeometric.upperTail(counts.populationSize(), population, counts.studySize(), study);
+            if (p[j] < ELIM_CUTOFF) {
+                for (int a : dag.ancestors(t)) {
+                    if (position[a] >= 0) {
+                        removedDescendants.add(position[a], t);
+                    }
+                }
+            }
+        }
+        return p;
+    }
+
+    /**
+     * @param tested term indices of the tested terms
+     * @return weight p-values of the tested terms (same order as {@code tested})
+     */
+    double[] weight(int[] tested) {
+        int[] position = positions(tested);
+        // down-weighted descendants of each term and their weights
+        TermLists weightedDescendants = new TermLists(tested.length);
+        double[][] descendantWeights = new double[tested.length][];
+        double[] weights = new double[counts.populationItems().length << 6];
+        Arrays.fill(weights, 1.0);
+        int[] weightedItems = new int[weights.length];
+        double[] studyWeight = new double[tested.length];
+        double[] populationWeight = new double[tested.length];
+        double[] p = new double[tested.length];
+        for (int u : dag.bottomUp(tested)) {
+            int j = position[u];
+            weightedCounts(u, j, weightedDescendants, descendantWeights, weights, weightedItems, studyWeight,
+                    populationWeight);
+            p[j] = pValue(studyWeight[j], populationWeight[j]);
+            boolean downWeighted = false;
+            for (int c : dag.children(u)) {
+                int jc = position[c];
+                if (jc < 0) continue;
+                if (p[jc] < p[j]) {
+                    // the child explains the signal better than its parent
+                    double w = p[jc] / p[j];
+                    addWeight(weightedDescendants, descendantWeights, j, c, w);
+                    for (int a : dag.ancestors(u)) {
+                        if (position[a] >= 0) {
+                            addWeight(weightedDescendants, descendantWeights, position[a], c, w);
+                        }
+                    }
+                    downWeighted = true;
+                } else if (p[j] < p[jc]) {
+                    double w = p[j] / p[jc];
+                    studyWeight[jc] *= w;
+                    populationWeight[jc] *= w;
+                    p[jc] = pValue(studyWeight[jc], populationWeight[jc]);
+                }
+            }
+            if (downWeighted) {
+                weightedCounts(u, j, weightedDescendants, descendantWeights, weights, weightedItems, studyWeight,
+                        populationWeight);
+                p[j] = pValue(studyWeight[j], populationWeight[j]);
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Compute the weighted study and population counts of term {@code u} (position {@code j}) from the weights of
+     * its down-weighted descendants. The weights of an item multiply if it is annotated to several of them.
+     */
+    private void weightedCounts(int u,
+                                int j,
+                                TermLists weightedDescendants,
+                                double[][] descendantWeights,
+                                double[] weights,
+                                int[] weightedItems,
+                                double[] studyWeight,
+                                double[] populationWeight) {
+        double study = counts.study()[u];
+        double population = counts.population()[u];
+        int nWeighted = 0;
+        for (int d = 0; d < weightedDescendants.size(j); d++) {
+            int descendant = weightedDescendants.get(j, d);
+            double w = descendantWeights[j][d];
+            for (int k = index.start(descendant); k < index.end(descendant); k++) {
+                int i = index.items()[k];
+                if (weights[i] == 1.0) {
+                    weightedItems[nWeighted++] = i;
+                }
+                weights[i] *= w;
+            }
+        }
+        for (int r = 0; r < nWeighted; r++) {
+            int i = weightedItems[r];
+            if (GoEnrichmentEngine.contains(counts.populationItems(), i)) population -= 1.0 - weights[i];
+            if (GoEnrichmentEngine.contains(counts.studyItems(), i)) study -= 1.0 - weights[i];
+            weights[i] = 1.0;
+        }
+        studyWeight[j] = study;
+        populationWeight[j] = population;
+    }
+
+    private double pValue(double studyWeight, double populationWeight) {
+        int study = (int) Math.round(studyWeight);
+        int population = Math.max(study, (int) Math.round(populationWeight));
+        return hypergeometric.upperTail(counts.populationSize(), population, counts.studySize(), study);
+    }
+
+    private static void addWeight(TermLists weightedDescendants, double[][] descendantWeights, int j, int c, double w) {
+        int d = weightedDescendants.size(j);
+        weightedDescendants.add(j, c);
+        if (descendantWeights[j] == null) {
+            descendantWeights[j] = new double[4];
+        } else if (d == descendantWeights[j].length) {
+            descendantWeights[j] = Arrays.copyOf(descendantWeights[j], 2 * d);
+        }
+        descendantWeights[j][d] = w;
+    }
+
+    /** @return position of each term in {@code tested}, or -1 for terms that are not tested */
+    private int[] positions(int[] tested) {
+        int[] position = new int[dag.size()];
+        Arrays.fill(position, -1);
+        for (int j = 0; j < tested.length; j++) {
+            position[tested[j]] = j;
+        }
+        return position;
+    }
+
+    /**
+     * Growable lists of term indices, one per tested term. Most terms have no removed or down-weighted descendants,
+     * so the arrays are only allocated when the first term is added.
+     */
+    private static final class TermLists {
+        private final int[][] terms;
+        private final int[] sizes;
+
+        TermLists(int n) {
+            terms = new int[n][];
+            sizes = new int[n];
+        }
+
+        int size(int j) {
+            return sizes[j];
+        }
+
+        int get(int j, int k) {
+            return terms[j][k];
+        }
+
+        void add(int j, int t) {
+            if (terms[j] == null) {
+                terms[j] = new int[4];
+            } else if (sizes[j] == terms[j].length) {
+                terms[j] = Arrays.copyOf(terms[j], 2 * sizes[j]);
+            }
+            terms[j][sizes[j]++] = t;
+        }
+    }
+}
@@ -11,10 +11,14 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 /**
  * Our inference procedure generates a file called {@code isoform_function_list.txt} that
@@ -31,14 +35,18 @@ import java.util.Set;
  */
 public class TranscriptFunctionFileParser {
     private static final Logger LOGGER = LoggerFactory.getLogger(TranscriptFunctionFileParser.class);
-    /** Key: TermId representing the accession number of a gene or transcript (e.g., ENST:00123), value:
-     * set of annotated GO terms
-     */
-    private final  Map<TermId, Set<TermId>> transcriptIdToGoTermsMap;
+    /** Rows: TermIds representing the accession numbers of transcripts (e.g., ENST:00123), columns: annotated GO terms. */
+    private final SparseAnnotationMatrix transcriptAnnotations;
 
 
-    private static Map<TermId, Set<TermId>> parseFunctionFile(File file, Ontology ontology) {
-        Map<TermId, Set<TermId>> annotMap = new HashMap<>();
+    /**
+     * Parse one isoform function file (MF, BP, or CC).
+     * @param file isoform function file
+     * @param ontology Gene Ontology, used to skip GO terms that are not in the ontology
+     * @return matrix with rows: transcript TermIds, columns: annotated GO terms
+     */
+    public static SparseAnnotationMatrix parseFunctionFile(File file, Ontology ontology) {
+        SparseAnnotationMatrix.Builder builder = SparseAnnotationMatrix.builder();
         Set<String> notFound = new HashSet<>();
         try (BufferedReader br = new BufferedReader(new FileReader(file))) {
             String line = br.readLine();
@@ -57,9 +65,7 @@ public class TranscriptFunctionFileParser {
                     notFound.add(GoId.getValue());
                     continue;
                 }
-                TermId transcriptTermId = transcriptId.toTermId();
-                annotMap.putIfAbsent(transcriptTermId, new HashSet<>());
-                annotMap.get(transcriptTermId).add(GoId);
+                builder.add(transcriptId.toTermId(), GoId);
             }
         } catch (IOException e) {
             throw new PhenolRuntimeException("Could not import isoform_function_list.txt :" + e.getMessage());
@@ -68,55 +74,100 @@ public class TranscriptFunctionFileParser {
             int n_missing = notFound.size(); // keep logger sane
             LOGGER.warn("Could not find " + n_missing + " terms in Ontology");
         }
-        return annotMap; // return immutable map
+        return builder.build();
     }
 
 
+    /**
+     * Parse the three isoform function files one after the other in the calling thread.
+     */
     public TranscriptFunctionFileParser(File predictionFileMf,
                                         File predictionFileBp,
                                         File predictionFileCc,
                                         Ontology ontology)  {
-        Map<TermId, Set<TermId>> annotMapMf = parseFunctionFile(predictionFileMf, ontology);
-        Map<TermId, Set<TermId>> annotMapBp = parseFunctionFile(predictionFileBp, ontology);
-        Map<TermId, Set<TermId>> annotMapCc = parseFunctionFile(predictionFileCc, ontology);
-        for (var entry : annotMapBp.entrySet()) {
-            annotMapMf.putIfAbsent(entry.getKey(), new HashSet<>());
-            annotMapMf.get(entry.getKey()).addAll(entry.getValue());
-        }
-        for (var entry : annotMapCc.entrySet()) {
-            annotMapMf.putIfAbsent(entry.getKey(), new HashSet<>());
-            annotMapMf.get(entry.getKey()).addAll(entry.getValue());
+        this(predictionFileMf, predictionFileBp, predictionFileCc, ontology, Runnable::run);
+    }
+
+    /**
+     * Parse the three isoform function files. The files are independent of each other and are parsed concurrently
+     * by {@code executor}.
+     */
+    public TranscriptFunctionFileParser(File predictionFileMf,
+                                        File predictionFileBp,
+                                        File predictionFileCc,
+                                        Ontology ontology,
+                                        Executor executor)  {
+        this(parseConcurrently(List.of(predictionFileMf, predictionFileBp, predictionFileCc), ontology, executor));
+    }
+
+    /**
+     * @param annotationsMf parsed molecular function file (see {@link #parseFunctionFile(File, Ontology)})
+     * @param annotationsBp parsed biological process file
+     * @param annotationsCc parsed cellular component file
+     */
+    public TranscriptFunctionFileParser(SparseAnnotationMatrix annotationsMf,
+                                        SparseAnnotationMatrix annotationsBp,
+                                        SparseAnnotationMatrix annotationsCc) {
+        this(List.of(annotationsMf, annotationsBp, annotationsCc));
+    }
+
+    private TranscriptFunctionFileParser(List<SparseAnnotationMatrix> annotations) {
+        transcriptAnnotations = SparseAnnotationMatrix.merge(annotations);
+    }
+
+    private static List<SparseAnnotationMatrix> parseConcurrently(List<File> files, Ontology ontology, Executor executor) {
+        List<CompletableFuture<SparseAnnotationMatrix>> futures = files.stream()
+                .map(file -> CompletableFuture.supplyAsync(() -> parseFunctionFile(file, ontology), executor))
+                .toList();
+        List<SparseAnnotationMatrix> annotMaps = new ArrayList<>();
+        for (var future : futures) {
+            try {
+                annotMaps.add(future.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new PhenolRuntimeException("Could not import isoform function file: " + e.getMessage());
+            }
         }
-        transcriptIdToGoTermsMap = Map.copyOf(annotMapMf); // immutable map
+        return annotMaps;
+    }
+
+    public SparseAnnotationMatrix getTranscriptAnnotations() {
+        return transcriptAnnotations;
     }
 
+    /**
+     * @return read-only view with key: transcript TermId, value: set of annotated GO terms
+     */
     public Map<TermId, Set<TermId>> getTranscriptIdToGoTermsMap() {
-        return transcriptIdToGoTermsMap;
+        return transcriptAnnotations.asMap();
     }
 
     /**
-     *
      * @param transcript2gene Map with Ensembl transcript id to gene id map
-     * @return Map with key: Ensembl gene id and value set of GO Annotations.
+     * @return matrix with rows: Ensembl gene ids, columns: union of the GO annotations of the transcripts of the gene
      */
-    public Map<TermId, Set<TermId>> getGeneIdToGoTermsMap(Map<TermId, TermId> transcript2gene) {
-        Map<TermId, Set<TermId>> annotMap = new HashMap<>();
-        if (transcriptIdToGoTermsMap.isEmpty()) {
+    public SparseAnnotationMatrix getGeneAnnotations(Map<TermId, TermId> transcript2gene) {
+        if (transcriptAnnotations.itemCount() == 0) {
             // should never happen
             throw new PhenolRuntimeException("Attempt to get gene-level annotations without transcript annotations");
         }
-        for (var entry : transcriptIdToGoTermsMap.entrySet()) {
-            TermId transcriptAcc = entry.getKey();
-            if (! transcript2gene.containsKey(transcriptAcc)) {
+        return transcriptAnnotations.groupRows(transcriptAcc -> {
+            TermId geneAcc = transcript2gene.get(transcriptAcc);
+            if (geneAcc == null) {
                 LOGGER.error("Could not find gene accession number for {}", transcriptAcc.getValue());
-            } else {
-                TermId geneAcc = transcript2gene.get(transcriptAcc);
-                annotMap.putIfAbsent(geneAcc, new HashSet<>());
-                for (TermId goId : entry.getValue()) {
-                    annotMap.get(geneAcc).add(goId);
-                }
             }
-        }
-        return Map.copyOf(annotMap); // return immutable map
+            return geneAcc;
+        });
+    }
+
+    /**
+     *
+     * @param transcript2gene Map with Ensembl transcript id to gene id map
+     * @return Map with key: Ensembl gene id and value set of GO Annotations.
+     */
+    public Map<TermId, Set<TermId>> getGeneIdToGoTermsMap(Map<TermId, TermId> transcript2gene) {
+        return getGeneAnnotations(transcript2gene).asMap();
     }
 }
@@ -0,0 +1,143 @@
+package org.jax.isopret.core.impl.hgnc;
+
+import org.jax.isopret.core.impl.CacheFile;
+import org.jax.isopret.data.AccessionNumber;
+import org.jax.isopret.data.Transcript;
+import org.jax.isopret.model.GeneModel;
+import org.jax.isopret.model.GeneSymbolAccession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary index of the columns of {@code hgnc_complete_set.txt} that are used by isopret (gene symbol, gene name,
+ * Entrez id, Ensembl gene id and RefSeq accession). The index is written next to the HGNC file the first time the
+ * file is parsed, together with the size and modification time of the HGNC file. Later loads read the index instead
+ * of the TSV file as long as the HGNC file has not changed.
+ * <p>
+ * The index does not depend on the transcript data; the gene models are created from the index records in the same
+ * way as by {@link HgncParser}.
+ * </p>
+ */
+public class HgncIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HgncIndex.class);
+    /** "ISHG"; increment the version whenever the encoding changes. */
+    private static final CacheFile INDEX_FILE = new CacheFile(0x49534847, 1);
+
+    private HgncIndex() {
+    }
+
+    /**
+     * @param hgncFile path to the hgnc_complete_set.txt file
+     * @param indexFile path to the binary index (created or replaced if it does not match {@code hgncFile})
+     * @param geneSymbolAccessionListMap map with key - gene identifiers, value -- list of transcripts.
+     * @return immutable map with key -- Ensembl gene id, value -- the corresponding gene model
+     */
+    public static Map<AccessionNumber, GeneModel> load(Path hgncFile,
+                                                       Path indexFile,
+                                                       Map<GeneSymbolAccession, List<Transcript>> geneSymbolAccessionListMap) {
+        HgncParser.checkTranscriptMap(geneSymbolAccessionListMap);
+        long start = System.currentTimeMillis();
+        List<HgncParser.HgncRecord> records = readIndex(hgncFile, indexFile);
+        if (records != null) {
+            LOGGER.info("Loaded {} HGNC records from index {} in {} ms.", records.size(), indexFile,
+                    System.currentTimeMillis() - start);
+        } else {
+            records = HgncParser.readRecords(hgncFile);
+            write(records, hgncFile, indexFile);
+        }
+        return HgncParser.toGeneModels(records, geneSymbolAccessionListMap);
+    }
+
+    /**
+     * @return the records of the index, or null if there is no up-to-date index
+     */
+    private static List<HgncParser.HgncRecord> readIndex(Path hgncFile, Path indexFile) {
+        if (! Files.isRegularFile(indexFile)) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = INDEX_FILE.read(indexFile, CacheFile.fingerprint(hgncFile));
+            if (buffer != null) {
+                return decode(buffer);
+            }
+            LOGGER.info("HGNC index {} does not match {}, rebuilding it.", indexFile, hgncFile);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Could not read HGNC index {}: {}", indexFile, e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Write the index next to the HGNC file. If the directory is not writable, the records are returned anyway
+     * and the TSV file is simply parsed again on the next load.
+     */
+    private static void write(List<HgncParser.HgncRecord> records, Path hgncFile, Path indexFile) {
+        try {
+            CacheFile.write(indexFile, List.of(INDEX_FILE.header(CacheFile.fingerprint(hgncFile)), encode(records)));
+            LOGGER.info("Wrote HGNC index {}", indexFile.toAbsolutePath());
+        } catch (IOException e) {
+            LOGGER.warn("Could not write HGNC index {}: {}", indexFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Encode the records (without the index header). The layout is
+     * <pre>
+     * int n, int[n] Ensembl gene id, n * (string symbol, string name, string Entrez id, string RefSeq accession)
+     * </pre>
+     * where each string is written as its UTF-8 length followed by the UTF-8 bytes.
+     */
+    static byte[] encode(List<HgncParser.HgncRecord> records) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(records.size());
+        for (HgncParser.HgncRecord record : records) {
+            out.writeInt(record.ensg());
+        }
+        for (HgncParser.HgncRecord record : records) {
+            writeString(out, record.geneSymbol());
+            writeString(out, record.geneName());
+            writeString(out, record.entrezId());
+            writeString(out, record.refseqAccession());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static List<HgncParser.HgncRecord> decode(ByteBuffer buffer) {
+        int n = buffer.getInt();
+        int[] ensg = new int[n];
+        buffer.asIntBuffer().get(ensg);
+        buffer.position(buffer.position() + 4 * n);
+        List<HgncParser.HgncRecord> records = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            records.add(new HgncParser.HgncRecord(readString(buffer), readString(buffer), readString(buffer),
+                    ensg[i], readString(buffer)));
+        }
+        return records;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int len = buffer.getInt();
+        String s = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), len, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + len);
+        return s;
+    }
+}
@@ -8,13 +8,12 @@ import org.jax.isopret.data.Transcript;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
 
 /**
  * This is the structure of the HGMC file
@@ -73,6 +72,10 @@ import java.util.Map;
  * wasteful to create a Map for each of the sources. Therefore, we parse all of this information into a map of
  * {@link GeneModel} objects. There are then accessor functions for each of the sources that create a map on the fly.
  * </p>
+ * <p>
+ * Only five of the columns are used. The file is therefore read as bytes, and only the needed columns are
+ * converted to Strings. The parsed columns can be cached with {@link HgncIndex}.
+ * </p>
  * @author Peter N Robinson
  */
 public class HgncParser {
@@ -82,8 +85,15 @@ public class HgncParser {
     private final static int ENTREZ_ID = 18;
     private final static int ENSEMBL_GENE_ID = 19;
     private final static int REFSEQ_ACCESSION = 23;
+    private static final byte TAB = '\t';
+    private static final byte NEWLINE = '\n';
 
-
+    /**
+     * The columns of one line of the HGNC file that are used by isopret.
+     * @param ensg integer part of the Ensembl gene id
+     */
+    record HgncRecord(String geneSymbol, String geneName, String entrezId, int ensg, String refseqAccession) {
+    }
 
     private final Map<AccessionNumber, GeneModel> ensemblMap;
     /**
@@ -92,67 +102,185 @@ public class HgncParser {
      * @param geneSymbolAccessionListMap map with key - gene identifiers, value -- list of transcripts.
      */
     public HgncParser(File hgncFile, Map<GeneSymbolAccession, List<Transcript>> geneSymbolAccessionListMap) {
-        ensemblMap = initHgncItems(hgncFile, geneSymbolAccessionListMap);
+        checkTranscriptMap(geneSymbolAccessionListMap);
+        ensemblMap = toGeneModels(readRecords(hgncFile.toPath()), geneSymbolAccessionListMap);
     }
 
-    private Map<AccessionNumber, GeneModel>  initHgncItems(File hgncFile,
-                                          Map<GeneSymbolAccession, List<Transcript>>  geneSymbolAccessionListMap) {
+    static void checkTranscriptMap(Map<GeneSymbolAccession, List<Transcript>> geneSymbolAccessionListMap) {
         if (geneSymbolAccessionListMap == null) {
             throw new IsopretRuntimeException("Cannot initialize HgncParser because geneSymbolAccessionListMap argument was null");
         }
         if (geneSymbolAccessionListMap.isEmpty()) {
             throw new IsopretRuntimeException("Cannot initialize HgncParser because geneSymbolAccessionListMap argument was empty");
         }
-        Map<AccessionNumber, GeneModel> ensemblMap = new HashMap<>();
+    }
+
+    /**
+     * Extract the used columns of all lines that have an Ensembl gene id. Lines with less than 24 (non-empty
+     * trailing) fields are skipped.
+     * @param hgncFile path to the hgnc_complete_set.txt file
+     * @return one record per line with an Ensembl gene id, in the order of the file
+     */
+    static List<HgncRecord> readRecords(Path hgncFile) {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(hgncFile);
+        } catch (IOException e) {
+            String msg = String.format("Could not parse the HGNC file (%s).", e.getMessage());
+            throw new IsopretRuntimeException(msg);
+        }
+        int headerEnd = lineEnd(bytes, 0);
+        String header = new String(bytes, 0, headerEnd, StandardCharsets.UTF_8);
+        if (! header.startsWith("hgnc_id")) {
+            throw new IsopretRuntimeException("Malformed HGNC header line: " + header);
+        }
+        List<HgncRecord> records = new ArrayList<>();
         int less_than_24_fields = 0;
         int well_formed_lines = 0;
-        String line = null;
-        int not_found_in_jannovar = 0;
-        try (BufferedReader br = new BufferedReader(new FileReader(hgncFile))) {
-            line = br.readLine();
-            if (! line.startsWith("hgnc_id")) {
-                throw new IsopretRuntimeException("Malformed HGNC header line: " + line);
+        // fieldStart[i] is the offset of field i; fieldStart[i + 1] - 1 is the end of field i
+        int[] fieldStart = new int[REFSEQ_ACCESSION + 2];
+        int pos = headerEnd < bytes.length ? headerEnd + 1 : headerEnd;
+        while (pos < bytes.length) {
+            int eol = lineEnd(bytes, pos);
+            int end = eol > pos && bytes[eol - 1] == '\r' ? eol - 1 : eol;
+            int field = 0;
+            fieldStart[0] = pos;
+            for (int i = pos; i < end && field <= REFSEQ_ACCESSION; i++) {
+                if (bytes[i] == TAB) {
+                    fieldStart[++field] = i + 1;
+                }
             }
-            while ((line=br.readLine()) != null) {
-                String [] fields = line.split("\t");
-                if (fields.length < 24) {
-                    less_than_24_fields++;
-                    continue;
-                } else {
-                    well_formed_lines++;
+            if (field < REFSEQ_ACCESSION) {
+                less_than_24_fields++;
+            } else if (! hasNonTab(bytes, fieldStart[REFSEQ_ACCESSION], end)) {
+                less_than_24_fields++; // the trailing fields are empty
+            } else {
+                well_formed_lines++;
+                if (field == REFSEQ_ACCESSION) {
+                    fieldStart[REFSEQ_ACCESSION + 1] = end + 1;
                 }
                 // some lines do not have an ENSEMBL id -- about 20 or so, and they can be ignored.
                 //ENSG00000160710
-                if (fields[ENSEMBL_GENE_ID].length() < 15) {
-                    LOGGER.trace("Malformed HGNC line ({}) with no Ensembl id\n", line);
-                    continue;
-                }
-                AccessionNumber ensemblGeneAcc = AccessionNumber.ensemblGene(fields[ENSEMBL_GENE_ID]);
-                GeneSymbolAccession gsa = new GeneSymbolAccession(fields[GENE_SYMBOL], ensemblGeneAcc);
-                if (geneSymbolAccessionListMap.containsKey(gsa)) {
-                    List<Transcript> transcriptList = geneSymbolAccessionListMap.get(gsa);
-                    GeneModel item = new GeneModel(fields[GENE_SYMBOL],
-                            fields[GENE_NAME],
-                            fields[ENTREZ_ID],
-                            gsa.accession(),
-                            fields[REFSEQ_ACCESSION],
-                            transcriptList);
-                    ensemblMap.put(gsa.accession(), item);
+                int ensgStart = fieldStart[ENSEMBL_GENE_ID];
+                int ensgEnd = fieldStart[ENSEMBL_GENE_ID + 1] - 1;
+                if (ensgEnd - ensgStart < 15) {
+                    LOGGER.trace("Malformed HGNC line ({}) with no Ensembl id\n",
+                            new String(bytes, pos, end - pos, StandardCharsets.UTF_8));
                 } else {
-                    // not an error, we do not expect to find all of the transcripts in HGNC in the Jannovar file
-                    not_found_in_jannovar++;
+                    records.add(new HgncRecord(field(bytes, fieldStart, GENE_SYMBOL),
+                            field(bytes, fieldStart, GENE_NAME),
+                            field(bytes, fieldStart, ENTREZ_ID),
+                            parseEnsg(bytes, ensgStart, ensgEnd),
+                            field(bytes, fieldStart, REFSEQ_ACCESSION)));
                 }
             }
-        } catch (IOException e) {
-            String msg = String.format("Could not parse the HGNC file (%s). Error for line (%s)", e.getMessage(), line);
-            throw new IsopretRuntimeException(msg);
+            pos = eol + 1;
         }
-        LOGGER.trace("Unable to find {} HGNC transcripts in the Jannovar data ", not_found_in_jannovar);
         LOGGER.trace("{} HGNC lines with less than 24 fields skipped.", less_than_24_fields);
         LOGGER.trace("{} valid HGNC lines successsfully parsed.", well_formed_lines);
+        return records;
+    }
+
+    private static int lineEnd(byte[] bytes, int from) {
+        for (int i = from; i < bytes.length; i++) {
+            if (bytes[i] == NEWLINE) {
+                return i;
+            }
+        }
+        return bytes.length;
+    }
+
+    private static boolean hasNonTab(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] != TAB) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String field(byte[] bytes, int[] fieldStart, int field) {
+        int start = fieldStart[field];
+        return new String(bytes, start, fieldStart[field + 1] - 1 - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Same as {@link AccessionNumber#ensgAccessionToInt(String)}, but without creating a String.
+     */
+    private static int parseEnsg(byte[] bytes, int from, int to) {
+        if (bytes[from] != 'E' || bytes[from + 1] != 'N' || bytes[from + 2] != 'S' || bytes[from + 3] != 'G') {
+            throw new IsopretRuntimeException("Ensembl gene id must start with ENSG but we got \"" +
+                    new String(bytes, from, to - from, StandardCharsets.UTF_8) + "\"");
+        }
+        long value = 0;
+        for (int i = from + 4; i < to && bytes[i] != '.'; i++) {
+            if (bytes[i] < '0' || bytes[i] > '9' || value > Integer.MAX_VALUE) {
+                throw new IsopretRuntimeException("Malformed Ensembl gene id in HGNC file: " +
+                        new String(bytes, from, to - from, StandardCharsets.UTF_8));
+            }
+            value = 10 * value + (bytes[i] - '0');
+        }
+        if (value > Integer.MAX_VALUE) {
+            throw new IsopretRuntimeException("Malformed Ensembl gene id in HGNC file: " +
+                    new String(bytes, from, to - from, StandardCharsets.UTF_8));
+        }
+        return (int) value;
+    }
+
+    /**
+     * Create the gene models for the HGNC records whose gene symbol and Ensembl id are also found in the transcript
+     * data. The transcript genes are sorted by their Ensembl id once, so that each record is looked up with a binary
+     * search instead of creating a {@link GeneSymbolAccession} key per record.
+     * @param records HGNC records (from the HGNC file or from {@link HgncIndex})
+     * @param geneSymbolAccessionListMap map with key - gene identifiers, value -- list of transcripts.
+     * @return immutable map with key -- Ensembl gene id, value -- the corresponding gene model
+     */
+    static Map<AccessionNumber, GeneModel> toGeneModels(List<HgncRecord> records,
+                                                        Map<GeneSymbolAccession, List<Transcript>> geneSymbolAccessionListMap) {
+        GeneSymbolAccession[] genes = geneSymbolAccessionListMap.keySet().toArray(new GeneSymbolAccession[0]);
+        Arrays.sort(genes, Comparator.comparingInt(gsa -> gsa.accession().getAccessionNumber()));
+        int[] ensgIds = new int[genes.length];
+        for (int i = 0; i < genes.length; i++) {
+            ensgIds[i] = genes[i].accession().getAccessionNumber();
+        }
+        Map<AccessionNumber, GeneModel> ensemblMap = new HashMap<>();
+        int not_found_in_jannovar = 0;
+        for (HgncRecord record : records) {
+            GeneSymbolAccession gsa = find(genes, ensgIds, record);
+            if (gsa != null) {
+                List<Transcript> transcriptList = geneSymbolAccessionListMap.get(gsa);
+                GeneModel item = new GeneModel(record.geneSymbol(),
+                        record.geneName(),
+                        record.entrezId(),
+                        gsa.accession(),
+                        record.refseqAccession(),
+                        transcriptList);
+                ensemblMap.put(gsa.accession(), item);
+            } else {
+                // not an error, we do not expect to find all of the transcripts in HGNC in the Jannovar file
+                not_found_in_jannovar++;
+            }
+        }
+        LOGGER.trace("Unable to find {} HGNC transcripts in the Jannovar data ", not_found_in_jannovar);
         return Map.copyOf(ensemblMap); // immutable copy
     }
 
+    private static GeneSymbolAccession find(GeneSymbolAccession[] genes, int[] ensgIds, HgncRecord record) {
+        int i = Arrays.binarySearch(ensgIds, record.ensg());
+        if (i < 0) {
+            return null;
+        }
+        while (i > 0 && ensgIds[i - 1] == record.ensg()) {
+            i--;
+        }
+        for (; i < genes.length && ensgIds[i] == record.ensg(); i++) {
+            if (genes[i].symbol().equals(record.geneSymbol())) {
+                return genes[i];
+            }
+        }
+        return null;
+    }
+
     public Map<AccessionNumber, GeneModel> ensemblMap() {
         return this.ensemblMap;
     }
@@ -0,0 +1,370 @@
+package org.jax.isopret.core.impl.interpro;
+
+import org.jax.isopret.data.AccessionNumber;
+import org.jax.isopret.data.InterproAnnotation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Interpro annotations of the transcripts stored as five parallel int columns (ENST, ENSG, interpro id, start and
+ * end), sorted by gene. Within a gene, the annotations keep the order of the interpro domains file. An offset index
+ * over the sorted gene ids gives the rows of a gene, and a second index (a permutation of the rows sorted by
+ * transcript id) gives the rows of a transcript, so that both lookups are a binary search followed by a range scan
+ * without any allocation. Compared to a map of {@link InterproAnnotation} lists, this needs about 20 bytes per
+ * annotation. {@link #asMap()} provides the usual map as a read-only view. Instances are immutable.
+ */
+public final class InterproAnnotationStore {
+
+    private final int[] enst;
+    private final int[] ensg;
+    private final int[] interpro;
+    private final int[] start;
+    private final int[] end;
+    /** Distinct gene ids in ascending order. */
+    private final int[] geneIds;
+    /** The rows of gene {@code g} are {@code geneOffsets[g] .. geneOffsets[g+1]-1}. */
+    private final int[] geneOffsets;
+    /** Distinct transcript ids in ascending order. */
+    private final int[] transcriptIds;
+    /** The rows of transcript {@code t} are {@code transcriptRows[transcriptOffsets[t] .. transcriptOffsets[t+1]-1]}. */
+    private final int[] transcriptOffsets;
+    /** Row numbers sorted by transcript id (and by row within a transcript). */
+    private final int[] transcriptRows;
+
+    private InterproAnnotationStore(int[] enst, int[] ensg, int[] interpro, int[] start, int[] end,
+                                    int[] geneIds, int[] geneOffsets,
+                                    int[] transcriptIds, int[] transcriptOffsets, int[] transcriptRows) {
+        this.enst = enst;
+        this.ensg = ensg;
+        this.interpro = interpro;
+        this.start = start;
+        this.end = end;
+        this.geneIds = geneIds;
+        this.geneOffsets = geneOffsets;
+        this.transcriptIds = transcriptIds;
+        this.transcriptOffsets = transcriptOffsets;
+        this.transcriptRows = transcriptRows;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param annotations key: Ensembl gene id, value: interpro annotations of the transcripts of the gene
+     * @return a store with the same annotations
+     */
+    public static InterproAnnotationStore of(Map<AccessionNumber, List<InterproAnnotation>> annotations) {
+        Builder builder = builder();
+        for (List<InterproAnnotation> list : annotations.values()) {
+            for (InterproAnnotation a : list) {
+                builder.add(a.getEnst().getAccessionNumber(), a.getEnsg().getAccessionNumber(), a.getInterpro(),
+                        a.getStart(), a.getEnd());
+            }
+        }
+        return builder.build();
+    }
+
+    /** @return number of annotations */
+    public int size() {
+        return enst.length;
+    }
+
+    /** @return number of genes with at least one annotation */
+    public int geneCount() {
+        return geneIds.length;
+    }
+
+    /**
+     * @param ensgId integer part of an Ensembl gene id
+     * @return index of the gene, or -1 if the gene has no annotations
+     */
+    public int geneIndex(int ensgId) {
+        int g = Arrays.binarySearch(geneIds, ensgId);
+        return g < 0 ? -1 : g;
+    }
+
+    /** @return first row of gene {@code g} */
+    public int geneFirstRow(int g) {
+        return geneOffsets[g];
+    }
+
+    /** @return row after the last row of gene {@code g} */
+    public int geneEndRow(int g) {
+        return geneOffsets[g + 1];
+    }
+
+    /**
+     * @param enstId integer part of an Ensembl transcript id
+     * @return index of the transcript, or -1 if the transcript has no annotations
+     */
+    public int transcriptIndex(int enstId) {
+        int t = Arrays.binarySearch(transcriptIds, enstId);
+        return t < 0 ? -1 : t;
+    }
+
+    /**
+     * The rows of transcript {@code t} are {@code transcriptRow(i)} for
+     * {@code i = transcriptFirst(t) .. transcriptEnd(t)-1}.
+     */
+    public int transcriptFirst(int t) {
+        return transcriptOffsets[t];
+    }
+
+    public int transcriptEnd(int t) {
+        return transcriptOffsets[t + 1];
+    }
+
+    public int transcriptRow(int i) {
+        return transcriptRows[i];
+    }
+
+    public int enst(int row) {
+        return enst[row];
+    }
+
+    public int ensg(int row) {
+        return ensg[row];
+    }
+
+    public int interpro(int row) {
+        return interpro[row];
+    }
+
+    public int start(int row) {
+        return start[row];
+    }
+
+    public int end(int row) {
+        return end[row];
+    }
+
+    public InterproAnnotation annotation(int row) {
+        return new InterproAnnotation(AccessionNumber.enstFromInt(enst[row]), AccessionNumber.ensgFromInt(ensg[row]),
+                interpro[row], start[row], end[row]);
+    }
+
+    /**
+     * @return read-only view with key: Ensembl gene id, value: interpro annotations of the transcripts of the gene.
+     * The annotation objects are created when a value is requested.
+     */
+    public Map<AccessionNumber, List<InterproAnnotation>> asMap() {
+        return new MapView();
+    }
+
+    private List<InterproAnnotation> geneAnnotations(int g) {
+        List<InterproAnnotation> annotations = new ArrayList<>(geneOffsets[g + 1] - geneOffsets[g]);
+        for (int row = geneOffsets[g]; row < geneOffsets[g + 1]; row++) {
+            annotations.add(annotation(row));
+        }
+        return Collections.unmodifiableList(annotations);
+    }
+
+    /**
+     * Encode the store. The layout is
+     * <pre>
+     * int n_rows, int n_genes, int n_transcripts,
+     * int[n_rows] enst, ensg, interpro, start, end,
+     * int[n_genes] gene ids, int[n_genes+1] gene offsets,
+     * int[n_transcripts] transcript ids, int[n_transcripts+1] transcript offsets, int[n_rows] transcript rows
+     * </pre>
+     */
+    public byte[] toByteArray() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(enst.length);
+        out.writeInt(geneIds.length);
+        out.writeInt(transcriptIds.length);
+        ByteBuffer ints = ByteBuffer.allocate(4 * (6 * enst.length + 2 * geneIds.length + 2 * transcriptIds.length + 2));
+        ints.asIntBuffer().put(enst).put(ensg).put(interpro).put(start).put(end)
+                .put(geneIds).put(geneOffsets)
+                .put(transcriptIds).put(transcriptOffsets).put(transcriptRows);
+        out.write(ints.array());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode a store written by {@link #toByteArray()}. The buffer is left positioned after the store.
+     * @param buffer buffer positioned at the start of the store
+     * @return the decoded store
+     */
+    public static InterproAnnotationStore read(ByteBuffer buffer) {
+        int nRows = buffer.getInt();
+        int nGenes = buffer.getInt();
+        int nTranscripts = buffer.getInt();
+        int[] enst = new int[nRows];
+        int[] ensg = new int[nRows];
+        int[] interpro = new int[nRows];
+        int[] start = new int[nRows];
+        int[] end = new int[nRows];
+        int[] geneIds = new int[nGenes];
+        int[] geneOffsets = new int[nGenes + 1];
+        int[] transcriptIds = new int[nTranscripts];
+        int[] transcriptOffsets = new int[nTranscripts + 1];
+        int[] transcriptRows = new int[nRows];
+        buffer.asIntBuffer().get(enst).get(ensg).get(interpro).get(start).get(end)
+                .get(geneIds).get(geneOffsets)
+                .get(transcriptIds).get(transcriptOffsets).get(transcriptRows);
+        buffer.position(buffer.position() + 4 * (6 * nRows + 2 * nGenes + 2 * nTranscripts + 2));
+        return new InterproAnnotationStore(enst, ensg, interpro, start, end,
+                geneIds, geneOffsets, transcriptIds, transcriptOffsets, transcriptRows);
+    }
+
+    /**
+     * Collects annotations in any order. {@link #build()} sorts them by gene (keeping the order of the annotations of
+     * each gene) and builds the gene and transcript indices.
+     */
+    public static final class Builder {
+        private int[] enst = new int[1024];
+        private int[] ensg = new int[1024];
+        private int[] interpro = new int[1024];
+        private int[] start = new int[1024];
+        private int[] end = new int[1024];
+        private int n = 0;
+
+        private Builder() {
+        }
+
+        public Builder add(int enstId, int ensgId, int interproId, int startPos, int endPos) {
+            if (n == enst.length) {
+                int capacity = 2 * n;
+                enst = Arrays.copyOf(enst, capacity);
+                ensg = Arrays.copyOf(ensg, capacity);
+                interpro = Arrays.copyOf(interpro, capacity);
+                start = Arrays.copyOf(start, capacity);
+                end = Arrays.copyOf(end, capacity);
+            }
+            enst[n] = enstId;
+            ensg[n] = ensgId;
+            interpro[n] = interproId;
+            start[n] = startPos;
+            end[n] = endPos;
+            n++;
+            return this;
+        }
+
+        public InterproAnnotationStore build() {
+            // sort (gene id, original row) pairs packed into longs; the ids are non-negative
+            long[] keys = new long[n];
+            for (int i = 0; i < n; i++) {
+                keys[i] = ((long) ensg[i] << 32) | i;
+            }
+            Arrays.sort(keys);
+            int[] sEnst = new int[n];
+            int[] sEnsg = new int[n];
+            int[] sInterpro = new int[n];
+            int[] sStart = new int[n];
+            int[] sEnd = new int[n];
+            for (int row = 0; row < n; row++) {
+                int i = (int) keys[row];
+                sEnst[row] = enst[i];
+                sEnsg[row] = ensg[i];
+                sInterpro[row] = interpro[i];
+                sStart[row] = start[i];
+                sEnd[row] = end[i];
+            }
+            int[][] geneIndex = runIndex(sEnsg, n);
+            for (int row = 0; row < n; row++) {
+                keys[row] = ((long) sEnst[row] << 32) | row;
+            }
+            Arrays.sort(keys);
+            int[] transcriptRows = new int[n];
+            int[] sortedEnst = new int[n];
+            for (int i = 0; i < n; i++) {
+                transcriptRows[i] = (int) keys[i];
+                sortedEnst[i] = (int) (keys[i] >>> 32);
+            }
+            int[][] transcriptIndex = runIndex(sortedEnst, n);
+            return new InterproAnnotationStore(sEnst, sEnsg, sInterpro, sStart, sEnd,
+                    geneIndex[0], geneIndex[1], transcriptIndex[0], transcriptIndex[1], transcriptRows);
+        }
+
+        /**
+         * @param sorted ids in ascending order
+         * @return the distinct ids and the offsets of their runs
+         */
+        private static int[][] runIndex(int[] sorted, int n) {
+            int distinct = 0;
+            for (int i = 0; i < n; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    distinct++;
+                }
+            }
+            int[] ids = new int[distinct];
+            int[] offsets = new int[distinct + 1];
+            int k = 0;
+            for (int i = 0; i < n; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    ids[k] = sorted[i];
+                    offsets[k] = i;
+                    k++;
+                }
+            }
+            offsets[distinct] = n;
+            return new int[][]{ids, offsets};
+        }
+    }
+
+    private class MapView extends AbstractMap<AccessionNumber, List<InterproAnnotation>> {
+
+        @Override
+        public int size() {
+            return geneIds.length;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return index(key) >= 0;
+        }
+
+        @Override
+        public List<InterproAnnotation> get(Object key) {
+            int g = index(key);
+            return g < 0 ? null : geneAnnotations(g);
+        }
+
+        private int index(Object key) {
+            if (key instanceof AccessionNumber accession && accession.isGene()) {
+                return geneIndex(accession.getAccessionNumber());
+            }
+            return -1;
+        }
+
+        @Override
+        public Set<Entry<AccessionNumber, List<InterproAnnotation>>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<AccessionNumber, List<InterproAnnotation>>> iterator() {
+                    return new Iterator<>() {
+                        private int g = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return g < geneIds.length;
+                        }
+
+                        @Override
+                        public Entry<AccessionNumber, List<InterproAnnotation>> next() {
+                            if (g >= geneIds.length) {
+                                throw new NoSuchElementException();
+                            }
+                            int gene = g++;
+                            return new SimpleImmutableEntry<>(AccessionNumber.ensgFromInt(geneIds[gene]),
+                                    geneAnnotations(gene));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return geneIds.length;
+                }
+            };
+        }
+    }
+}
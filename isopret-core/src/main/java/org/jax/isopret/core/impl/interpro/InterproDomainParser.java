@@ -3,6 +3,7 @@ package org.jax.isopret.core.impl.interpro;
 import org.jax.isopret.exception.IsopretRuntimeException;
 import org.jax.isopret.data.AccessionNumber;
 import org.jax.isopret.data.InterproAnnotation;
+import org.jax.isopret.data.InterproEntry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,48 +13,60 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.util.*;
 
-
+/**
+ * Parse the interpro domains file ({@code interpro_domains.txt}). Each line has the transcript id, gene id, interpro
+ * id, and start and end position of one domain; the annotations are collected in an {@link InterproAnnotationStore}
+ * without creating an {@link InterproAnnotation} object per line.
+ */
 public class InterproDomainParser {
     private static final Logger LOGGER = LoggerFactory.getLogger(InterproDomainParser.class);
 
-    private final Map<AccessionNumber, List<InterproAnnotation>> geneIdToAnnotationMap;
+    private final InterproAnnotationStore annotationStore;
 
     private InterproDomainParser(File file) {
-        geneIdToAnnotationMap = new HashMap<>();
+        InterproAnnotationStore.Builder builder = InterproAnnotationStore.builder();
         try (BufferedReader br = new BufferedReader(new FileReader(file))) {
             String line;
             br.readLine(); // header
             int noInterproId = 0; // counts number of lines with biomart error
             while ((line=br.readLine()) != null) {
-                //System.out.println(line);
                 String [] fields = line.split("\t");
                 try {
-                    Optional<InterproAnnotation> opt = InterproAnnotation.fromLine(line);
-                    if (opt.isEmpty()) {
+                    if (fields.length != 5) {
+                        throw new IsopretRuntimeException("We were expecting 5 fields but got " + fields.length + " for \"" + line +"\"");
+                    }
+                    int enst = AccessionNumber.enstAccessionToInt(fields[0]);
+                    int ensg = AccessionNumber.ensgAccessionToInt(fields[1]);
+                    if (fields[2].isEmpty()) {
                         noInterproId++;
                         continue;
                     }
-                    InterproAnnotation annotation = opt.get();
-                    this.geneIdToAnnotationMap.putIfAbsent(annotation.getEnsg(), new ArrayList<>());
-                    this.geneIdToAnnotationMap.get(annotation.getEnsg()).add(annotation);
+                    builder.add(enst, ensg, InterproEntry.integerPart(fields[2]),
+                            Integer.parseInt(fields[3]), Integer.parseInt(fields[4]));
                 } catch (Exception e) {
                     // should never happen
                     throw new IsopretRuntimeException("Malformed interpro domain line: \"" + line + "\": " + e.getMessage());
                 }
 
             }
+            this.annotationStore = builder.build();
             LOGGER.trace("Lines with missing interpro id (skipped): {}", noInterproId);
-            LOGGER.trace("Number of interpro annotations identified: {}", this.geneIdToAnnotationMap.size());
+            LOGGER.trace("Number of interpro annotations identified: {}", this.annotationStore.geneCount());
         } catch (IOException e) {
             throw new IsopretRuntimeException(e.getMessage());
         }
     }
 
 
+    public static InterproAnnotationStore getInterproAnnotationStore(File file) {
+        InterproDomainParser parser = new InterproDomainParser(file);
+        return parser.annotationStore;
+    }
 
-
+    /**
+     * @return read-only map with key: Ensembl gene id, value: interpro annotations of the transcripts of the gene
+     */
     public static Map<AccessionNumber, List<InterproAnnotation>> getInterproAnnotationMap(File file) {
-        InterproDomainParser parser = new InterproDomainParser(file);
-        return parser.geneIdToAnnotationMap;
+        return getInterproAnnotationStore(file).asMap();
     }
 }
@@ -8,6 +8,7 @@ import org.jax.isopret.core.analysis.InterproFisherExact;
 import org.jax.isopret.core.analysis.InterproOverrepResult;
 import org.jax.isopret.core.impl.go.IsopretAssociationContainer;
 import org.jax.isopret.core.impl.go.IsopretContainerFactory;
+import org.jax.isopret.core.impl.rnaseqdata.GeneResultRanking;
 import org.jax.isopret.core.impl.rnaseqdata.IsoformSpecificThresholder;
 import org.jax.isopret.core.impl.rnaseqdata.RnaSeqResultsParser;
 import org.jax.isopret.data.AccessionNumber;
@@ -81,7 +82,8 @@ public class IsopretInterpoAnalysisRunnerImpl implements IsopretInterpoAnalysisR
         this.transcriptToGoMap = provider.transcriptIdToGoTermsMap();
         Map<TermId, TermId> transcriptToGeneIdMap = provider.transcriptToGeneIdMap();
         Map<TermId, Set<TermId>> gene2GoMap = provider.gene2GoMap();
-        IsopretContainerFactory isoContainerFac = new IsopretContainerFactory(ontology, transcriptToGoMap, gene2GoMap);
+        IsopretContainerFactory isoContainerFac = new IsopretContainerFactory(ontology, provider.goDag(), provider.idRegistry(),
+                transcriptToGoMap, gene2GoMap);
         LOGGER.info("Loaded gene2GoMap with {} entries", gene2GoMap.size());
         transcriptContainer = isoContainerFac.transcriptContainer();
         LOGGER.info("Got transcriptContainer with {} domain items", transcriptContainer.getAnnotatedDomainItemCount());
@@ -102,11 +104,8 @@ public class IsopretInterpoAnalysisRunnerImpl implements IsopretInterpoAnalysisR
         this.splicingPepThreshold = thresholder.getSplicingPepThreshold();
         this.geneSymbolAccessionToTranscriptMap = provider.geneSymbolToTranscriptListMap();
         List<AnnotatedGene> annotatedGenes = new ArrayList<>();
-        // sort the raw results according to minimum p-values
-        List<GeneResult> results = thresholder.getRawResults().values()
-                .stream()
-                .sorted()
-                .toList();
+        // the raw results ranked by minimum p-value (precomputed by the thresholder)
+        List<GeneResult> results = thresholder.getRanking().ranked(GeneResultRanking.Key.MIN_P);
         LOGGER.info("Got {} raw results from thresholder", results.size());
         int c = 0;
         double splicingThreshold = thresholder.getSplicingPepThreshold();
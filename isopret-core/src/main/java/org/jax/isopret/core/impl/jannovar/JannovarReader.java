@@ -28,41 +28,40 @@ public class JannovarReader {
     private static final Logger LOGGER = LoggerFactory.getLogger(JannovarReader.class);
 
 
-    /** Key -- An {@link GeneSymbolAccession} object for a gene; value -- list of corresponding transcripts. */
-    private static Map<GeneSymbolAccession, List<Transcript>> geneToTranscriptListMap = null;
+    /** Key -- An {@link GeneSymbolAccession} object for a gene; value -- list of corresponding transcripts (immutable). */
+    private final Map<GeneSymbolAccession, List<Transcript>> geneToTranscriptListMap;
 
     public JannovarReader(String path, GenomicAssembly assembly) {
         this(new File(path), assembly);
     }
     public JannovarReader(File jannovarSerFile, GenomicAssembly assembly) {
-        // singleton pattern
-        if (geneToTranscriptListMap == null) {
-            LOGGER.info("Creating JannovarData from {} with assembly {}",
-                    jannovarSerFile.getAbsolutePath(), assembly.name());
-            JannovarTxMapper jmapper = new JannovarTxMapper(assembly);
-            geneToTranscriptListMap = new HashMap<>();
-            try {
-                JannovarData jannovarData = new JannovarDataSerializer(jannovarSerFile.toString()).load();
-                ImmutableMultimap<String, TranscriptModel> transcriptByGeneSymbolMap = jannovarData.getTmByGeneSymbol();
-                transcriptByGeneSymbolMap.asMap().forEach((symbol, transcriptModelList) -> {
-                    for (TranscriptModel tmod : transcriptModelList) {
-                        Optional<Transcript> opt = jmapper.remap(tmod);
-                        if (opt.isPresent()) {
-                            Transcript transcript = opt.get();
-                            AccessionNumber geneId = AccessionNumber.ensemblGene(tmod.getGeneID());
-                            GeneSymbolAccession gsa = new GeneSymbolAccession(symbol, geneId);
-                            geneToTranscriptListMap.putIfAbsent(gsa, new ArrayList<>());
-                            geneToTranscriptListMap.get(gsa).add(transcript);
-                        } else {
-                            LOGGER.warn("Could not find Jannovar transcript model for {}.", symbol);
-                        }
+        LOGGER.info("Creating JannovarData from {} with assembly {}",
+                jannovarSerFile.getAbsolutePath(), assembly.name());
+        JannovarTxMapper jmapper = new JannovarTxMapper(assembly);
+        Map<GeneSymbolAccession, List<Transcript>> transcriptListMap = new HashMap<>();
+        try {
+            JannovarData jannovarData = new JannovarDataSerializer(jannovarSerFile.toString()).load();
+            ImmutableMultimap<String, TranscriptModel> transcriptByGeneSymbolMap = jannovarData.getTmByGeneSymbol();
+            transcriptByGeneSymbolMap.asMap().forEach((symbol, transcriptModelList) -> {
+                for (TranscriptModel tmod : transcriptModelList) {
+                    Optional<Transcript> opt = jmapper.remap(tmod);
+                    if (opt.isPresent()) {
+                        Transcript transcript = opt.get();
+                        AccessionNumber geneId = AccessionNumber.ensemblGene(tmod.getGeneID());
+                        GeneSymbolAccession gsa = new GeneSymbolAccession(symbol, geneId);
+                        transcriptListMap.computeIfAbsent(gsa, k -> new ArrayList<>()).add(transcript);
+                    } else {
+                        LOGGER.warn("Could not find Jannovar transcript model for {}.", symbol);
                     }
-                });
-                LOGGER.info("Parsed geneToTranscriptListMap with {} entries", geneToTranscriptListMap.size());
-            } catch (SerializationException e) {
-                throw new IsopretRuntimeException(e.getMessage());
-            }
+                }
+            });
+        } catch (SerializationException e) {
+            throw new IsopretRuntimeException(e.getMessage());
         }
+        Map<GeneSymbolAccession, List<Transcript>> immutableMap = new HashMap<>();
+        transcriptListMap.forEach((gsa, transcripts) -> immutableMap.put(gsa, List.copyOf(transcripts)));
+        geneToTranscriptListMap = Map.copyOf(immutableMap);
+        LOGGER.info("Parsed geneToTranscriptListMap with {} entries", geneToTranscriptListMap.size());
     }
 
     /**
@@ -0,0 +1,120 @@
+package org.jax.isopret.core.impl.rnaseqdata;
+
+import org.jax.isopret.data.AccessionNumber;
+import org.jax.isopret.data.EnsemblIdRegistry;
+import org.jax.isopret.model.GeneModel;
+import org.jax.isopret.model.GeneResult;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds the {@link GeneResult} objects from the values that the {@link RnaSeqResultScanner} reads from the
+ * results file. Lines with a negative splicing fold change are counted as invalid, and lines whose gene is not in the
+ * HGNC map are counted as unfound. Because the lines of one gene are usually adjacent, the lookup of the previous
+ * gene is reused for the following lines. Genes and transcripts of the {@link EnsemblIdRegistry} are represented by
+ * its shared accession numbers.
+ * <p>
+ * When the file is parsed in chunks, each chunk has its own collector, and the collectors are combined with
+ * {@link #merge(GeneResultCollector)} in the order of the chunks.
+ * </p>
+ */
+final class GeneResultCollector implements RnaSeqResultScanner.Sink {
+    private static final double EPSILON = 0.001;
+
+    private final Map<AccessionNumber, GeneModel> hgncMap;
+
+    private final EnsemblIdRegistry registry;
+
+    private final Map<AccessionNumber, GeneResultImpl> results = new HashMap<>();
+
+    private final Set<Integer> unfound = new HashSet<>();
+
+    private int lineCount = 0;
+
+    private int foundCount = 0;
+
+    private int invalidCount = 0;
+
+    private int previousEnsg = -1;
+
+    /** Result for {@link #previousEnsg}, null if the gene is not in the HGNC map. */
+    private GeneResultImpl previousResult = null;
+
+    GeneResultCollector(Map<AccessionNumber, GeneModel> hgncMap, EnsemblIdRegistry registry) {
+        this.hgncMap = hgncMap;
+        this.registry = registry;
+    }
+
+    @Override
+    public void accept(int ensg, int enst, double foldChange, double p) {
+        lineCount++;
+        boolean isIsoform = enst != RnaSeqResultScanner.EXPRESSION;
+        if (isIsoform && (foldChange + EPSILON) < 0) {
+            invalidCount++;
+            return;
+        }
+        if (ensg != previousEnsg) {
+            previousEnsg = ensg;
+            int g = registry.geneIndex(ensg);
+            AccessionNumber ensgAccession = g < 0 ? AccessionNumber.ensgFromInt(ensg) : registry.gene(g);
+            GeneModel model = hgncMap.get(ensgAccession);
+            previousResult = model == null ? null :
+                    results.computeIfAbsent(ensgAccession, k -> new GeneResultImpl(ensgAccession, model));
+        }
+        if (previousResult == null) {
+            unfound.add(ensg);
+            return;
+        }
+        if (isIsoform) {
+            int t = registry.transcriptIndex(enst);
+            previousResult.addTranscriptResult(t < 0 ? AccessionNumber.enstFromInt(enst) : registry.transcript(t),
+                    foldChange, p);
+        } else {
+            previousResult.addExpressionResult(foldChange, p);
+        }
+        foundCount++;
+    }
+
+    /**
+     * Add the results of a collector that received the lines following the lines of this collector.
+     * @param later collector of the next chunk of the file
+     */
+    void merge(GeneResultCollector later) {
+        lineCount += later.lineCount;
+        foundCount += later.foundCount;
+        invalidCount += later.invalidCount;
+        unfound.addAll(later.unfound);
+        later.results.forEach((accession, result) -> {
+            GeneResultImpl previous = results.putIfAbsent(accession, result);
+            if (previous != null) {
+                previous.addAll(result);
+            }
+        });
+        previousEnsg = -1;
+        previousResult = null;
+    }
+
+    /** @return the results in a column-wise {@link GeneResultStore} */
+    GeneResultStore results() {
+        return GeneResultStore.of(results.values());
+    }
+
+    int lineCount() {
+        return lineCount;
+    }
+
+    int foundCount() {
+        return foundCount;
+    }
+
+    int invalidCount() {
+        return invalidCount;
+    }
+
+    int unfoundCount() {
+        return unfound.size();
+    }
+}
@@ -18,12 +18,13 @@ import java.util.stream.Collectors;
  * used to determine if there are one or more differential isoforms.
  * @author Peter N Robinson
  */
-public class GeneResultImpl implements GeneResult, Comparable<GeneResultImpl> {
+public class GeneResultImpl implements GeneResult {
     /** Accession number of the gene, e.g., ENSG00000001167. */
     private final AccessionNumber geneAccession;
     private final GeneModel geneModel;
     private double expressionLog2FoldChange;
     private double expressionP;
+    private boolean hasExpressionResult = false;
     private final Map<AccessionNumber, TranscriptResult> transcriptMap;
 
 
@@ -33,17 +34,28 @@ public class GeneResultImpl implements GeneResult, Comparable<GeneResultImpl> {
         this.geneModel = sym;
         transcriptMap = new HashMap<>();
     }
-    @Override
     public void addExpressionResult(double fc, double p) {
         this.expressionLog2FoldChange = fc;
         this.expressionP = p;
+        this.hasExpressionResult = true;
     }
-    @Override
     public void addTranscriptResult(AccessionNumber isoform, double expFC, double P) {
         TranscriptResult tresult = new TranscriptResultImpl(isoform, expFC, P);
         transcriptMap.putIfAbsent(isoform, tresult);
     }
 
+    /**
+     * Add the results of {@code later}, which were read after the results of this object. As with the
+     * add methods, the first result for a transcript is kept and the last expression result wins.
+     * @param later results for the same gene from a later part of the results file
+     */
+    void addAll(GeneResultImpl later) {
+        if (later.hasExpressionResult) {
+            addExpressionResult(later.expressionLog2FoldChange, later.expressionP);
+        }
+        later.transcriptMap.forEach(transcriptMap::putIfAbsent);
+    }
+
     public AccessionNumber getGeneAccession() {
         return geneAccession;
     }
@@ -135,19 +147,8 @@ public class GeneResultImpl implements GeneResult, Comparable<GeneResultImpl> {
                 .orElse(1.0);
     }
 
-    private double minp() {
-        return Math.min(getExpressionP(), getSmallestSplicingP());
-    }
     @Override
     public Set<TranscriptResult> getTranscriptResults() {
         return new HashSet<>(this.transcriptMap.values());
     }
-
-    /**
-     * Sort according to the smallest ('most significant') p value for expression or splicing.
-     */
-    @Override
-    public int compareTo(GeneResultImpl that) {
-        return Double.compare(this.minp(), that.minp());
-    }
 }
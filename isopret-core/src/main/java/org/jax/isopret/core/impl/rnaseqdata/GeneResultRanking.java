@@ -0,0 +1,209 @@
+package org.jax.isopret.core.impl.rnaseqdata;
+
+import org.jax.isopret.data.AccessionNumber;
+import org.jax.isopret.model.GeneResult;
+
+import java.util.*;
+
+/**
+ * Rankings of the genes of an experiment by several sort keys. The keys of all genes are computed once and the genes
+ * are sorted once per key, so that the ranked list, the top {@code n} genes, a page of the ranked list and the genes
+ * whose key is in a range are views of the precomputed permutation that are created in {@code O(log n)} and
+ * iterated in {@code O(k)} for {@code k} returned genes. Genes with the same key are ranked by accession number.
+ */
+public final class GeneResultRanking {
+
+    /** Sort keys. The p-value keys rank the most significant genes first, fold change ranks the largest first. */
+    public enum Key {
+        /** Smaller of the expression p-value and the smallest splicing p-value. */
+        MIN_P(false),
+        /** Expression p-value (PEP for HBA-DEALS). */
+        EXPRESSION_P(false),
+        /** Smallest splicing p-value of the isoforms of the gene (1.0 without isoform results). */
+        SPLICING_P(false),
+        /** Absolute value of the expression log2 fold change. */
+        ABS_LOG2_FOLD_CHANGE(true);
+
+        private final boolean descending;
+
+        Key(boolean descending) {
+            this.descending = descending;
+        }
+    }
+
+    private final GeneResult[] results;
+    /** For each key, the rows of {@link #results} in rank order. */
+    private final int[][] order;
+    /**
+     * For each key, the keys in rank order. Keys of descending rankings are negated so that all arrays are
+     * ascending.
+     */
+    private final double[][] sortedKeys;
+
+    private GeneResultRanking(GeneResult[] results, double[][] keys) {
+        this.results = results;
+        this.order = new int[keys.length][];
+        this.sortedKeys = new double[keys.length][];
+        for (Key key : Key.values()) {
+            double[] k = keys[key.ordinal()];
+            int[] rows = new int[k.length];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = i;
+            }
+            mergeSort(rows, new int[rows.length], k, 0, rows.length);
+            double[] sorted = new double[rows.length];
+            for (int r = 0; r < rows.length; r++) {
+                sorted[r] = k[rows[r]];
+            }
+            order[key.ordinal()] = rows;
+            sortedKeys[key.ordinal()] = sorted;
+        }
+    }
+
+    /**
+     * @param results results of an experiment; the columns of a {@link GeneResultStore} are used directly
+     * @return rankings of the results by all {@link Key}s
+     */
+    public static GeneResultRanking of(Map<AccessionNumber, GeneResult> results) {
+        int n = results.size();
+        GeneResult[] rows = new GeneResult[n];
+        double[][] keys = new double[Key.values().length][n];
+        double[] minP = keys[Key.MIN_P.ordinal()];
+        double[] expressionP = keys[Key.EXPRESSION_P.ordinal()];
+        double[] splicingP = keys[Key.SPLICING_P.ordinal()];
+        double[] foldChange = keys[Key.ABS_LOG2_FOLD_CHANGE.ordinal()];
+        if (results instanceof GeneResultStore store) {
+            for (int g = 0; g < n; g++) {
+                rows[g] = store.result(g);
+                expressionP[g] = store.expressionP(g);
+                splicingP[g] = store.smallestSplicingP(g);
+                foldChange[g] = -Math.abs(store.expressionLog2FoldChange(g));
+            }
+        } else {
+            // sort by accession number so that ties are ranked in the same order as for a store
+            GeneResult[] sorted = results.values().toArray(new GeneResult[0]);
+            Arrays.sort(sorted, Comparator.comparing(GeneResult::getGeneAccession));
+            for (int g = 0; g < n; g++) {
+                rows[g] = sorted[g];
+                expressionP[g] = sorted[g].getExpressionP();
+                splicingP[g] = sorted[g].getSmallestSplicingP();
+                foldChange[g] = -Math.abs(sorted[g].getExpressionLog2FoldChange());
+            }
+        }
+        for (int g = 0; g < n; g++) {
+            minP[g] = Math.min(expressionP[g], splicingP[g]);
+        }
+        return new GeneResultRanking(rows, keys);
+    }
+
+    /** @return number of ranked genes */
+    public int size() {
+        return results.length;
+    }
+
+    /** @return all genes in rank order */
+    public List<GeneResult> ranked(Key key) {
+        return new RankedList(order[key.ordinal()], 0, results.length);
+    }
+
+    /** @return the first {@code n} genes in rank order (all genes if there are fewer than {@code n}) */
+    public List<GeneResult> top(Key key, int n) {
+        return new RankedList(order[key.ordinal()], 0, Math.max(0, Math.min(n, results.length)));
+    }
+
+    /**
+     * @param page zero-based index of the page
+     * @param pageSize number of genes per page
+     * @return the genes of the page in rank order (empty after the last page)
+     */
+    public List<GeneResult> page(Key key, int page, int pageSize) {
+        int from = (int) Math.min((long) page * pageSize, results.length);
+        int to = (int) Math.min((long) from + pageSize, results.length);
+        return new RankedList(order[key.ordinal()], from, to);
+    }
+
+    /** @return the genes whose key is at most {@code threshold}, or at least {@code threshold} for a descending key */
+    public List<GeneResult> upTo(Key key, double threshold) {
+        return key.descending
+                ? inRange(key, threshold, Double.POSITIVE_INFINITY)
+                : inRange(key, Double.NEGATIVE_INFINITY, threshold);
+    }
+
+    /** @return the genes whose key is between {@code from} and {@code to} (inclusive) in rank order */
+    public List<GeneResult> inRange(Key key, double from, double to) {
+        double[] sorted = sortedKeys[key.ordinal()];
+        double lo = key.descending ? -to : from;
+        double hi = key.descending ? -from : to;
+        int start = firstAbove(sorted, lo, false);
+        int end = Math.max(start, firstAbove(sorted, hi, true));
+        return new RankedList(order[key.ordinal()], start, end);
+    }
+
+    /**
+     * @param inclusive if true, find the first key greater than {@code x}, otherwise the first key not less than
+     *                  {@code x}
+     * @return index of the first such key, or the length of the array
+     */
+    private static int firstAbove(double[] sorted, double x, boolean inclusive) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = Double.compare(sorted[mid], x);
+            if (c < 0 || (inclusive && c == 0)) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Stable sort of {@code rows[from..to-1]} by {@code keys} ({@link Double#compare} order).
+     */
+    private static void mergeSort(int[] rows, int[] buffer, double[] keys, int from, int to) {
+        if (to - from < 2) return;
+        int mid = (from + to) >>> 1;
+        mergeSort(rows, buffer, keys, from, mid);
+        mergeSort(rows, buffer, keys, mid, to);
+        if (Double.compare(keys[rows[mid - 1]], keys[rows[mid]]) <= 0) return;
+        System.arraycopy(rows, from, buffer, from, to - from);
+        int i = from;
+        int j = mid;
+        for (int k = from; k < to; k++) {
+            if (j >= to || (i < mid && Double.compare(keys[buffer[i]], keys[buffer[j]]) <= 0)) {
+                rows[k] = buffer[i++];
+            } else {
+                rows[k] = buffer[j++];
+            }
+        }
+    }
+
+    /** Read-only view of the genes at ranks {@code from .. to-1}. */
+    private final class RankedList extends AbstractList<GeneResult> implements RandomAccess {
+        private final int[] rows;
+        private final int from;
+        private final int to;
+
+        private RankedList(int[] rows, int from, int to) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public GeneResult get(int index) {
+            Objects.checkIndex(index, to - from);
+            return results[rows[from + index]];
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public List<GeneResult> subList(int fromIndex, int toIndex) {
+            Objects.checkFromToIndex(fromIndex, toIndex, to - from);
+            return new RankedList(rows, from + fromIndex, from + toIndex);
+        }
+    }
+}
@@ -0,0 +1,495 @@
+package org.jax.isopret.core.impl.rnaseqdata;
+
+import org.jax.isopret.data.AccessionNumber;
+import org.jax.isopret.model.GeneModel;
+import org.jax.isopret.model.GeneResult;
+import org.jax.isopret.model.GeneSymbolAccession;
+import org.jax.isopret.model.TranscriptResult;
+
+import java.util.*;
+
+/**
+ * The RNA-seq results of all genes and isoforms of an experiment, stored column-wise. The genes are sorted by
+ * accession number and have one entry in each gene column; the isoforms of gene {@code g} are the entries
+ * {@code isoformStart[g] .. isoformStart[g+1]-1} of the isoform columns (sorted by accession number), so an isoform
+ * of a gene is found by binary search. The
+ * {@link GeneResult} and {@link TranscriptResult} objects returned by this map are read-only views of one row of
+ * the columns, so that the results of an experiment are a few primitive arrays instead of one map and one object
+ * per gene and isoform.
+ * <p>
+ * Code that scans all results for a threshold should use the column accessors and the scan methods
+ * (e.g., {@link #genesWithExpressionPAtMost(double)}) instead of iterating over the views.
+ * </p>
+ */
+public final class GeneResultStore extends AbstractMap<AccessionNumber, GeneResult> {
+
+    private final AccessionNumber[] genes;
+    /** Integer part of the gene accession numbers (sorted). */
+    private final int[] geneIds;
+    private final GeneModel[] geneModels;
+    private final double[] expressionLog2FoldChange;
+    private final double[] expressionP;
+    /** Smallest splicing p-value of each gene, 1.0 if the gene has no isoform results. */
+    private final double[] smallestSplicingP;
+    /** Start of the isoforms of each gene in the isoform columns (length: number of genes + 1). */
+    private final int[] isoformStart;
+    private final AccessionNumber[] isoforms;
+    /** Integer part of the isoform accession numbers (sorted within the range of each gene). */
+    private final int[] isoformIds;
+    private final double[] isoformFoldChange;
+    private final double[] isoformP;
+    /** One view per gene, created once so that views can be compared by identity. */
+    private final GeneView[] views;
+
+    private GeneResultStore(int geneCount, int isoformCount) {
+        genes = new AccessionNumber[geneCount];
+        geneIds = new int[geneCount];
+        geneModels = new GeneModel[geneCount];
+        expressionLog2FoldChange = new double[geneCount];
+        expressionP = new double[geneCount];
+        smallestSplicingP = new double[geneCount];
+        isoformStart = new int[geneCount + 1];
+        isoforms = new AccessionNumber[isoformCount];
+        isoformIds = new int[isoformCount];
+        isoformFoldChange = new double[isoformCount];
+        isoformP = new double[isoformCount];
+        views = new GeneView[geneCount];
+    }
+
+    /**
+     * @param results results of the genes, e.g., as built by the parser
+     * @return a store with the same values as {@code results}
+     */
+    static GeneResultStore of(Collection<? extends GeneResult> results) {
+        GeneResult[] sorted = results.toArray(new GeneResult[0]);
+        Arrays.sort(sorted, Comparator.comparing(GeneResult::getGeneAccession));
+        int isoformCount = 0;
+        for (GeneResult result : sorted) {
+            isoformCount += result.getExpressedTranscriptCount();
+        }
+        GeneResultStore store = new GeneResultStore(sorted.length, isoformCount);
+        int k = 0;
+        for (int g = 0; g < sorted.length; g++) {
+            GeneResult result = sorted[g];
+            store.genes[g] = result.getGeneAccession();
+            store.geneIds[g] = result.getEnsgId();
+            store.geneModels[g] = result.getGeneModel();
+            store.expressionLog2FoldChange[g] = result.getExpressionLog2FoldChange();
+            store.expressionP[g] = result.getExpressionP();
+            store.isoformStart[g] = k;
+            TranscriptResult[] transcripts = result.getTranscriptMap().values().toArray(new TranscriptResult[0]);
+            Arrays.sort(transcripts, Comparator.comparing(TranscriptResult::getTranscriptId));
+            double smallest = 1.0;
+            for (TranscriptResult transcript : transcripts) {
+                store.isoforms[k] = transcript.getTranscriptId();
+                store.isoformIds[k] = transcript.getTranscriptId().getAccessionNumber();
+                store.isoformFoldChange[k] = transcript.getFoldChange();
+                store.isoformP[k] = transcript.getPvalue();
+                if (transcript.getPvalue() < smallest) smallest = transcript.getPvalue();
+                k++;
+            }
+            store.smallestSplicingP[g] = smallest;
+            store.views[g] = store.new GeneView(g);
+        }
+        store.isoformStart[sorted.length] = k;
+        return store;
+    }
+
+    /**
+     * @return row of the gene in the gene columns, or -1 if the gene has no results
+     */
+    public int indexOf(AccessionNumber gene) {
+        int g = Arrays.binarySearch(geneIds, gene.getAccessionNumber());
+        return g >= 0 && genes[g].equals(gene) ? g : -1;
+    }
+
+    /** @return number of genes */
+    public int geneCount() {
+        return genes.length;
+    }
+
+    /** @return number of isoforms of all genes */
+    public int isoformCount() {
+        return isoforms.length;
+    }
+
+    public AccessionNumber gene(int g) {
+        return genes[g];
+    }
+
+    /** @return the view of the results of the gene in row {@code g} */
+    public GeneResult result(int g) {
+        return views[g];
+    }
+
+    public double expressionP(int g) {
+        return expressionP[g];
+    }
+
+    public double expressionLog2FoldChange(int g) {
+        return expressionLog2FoldChange[g];
+    }
+
+    public double smallestSplicingP(int g) {
+        return smallestSplicingP[g];
+    }
+
+    /** @return index of the first isoform of gene {@code g} in the isoform columns */
+    public int isoformStart(int g) {
+        return isoformStart[g];
+    }
+
+    /** @return index after the last isoform of gene {@code g} in the isoform columns */
+    public int isoformEnd(int g) {
+        return isoformStart[g + 1];
+    }
+
+    public AccessionNumber isoform(int k) {
+        return isoforms[k];
+    }
+
+    public double isoformP(int k) {
+        return isoformP[k];
+    }
+
+    public double isoformFoldChange(int k) {
+        return isoformFoldChange[k];
+    }
+
+    /** @return a copy of the expression p-values (or PEPs) of all genes */
+    public double[] expressionPValues() {
+        return expressionP.clone();
+    }
+
+    /** @return a copy of the splicing p-values (or PEPs) of all isoforms */
+    public double[] isoformPValues() {
+        return isoformP.clone();
+    }
+
+    /** @return rows of the genes whose expression p-value is at most {@code threshold} */
+    public int[] genesWithExpressionPAtMost(double threshold) {
+        return atMost(expressionP, threshold);
+    }
+
+    /** @return indices of the isoforms whose splicing p-value is at most {@code threshold} */
+    public int[] isoformsWithPAtMost(double threshold) {
+        return atMost(isoformP, threshold);
+    }
+
+    private static int[] atMost(double[] values, double threshold) {
+        int n = 0;
+        for (double value : values) {
+            if (value <= threshold) n++;
+        }
+        int[] indices = new int[n];
+        int k = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] <= threshold) indices[k++] = i;
+        }
+        return indices;
+    }
+
+    @Override
+    public int size() {
+        return genes.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof AccessionNumber accession && indexOf(accession) >= 0;
+    }
+
+    @Override
+    public GeneResult get(Object key) {
+        if (! (key instanceof AccessionNumber accession)) return null;
+        int g = indexOf(accession);
+        return g < 0 ? null : views[g];
+    }
+
+    @Override
+    public Set<Entry<AccessionNumber, GeneResult>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<AccessionNumber, GeneResult>> iterator() {
+                return new Iterator<>() {
+                    private int g = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return g < genes.length;
+                    }
+
+                    @Override
+                    public Entry<AccessionNumber, GeneResult> next() {
+                        if (g >= genes.length) throw new NoSuchElementException();
+                        Entry<AccessionNumber, GeneResult> entry = new SimpleImmutableEntry<>(genes[g], views[g]);
+                        g++;
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return genes.length;
+            }
+        };
+    }
+
+    @Override
+    public Collection<GeneResult> values() {
+        return Collections.unmodifiableList(Arrays.asList(views));
+    }
+
+    /**
+     * The results of one gene. Its isoform results are views of the range of the gene in the isoform columns.
+     */
+    private final class GeneView implements GeneResult {
+        private final int g;
+
+        private GeneView(int g) {
+            this.g = g;
+        }
+
+        @Override
+        public AccessionNumber getGeneAccession() {
+            return genes[g];
+        }
+
+        @Override
+        public int getEnsgId() {
+            return geneIds[g];
+        }
+
+        @Override
+        public GeneModel getGeneModel() {
+            return geneModels[g];
+        }
+
+        @Override
+        public GeneSymbolAccession getGeneSymbolAccession() {
+            return new GeneSymbolAccession(geneModels[g].geneSymbol(), genes[g]);
+        }
+
+        @Override
+        public double getExpressionLog2FoldChange() {
+            return expressionLog2FoldChange[g];
+        }
+
+        @Override
+        public double getExpressionFoldChange() {
+            return Math.pow(expressionLog2FoldChange[g], 2.0);
+        }
+
+        @Override
+        public double getExpressionP() {
+            return expressionP[g];
+        }
+
+        @Override
+        public List<Double> getSplicingPlist() {
+            int from = isoformStart[g];
+            int to = isoformStart[g + 1];
+            return new AbstractList<>() {
+                @Override
+                public Double get(int index) {
+                    Objects.checkIndex(index, to - from);
+                    return isoformP[from + index];
+                }
+
+                @Override
+                public int size() {
+                    return to - from;
+                }
+            };
+        }
+
+        @Override
+        public Map<AccessionNumber, TranscriptResult> getTranscriptMap() {
+            return new AbstractMap<>() {
+                @Override
+                public TranscriptResult get(Object key) {
+                    int k = isoformIndex(key);
+                    return k < 0 ? null : new TranscriptView(k);
+                }
+
+                @Override
+                public boolean containsKey(Object key) {
+                    return isoformIndex(key) >= 0;
+                }
+
+                @Override
+                public int size() {
+                    return getExpressedTranscriptCount();
+                }
+
+                @Override
+                public Set<Entry<AccessionNumber, TranscriptResult>> entrySet() {
+                    return new AbstractSet<>() {
+                        @Override
+                        public Iterator<Entry<AccessionNumber, TranscriptResult>> iterator() {
+                            Iterator<TranscriptResult> transcripts = getTranscriptResults().iterator();
+                            return new Iterator<>() {
+                                @Override
+                                public boolean hasNext() {
+                                    return transcripts.hasNext();
+                                }
+
+                                @Override
+                                public Entry<AccessionNumber, TranscriptResult> next() {
+                                    TranscriptResult transcript = transcripts.next();
+                                    return new SimpleImmutableEntry<>(transcript.getTranscriptId(), transcript);
+                                }
+                            };
+                        }
+
+                        @Override
+                        public int size() {
+                            return getExpressedTranscriptCount();
+                        }
+                    };
+                }
+            };
+        }
+
+        /** @return index of the isoform in the isoform columns, or -1 if it is not an isoform of this gene */
+        private int isoformIndex(Object key) {
+            if (! (key instanceof AccessionNumber accession)) return -1;
+            int k = Arrays.binarySearch(isoformIds, isoformStart[g], isoformStart[g + 1],
+                    accession.getAccessionNumber());
+            return k >= 0 && isoforms[k].equals(accession) ? k : -1;
+        }
+
+        @Override
+        public int getExpressedTranscriptCount() {
+            return isoformStart[g + 1] - isoformStart[g];
+        }
+
+        @Override
+        public int getSignificantTranscriptCount(double pepThreshold) {
+            int count = 0;
+            for (int k = isoformStart[g]; k < isoformStart[g + 1]; k++) {
+                if (isoformP[k] <= pepThreshold) count++;
+            }
+            return count;
+        }
+
+        @Override
+        public boolean hasDifferentialExpressionResult(double threshold) {
+            return expressionP[g] < threshold;
+        }
+
+        @Override
+        public boolean hasDifferentialSplicingResult(double threshold) {
+            return getExpressedTranscriptCount() > 0 && smallestSplicingP[g] <= threshold;
+        }
+
+        @Override
+        public boolean hasDifferentialSplicingOrExpressionResult(double splicing, double expression) {
+            return hasDifferentialSplicingResult(splicing) || hasDifferentialExpressionResult(expression);
+        }
+
+        @Override
+        public boolean transcriptExpressed(AccessionNumber acc) {
+            return isoformIndex(acc) >= 0;
+        }
+
+        @Override
+        public double getSmallestSplicingP() {
+            return smallestSplicingP[g];
+        }
+
+        @Override
+        public Set<TranscriptResult> getTranscriptResults() {
+            int from = isoformStart[g];
+            int to = isoformStart[g + 1];
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<TranscriptResult> iterator() {
+                    return new Iterator<>() {
+                        private int k = from;
+
+                        @Override
+                        public boolean hasNext() {
+                            return k < to;
+                        }
+
+                        @Override
+                        public TranscriptResult next() {
+                            if (k >= to) throw new NoSuchElementException();
+                            return new TranscriptView(k++);
+                        }
+                    };
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return o instanceof TranscriptView view && view.store() == GeneResultStore.this
+                            && view.k >= from && view.k < to;
+                }
+
+                @Override
+                public int size() {
+                    return to - from;
+                }
+            };
+        }
+    }
+
+    /**
+     * The splicing result of one isoform. Two views are equal if they refer to the same isoform of the same store.
+     */
+    private final class TranscriptView implements TranscriptResult {
+        private final int k;
+
+        private TranscriptView(int k) {
+            this.k = k;
+        }
+
+        private GeneResultStore store() {
+            return GeneResultStore.this;
+        }
+
+        @Override
+        public String getTranscript() {
+            return isoforms[k].getAccessionString();
+        }
+
+        @Override
+        public AccessionNumber getTranscriptId() {
+            return isoforms[k];
+        }
+
+        @Override
+        public double getFoldChange() {
+            return isoformFoldChange[k];
+        }
+
+        @Override
+        public double getLog2FoldChange() {
+            double foldChange = isoformFoldChange[k];
+            if (foldChange == 0.0) return foldChange;
+            return Math.log(foldChange)/Math.log(2.0);
+        }
+
+        @Override
+        public double getPvalue() {
+            return isoformP[k];
+        }
+
+        @Override
+        public boolean isSignificant(double threshold) {
+            return isoformP[k] < threshold;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof TranscriptView that && that.store() == GeneResultStore.this && that.k == k;
+        }
+
+        @Override
+        public int hashCode() {
+            return k;
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package org.jax.isopret.core.impl.rnaseqdata;
 
+import org.jax.isopret.core.impl.go.IsopretAssociationContainer;
 import org.jax.isopret.data.AccessionNumber;
+import org.jax.isopret.data.EnsemblIdRegistry;
+import org.jax.isopret.exception.IsopretRuntimeException;
 import org.jax.isopret.model.GeneResult;
 import org.jax.isopret.model.TranscriptResult;
 import org.monarchinitiative.phenol.analysis.AssociationContainer;
@@ -10,7 +13,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * THis class is used to perform Bayesian false discovery rate control.
@@ -34,12 +43,14 @@ public class IsoformSpecificThresholder {
     /** Probability threshold for splicing results that attains fdrThreshold FDR for splicing. */
     private final double splicingPepThreshold;
 
-    private final StudySet dgeStudy;
-    private final StudySet dgePopulation;
-    private final StudySet dasStudy;
-    private final StudySet dasPopulation;
+    /** Study set and population of differentially expressed genes. */
+    private final StudyAndPopulation dge;
+    /** Study set and population of differentially spliced transcripts. */
+    private final StudyAndPopulation das;
 
     private final Map<AccessionNumber, GeneResult> rawResults;
+    /** Rankings of {@link #rawResults}, computed once for the GUI tables and reports. */
+    private final GeneResultRanking ranking;
 
     private final double fdrThreshold;
 
@@ -48,6 +59,11 @@ public class IsoformSpecificThresholder {
         return rawResults;
     }
 
+    /** @return precomputed rankings of the raw results, e.g., by the smallest expression or splicing p-value */
+    public GeneResultRanking getRanking() {
+        return ranking;
+    }
+
     public int getTotalGeneCount() {
         return this.rawResults.size();
     }
@@ -69,30 +85,79 @@ public class IsoformSpecificThresholder {
                                                    double fdrThreshold,
                                                    AssociationContainer<TermId> geneContainer,
                                                    AssociationContainer<TermId> transcriptContainer) {
+        return fromHbaDeals(results, fdrThreshold, geneContainer, transcriptContainer, ForkJoinPool.commonPool());
+    }
 
-        List<Double> expressionProbs = results
-                .values()
-                .stream()
-                .map(GeneResult::getExpressionP)
-                .collect(Collectors.toList());
+    /**
+     * @param executor executor used to build the DGE and DAS study sets and populations concurrently
+     * @see #fromHbaDeals(Map, double, AssociationContainer, AssociationContainer)
+     */
+    public static IsoformSpecificThresholder fromHbaDeals(Map<AccessionNumber, GeneResult> results,
+                                                          double fdrThreshold,
+                                                          AssociationContainer<TermId> geneContainer,
+                                                          AssociationContainer<TermId> transcriptContainer,
+                                                          Executor executor) {
+        return fromHbaDeals(results, fdrThreshold, geneContainer, transcriptContainer,
+                PosteriorErrorProbThreshold.DEFAULT_RESOLUTION, executor);
+    }
+
+    /**
+     * @param pepResolution spacing of the candidate PEP thresholds (default 0.01)
+     * @param executor executor used to build the DGE and DAS study sets and populations concurrently
+     * @see #fromHbaDeals(Map, double, AssociationContainer, AssociationContainer)
+     */
+    public static IsoformSpecificThresholder fromHbaDeals(Map<AccessionNumber, GeneResult> results,
+                                                          double fdrThreshold,
+                                                          AssociationContainer<TermId> geneContainer,
+                                                          AssociationContainer<TermId> transcriptContainer,
+                                                          double pepResolution,
+                                                          Executor executor) {
+
+        double[] expressionProbs = expressionProbabilities(results);
         PosteriorErrorProbThreshold probThresholdExpression = new PosteriorErrorProbThreshold(expressionProbs, fdrThreshold);
-        double expressionPepThreshold = probThresholdExpression.getPepThreshold();
+        double expressionPepThreshold = probThresholdExpression.getPepThreshold(fdrThreshold, pepResolution);
         LOGGER.info("Expression PEP threshold {}", expressionPepThreshold);
-        List<Double> splicingProbs = results
-                .values()
-                .stream()
-                .map(GeneResult::getSplicingPlist)
-                .flatMap(List::stream)
-                .collect(Collectors.toList());
+        double[] splicingProbs = splicingProbabilities(results);
         PosteriorErrorProbThreshold probThresholdSplicing = new PosteriorErrorProbThreshold(splicingProbs, fdrThreshold);
-        double splicingPepThreshold = probThresholdSplicing.getPepThreshold();
+        double splicingPepThreshold = probThresholdSplicing.getPepThreshold(fdrThreshold, pepResolution);
         LOGGER.info("Splicing PEP threshold {}", expressionPepThreshold);
         return new IsoformSpecificThresholder(results,
                 fdrThreshold,
                 expressionPepThreshold,
                 splicingPepThreshold,
                 geneContainer,
-                transcriptContainer);
+                transcriptContainer,
+                executor);
+    }
+
+    /**
+     * @return the expression probabilities of all genes; for a {@link GeneResultStore}, a copy of its column
+     */
+    private static double[] expressionProbabilities(Map<AccessionNumber, GeneResult> results) {
+        if (results instanceof GeneResultStore store) {
+            return store.expressionPValues();
+        }
+        return results
+                .values()
+                .stream()
+                .mapToDouble(GeneResult::getExpressionP)
+                .toArray();
+    }
+
+    /**
+     * @return the splicing probabilities of all isoforms; for a {@link GeneResultStore}, a copy of its column
+     */
+    private static double[] splicingProbabilities(Map<AccessionNumber, GeneResult> results) {
+        if (results instanceof GeneResultStore store) {
+            return store.isoformPValues();
+        }
+        return results
+                .values()
+                .stream()
+                .map(GeneResult::getSplicingPlist)
+                .flatMap(List::stream)
+                .mapToDouble(Double::doubleValue)
+                .toArray();
     }
 
     /**
@@ -108,17 +173,37 @@ public class IsoformSpecificThresholder {
                                                    double fdrThreshold,
                                                    AssociationContainer<TermId> geneContainer,
                                                    AssociationContainer<TermId> transcriptContainer) {
+        return fromEdgeR(results, fdrThreshold, geneContainer, transcriptContainer, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param executor executor used to build the DGE and DAS study sets and populations concurrently
+     * @see #fromEdgeR(Map, double, AssociationContainer, AssociationContainer)
+     */
+    public static IsoformSpecificThresholder fromEdgeR(Map<AccessionNumber, GeneResult> results,
+                                                       double fdrThreshold,
+                                                       AssociationContainer<TermId> geneContainer,
+                                                       AssociationContainer<TermId> transcriptContainer,
+                                                       Executor executor) {
         LOGGER.info("edgeR FDR threshold {}", fdrThreshold);
         return new IsoformSpecificThresholder(results,
                 fdrThreshold,
                 fdrThreshold,
                 fdrThreshold,
                 geneContainer,
-                transcriptContainer);
+                transcriptContainer,
+                executor);
     }
 
     /**
-     * Find the FDR thresholds for splicing and expression
+     * Find the FDR thresholds for splicing and expression. The four study sets and populations do not depend on each
+     * other and are built concurrently on {@code executor}.
+     * <p>
+     * If the results are a {@link GeneResultStore} and the containers are {@link IsopretAssociationContainer}s, the
+     * study and population items are selected in one pass over the columns of the store as bitsets over the item
+     * indices of the containers, and no {@link TermId} is created for the selection. The ids of the items are taken
+     * from the {@link EnsemblIdRegistry} of the containers, if any, so that they share its TermIds.
+     * </p>
      * @param results Map of HBA-DEALS analysis results (key: gene symbol)
      */
     private IsoformSpecificThresholder(Map<AccessionNumber, GeneResult> results,
@@ -126,82 +211,248 @@ public class IsoformSpecificThresholder {
                                       double expressionThreshold,
                                       double splicingThreshold,
                                       AssociationContainer<TermId> geneContainer,
-                                      AssociationContainer<TermId> transcriptContainer) {
+                                      AssociationContainer<TermId> transcriptContainer,
+                                      Executor executor) {
 
         this.rawResults = results;
+        this.ranking = GeneResultRanking.of(results);
         this.fdrThreshold = fdrThreshold;
         this.expressionPepThreshold = expressionThreshold;
         this.splicingPepThreshold = splicingThreshold;
-        Set<TermId> dgeSignificant = results
-                .values()
-                .stream()
-                .filter(r -> r.getExpressionP() <= this.expressionPepThreshold)
-                .map(GeneResult::getGeneAccession)
-                .map(AccessionNumber::toTermId)
-                .collect(Collectors.toSet());
-        Set<TermId> dgePopulation = results
-                .values()
-                .stream()
-                .map(GeneResult::getGeneAccession)
-                .map(AccessionNumber::toTermId)
-                .collect(Collectors.toSet());
-        LOGGER.info("DGE: {} study set and {} population genes", dgeSignificant.size(), dgePopulation.size());
-        var assocMap = geneContainer.getAssociationMap(dgeSignificant);
-        this.dgeStudy = new StudySet("DGE Study", assocMap);
-        assocMap = geneContainer.getAssociationMap(dgePopulation);
-        this.dgePopulation = new StudySet("DGE Population", assocMap);
+        StudyAndPopulation[] dgeAndDas;
+        if (results instanceof GeneResultStore store
+                && geneContainer instanceof IsopretAssociationContainer genes
+                && transcriptContainer instanceof IsopretAssociationContainer transcripts) {
+            dgeAndDas = selectByIndex(store, genes, transcripts, executor);
+        } else {
+            EnsemblIdRegistry registry = geneContainer instanceof IsopretAssociationContainer genes ?
+                    genes.registry() : EnsemblIdRegistry.empty();
+            dgeAndDas = selectByTermId(results, geneContainer, transcriptContainer, registry, executor);
+        }
+        this.dge = dgeAndDas[0];
+        this.das = dgeAndDas[1];
+        LOGGER.info("DAS: study set {} annotated items", das.getStudy().getAnnotatedItemCount());
+        LOGGER.info("DAS: Population set {} annotated items", das.getPopulation().getAnnotatedItemCount());
+    }
 
-        Set<TermId> dasIsoformStudy = results
-                .values()
-                .stream()
-                .flatMap(r -> r.getTranscriptResults().stream())
-                .filter(tr -> tr.getPvalue() <= splicingPepThreshold)
-                .map(TranscriptResult::getTranscriptId)
-                .map(AccessionNumber::toTermId)
-                .collect(Collectors.toSet());
-        Set<TermId> dasIsoformPopulation = results
-                .values()
-                .stream()
-                .flatMap(r -> r.getTranscriptResults().stream())
-                .map(TranscriptResult::getTranscriptId)
-                .map(AccessionNumber::toTermId)
-                .collect(Collectors.toSet());
+    /**
+     * Select the study and population items with one pass over the genes and isoforms of the store.
+     * @return DGE and DAS study sets and populations
+     */
+    private StudyAndPopulation[] selectByIndex(GeneResultStore store,
+                                               IsopretAssociationContainer genes,
+                                               IsopretAssociationContainer transcripts,
+                                               Executor executor) {
+        long[] dgeStudyItems = new long[(genes.itemCount() + 63) >>> 6];
+        long[] dgePopulationItems = new long[dgeStudyItems.length];
+        long[] dasStudyItems = new long[(transcripts.itemCount() + 63) >>> 6];
+        long[] dasPopulationItems = new long[dasStudyItems.length];
+        int dgeStudyCount = 0;
+        int dasStudyCount = 0;
+        for (int g = 0; g < store.geneCount(); g++) {
+            boolean significant = store.expressionP(g) <= expressionPepThreshold;
+            if (significant) dgeStudyCount++;
+            int i = genes.itemIndex(store.gene(g));
+            if (i >= 0) {
+                dgePopulationItems[i >>> 6] |= 1L << i;
+                if (significant) dgeStudyItems[i >>> 6] |= 1L << i;
+            }
+            for (int k = store.isoformStart(g); k < store.isoformEnd(g); k++) {
+                significant = store.isoformP(k) <= splicingPepThreshold;
+                if (significant) dasStudyCount++;
+                int j = transcripts.itemIndex(store.isoform(k));
+                if (j >= 0) {
+                    dasPopulationItems[j >>> 6] |= 1L << j;
+                    if (significant) dasStudyItems[j >>> 6] |= 1L << j;
+                }
+            }
+        }
+        LOGGER.info("DGE: {} study set and {} population genes", dgeStudyCount, store.geneCount());
+        LOGGER.info("DAS: {} study set and {} population genes", dasStudyCount, store.isoformCount());
+        CompletableFuture<StudySet> dgeStudyFuture = studySet("DGE Study", genes, dgeStudyItems, executor);
+        CompletableFuture<StudySet> dgePopulationFuture = studySet("DGE Population", genes, dgePopulationItems, executor);
+        CompletableFuture<StudySet> dasStudyFuture = studySet("DAS Study", transcripts, dasStudyItems, executor);
+        CompletableFuture<StudySet> dasPopulationFuture = studySet("DAS Population", transcripts, dasPopulationItems, executor);
+        StudyAndPopulation dge = new StudyAndPopulation(join(dgeStudyFuture),
+                join(dgePopulationFuture),
+                genes,
+                dgeStudyItems,
+                dgePopulationItems,
+                () -> termIds(store.genesWithExpressionPAtMost(expressionPepThreshold), store::gene, genes.registry()),
+                () -> termIds(IntStream.range(0, store.geneCount()).toArray(), store::gene, genes.registry()));
+        StudyAndPopulation das = new StudyAndPopulation(join(dasStudyFuture),
+                join(dasPopulationFuture),
+                transcripts,
+                dasStudyItems,
+                dasPopulationItems,
+                () -> termIds(store.isoformsWithPAtMost(splicingPepThreshold), store::isoform, transcripts.registry()),
+                () -> termIds(IntStream.range(0, store.isoformCount()).toArray(), store::isoform,
+                        transcripts.registry()));
+        return new StudyAndPopulation[]{dge, das};
+    }
+
+    /**
+     * Select the study and population items by their ids, for results and containers of other types.
+     * @param registry registry used to obtain the ids of the accession numbers
+     * @return DGE and DAS study sets and populations
+     */
+    private StudyAndPopulation[] selectByTermId(Map<AccessionNumber, GeneResult> results,
+                                                AssociationContainer<TermId> geneContainer,
+                                                AssociationContainer<TermId> transcriptContainer,
+                                                EnsemblIdRegistry registry,
+                                                Executor executor) {
+        Set<TermId> dgeSignificant;
+        Set<TermId> dgePopulation;
+        Set<TermId> dasIsoformStudy;
+        Set<TermId> dasIsoformPopulation;
+        if (results instanceof GeneResultStore store) {
+            dgeSignificant = termIds(store.genesWithExpressionPAtMost(expressionPepThreshold), store::gene, registry);
+            dgePopulation = termIds(IntStream.range(0, store.geneCount()).toArray(), store::gene, registry);
+            dasIsoformStudy = termIds(store.isoformsWithPAtMost(splicingPepThreshold), store::isoform, registry);
+            dasIsoformPopulation = termIds(IntStream.range(0, store.isoformCount()).toArray(), store::isoform,
+                    registry);
+        } else {
+            dgeSignificant = results
+                    .values()
+                    .stream()
+                    .filter(r -> r.getExpressionP() <= this.expressionPepThreshold)
+                    .map(GeneResult::getGeneAccession)
+                    .map(registry::termId)
+                    .collect(Collectors.toSet());
+            dgePopulation = results
+                    .values()
+                    .stream()
+                    .map(GeneResult::getGeneAccession)
+                    .map(registry::termId)
+                    .collect(Collectors.toSet());
+            dasIsoformStudy = results
+                    .values()
+                    .stream()
+                    .flatMap(r -> r.getTranscriptResults().stream())
+                    .filter(tr -> tr.getPvalue() <= splicingPepThreshold)
+                    .map(TranscriptResult::getTranscriptId)
+                    .map(registry::termId)
+                    .collect(Collectors.toSet());
+            dasIsoformPopulation = results
+                    .values()
+                    .stream()
+                    .flatMap(r -> r.getTranscriptResults().stream())
+                    .map(TranscriptResult::getTranscriptId)
+                    .map(registry::termId)
+                    .collect(Collectors.toSet());
+        }
+        LOGGER.info("DGE: {} study set and {} population genes", dgeSignificant.size(), dgePopulation.size());
+        CompletableFuture<StudySet> dgeStudyFuture = studySet("DGE Study", geneContainer, dgeSignificant, executor);
+        CompletableFuture<StudySet> dgePopulationFuture = studySet("DGE Population", geneContainer, dgePopulation, executor);
         LOGGER.info("DAS: {} study set and {} population genes", dasIsoformStudy.size(), dasIsoformPopulation.size());
-        assocMap = transcriptContainer.getAssociationMap(dasIsoformStudy);
-        this.dasStudy = new StudySet("DAS Study", assocMap);
-        LOGGER.info("DAS: study set {} annotated items",dasStudy.getAnnotatedItemCount());
-        assocMap = transcriptContainer.getAssociationMap(dasIsoformPopulation);
-        this.dasPopulation = new StudySet("DAS Population", assocMap);
-        LOGGER.info("DAS: Population set {} annotated items",dasPopulation.getAnnotatedItemCount());
+        CompletableFuture<StudySet> dasStudyFuture = studySet("DAS Study", transcriptContainer, dasIsoformStudy, executor);
+        CompletableFuture<StudySet> dasPopulationFuture = studySet("DAS Population", transcriptContainer, dasIsoformPopulation, executor);
+        StudyAndPopulation dge = new StudyAndPopulation(join(dgeStudyFuture), join(dgePopulationFuture),
+                dgeSignificant, dgePopulation);
+        StudyAndPopulation das = new StudyAndPopulation(join(dasStudyFuture), join(dasPopulationFuture),
+                dasIsoformStudy, dasIsoformPopulation);
+        return new StudyAndPopulation[]{dge, das};
+    }
+
+    /**
+     * @param indices rows of the genes or isoforms in a {@link GeneResultStore}
+     * @param accession accession number of a row
+     * @param registry registry with the shared TermIds of the accession numbers
+     * @return term ids of the accession numbers of the rows
+     */
+    private static Set<TermId> termIds(int[] indices, IntFunction<AccessionNumber> accession, EnsemblIdRegistry registry) {
+        Set<TermId> ids = new HashSet<>(2 * indices.length);
+        for (int i : indices) {
+            ids.add(registry.termId(accession.apply(i)));
+        }
+        return ids;
+    }
+
+    private static CompletableFuture<StudySet> studySet(String name,
+                                                        AssociationContainer<TermId> container,
+                                                        Set<TermId> items,
+                                                        Executor executor) {
+        return CompletableFuture.supplyAsync(() -> new StudySet(name, container.getAssociationMap(items)), executor);
+    }
+
+    private static CompletableFuture<StudySet> studySet(String name,
+                                                        IsopretAssociationContainer container,
+                                                        long[] itemSet,
+                                                        Executor executor) {
+        return CompletableFuture.supplyAsync(() -> new StudySet(name, container.getAssociationMap(itemSet)), executor);
+    }
+
+    /**
+     * Wait for a study set. Exceptions thrown while building it are rethrown unwrapped.
+     */
+    private static StudySet join(CompletableFuture<StudySet> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IsopretRuntimeException("Could not create study set: " + e.getMessage());
+        }
     }
 
 
     public StudySet getDgeStudy() {
-        return this.dgeStudy;
+        return dge.getStudy();
     }
 
     public int getDgeGeneCount() {
-        return this.dgeStudy.getAnnotatedItemCount();
+        return dge.getStudy().getAnnotatedItemCount();
     }
 
     public StudySet getDgePopulation() {
-        return this.dgePopulation;
+        return dge.getPopulation();
     }
 
 
 
     public StudySet getDasStudy() {
-        return this.dasStudy;
+        return das.getStudy();
     }
 
     public int getDasIsoformCount() {
-        return this.dasStudy.getAnnotatedItemCount();
+        return das.getStudy().getAnnotatedItemCount();
     }
 
     public StudySet getDasPopulation() {
-        return this.dasPopulation;
+        return das.getPopulation();
+    }
+
+
+    /** @return study set and population of the differentially expressed genes */
+    public StudyAndPopulation getDge() {
+        return dge;
     }
 
+    /** @return study set and population of the differentially spliced transcripts */
+    public StudyAndPopulation getDas() {
+        return das;
+    }
+
+    /** @return ids of the differentially expressed genes */
+    public Set<TermId> getDgeStudyItems() {
+        return dge.getStudyItems();
+    }
+
+    /** @return ids of all genes with an expression result */
+    public Set<TermId> getDgePopulationItems() {
+        return dge.getPopulationItems();
+    }
+
+    /** @return ids of the differentially spliced transcripts */
+    public Set<TermId> getDasStudyItems() {
+        return das.getStudyItems();
+    }
+
+    /** @return ids of all transcripts with a splicing result */
+    public Set<TermId> getDasPopulationItems() {
+        return das.getPopulationItems();
+    }
 
     public double getExpressionPepThreshold() {
         return expressionPepThreshold;
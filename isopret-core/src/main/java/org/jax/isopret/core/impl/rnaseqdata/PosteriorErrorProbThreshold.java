@@ -1,9 +1,8 @@
 package org.jax.isopret.core.impl.rnaseqdata;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.IntStream;
 
 /**
  * This class is used to calculate the threshold posterior error probability (PEP) threshold that achieves a desired
@@ -19,6 +18,12 @@ import java.util.stream.IntStream;
  * Our goal is to set the FDR to a given threshold (by default, 0.01) and to define the PEP threshold that calls
  * as many tests as possible significant while still maintaining this threshold. We apply the additional criterion that
  * if the PEP is larger than 0.25 the test is not called significant, regardless of the FDR.
+ * <p>
+ * The PEPs are sorted once into a primitive array, and a prefix-sum array holds the sum of the {@code k} smallest
+ * PEPs, so the FDR at any candidate PEP threshold is obtained with one binary search. This makes it cheap to use a
+ * finer grid of candidate thresholds than 0.01 (see {@link #getPepThreshold(double, double)}) and to compute the whole
+ * FDR-versus-PEP curve (see {@link #getFdrCurve(double, double)}).
+ * </p>
  * @author Peter N Robinson
  */
 public class PosteriorErrorProbThreshold {
@@ -26,17 +31,38 @@ public class PosteriorErrorProbThreshold {
     private static final double DEFAULT_FDR_THRESHOLD = 0.01;
     /** We will choose no gene with a higher PEP than this while calculating FDR. */
     private static final double MAX_PEP = 0.25;
+    /** Spacing of the candidate PEP thresholds 0.01, 0.02, ..., 0.25 of the original R code. */
+    public static final double DEFAULT_RESOLUTION = 0.01;
     /** Threshold for total probability to calculate Bayesian FDR (Default is {@link #DEFAULT_FDR_THRESHOLD}). */
     private final double fdrThreshold;
-    /** The list of posterior error probabilities calculated for the various tests done in the current dataset (in our
-     * case, the tests are for either differential gene expression or differential isoform expression).
+    /** The posterior error probabilities calculated for the various tests done in the current dataset (in our
+     * case, the tests are for either differential gene expression or differential isoform expression), sorted in
+     * ascending order.
      */
-    private final List<Double> probabilities;
+    private final double[] probabilities;
+    /** {@code prefixSum[k]} is the sum of the {@code k} smallest probabilities. */
+    private final double[] prefixSum;
 
-    public PosteriorErrorProbThreshold(List<Double> pepValues, double fdr) {
+    /**
+     * A point of the FDR-versus-PEP curve.
+     * @param pepThreshold candidate PEP threshold
+     * @param fdr mean PEP of the tests with a PEP below the threshold (NaN if there are none)
+     * @param count number of tests with a PEP below the threshold
+     */
+    public record FdrCurvePoint(double pepThreshold, double fdr, int count) {}
+
+    public PosteriorErrorProbThreshold(double[] pepValues, double fdr) {
         this.fdrThreshold = fdr;
-        Collections.sort(pepValues);
-        this.probabilities = pepValues;
+        this.probabilities = pepValues.clone();
+        Arrays.sort(this.probabilities);
+        this.prefixSum = new double[probabilities.length + 1];
+        for (int i = 0; i < probabilities.length; i++) {
+            prefixSum[i + 1] = prefixSum[i] + probabilities[i];
+        }
+    }
+
+    public PosteriorErrorProbThreshold(List<Double> pepValues, double fdr) {
+        this(pepValues.stream().mapToDouble(Double::doubleValue).toArray(), fdr);
     }
 
     /**
@@ -64,7 +90,6 @@ public class PosteriorErrorProbThreshold {
      * @return the posterior error probability (PEP) threshold associated with the q-value threshold to reach the desired FDR
      */
     public double getPepThresholdBisection() {
-        Collections.sort(this.probabilities);
         double p_threshold = 0.0;
         double min_p = 0.0;
         double max_p = 0.25;
@@ -72,7 +97,7 @@ public class PosteriorErrorProbThreshold {
         double TOL = 0.001;
         while (delta > TOL) {
             double mid_p = min_p + (max_p - min_p)/2.0;
-            double fdr = getFdr(mid_p, this.probabilities);
+            double fdr = getFdr(mid_p);
             if (fdr <= this.fdrThreshold) {
                 min_p = mid_p;
                 p_threshold = mid_p;
@@ -81,11 +106,11 @@ public class PosteriorErrorProbThreshold {
             }
             delta = max_p - min_p;
         }
-        double finalP_threshold = p_threshold;
         // we will always accept PEP of zero ("no error probability") and so if
         // no values pass our threshold it is always safe to return zero (to satisfy the API), even
         // though we do not have any actual values of zero
-        double pep =  this.probabilities.stream().filter(p -> p <= finalP_threshold).mapToDouble(p->p).max().orElse(0);
+        int k = countAtMost(p_threshold);
+        double pep = k == 0 ? 0 : probabilities[k - 1];
         return Math.min(pep, MAX_PEP);
     }
 
@@ -105,63 +130,95 @@ public class PosteriorErrorProbThreshold {
      * @return posterior error probability threshold
      */
     public double getPepThreshold() {
-        Collections.sort(this.probabilities);
-        // get a sequence of numbers between 0.01 and 0.25 -- these
-        // are the candidate PEP thresholds
-        List<Double> s = IntStream.iterate(1, i -> i + 1)
-                .limit(25)
-                .boxed()
-                .map(d -> 0.01 * d)
-                .toList();
-        List<Double> h0de = new ArrayList<>();
-        for (double candidatePepThreshold : s) {
-            double sumValues = 0d;
-            int nBelowThresh = 0;
-            for (double p : probabilities) {
-                if (p < candidatePepThreshold) {
-                    sumValues += p;
-                    nBelowThresh++;
-                } else {
-                    break;
-                }
-            }
-            h0de.add(sumValues/nBelowThresh);
-        }
-        for (int i=0;i<h0de.size(); ++i) {
-            if (h0de.get(i) > this.fdrThreshold) {
-                if (i>0) {
-                    // return largest prethreshold value
-                    return s.get(i-1);
-                } else {
-                    return 0; // cannot reach FDR with current results
-                }
+        return getPepThreshold(this.fdrThreshold, DEFAULT_RESOLUTION);
+    }
+
+    /**
+     * Same as {@link #getPepThreshold()}, but for any desired FDR and with the candidate PEP thresholds
+     * {@code resolution, 2*resolution, ..., 0.25}. The PEPs only need to be sorted once for several FDRs.
+     * @param fdr desired false discovery rate
+     * @param resolution spacing of the candidate PEP thresholds (e.g., 0.001)
+     * @return posterior error probability threshold
+     */
+    public double getPepThreshold(double fdr, double resolution) {
+        int n = numberOfCandidates(resolution, MAX_PEP);
+        for (int i = 1; i <= n; i++) {
+            // NaN (no PEP below the candidate) does not exceed the FDR
+            if (meanBelow(resolution * i) > fdr) {
+                // return largest prethreshold value, or 0 if the FDR cannot be reached with current results
+                return i > 1 ? resolution * (i - 1) : 0;
             }
         }
         // if we get here, we are at our max allowable PEP threshold of 0.25
         return MAX_PEP;
     }
 
+    /**
+     * The FDR-versus-PEP curve, e.g. for plotting or for choosing a threshold.
+     * @param resolution spacing of the PEP thresholds
+     * @param maxPep largest PEP threshold of the curve (at most 1)
+     * @return the FDR and the number of significant tests at the PEP thresholds {@code resolution, 2*resolution, ...,
+     * maxPep}
+     */
+    public List<FdrCurvePoint> getFdrCurve(double resolution, double maxPep) {
+        int n = numberOfCandidates(resolution, maxPep);
+        List<FdrCurvePoint> curve = new ArrayList<>(n);
+        for (int i = 1; i <= n; i++) {
+            double threshold = resolution * i;
+            curve.add(new FdrCurvePoint(threshold, meanBelow(threshold), countBelow(threshold)));
+        }
+        return curve;
+    }
+
+    private static int numberOfCandidates(double resolution, double maxPep) {
+        if (! (resolution > 0.0)) {
+            throw new IllegalArgumentException("Resolution must be positive but was " + resolution);
+        }
+        // tolerate rounding, e.g. 0.25/0.01 = 24.999999999999996
+        return (int) Math.floor(maxPep / resolution + 1e-9);
+    }
+
+    /** @return mean of the probabilities strictly below {@code threshold}, NaN if there are none */
+    private double meanBelow(double threshold) {
+        int k = countBelow(threshold);
+        return prefixSum[k] / k;
+    }
+
+    /** @return number of probabilities strictly below {@code x} */
+    private int countBelow(double x) {
+        int lo = 0;
+        int hi = probabilities.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (probabilities[mid] < x) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /** @return number of probabilities at most {@code x} */
+    private int countAtMost(double x) {
+        int lo = 0;
+        int hi = probabilities.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (probabilities[mid] <= x) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
     /**
      * Calculate a false discovery rate,
      * where the FDR is simply the sum of probabilities of
      * not being differential of all items below threshold.
      * @param p probability threshold
-     * @param probs probabilities of not being differential
      * @return estimated FDR at this probability threshold
      */
-    private double getFdr(double p, List<Double> probs) {
-        int i = 0;
-        double fdr = 0.0;
-        for (double prob : probs) {
-            if (prob > p) {
-                break;
-            } else {
-                fdr += prob;
-                i++;
-            }
-        }
+    private double getFdr(double p) {
+        int i = countAtMost(p);
         if (i==0) return 0.0;
-        return fdr/(double) i;
+        return prefixSum[i]/(double) i;
     }
 
 }
@@ -0,0 +1,490 @@
+package org.jax.isopret.core.impl.rnaseqdata;
+
+import org.jax.isopret.exception.IsopretRuntimeException;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Byte-level scanner for the HBA-DEALS and edgeR results files (see {@link RnaSeqResultsParser} for the format).
+ * The accession numbers and doubles are parsed directly from the bytes of the file, without creating a String or an
+ * {@link RnaSeqResultLine} for each line. Plain files are memory-mapped; gzipped files (recognized by their magic
+ * number) are decompressed as a stream into a reusable buffer.
+ * <p>
+ * Large files can also be scanned in parallel: the file is cut into chunks at newline boundaries, each chunk is
+ * parsed by a separate {@link Sink}, and the sinks are returned in the order of the chunks in the file.
+ * </p>
+ */
+final class RnaSeqResultScanner {
+    /** Value passed to {@link Sink#accept} instead of an ENST number for lines with gene expression results. */
+    static final int EXPRESSION = 0;
+
+    private static final byte TAB = '\t';
+    private static final byte NEWLINE = '\n';
+    private static final byte[] EXPRESSION_FIELD = "expression".getBytes(StandardCharsets.US_ASCII);
+    /** Largest window of a plain file that is mapped at once. */
+    private static final int MAX_WINDOW = 1 << 30;
+    private static final int STREAM_BUFFER = 1 << 22;
+    /** Approximate size of the chunks that are parsed in parallel. */
+    static final int CHUNK_SIZE = 1 << 22;
+    /** Powers of ten that are represented exactly as doubles. */
+    private static final double[] POWERS_OF_TEN = new double[23];
+    static {
+        POWERS_OF_TEN[0] = 1.0;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = 10.0 * POWERS_OF_TEN[i - 1];
+        }
+    }
+
+    /**
+     * Receives the fields of one line of the results file.
+     */
+    interface Sink {
+        /**
+         * @param ensg integer part of the gene accession number
+         * @param enst integer part of the transcript accession number, or {@link #EXPRESSION}
+         * @param foldChange third column (fold change)
+         * @param p fourth column (PEP or adjusted p-value)
+         */
+        void accept(int ensg, int enst, double foldChange, double p);
+    }
+
+    /**
+     * Receives a range of complete lines of the file.
+     */
+    private interface Chunks {
+        void accept(ByteBuffer buffer, int from, int to);
+    }
+
+    private RnaSeqResultScanner() {
+    }
+
+    /**
+     * Scan a complete results file.
+     * @param file results file (plain text or gzipped)
+     * @param headerCheck called with the header line before any other line is parsed
+     * @param sink receives the values of each subsequent line
+     */
+    static void scan(File file, Consumer<String> headerCheck, Sink sink) {
+        scan(file, headerCheck, (buffer, from, to) -> scan(buffer, from, to, sink), false);
+    }
+
+    /**
+     * Scan a complete results file with up to {@code threads} threads. Each sink receives the lines of one chunk of
+     * the file in their original order. Small files and {@code threads <= 1} are scanned in the calling thread with
+     * a single sink.
+     * @param file results file (plain text or gzipped)
+     * @param headerCheck called with the header line before any other line is parsed
+     * @param sinks creates a sink for each chunk
+     * @param threads maximum number of threads
+     * @return the sinks in the order of their chunks in the file
+     */
+    static <S extends Sink> List<S> scan(File file, Consumer<String> headerCheck, Supplier<S> sinks, int threads) {
+        if (threads <= 1 || file.length() <= CHUNK_SIZE) {
+            S sink = sinks.get();
+            scan(file, headerCheck, sink);
+            return List.of(sink);
+        }
+        ParallelChunks<S> chunks = new ParallelChunks<>(sinks, threads);
+        try {
+            scan(file, headerCheck, chunks, true);
+            return chunks.join();
+        } finally {
+            chunks.shutdown();
+        }
+    }
+
+    /**
+     * @param handOff true if {@code chunks} may keep the buffers it receives, so that the stream buffer cannot be
+     *                reused
+     */
+    private static void scan(File file, Consumer<String> headerCheck, Chunks chunks, boolean handOff) {
+        try {
+            if (isGzipped(file)) {
+                try (InputStream in = new GZIPInputStream(new BufferedInputStream(new FileInputStream(file)), 1 << 16)) {
+                    scanStream(in, headerCheck, chunks, handOff);
+                }
+            } else {
+                scanMapped(file, headerCheck, chunks);
+            }
+        } catch (IOException e) {
+            throw new IsopretRuntimeException("Error reading RNA-seq results data: " + e.getMessage());
+        }
+    }
+
+    static boolean isGzipped(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return in.read() == 0x1f && in.read() == 0x8b;
+        }
+    }
+
+    private static void scanMapped(File file, Consumer<String> headerCheck, Chunks chunks) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            boolean header = true;
+            while (position < size) {
+                int windowSize = (int) Math.min(MAX_WINDOW, size - position);
+                ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+                boolean last = position + windowSize == size;
+                int end = last ? windowSize : lastLineEnd(window, 0, windowSize);
+                if (end <= 0) {
+                    throw new IsopretRuntimeException("Line too long in " + file);
+                }
+                int start = 0;
+                if (header) {
+                    start = readHeader(window, end, headerCheck);
+                    header = false;
+                }
+                chunks.accept(window, start, end);
+                position += end;
+            }
+            if (header) {
+                headerCheck.accept(null);
+            }
+        }
+    }
+
+    private static void scanStream(InputStream in, Consumer<String> headerCheck, Chunks chunks, boolean handOff)
+            throws IOException {
+        byte[] bytes = new byte[STREAM_BUFFER];
+        int filled = 0;
+        boolean header = true;
+        boolean eof = false;
+        while (! eof) {
+            int n = in.read(bytes, filled, bytes.length - filled);
+            if (n < 0) {
+                eof = true;
+            } else {
+                filled += n;
+                if (filled < bytes.length) {
+                    continue;
+                }
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, filled);
+            int end = eof ? filled : lastLineEnd(buffer, 0, filled);
+            if (end <= 0 && ! eof) {
+                bytes = Arrays.copyOf(bytes, 2 * bytes.length); // line longer than the buffer
+                continue;
+            }
+            int start = 0;
+            if (header && end > 0) {
+                start = readHeader(buffer, end, headerCheck);
+                header = false;
+            }
+            chunks.accept(buffer, start, end);
+            if (handOff) {
+                byte[] next = new byte[bytes.length];
+                System.arraycopy(bytes, end, next, 0, filled - end);
+                bytes = next;
+            } else {
+                System.arraycopy(bytes, end, bytes, 0, filled - end);
+            }
+            filled -= end;
+        }
+        if (header) {
+            headerCheck.accept(null);
+        }
+    }
+
+    /**
+     * @return position after the header line
+     */
+    private static int readHeader(ByteBuffer buffer, int end, Consumer<String> headerCheck) {
+        int eol = indexOf(buffer, NEWLINE, 0, end);
+        int next = eol < 0 ? end : eol + 1;
+        int lineEnd = eol < 0 ? end : eol;
+        if (lineEnd > 0 && buffer.get(lineEnd - 1) == '\r') {
+            lineEnd--;
+        }
+        headerCheck.accept(ascii(buffer, 0, lineEnd));
+        return next;
+    }
+
+    /**
+     * @return the position after the last newline in {@code [from, to)}, or {@code from} if there is none
+     */
+    static int lastLineEnd(ByteBuffer buffer, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (buffer.get(i) == NEWLINE) {
+                return i + 1;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * Parse all lines in {@code [from, to)}. {@code from} must be the start of a line; the last line does not need
+     * to end with a newline.
+     */
+    static void scan(ByteBuffer buffer, int from, int to, Sink sink) {
+        int pos = from;
+        while (pos < to) {
+            int eol = indexOf(buffer, NEWLINE, pos, to);
+            int lineEnd = eol < 0 ? to : eol;
+            parseLine(buffer, pos, lineEnd, sink);
+            pos = lineEnd + 1;
+        }
+    }
+
+    /**
+     * Cuts the ranges it receives into chunks of about {@link #CHUNK_SIZE} bytes and parses each chunk with a new
+     * sink in a thread pool. At most two chunks per thread are waiting or being parsed at any time, which bounds the
+     * memory used for decompressed data when the file is gzipped.
+     */
+    private static final class ParallelChunks<S extends Sink> implements Chunks {
+        private final Supplier<S> sinks;
+        private final ExecutorService executor;
+        private final Semaphore pending;
+        private final List<Future<S>> futures = new ArrayList<>();
+
+        ParallelChunks(Supplier<S> sinks, int threads) {
+            this.sinks = sinks;
+            AtomicInteger counter = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "isopret-rnaseq-parser-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.pending = new Semaphore(2 * threads);
+        }
+
+        @Override
+        public void accept(ByteBuffer buffer, int from, int to) {
+            int start = from;
+            while (start < to) {
+                int end = to;
+                if (to - start > CHUNK_SIZE) {
+                    int eol = indexOf(buffer, NEWLINE, start + CHUNK_SIZE, to);
+                    end = eol < 0 ? to : eol + 1;
+                }
+                submit(buffer, start, end);
+                start = end;
+            }
+        }
+
+        private void submit(ByteBuffer buffer, int from, int to) {
+            try {
+                pending.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IsopretRuntimeException("Interrupted while reading RNA-seq results data");
+            }
+            futures.add(executor.submit(() -> {
+                try {
+                    S sink = sinks.get();
+                    scan(buffer, from, to, sink);
+                    return sink;
+                } finally {
+                    pending.release();
+                }
+            }));
+        }
+
+        List<S> join() {
+            List<S> result = new ArrayList<>(futures.size());
+            try {
+                for (Future<S> future : futures) {
+                    result.add(future.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IsopretRuntimeException("Interrupted while reading RNA-seq results data");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IsopretRuntimeException("Error reading RNA-seq results data: " + e.getCause());
+            }
+            return result;
+        }
+
+        void shutdown() {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void parseLine(ByteBuffer buffer, int start, int end, Sink sink) {
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        while (end > start && buffer.get(end - 1) == TAB) {
+            end--; // like String.split, ignore trailing empty fields
+        }
+        int tab1 = indexOf(buffer, TAB, start, end);
+        int tab2 = tab1 < 0 ? -1 : indexOf(buffer, TAB, tab1 + 1, end);
+        int tab3 = tab2 < 0 ? -1 : indexOf(buffer, TAB, tab2 + 1, end);
+        if (tab3 < 0 || tab1 == start || tab2 == tab1 + 1 || tab3 == tab2 + 1 ||
+                indexOf(buffer, TAB, tab3 + 1, end) >= 0) {
+            String msg = String.format("[ERROR] Malformed line: %s\n", ascii(buffer, start, end));
+            throw new IsopretRuntimeException(msg);
+        }
+        int ensg = parseEnsembl(buffer, start, tab1, 'G');
+        int enst = isExpression(buffer, tab1 + 1, tab2) ? EXPRESSION : parseEnsembl(buffer, tab1 + 1, tab2, 'T');
+        double foldChange = parseDouble(buffer, tab2 + 1, tab3);
+        double p = parseDouble(buffer, tab3 + 1, end);
+        sink.accept(ensg, enst, foldChange, p);
+    }
+
+    private static boolean isExpression(ByteBuffer buffer, int from, int to) {
+        if (to - from != EXPRESSION_FIELD.length) {
+            return false;
+        }
+        for (int i = 0; i < EXPRESSION_FIELD.length; i++) {
+            if ((buffer.get(from + i) | 0x20) != EXPRESSION_FIELD[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parse an accession such as ENSG00000139618 or ENST00000560355.1 (the version is ignored).
+     * @param type 'G' for genes, 'T' for transcripts
+     */
+    static int parseEnsembl(ByteBuffer buffer, int from, int to, char type) {
+        if (to - from < 5 || buffer.get(from) != 'E' || buffer.get(from + 1) != 'N' || buffer.get(from + 2) != 'S'
+                || buffer.get(from + 3) != type) {
+            String kind = type == 'G' ? "gene" : "transcript";
+            throw new IsopretRuntimeException("Ensembl " + kind + " id must start with ENS" + type + " but we got \"" +
+                    ascii(buffer, from, to) + "\"");
+        }
+        long value = 0;
+        int i = from + 4;
+        for (; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b == '.') {
+                break;
+            }
+            if (b < '0' || b > '9' || value > Integer.MAX_VALUE) {
+                throw new IsopretRuntimeException("Malformed Ensembl id: " + ascii(buffer, from, to));
+            }
+            value = 10 * value + (b - '0');
+        }
+        if (i == from + 4 || value > Integer.MAX_VALUE) {
+            throw new IsopretRuntimeException("Malformed Ensembl id: " + ascii(buffer, from, to));
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parse a decimal number such as {@code -0.0085}, {@code 1e-05} or {@code 2.5E3}. Numbers with at most 15
+     * significant digits and a small decimal exponent are computed exactly as one correctly-rounded multiplication
+     * or division of two exactly representable doubles; all other numbers (and strings such as {@code NaN})
+     * are passed to {@link Double#parseDouble(String)}. The result is therefore always identical to
+     * {@link Double#parseDouble(String)}.
+     */
+    static double parseDouble(ByteBuffer buffer, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean anyDigit = false;
+        boolean fraction = false;
+        for (; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b >= '0' && b <= '9') {
+                anyDigit = true;
+                if (mantissa == 0 && b == '0') {
+                    if (fraction) scale--;
+                    continue; // leading zeros are not significant
+                }
+                if (++digits > 15) {
+                    return slowParse(buffer, from, to);
+                }
+                mantissa = 10 * mantissa + (b - '0');
+                if (fraction) scale--;
+            } else if (b == '.' && ! fraction) {
+                fraction = true;
+            } else {
+                break;
+            }
+        }
+        if (! anyDigit) {
+            return slowParse(buffer, from, to);
+        }
+        if (i < to) {
+            byte b = buffer.get(i);
+            if (b != 'e' && b != 'E') {
+                return slowParse(buffer, from, to);
+            }
+            i++;
+            boolean negativeExponent = false;
+            if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+                negativeExponent = buffer.get(i) == '-';
+                i++;
+            }
+            if (i == to) {
+                return slowParse(buffer, from, to);
+            }
+            int exponent = 0;
+            for (; i < to; i++) {
+                b = buffer.get(i);
+                if (b < '0' || b > '9' || exponent > 1000) {
+                    return slowParse(buffer, from, to);
+                }
+                exponent = 10 * exponent + (b - '0');
+            }
+            scale += negativeExponent ? -exponent : exponent;
+        }
+        double value;
+        if (mantissa == 0) {
+            value = 0.0;
+        } else if (scale >= 0 && scale < POWERS_OF_TEN.length) {
+            value = mantissa * POWERS_OF_TEN[scale];
+        } else if (scale < 0 && -scale < POWERS_OF_TEN.length) {
+            value = mantissa / POWERS_OF_TEN[-scale];
+        } else {
+            return slowParse(buffer, from, to);
+        }
+        return negative ? -value : value;
+    }
+
+    private static double slowParse(ByteBuffer buffer, int from, int to) {
+        String s = ascii(buffer, from, to);
+        try {
+            return Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            throw new IsopretRuntimeException("Could not parse number \"" + s + "\" in RNA-seq results file");
+        }
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String ascii(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
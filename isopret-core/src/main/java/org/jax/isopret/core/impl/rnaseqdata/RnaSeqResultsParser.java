@@ -3,12 +3,15 @@ package org.jax.isopret.core.impl.rnaseqdata;
 import org.jax.isopret.exception.IsopretRuntimeException;
 import org.jax.isopret.model.GeneModel;
 import org.jax.isopret.data.AccessionNumber;
+import org.jax.isopret.data.EnsemblIdRegistry;
 import org.jax.isopret.model.GeneResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.*;
-import java.util.*;
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Parse the HBA-DEALS output file.
@@ -32,7 +35,7 @@ import java.util.*;
  * (...)
  * </p>
  * The meaning of the fourth column is different but the format of the files is otherwise
- * identical.
+ * identical. Both kinds of files can also be gzipped.
  */
 public class RnaSeqResultsParser {
     private static final Logger LOGGER = LoggerFactory.getLogger(RnaSeqResultsParser.class);
@@ -52,81 +55,69 @@ public class RnaSeqResultsParser {
 
     private final  Map<AccessionNumber, GeneModel> hgncMap;
 
+    /** Registry whose shared accession numbers are used for the results. */
+    private final EnsemblIdRegistry registry;
+
+    /** Maximum number of threads used to parse the file. */
+    private final int threads;
+
     
-    private RnaSeqResultsParser(File fname, Map<AccessionNumber, GeneModel> hgncMap, boolean isHbaDeals) {
+    private RnaSeqResultsParser(File fname,
+                                Map<AccessionNumber, GeneModel> hgncMap,
+                                EnsemblIdRegistry registry,
+                                boolean isHbaDeals,
+                                int threads) {
         hbadealsFile = fname;
         this.hgncMap = hgncMap;
-
-        try (BufferedReader br = new BufferedReader(new FileReader(this.hbadealsFile))) {
-            String header = br.readLine();
-            if (isHbaDeals) {
-                if (! header.equals(HBADEALS_HEADER)) {
-                    throw new IsopretRuntimeException("HBADEALS header field malformed. We expected \"" +
-                            HBADEALS_HEADER+ "\" but got \"" +  header +")");
-                }
-            } else {
-                if (! header.equals(EDGER_HEADER)) {
-                    throw new IsopretRuntimeException("edgeR header field malformed. We expected \"" +
-                            EDGER_HEADER+ "\" but got \"" +  header +")");
-                }
-            }
-           this.ensgAcc2geneResultMap = parseResults(br);
-
-        } catch (IOException e) {
-            throw new IsopretRuntimeException("Error reading RNA-seq results data: " + e.getMessage());
-        }
-
+        this.registry = registry;
+        this.threads = threads;
+        this.ensgAcc2geneResultMap = parseResults(header -> checkHeader(header, isHbaDeals));
     }
 
-    private Map<AccessionNumber, GeneResult> parseResults(BufferedReader br) throws IOException {
-        List<RnaSeqResultLine> lines = new ArrayList<>();
-        Map<AccessionNumber, GeneResult> resultsMap = new HashMap<>();
-        int n_lines = 0;
-        Set<String> unfound = new HashSet<>();
-        String line;
-        while ((line = br.readLine()) != null) {
-                //Note -- for now we only support Ensembl accession numbers!
-                RnaSeqResultLine hline = RnaSeqResultLine.fromEnsembl(line);
-                lines.add(hline);
-                n_lines++;
-            }
-
-        int found_symbol = 0;
-        int invalid_lines = 0;
-        for (RnaSeqResultLine hline : lines) {
-            if (! hline.isValid()) {
-                invalid_lines++;
-                continue;
+    private static void checkHeader(String header, boolean isHbaDeals) {
+        if (isHbaDeals) {
+            if (! HBADEALS_HEADER.equals(header)) {
+                throw new IsopretRuntimeException("HBADEALS header field malformed. We expected \"" +
+                        HBADEALS_HEADER+ "\" but got \"" +  header +")");
             }
-            AccessionNumber ensgAccession = hline.geneAccession(); // if we cannot find symbol, just show the accession
-            if (hgncMap.containsKey(ensgAccession)) {
-                GeneModel model = hgncMap.get(ensgAccession);
-                resultsMap.putIfAbsent(ensgAccession, new GeneResultImpl(hline.geneAccession(), model));
-                GeneResult hbaresult = resultsMap.get(ensgAccession);
-                if (hline.isIsoform()) {
-                    hbaresult.addTranscriptResult(hline.isoform(), hline.expFC(), hline.raw_p());
-                } else {
-                    hbaresult.addExpressionResult(hline.expFC(), hline.raw_p());
-                }
-                found_symbol++;
-            } else {
-                unfound.add(hline.geneAccession().getAccessionString());
+        } else {
+            if (! EDGER_HEADER.equals(header)) {
+                throw new IsopretRuntimeException("edgeR header field malformed. We expected \"" +
+                        EDGER_HEADER+ "\" but got \"" +  header +")");
             }
+        }
+    }
 
+    /**
+     * Parse the file in a single pass. The lines are not stored; the values of each line are passed directly
+     * from the {@link RnaSeqResultScanner} to a {@link GeneResultCollector}. Large files are parsed in chunks by
+     * several threads, and the collectors of the chunks are merged in file order, so that the result is the same as
+     * for a sequential parse.
+     */
+    private Map<AccessionNumber, GeneResult> parseResults(Consumer<String> headerCheck) {
+        //Note -- for now we only support Ensembl accession numbers!
+        List<GeneResultCollector> chunks = RnaSeqResultScanner.scan(hbadealsFile, headerCheck,
+                () -> new GeneResultCollector(hgncMap, registry), threads);
+        GeneResultCollector collector = chunks.get(0);
+        for (GeneResultCollector later : chunks.subList(1, chunks.size())) {
+            collector.merge(later);
         }
-        if (unfound.size() > found_symbol) {
-            LOGGER.error("We could not map {} accession numbers and could map {} accession numbers", unfound.size(), found_symbol);
+        Map<AccessionNumber, GeneResult> resultsMap = collector.results();
+        int found_symbol = collector.foundCount();
+        int unfound = collector.unfoundCount();
+        if (unfound > found_symbol) {
+            LOGGER.error("We could not map {} accession numbers and could map {} accession numbers", unfound, found_symbol);
             throw new IsopretRuntimeException("Could not map most accession numbers/identifiers. Terminating program because this will invalidate downstream analysis.");
         }
-        LOGGER.trace("We found gene symbols {} times and missed it {} times.\n", found_symbol, unfound.size());
-        LOGGER.trace("We parsed {} lines from {}.\n", n_lines, this.hbadealsFile);
+        LOGGER.trace("We found gene symbols {} times and missed it {} times.\n", found_symbol, unfound);
+        LOGGER.trace("We parsed {} lines from {}.\n", collector.lineCount(), this.hbadealsFile);
         LOGGER.trace("We got {} genes with HBA DEALS results\n", resultsMap.size());
-        if (! unfound.isEmpty()) {
-            LOGGER.info("Could not find symbols for {} accessions.", unfound.size());
+        if (unfound > 0) {
+            LOGGER.info("Could not find symbols for {} accessions.", unfound);
         }
-        if (invalid_lines > 0) {
+        if (collector.invalidCount() > 0) {
             String errmsg = String.format("%d invalid lines (splicing fold change negative-but only expr values should be log2). Fix before continuing.",
-                    invalid_lines);
+                    collector.invalidCount());
             throw new IsopretRuntimeException(errmsg);
         }
         return resultsMap;
@@ -140,25 +131,57 @@ public class RnaSeqResultsParser {
      */
 
     public static Map<AccessionNumber, GeneResult> fromHbaDeals(File file, Map<AccessionNumber, GeneModel> hgncMap) {
-        RnaSeqResultsParser parser = new RnaSeqResultsParser(file, hgncMap, true);
+        return fromHbaDeals(file, hgncMap, defaultThreads());
+    }
+
+    /**
+     * @param file HBA-DEALS output file
+     * @param hgncMap Map from ENSG accession to gene model
+     * @param threads maximum number of threads used to parse the file
+     */
+    public static Map<AccessionNumber, GeneResult> fromHbaDeals(File file, Map<AccessionNumber, GeneModel> hgncMap, int threads) {
+        RnaSeqResultsParser parser = new RnaSeqResultsParser(file, hgncMap, EnsemblIdRegistry.empty(), true, threads);
         return parser.ensgAcc2geneResultMap;
     }
 
     public static Map<AccessionNumber, GeneResult> fromEdgeR(File file, Map<AccessionNumber, GeneModel> hgncMap) {
-        RnaSeqResultsParser parser = new RnaSeqResultsParser(file, hgncMap, false);
+        return fromEdgeR(file, hgncMap, defaultThreads());
+    }
+
+    public static Map<AccessionNumber, GeneResult> fromEdgeR(File file, Map<AccessionNumber, GeneModel> hgncMap, int threads) {
+        RnaSeqResultsParser parser = new RnaSeqResultsParser(file, hgncMap, EnsemblIdRegistry.empty(), false, threads);
         return parser.ensgAcc2geneResultMap;
     }
 
     public static Map<AccessionNumber, GeneResult> parse(File file,
                                                          Map<AccessionNumber, GeneModel> hgncMap,
                                                          RnaSeqAnalysisMethod method) {
-        RnaSeqResultsParser parser;
-        if (method == RnaSeqAnalysisMethod.HBADEALS) {
-            parser = new RnaSeqResultsParser(file, hgncMap, true);
-        } else {
-            parser = new RnaSeqResultsParser(file, hgncMap, false);
-        }
+        return parse(file, hgncMap, method, defaultThreads());
+    }
+
+    public static Map<AccessionNumber, GeneResult> parse(File file,
+                                                         Map<AccessionNumber, GeneModel> hgncMap,
+                                                         RnaSeqAnalysisMethod method,
+                                                         int threads) {
+        return parse(file, hgncMap, EnsemblIdRegistry.empty(), method, threads);
+    }
+
+    /**
+     * @param registry registry of the reference genes and transcripts; the results use its shared accession numbers
+     * @param threads maximum number of threads used to parse the file
+     */
+    public static Map<AccessionNumber, GeneResult> parse(File file,
+                                                         Map<AccessionNumber, GeneModel> hgncMap,
+                                                         EnsemblIdRegistry registry,
+                                                         RnaSeqAnalysisMethod method,
+                                                         int threads) {
+        boolean isHbaDeals = method == RnaSeqAnalysisMethod.HBADEALS;
+        RnaSeqResultsParser parser = new RnaSeqResultsParser(file, hgncMap, registry, isHbaDeals, threads);
         return parser.ensgAcc2geneResultMap;
     }
 
+    private static int defaultThreads() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
 }
@@ -0,0 +1,98 @@
+package org.jax.isopret.core.impl.rnaseqdata;
+
+import org.monarchinitiative.phenol.analysis.AssociationContainer;
+import org.monarchinitiative.phenol.analysis.StudySet;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * The study set and population of one GO analysis (DGE or DAS) as selected by the
+ * {@link IsoformSpecificThresholder}. If the thresholder could select the items by their index in the association
+ * container, the selection is also available as bitsets over the item indices, and the sets of item ids are only
+ * created when they are first requested.
+ */
+public final class StudyAndPopulation {
+
+    private final StudySet study;
+
+    private final StudySet population;
+
+    /** Container whose item indices are used by the bitsets, null if there are no bitsets. */
+    private final AssociationContainer<TermId> container;
+
+    private final long[] studyItemSet;
+
+    private final long[] populationItemSet;
+
+    private final Supplier<Set<TermId>> studyItemsSupplier;
+
+    private final Supplier<Set<TermId>> populationItemsSupplier;
+
+    private Set<TermId> studyItems = null;
+
+    private Set<TermId> populationItems = null;
+
+    StudyAndPopulation(StudySet study,
+                       StudySet population,
+                       AssociationContainer<TermId> container,
+                       long[] studyItemSet,
+                       long[] populationItemSet,
+                       Supplier<Set<TermId>> studyItems,
+                       Supplier<Set<TermId>> populationItems) {
+        this.study = study;
+        this.population = population;
+        this.container = container;
+        this.studyItemSet = studyItemSet;
+        this.populationItemSet = populationItemSet;
+        this.studyItemsSupplier = studyItems;
+        this.populationItemsSupplier = populationItems;
+    }
+
+    StudyAndPopulation(StudySet study, StudySet population, Set<TermId> studyItems, Set<TermId> populationItems) {
+        this(study, population, null, null, null, () -> studyItems, () -> populationItems);
+    }
+
+    public StudySet getStudy() {
+        return study;
+    }
+
+    public StudySet getPopulation() {
+        return population;
+    }
+
+    /** @return ids of the genes or transcripts of the study set */
+    public synchronized Set<TermId> getStudyItems() {
+        if (studyItems == null) {
+            studyItems = Set.copyOf(studyItemsSupplier.get());
+        }
+        return studyItems;
+    }
+
+    /** @return ids of the genes or transcripts of the population */
+    public synchronized Set<TermId> getPopulationItems() {
+        if (populationItems == null) {
+            populationItems = Set.copyOf(populationItemsSupplier.get());
+        }
+        return populationItems;
+    }
+
+    /**
+     * @return true if the study set and population are available as bitsets over the item indices of
+     * {@code associationContainer}
+     */
+    public boolean hasItemSets(AssociationContainer<TermId> associationContainer) {
+        return container != null && container == associationContainer;
+    }
+
+    /** @return bitset of the study items over the item indices of the container (see {@link #hasItemSets}) */
+    public long[] getStudyItemSet() {
+        return studyItemSet;
+    }
+
+    /** @return bitset of the population items over the item indices of the container (see {@link #hasItemSets}) */
+    public long[] getPopulationItemSet() {
+        return populationItemSet;
+    }
+}
@@ -0,0 +1,193 @@
+package org.jax.isopret.core.impl.snapshot;
+
+import org.jax.isopret.core.impl.CacheFile;
+import org.jax.isopret.exception.IsopretRuntimeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Container format of the compiled isopret snapshot. The file starts with a header
+ * <pre>
+ * int magic, int version,
+ * int n_sources, n_sources * (string file name, long size, long lastModified),
+ * int n_sections, n_sections * (int section id, long offset, long length)
+ * </pre>
+ * followed by the section payloads. The file is memory-mapped read-only and each section
+ * is decoded on demand from its own slice of the mapping.
+ */
+class IsopretSnapshot {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IsopretSnapshot.class);
+    /** "ISPT" */
+    private static final int MAGIC = 0x49535054;
+    /** Increment whenever the encoding of any section changes. */
+    static final int VERSION = 5;
+    /** The header has no fixed key; the source fingerprints follow it. */
+    private static final CacheFile SNAPSHOT_FILE = new CacheFile(MAGIC, VERSION);
+
+    private final Path path;
+
+    private final MappedByteBuffer mapped;
+
+    private final Map<SnapshotSection, long[]> tableOfContents;
+
+    private final Map<String, long[]> sourceFingerprints;
+
+    private IsopretSnapshot(Path path,
+                            MappedByteBuffer mapped,
+                            Map<SnapshotSection, long[]> tableOfContents,
+                            Map<String, long[]> sourceFingerprints) {
+        this.path = path;
+        this.mapped = mapped;
+        this.tableOfContents = tableOfContents;
+        this.sourceFingerprints = sourceFingerprints;
+    }
+
+    /**
+     * Memory-map an existing snapshot file and read its header.
+     * @param path path to the snapshot file
+     * @return the opened snapshot
+     * @throws IsopretRuntimeException if the file cannot be read or was written by another snapshot version
+     */
+    static IsopretSnapshot open(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IsopretRuntimeException("Snapshot file too large to be mapped: " + path);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            SnapshotInput header = new SnapshotInput(mapped.duplicate());
+            if (header.readInt() != MAGIC) {
+                throw new IsopretRuntimeException("Not an isopret snapshot file: " + path);
+            }
+            int version = header.readInt();
+            if (version != VERSION) {
+                throw new IsopretRuntimeException(String.format("Snapshot %s has version %d but we expected %d. Please run isopret compile again.",
+                        path, version, VERSION));
+            }
+            int nSources = header.readInt();
+            Map<String, long[]> fingerprints = new HashMap<>();
+            for (int i = 0; i < nSources; i++) {
+                String name = header.readString();
+                fingerprints.put(name, new long[]{header.readLong(), header.readLong()});
+            }
+            int nSections = header.readInt();
+            Map<SnapshotSection, long[]> toc = new EnumMap<>(SnapshotSection.class);
+            for (int i = 0; i < nSections; i++) {
+                SnapshotSection section = SnapshotSection.fromId(header.readInt());
+                long offset = header.readLong();
+                long length = header.readLong();
+                if (section != null) {
+                    toc.put(section, new long[]{offset, length});
+                }
+            }
+            return new IsopretSnapshot(path, mapped, toc, fingerprints);
+        } catch (IOException e) {
+            throw new IsopretRuntimeException("Could not open isopret snapshot " + path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write the snapshot to a temporary file next to {@code path} and move it into place once it is complete,
+     * so that a reader never sees a partially written snapshot.
+     * @param path destination of the snapshot
+     * @param sections encoded payload of each section
+     * @param sourceFiles the files the snapshot was compiled from (used to detect stale snapshots)
+     */
+    static void write(Path path, Map<SnapshotSection, byte[]> sections, List<Path> sourceFiles) {
+        try {
+            SnapshotOutput header = new SnapshotOutput();
+            writeHeader(header, sections, sourceFiles, 0L);
+            long payloadOffset = header.size();
+            header = new SnapshotOutput();
+            writeHeader(header, sections, sourceFiles, payloadOffset);
+            List<byte[]> parts = new ArrayList<>();
+            parts.add(header.toByteArray());
+            parts.addAll(sections.values());
+            CacheFile.write(path, parts);
+            LOGGER.info("Wrote isopret snapshot with {} sections to {}", sections.size(), path.toAbsolutePath());
+        } catch (IOException e) {
+            throw new IsopretRuntimeException("Could not write isopret snapshot " + path + ": " + e.getMessage());
+        }
+    }
+
+    private static void writeHeader(SnapshotOutput header,
+                                    Map<SnapshotSection, byte[]> sections,
+                                    List<Path> sourceFiles,
+                                    long payloadOffset) throws IOException {
+        header.writeBytes(SNAPSHOT_FILE.header());
+        header.writeInt(sourceFiles.size());
+        for (Path source : sourceFiles) {
+            long[] fingerprint = CacheFile.fingerprint(source);
+            header.writeString(source.getFileName().toString());
+            header.writeLong(fingerprint[0]);
+            header.writeLong(fingerprint[1]);
+        }
+        header.writeInt(sections.size());
+        long offset = payloadOffset;
+        for (var entry : sections.entrySet()) {
+            header.writeInt(entry.getKey().id());
+            header.writeLong(offset);
+            header.writeLong(entry.getValue().length);
+            offset += entry.getValue().length;
+        }
+    }
+
+    /**
+     * A snapshot is current if none of the source files that still exist next to it has changed
+     * since the snapshot was compiled. A data directory that only contains the snapshot is current.
+     * @param directory directory with the isopret source files
+     * @return true if the snapshot can be used instead of parsing the source files
+     */
+    boolean isCurrent(Path directory) {
+        for (var entry : sourceFingerprints.entrySet()) {
+            Path source = directory.resolve(entry.getKey());
+            if (! Files.isRegularFile(source)) {
+                continue;
+            }
+            try {
+                if (! Arrays.equals(CacheFile.fingerprint(source), entry.getValue())) {
+                    LOGGER.warn("{} has changed since snapshot {} was compiled.", source, path);
+                    return false;
+                }
+            } catch (IOException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean hasSection(SnapshotSection section) {
+        return tableOfContents.containsKey(section);
+    }
+
+    /**
+     * @return a decoder positioned at the start of the given section
+     */
+    SnapshotInput section(SnapshotSection section) {
+        return new SnapshotInput(sectionBuffer(section));
+    }
+
+    /**
+     * @return the bytes of the given section as a slice of the mapped file
+     */
+    ByteBuffer sectionBuffer(SnapshotSection section) {
+        long[] location = tableOfContents.get(section);
+        if (location == null) {
+            throw new IsopretRuntimeException("Snapshot " + path + " does not contain section " + section);
+        }
+        return mapped.slice((int) location[0], (int) location[1]);
+    }
+
+    Path path() {
+        return path;
+    }
+}
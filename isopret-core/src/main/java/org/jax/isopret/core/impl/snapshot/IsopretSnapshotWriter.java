@@ -0,0 +1,72 @@
+package org.jax.isopret.core.impl.snapshot;
+
+import org.jax.isopret.core.InterproMapper;
+import org.jax.isopret.core.IsopretProvider;
+import org.jax.isopret.core.configuration.IsopretDataResolver;
+import org.jax.isopret.core.impl.DefaultIsopretProvider;
+import org.jax.isopret.core.impl.transcript.TranscriptStoreWriter;
+import org.jax.isopret.exception.IsopretRuntimeException;
+import org.monarchinitiative.svart.assembly.GenomicAssemblies;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compile the isopret source files (go.json, hg38_ensembl.ser, the HGNC file, the isoform function lists and the
+ * Interpro files) into a single binary snapshot that can be memory-mapped by {@link SnapshotIsopretProvider}.
+ */
+public class IsopretSnapshotWriter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IsopretSnapshotWriter.class);
+
+    private IsopretSnapshotWriter() {
+    }
+
+    /**
+     * Convert the Jannovar transcripts to a transcript store (see {@link TranscriptStoreWriter}), then parse all
+     * source files in the data directory and write the snapshot to the same directory.
+     * @param dataDirectory isopret data directory (typically the download directory)
+     * @return path of the snapshot file that was written
+     */
+    public static Path compile(Path dataDirectory) {
+        IsopretDataResolver resolver = IsopretDataResolver.of(dataDirectory);
+        long start = System.currentTimeMillis();
+        TranscriptStoreWriter.convert(resolver.hg38Ensembl(), resolver.transcriptStore(), GenomicAssemblies.GRCh38p13());
+        IsopretProvider provider = new DefaultIsopretProvider(dataDirectory);
+        write(provider, resolver.snapshot(), resolver.sourceFiles());
+        LOGGER.info("Compiled isopret snapshot in {} ms.", System.currentTimeMillis() - start);
+        return resolver.snapshot();
+    }
+
+    /**
+     * Encode the data objects of {@code provider} and write them to {@code snapshotPath}.
+     * @param provider provider whose data objects will be written
+     * @param snapshotPath destination file
+     * @param sourceFiles files that the provider was built from; their size and modification time are
+     *                    recorded so that a stale snapshot can be recognized
+     */
+    public static void write(IsopretProvider provider, Path snapshotPath, List<Path> sourceFiles) {
+        Map<SnapshotSection, byte[]> sections = new EnumMap<>(SnapshotSection.class);
+        try {
+            sections.put(SnapshotSection.ONTOLOGY, SnapshotCodec.encodeOntology(provider.geneOntology()));
+            sections.put(SnapshotSection.TRANSCRIPTS,
+                    TranscriptStoreWriter.encode(provider.geneSymbolToTranscriptListMap()));
+            sections.put(SnapshotSection.HGNC, SnapshotCodec.encodeGeneModels(provider.ensemblGeneModelMap()));
+            sections.put(SnapshotSection.GO_ANNOTATIONS, SnapshotCodec.encodeGoAnnotations(
+                    provider.transcriptIdToGoTermsMap(),
+                    provider.gene2GoMap(),
+                    provider.transcriptToGeneIdMap()));
+            InterproMapper interproMapper = provider.interproMapper();
+            sections.put(SnapshotSection.INTERPRO, SnapshotCodec.encodeInterpro(
+                    interproMapper.getInterproDescription(),
+                    interproMapper.getInterproAnnotationStore()));
+        } catch (IOException e) {
+            throw new IsopretRuntimeException("Could not encode isopret snapshot: " + e.getMessage());
+        }
+        IsopretSnapshot.write(snapshotPath, sections, sourceFiles);
+    }
+}
@@ -0,0 +1,155 @@
+package org.jax.isopret.core.impl.snapshot;
+
+import org.jax.isopret.core.impl.go.GoOntologyCache;
+import org.jax.isopret.core.impl.go.SparseAnnotationMatrix;
+import org.jax.isopret.core.impl.interpro.InterproAnnotationStore;
+import org.jax.isopret.data.AccessionNumber;
+import org.jax.isopret.data.InterproEntry;
+import org.jax.isopret.data.InterproEntryType;
+import org.jax.isopret.data.Transcript;
+import org.jax.isopret.exception.IsopretRuntimeException;
+import org.jax.isopret.model.GeneModel;
+import org.jax.isopret.model.GeneSymbolAccession;
+import org.monarchinitiative.phenol.ontology.data.*;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Encoding and decoding of the individual sections of an isopret snapshot. Each {@code encodeX} method
+ * has a matching {@code decodeX} method that reads the values back in exactly the same order.
+ */
+final class SnapshotCodec {
+
+    private SnapshotCodec() {
+    }
+
+    /* ------------------------------ ontology ------------------------------ */
+
+    /**
+     * The ontology uses the same encoding as the Gene Ontology cache ({@link GoOntologyCache}).
+     */
+    static byte[] encodeOntology(Ontology ontology) throws IOException {
+        return GoOntologyCache.encode(ontology);
+    }
+
+    static Ontology decodeOntology(SnapshotInput in) {
+        return GoOntologyCache.decode(in.buffer());
+    }
+
+    /* -------------------------------- HGNC -------------------------------- */
+
+    static byte[] encodeGeneModels(Map<AccessionNumber, GeneModel> geneModelMap) throws IOException {
+        SnapshotOutput out = new SnapshotOutput();
+        out.writeInt(geneModelMap.size());
+        for (GeneModel model : geneModelMap.values()) {
+            out.writeString(model.geneSymbol());
+            out.writeString(model.geneName());
+            out.writeString(model.entrezId());
+            out.writeInt(model.ensemblGeneId().getAccessionNumber());
+            out.writeString(model.refseqAccecssion());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * The transcript lists of the gene models are not stored twice; they are taken from the
+     * {@link SnapshotSection#TRANSCRIPTS} section in the same way as {@link org.jax.isopret.core.impl.hgnc.HgncParser} does.
+     */
+    static Map<AccessionNumber, GeneModel> decodeGeneModels(SnapshotInput in,
+                                                           Map<GeneSymbolAccession, List<Transcript>> geneToTranscriptMap) {
+        int n = in.readInt();
+        Map<AccessionNumber, GeneModel> geneModelMap = new HashMap<>(2 * n);
+        for (int i = 0; i < n; i++) {
+            String symbol = in.readString();
+            String name = in.readString();
+            String entrez = in.readString();
+            AccessionNumber geneAcc = AccessionNumber.ensgFromInt(in.readInt());
+            String refseq = in.readString();
+            List<Transcript> transcripts = geneToTranscriptMap.getOrDefault(new GeneSymbolAccession(symbol, geneAcc), List.of());
+            geneModelMap.put(geneAcc, new GeneModel(symbol, name, entrez, geneAcc, refseq, transcripts));
+        }
+        return Map.copyOf(geneModelMap);
+    }
+
+    /* --------------------------- GO annotations --------------------------- */
+
+    /**
+     * The transcript and gene annotations are written as {@link SparseAnnotationMatrix} objects and are decoded
+     * as read-only map views of these matrices.
+     */
+    static byte[] encodeGoAnnotations(Map<TermId, Set<TermId>> transcriptToGoMap,
+                                      Map<TermId, Set<TermId>> geneToGoMap,
+                                      Map<TermId, TermId> transcriptToGeneMap) throws IOException {
+        SnapshotOutput out = new SnapshotOutput();
+        out.writeBytes(SparseAnnotationMatrix.of(transcriptToGoMap).toByteArray());
+        out.writeBytes(SparseAnnotationMatrix.of(geneToGoMap).toByteArray());
+        List<TermId> allIds = new ArrayList<>();
+        for (var entry : transcriptToGeneMap.entrySet()) {
+            allIds.add(entry.getKey());
+            allIds.add(entry.getValue());
+        }
+        Map<TermId, Integer> index = out.writeTermIdTable(allIds);
+        out.writeInt(transcriptToGeneMap.size());
+        for (var entry : transcriptToGeneMap.entrySet()) {
+            out.writeInt(index.get(entry.getKey()));
+            out.writeInt(index.get(entry.getValue()));
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decoded GO annotation maps.
+     */
+    record GoAnnotations(Map<TermId, Set<TermId>> transcriptToGoMap,
+                         Map<TermId, Set<TermId>> geneToGoMap,
+                         Map<TermId, TermId> transcriptToGeneMap) {
+    }
+
+    static GoAnnotations decodeGoAnnotations(SnapshotInput in) {
+        SparseAnnotationMatrix transcriptAnnotations = SparseAnnotationMatrix.read(in.buffer());
+        SparseAnnotationMatrix geneAnnotations = SparseAnnotationMatrix.read(in.buffer());
+        TermId[] table = in.readTermIdTable();
+        int n = in.readInt();
+        Map<TermId, TermId> transcriptToGeneMap = new HashMap<>(2 * n);
+        for (int i = 0; i < n; i++) {
+            transcriptToGeneMap.put(table[in.readInt()], table[in.readInt()]);
+        }
+        return new GoAnnotations(transcriptAnnotations.asMap(), geneAnnotations.asMap(), Map.copyOf(transcriptToGeneMap));
+    }
+
+    /* ------------------------------ Interpro ------------------------------ */
+
+    /**
+     * The annotations are written as an {@link InterproAnnotationStore} and are decoded without creating
+     * annotation objects.
+     */
+    static byte[] encodeInterpro(Map<Integer, InterproEntry> descriptions,
+                                 InterproAnnotationStore annotations) throws IOException {
+        SnapshotOutput out = new SnapshotOutput();
+        out.writeInt(descriptions.size());
+        for (InterproEntry entry : descriptions.values()) {
+            out.writeInt(entry.getId());
+            out.writeString(entry.getEntryType().name());
+            out.writeString(entry.getDescription());
+        }
+        out.writeBytes(annotations.toByteArray());
+        return out.toByteArray();
+    }
+
+    record InterproData(Map<Integer, InterproEntry> descriptions,
+                        InterproAnnotationStore annotationStore) {
+    }
+
+    static InterproData decodeInterpro(SnapshotInput in) {
+        int nDescriptions = in.readInt();
+        Map<Integer, InterproEntry> descriptions = new HashMap<>(2 * nDescriptions);
+        for (int i = 0; i < nDescriptions; i++) {
+            int id = in.readInt();
+            InterproEntryType type = InterproEntryType.valueOf(in.readString());
+            String description = in.readString();
+            descriptions.put(id, new InterproEntry(String.format("IPR%06d", id), type, description));
+        }
+        return new InterproData(descriptions, InterproAnnotationStore.read(in.buffer()));
+    }
+}
@@ -0,0 +1,68 @@
+package org.jax.isopret.core.impl.snapshot;
+
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decoder for one section of a memory-mapped isopret snapshot (the counterpart of {@link SnapshotOutput}).
+ * Each instance works on its own view of the mapped file and is therefore not shared between threads.
+ */
+class SnapshotInput {
+
+    private final ByteBuffer buffer;
+
+    SnapshotInput(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    int readInt() {
+        return buffer.getInt();
+    }
+
+    long readLong() {
+        return buffer.getLong();
+    }
+
+    byte readByte() {
+        return buffer.get();
+    }
+
+    boolean readBoolean() {
+        return buffer.get() != 0;
+    }
+
+    String readString() {
+        int len = buffer.getInt();
+        if (len < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[len];
+        buffer.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the TermId table written by {@link SnapshotOutput#writeTermIdTable}
+     */
+    TermId[] readTermIdTable() {
+        int n = buffer.getInt();
+        TermId[] table = new TermId[n];
+        for (int i = 0; i < n; i++) {
+            table[i] = TermId.of(readString());
+        }
+        return table;
+    }
+
+    /**
+     * @return the underlying buffer, positioned at the next value, for codecs that read the buffer directly
+     */
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    boolean hasRemaining() {
+        return buffer.hasRemaining();
+    }
+}
@@ -0,0 +1,231 @@
+package org.jax.isopret.core.impl.snapshot;
+
+import org.jax.isopret.core.InterproMapper;
+import org.jax.isopret.core.IsopretProvider;
+import org.jax.isopret.core.configuration.IsopretDataResolver;
+import org.jax.isopret.core.impl.LoadOnce;
+import org.jax.isopret.core.impl.go.GoDag;
+import org.jax.isopret.core.impl.go.IsopretContainerFactory;
+import org.jax.isopret.core.impl.transcript.TranscriptStore;
+import org.jax.isopret.data.AccessionNumber;
+import org.jax.isopret.data.EnsemblIdRegistry;
+import org.jax.isopret.data.Transcript;
+import org.jax.isopret.exception.IsopretRuntimeException;
+import org.jax.isopret.model.GeneModel;
+import org.jax.isopret.model.GeneSymbolAccession;
+import org.monarchinitiative.phenol.analysis.AssociationContainer;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.svart.assembly.GenomicAssemblies;
+import org.monarchinitiative.svart.assembly.GenomicAssembly;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * An {@link IsopretProvider} that serves the data objects from a snapshot that was written by
+ * {@link IsopretSnapshotWriter}. The snapshot is memory-mapped when the provider is created, and each
+ * section is only decoded the first time one of the objects it contains is requested. Each object is decoded
+ * at most once and can be shared between threads.
+ */
+public class SnapshotIsopretProvider implements IsopretProvider {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotIsopretProvider.class);
+
+    private final IsopretDataResolver dataResolver;
+
+    private final IsopretSnapshot snapshot;
+
+    private final GenomicAssembly assembly = GenomicAssemblies.GRCh38p13();
+
+    private final LoadOnce<Ontology> geneOntology = new LoadOnce<>(this::loadGeneOntology);
+
+    private final LoadOnce<GoDag> goDag = new LoadOnce<>(() -> GoDag.of(geneOntology()));
+
+    private final LoadOnce<Map<GeneSymbolAccession, List<Transcript>>> geneSymbolToTranscriptListMap =
+            new LoadOnce<>(this::loadGeneSymbolToTranscriptListMap);
+
+    private final LoadOnce<Map<AccessionNumber, GeneModel>> ensemblGeneModelMap = new LoadOnce<>(this::loadEnsemblGeneModelMap);
+
+    /** Built from the transcript-to-gene map of the GO annotations, so that the transcripts are not decoded. */
+    private final LoadOnce<EnsemblIdRegistry> idRegistry = new LoadOnce<>(this::loadIdRegistry);
+
+    private final LoadOnce<SnapshotCodec.GoAnnotations> goAnnotations =
+            new LoadOnce<>(this::loadGoAnnotations);
+
+    private final LoadOnce<AssociationContainer<TermId>> transcriptContainer = new LoadOnce<>(() ->
+            new IsopretContainerFactory(geneOntology(), goDag(), idRegistry(), transcriptIdToGoTermsMap(), gene2GoMap())
+                    .transcriptContainer());
+
+    private final LoadOnce<AssociationContainer<TermId>> geneContainer = new LoadOnce<>(() ->
+            new IsopretContainerFactory(geneOntology(), goDag(), idRegistry(), transcriptIdToGoTermsMap(), gene2GoMap())
+                    .geneContainer());
+
+    private final LoadOnce<InterproMapper> interproMapper = new LoadOnce<>(this::loadInterproMapper);
+
+    private SnapshotIsopretProvider(IsopretDataResolver dataResolver, IsopretSnapshot snapshot) {
+        this.dataResolver = dataResolver;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * @param dataDirectory isopret data directory
+     * @return a snapshot-backed provider if the directory contains a snapshot that is readable and not older than
+     * the source files, otherwise an empty Optional
+     */
+    public static Optional<IsopretProvider> fromDirectory(Path dataDirectory) {
+        IsopretDataResolver resolver = IsopretDataResolver.withoutResourceCheck(dataDirectory);
+        Path snapshotPath = resolver.snapshot();
+        if (! Files.isRegularFile(snapshotPath)) {
+            return Optional.empty();
+        }
+        try {
+            IsopretSnapshot snapshot = IsopretSnapshot.open(snapshotPath);
+            if (! snapshot.isCurrent(dataDirectory)) {
+                LOGGER.warn("Ignoring stale snapshot {}. Run isopret compile to update it.", snapshotPath);
+                return Optional.empty();
+            }
+            LOGGER.info("Using isopret snapshot {}", snapshotPath.toAbsolutePath());
+            return Optional.of(new SnapshotIsopretProvider(resolver, snapshot));
+        } catch (IsopretRuntimeException e) {
+            LOGGER.warn("Could not use snapshot {}: {}", snapshotPath, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Ontology geneOntology() {
+        return geneOntology.get();
+    }
+
+    @Override
+    public GoDag goDag() {
+        return goDag.get();
+    }
+
+    private Ontology loadGeneOntology() {
+        Ontology ontology = SnapshotCodec.decodeOntology(snapshot.section(SnapshotSection.ONTOLOGY));
+        LOGGER.info("Loaded Gene Ontology from snapshot with {} terms.", ontology.nonObsoleteTermIdCount());
+        return ontology;
+    }
+
+    @Override
+    public Map<GeneSymbolAccession, List<Transcript>> geneSymbolToTranscriptListMap() {
+        return geneSymbolToTranscriptListMap.get();
+    }
+
+    private Map<GeneSymbolAccession, List<Transcript>> loadGeneSymbolToTranscriptListMap() {
+        var transcriptListMap = TranscriptStore.of(snapshot.sectionBuffer(SnapshotSection.TRANSCRIPTS), assembly).asMap();
+        LOGGER.info("Loaded {} gene symbols from snapshot", transcriptListMap.size());
+        return transcriptListMap;
+    }
+
+    @Override
+    public Map<AccessionNumber, GeneModel> ensemblGeneModelMap() {
+        return ensemblGeneModelMap.get();
+    }
+
+    private Map<AccessionNumber, GeneModel> loadEnsemblGeneModelMap() {
+        var geneModelMap = SnapshotCodec.decodeGeneModels(snapshot.section(SnapshotSection.HGNC),
+                geneSymbolToTranscriptListMap());
+        LOGGER.info("Loaded HGNC Map from snapshot with {} symbols", geneModelMap.size());
+        return geneModelMap;
+    }
+
+    private SnapshotCodec.GoAnnotations loadGoAnnotations() {
+        return SnapshotCodec.decodeGoAnnotations(snapshot.section(SnapshotSection.GO_ANNOTATIONS));
+    }
+
+    @Override
+    public Map<TermId, Set<TermId>> transcriptIdToGoTermsMap() {
+        return goAnnotations.get().transcriptToGoMap();
+    }
+
+    @Override
+    public Map<TermId, Set<TermId>> gene2GoMap() {
+        return goAnnotations.get().geneToGoMap();
+    }
+
+    @Override
+    public Map<TermId, TermId> transcriptToGeneIdMap() {
+        return goAnnotations.get().transcriptToGeneMap();
+    }
+
+    @Override
+    public EnsemblIdRegistry idRegistry() {
+        return idRegistry.get();
+    }
+
+    private EnsemblIdRegistry loadIdRegistry() {
+        EnsemblIdRegistry.Builder builder = EnsemblIdRegistry.builder();
+        transcriptToGeneIdMap().forEach((transcript, gene) -> builder.addTranscript(gene, transcript));
+        EnsemblIdRegistry registry = builder.build();
+        LOGGER.info("Registered {} genes and {} transcripts from snapshot", registry.geneCount(), registry.transcriptCount());
+        return registry;
+    }
+
+    @Override
+    public AssociationContainer<TermId> transcriptContainer() {
+        return transcriptContainer.get();
+    }
+
+    @Override
+    public AssociationContainer<TermId> geneContainer() {
+        return geneContainer.get();
+    }
+
+    @Override
+    public InterproMapper interproMapper() {
+        return interproMapper.get();
+    }
+
+    private InterproMapper loadInterproMapper() {
+        SnapshotCodec.InterproData interpro = SnapshotCodec.decodeInterpro(snapshot.section(SnapshotSection.INTERPRO));
+        return new InterproMapper(interpro.descriptions(), interpro.annotationStore());
+    }
+
+    @Override
+    public Path goJson() {
+        return dataResolver.goJson();
+    }
+
+    @Override
+    public Path isoformFunctionListBp() {
+        return dataResolver.isoformFunctionListBp();
+    }
+
+    @Override
+    public Path isoformFunctionListCc() {
+        return dataResolver.isoformFunctionListCc();
+    }
+
+    @Override
+    public Path isoformFunctionListMf() {
+        return dataResolver.isoformFunctionListMf();
+    }
+
+    @Override
+    public Path hg38Ensembl() {
+        return dataResolver.hg38Ensembl();
+    }
+
+    @Override
+    public Path hgncCompleteSet() {
+        return dataResolver.hgncCompleteSet();
+    }
+
+    @Override
+    public Path interproDomainDesc() {
+        return dataResolver.interproDomainDescPath();
+    }
+
+    @Override
+    public Path interproDomains() {
+        return dataResolver.interproDomainsPath();
+    }
+}
@@ -0,0 +1,93 @@
+package org.jax.isopret.core.impl.snapshot;
+
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Buffer used to encode one section of an isopret snapshot. All values are written big-endian,
+ * which is the default byte order of the {@link java.nio.ByteBuffer} used by {@link SnapshotInput}
+ * to decode them again.
+ */
+class SnapshotOutput {
+
+    private final ByteArrayOutputStream bytes;
+
+    private final DataOutputStream out;
+
+    SnapshotOutput() {
+        this.bytes = new ByteArrayOutputStream(1 << 16);
+        this.out = new DataOutputStream(bytes);
+    }
+
+    void writeInt(int i) throws IOException {
+        out.writeInt(i);
+    }
+
+    void writeLong(long l) throws IOException {
+        out.writeLong(l);
+    }
+
+    void writeByte(int b) throws IOException {
+        out.writeByte(b);
+    }
+
+    void writeBoolean(boolean b) throws IOException {
+        out.writeBoolean(b);
+    }
+
+    /**
+     * Bytes that were encoded elsewhere are copied as they are; their decoder has to know where they end.
+     */
+    void writeBytes(byte[] b) throws IOException {
+        out.write(b);
+    }
+
+    /**
+     * Strings are written as the length of their UTF-8 encoding followed by the bytes. A length of -1 encodes null.
+     */
+    void writeString(String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    /**
+     * Write a table with the distinct TermIds used by a section. The remaining entries of the section refer to
+     * TermIds by their index in this table, which avoids writing (and later parsing) the same CURIE many times.
+     * @param termIds TermIds to be written
+     * @return map with key: TermId, value: index in the table
+     */
+    Map<TermId, Integer> writeTermIdTable(Collection<TermId> termIds) throws IOException {
+        Map<TermId, Integer> index = new HashMap<>();
+        List<TermId> table = new ArrayList<>();
+        for (TermId tid : termIds) {
+            if (! index.containsKey(tid)) {
+                index.put(tid, table.size());
+                table.add(tid);
+            }
+        }
+        out.writeInt(table.size());
+        for (TermId tid : table) {
+            writeString(tid.getValue());
+        }
+        return index;
+    }
+
+    int size() {
+        return out.size();
+    }
+
+    byte[] toByteArray() throws IOException {
+        out.flush();
+        return bytes.toByteArray();
+    }
+}
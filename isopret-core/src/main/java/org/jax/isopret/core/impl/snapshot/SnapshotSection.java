@@ -0,0 +1,37 @@
+package org.jax.isopret.core.impl.snapshot;
+
+/**
+ * The sections of an isopret snapshot file. The numeric id is what is stored in the table of contents
+ * of the file and must not be changed for existing sections.
+ */
+enum SnapshotSection {
+    /** Gene Ontology terms, alternate ids, relationships and meta information. */
+    ONTOLOGY(1),
+    /** Gene symbol/accession to transcript list map derived from the Jannovar file. */
+    TRANSCRIPTS(2),
+    /** HGNC gene models, keyed by Ensembl gene id. */
+    HGNC(3),
+    /** Transcript to GO, gene to GO and transcript to gene maps. */
+    GO_ANNOTATIONS(4),
+    /** Interpro entry descriptions and per-gene Interpro annotations. */
+    INTERPRO(5);
+
+    private final int id;
+
+    SnapshotSection(int id) {
+        this.id = id;
+    }
+
+    int id() {
+        return id;
+    }
+
+    static SnapshotSection fromId(int id) {
+        for (SnapshotSection section : values()) {
+            if (section.id == id) {
+                return section;
+            }
+        }
+        return null;
+    }
+}
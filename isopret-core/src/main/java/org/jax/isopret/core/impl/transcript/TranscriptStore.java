@@ -0,0 +1,340 @@
+package org.jax.isopret.core.impl.transcript;
+
+import org.jax.isopret.core.impl.CacheFile;
+import org.jax.isopret.data.AccessionNumber;
+import org.jax.isopret.data.Transcript;
+import org.jax.isopret.exception.IsopretRuntimeException;
+import org.jax.isopret.model.GeneSymbolAccession;
+import org.monarchinitiative.svart.*;
+import org.monarchinitiative.svart.assembly.GenomicAssembly;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Read-only view of the transcripts that were written by {@link TranscriptStoreWriter}. The coordinates are kept
+ * in the packed int columns of the (memory-mapped) buffer, and {@link Transcript} objects are only created when
+ * the transcripts of a gene are requested. The store can be shared between threads.
+ */
+public class TranscriptStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TranscriptStore.class);
+    /** "ISTX" */
+    static final int MAGIC = 0x49535458;
+    /** Increment whenever the layout of the store changes. */
+    static final int VERSION = 1;
+    /** The header key is the fingerprint (size and modification time) of the Jannovar file. */
+    static final CacheFile STORE_FILE = new CacheFile(MAGIC, VERSION);
+    private static final int HEADER_BYTES = CacheFile.headerBytes(2);
+
+    static final byte POSITIVE_STRAND = 1;
+    static final byte CODING = 2;
+    static final byte HAS_CDS = 4;
+    static final byte HAS_HGVS_SYMBOL = 8;
+
+    private static final CoordinateSystem ZERO_BASED = CoordinateSystem.zeroBased();
+
+    private final ByteBuffer buffer;
+
+    private final Contig[] contigs;
+
+    private final int nGenes;
+
+    private final int nTranscripts;
+
+    private final int geneAccessionBase;
+    private final int geneTranscriptOffsetBase;
+    private final int geneSymbolOffsetBase;
+    private final int txAccessionBase;
+    private final int txContigBase;
+    private final int txStartBase;
+    private final int txEndBase;
+    private final int cdsStartBase;
+    private final int cdsEndBase;
+    private final int txExonOffsetBase;
+    private final int hgvsOffsetBase;
+    private final int exonStartBase;
+    private final int exonEndBase;
+    private final int flagsBase;
+    private final int geneSymbolBase;
+    private final int hgvsSymbolBase;
+
+    /** Transcripts of each gene, created on first request. */
+    private final AtomicReferenceArray<List<Transcript>> materialized;
+
+    private final GeneSymbolAccession[] genes;
+
+    private final Map<GeneSymbolAccession, Integer> geneIndex;
+
+    private TranscriptStore(ByteBuffer buffer, GenomicAssembly assembly) {
+        this.buffer = buffer;
+        int pos = 0;
+        int nContigs = buffer.getInt(pos);
+        pos += 4;
+        contigs = new Contig[nContigs];
+        for (int i = 0; i < nContigs; i++) {
+            int len = buffer.getInt(pos);
+            String name = utf8(pos + 4, len);
+            pos += 4 + len;
+            contigs[i] = assembly.contigByName(name);
+            if (contigs[i] == null) {
+                throw new IsopretRuntimeException("Transcript store refers to unknown contig " + name);
+            }
+        }
+        nGenes = buffer.getInt(pos);
+        nTranscripts = buffer.getInt(pos + 4);
+        int nExons = buffer.getInt(pos + 8);
+        int geneSymbolBytes = buffer.getInt(pos + 12);
+        pos += 20;
+        geneAccessionBase = pos;
+        geneTranscriptOffsetBase = geneAccessionBase + 4 * nGenes;
+        geneSymbolOffsetBase = geneTranscriptOffsetBase + 4 * (nGenes + 1);
+        txAccessionBase = geneSymbolOffsetBase + 4 * (nGenes + 1);
+        txContigBase = txAccessionBase + 4 * nTranscripts;
+        txStartBase = txContigBase + 4 * nTranscripts;
+        txEndBase = txStartBase + 4 * nTranscripts;
+        cdsStartBase = txEndBase + 4 * nTranscripts;
+        cdsEndBase = cdsStartBase + 4 * nTranscripts;
+        txExonOffsetBase = cdsEndBase + 4 * nTranscripts;
+        hgvsOffsetBase = txExonOffsetBase + 4 * (nTranscripts + 1);
+        exonStartBase = hgvsOffsetBase + 4 * (nTranscripts + 1);
+        exonEndBase = exonStartBase + 4 * nExons;
+        flagsBase = exonEndBase + 4 * nExons;
+        geneSymbolBase = flagsBase + nTranscripts;
+        hgvsSymbolBase = geneSymbolBase + geneSymbolBytes;
+        materialized = new AtomicReferenceArray<>(nGenes);
+        genes = new GeneSymbolAccession[nGenes];
+        Map<GeneSymbolAccession, Integer> index = new HashMap<>(2 * nGenes);
+        for (int g = 0; g < nGenes; g++) {
+            int symbolStart = intAt(geneSymbolOffsetBase, g);
+            String symbol = utf8(geneSymbolBase + symbolStart, intAt(geneSymbolOffsetBase, g + 1) - symbolStart);
+            genes[g] = new GeneSymbolAccession(symbol, AccessionNumber.ensgFromInt(intAt(geneAccessionBase, g)));
+            index.put(genes[g], g);
+        }
+        geneIndex = Map.copyOf(index);
+    }
+
+    /**
+     * @param encoded transcripts encoded by {@link TranscriptStoreWriter#encode(Map)}
+     * @param assembly genome assembly used to resolve the contig names
+     * @return store backed by {@code encoded}
+     */
+    public static TranscriptStore of(ByteBuffer encoded, GenomicAssembly assembly) {
+        return new TranscriptStore(encoded.slice(), assembly);
+    }
+
+    /**
+     * Memory-map a transcript store file.
+     * @param path path of a file written by {@link TranscriptStoreWriter#write}
+     * @param assembly genome assembly used to resolve the contig names
+     * @return the opened store
+     * @throws IsopretRuntimeException if the file cannot be read or was written by another version
+     */
+    public static TranscriptStore open(Path path, GenomicAssembly assembly) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.getInt(0) != MAGIC) {
+                throw new IsopretRuntimeException("Not an isopret transcript store: " + path);
+            }
+            int version = mapped.getInt(4);
+            if (version != VERSION) {
+                throw new IsopretRuntimeException(String.format("Transcript store %s has version %d but we expected %d.",
+                        path, version, VERSION));
+            }
+            TranscriptStore store = of(mapped.slice(HEADER_BYTES, mapped.capacity() - HEADER_BYTES), assembly);
+            LOGGER.info("Opened transcript store {} with {} genes and {} transcripts",
+                    path.toAbsolutePath(), store.geneCount(), store.transcriptCount());
+            return store;
+        } catch (IOException e) {
+            throw new IsopretRuntimeException("Could not open transcript store " + path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * A store is current if the Jannovar file it was converted from has not changed since the conversion
+     * (or is no longer present).
+     * @param storeFile the transcript store
+     * @param jannovarSerFile the Jannovar file
+     * @return true if {@code storeFile} can be used instead of {@code jannovarSerFile}
+     */
+    public static boolean isCurrent(Path storeFile, Path jannovarSerFile) {
+        if (! Files.isRegularFile(storeFile)) {
+            return false;
+        }
+        if (! Files.isRegularFile(jannovarSerFile)) {
+            return true;
+        }
+        try {
+            return STORE_FILE.isCurrent(storeFile, CacheFile.fingerprint(jannovarSerFile));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public int geneCount() {
+        return nGenes;
+    }
+
+    public int transcriptCount() {
+        return nTranscripts;
+    }
+
+    /**
+     * @param geneIndex index of a gene (0 .. {@link #geneCount()}-1)
+     * @return the transcripts of the gene (created on the first call and then reused)
+     */
+    public List<Transcript> transcripts(int geneIndex) {
+        List<Transcript> transcripts = materialized.get(geneIndex);
+        if (transcripts == null) {
+            transcripts = decodeTranscripts(geneIndex);
+            if (! materialized.compareAndSet(geneIndex, null, transcripts)) {
+                transcripts = materialized.get(geneIndex);
+            }
+        }
+        return transcripts;
+    }
+
+    /**
+     * @return an unmodifiable map view of the store. Lookups and iteration only create the {@link Transcript}
+     * objects of the genes whose values are actually requested.
+     */
+    public Map<GeneSymbolAccession, List<Transcript>> asMap() {
+        return new MapView();
+    }
+
+    private List<Transcript> decodeTranscripts(int g) {
+        int first = intAt(geneTranscriptOffsetBase, g);
+        int last = intAt(geneTranscriptOffsetBase, g + 1);
+        List<Transcript> transcripts = new ArrayList<>(last - first);
+        for (int t = first; t < last; t++) {
+            transcripts.add(decodeTranscript(t));
+        }
+        return List.copyOf(transcripts);
+    }
+
+    private Transcript decodeTranscript(int t) {
+        Contig contig = contigs[intAt(txContigBase, t)];
+        byte flags = buffer.get(flagsBase + t);
+        Strand strand = (flags & POSITIVE_STRAND) != 0 ? Strand.POSITIVE : Strand.NEGATIVE;
+        GenomicRegion cds = null;
+        if ((flags & HAS_CDS) != 0) {
+            cds = GenomicRegion.of(contig, strand, ZERO_BASED, intAt(cdsStartBase, t), intAt(cdsEndBase, t));
+        }
+        String hgvsSymbol = null;
+        if ((flags & HAS_HGVS_SYMBOL) != 0) {
+            int start = intAt(hgvsOffsetBase, t);
+            hgvsSymbol = utf8(hgvsSymbolBase + start, intAt(hgvsOffsetBase, t + 1) - start);
+        }
+        int firstExon = intAt(txExonOffsetBase, t);
+        int lastExon = intAt(txExonOffsetBase, t + 1);
+        List<GenomicRegion> exons = new ArrayList<>(lastExon - firstExon);
+        for (int e = firstExon; e < lastExon; e++) {
+            exons.add(GenomicRegion.of(contig, strand, ZERO_BASED, intAt(exonStartBase, e), intAt(exonEndBase, e)));
+        }
+        return Transcript.of(contig, strand, ZERO_BASED, intAt(txStartBase, t), intAt(txEndBase, t), cds,
+                AccessionNumber.enstFromInt(intAt(txAccessionBase, t)), hgvsSymbol, (flags & CODING) != 0, exons);
+    }
+
+    private int intAt(int base, int i) {
+        return buffer.getInt(base + 4 * i);
+    }
+
+    private String utf8(int position, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private class MapView extends AbstractMap<GeneSymbolAccession, List<Transcript>> {
+
+        @Override
+        public int size() {
+            return nGenes;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return geneIndex.containsKey(key);
+        }
+
+        @Override
+        public List<Transcript> get(Object key) {
+            Integer g = geneIndex.get(key);
+            return g == null ? null : transcripts(g);
+        }
+
+        @Override
+        public Set<Entry<GeneSymbolAccession, List<Transcript>>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<GeneSymbolAccession, List<Transcript>>> iterator() {
+                    return new Iterator<>() {
+                        private int g = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return g < nGenes;
+                        }
+
+                        @Override
+                        public Entry<GeneSymbolAccession, List<Transcript>> next() {
+                            if (g >= nGenes) {
+                                throw new NoSuchElementException();
+                            }
+                            return new GeneEntry(g++);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return nGenes;
+                }
+            };
+        }
+    }
+
+    /** Map entry whose transcripts are only created when {@link #getValue()} is called. */
+    private class GeneEntry implements Map.Entry<GeneSymbolAccession, List<Transcript>> {
+        private final int g;
+
+        private GeneEntry(int g) {
+            this.g = g;
+        }
+
+        @Override
+        public GeneSymbolAccession getKey() {
+            return genes[g];
+        }
+
+        @Override
+        public List<Transcript> getValue() {
+            return transcripts(g);
+        }
+
+        @Override
+        public List<Transcript> setValue(List<Transcript> value) {
+            throw new UnsupportedOperationException("The transcript store is read-only");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (! (o instanceof Map.Entry<?, ?> other)) return false;
+            return getKey().equals(other.getKey()) && getValue().equals(other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ getValue().hashCode();
+        }
+    }
+}
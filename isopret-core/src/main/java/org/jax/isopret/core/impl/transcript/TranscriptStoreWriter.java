@@ -0,0 +1,177 @@
+package org.jax.isopret.core.impl.transcript;
+
+import org.jax.isopret.core.impl.CacheFile;
+import org.jax.isopret.core.impl.jannovar.JannovarReader;
+import org.jax.isopret.data.Transcript;
+import org.jax.isopret.exception.IsopretRuntimeException;
+import org.jax.isopret.model.GeneSymbolAccession;
+import org.monarchinitiative.svart.CoordinateSystem;
+import org.monarchinitiative.svart.GenomicRegion;
+import org.monarchinitiative.svart.assembly.GenomicAssembly;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Converts the Jannovar transcript file ({@code hg38_ensembl.ser}) into the columnar format that is read by
+ * {@link TranscriptStore}. The conversion only needs to be done once per Jannovar file; afterwards the transcripts
+ * can be loaded without deserializing the Jannovar object graph.
+ */
+public class TranscriptStoreWriter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TranscriptStoreWriter.class);
+
+    private TranscriptStoreWriter() {
+    }
+
+    /**
+     * Read the Jannovar file and write the transcripts to {@code storeFile}.
+     * @param jannovarSerFile path to {@code hg38_ensembl.ser}
+     * @param storeFile destination of the transcript store
+     * @param assembly genome assembly used to interpret the Jannovar contigs
+     * @return path of the transcript store that was written
+     */
+    public static Path convert(Path jannovarSerFile, Path storeFile, GenomicAssembly assembly) {
+        long start = System.currentTimeMillis();
+        JannovarReader reader = new JannovarReader(jannovarSerFile.toFile(), assembly);
+        write(reader.getGeneToTranscriptListMap(), storeFile, jannovarSerFile);
+        LOGGER.info("Converted {} to {} in {} ms.", jannovarSerFile, storeFile, System.currentTimeMillis() - start);
+        return storeFile;
+    }
+
+    /**
+     * Write the transcripts to a temporary file next to {@code storeFile} and move it into place once it is complete.
+     * @param geneToTranscriptMap key: gene, value: transcripts of the gene
+     * @param storeFile destination of the transcript store
+     * @param sourceFile the Jannovar file the transcripts were read from (its size and modification time are
+     *                   recorded so that a stale store can be recognized)
+     */
+    public static void write(Map<GeneSymbolAccession, List<Transcript>> geneToTranscriptMap, Path storeFile, Path sourceFile) {
+        try {
+            CacheFile.write(storeFile, List.of(TranscriptStore.STORE_FILE.header(CacheFile.fingerprint(sourceFile)),
+                    encode(geneToTranscriptMap)));
+            LOGGER.info("Wrote {} genes to transcript store {}", geneToTranscriptMap.size(), storeFile.toAbsolutePath());
+        } catch (IOException e) {
+            throw new IsopretRuntimeException("Could not write transcript store " + storeFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Encode the transcripts as a sequence of column arrays (without the file header). The layout is
+     * <pre>
+     * int n_contigs, n_contigs * (int length, UTF-8 contig name)
+     * int n_genes, int n_transcripts, int n_exons, int gene_symbol_bytes, int hgvs_symbol_bytes
+     * int[n_genes] gene accession, int[n_genes+1] first transcript of gene, int[n_genes+1] gene symbol offset
+     * int[n_transcripts] accession, contig, start, end, cds start, cds end
+     * int[n_transcripts+1] first exon of transcript, int[n_transcripts+1] hgvs symbol offset
+     * int[n_exons] exon start, exon end
+     * byte[n_transcripts] flags, byte[] gene symbols, byte[] hgvs symbols
+     * </pre>
+     * All coordinates are zero-based on the strand of the transcript.
+     * @param geneToTranscriptMap key: gene, value: transcripts of the gene
+     * @return the encoded transcripts
+     */
+    public static byte[] encode(Map<GeneSymbolAccession, List<Transcript>> geneToTranscriptMap) throws IOException {
+        CoordinateSystem zeroBased = CoordinateSystem.zeroBased();
+        int nGenes = geneToTranscriptMap.size();
+        int nTranscripts = 0;
+        int nExons = 0;
+        for (List<Transcript> transcripts : geneToTranscriptMap.values()) {
+            nTranscripts += transcripts.size();
+            for (Transcript transcript : transcripts) {
+                nExons += transcript.exons().size();
+            }
+        }
+        Map<String, Integer> contigIndex = new LinkedHashMap<>();
+        int[] geneAccession = new int[nGenes];
+        int[] geneTranscriptOffset = new int[nGenes + 1];
+        int[] geneSymbolOffset = new int[nGenes + 1];
+        int[] txAccession = new int[nTranscripts];
+        int[] txContig = new int[nTranscripts];
+        int[] txStart = new int[nTranscripts];
+        int[] txEnd = new int[nTranscripts];
+        int[] cdsStart = new int[nTranscripts];
+        int[] cdsEnd = new int[nTranscripts];
+        int[] txExonOffset = new int[nTranscripts + 1];
+        int[] hgvsOffset = new int[nTranscripts + 1];
+        int[] exonStart = new int[nExons];
+        int[] exonEnd = new int[nExons];
+        byte[] flags = new byte[nTranscripts];
+        ByteArrayOutputStream geneSymbols = new ByteArrayOutputStream();
+        ByteArrayOutputStream hgvsSymbols = new ByteArrayOutputStream();
+        int g = 0;
+        int t = 0;
+        int e = 0;
+        for (var entry : geneToTranscriptMap.entrySet()) {
+            GeneSymbolAccession gsa = entry.getKey();
+            geneAccession[g] = gsa.accession().getAccessionNumber();
+            geneTranscriptOffset[g] = t;
+            geneSymbolOffset[g] = geneSymbols.size();
+            geneSymbols.write(gsa.symbol().getBytes(StandardCharsets.UTF_8));
+            for (Transcript transcript : entry.getValue()) {
+                txAccession[t] = transcript.accessionId().getAccessionNumber();
+                txContig[t] = contigIndex.computeIfAbsent(transcript.contigName(), k -> contigIndex.size());
+                txStart[t] = transcript.startWithCoordinateSystem(zeroBased);
+                txEnd[t] = transcript.endWithCoordinateSystem(zeroBased);
+                byte flag = 0;
+                if (transcript.strand().isPositive()) flag |= TranscriptStore.POSITIVE_STRAND;
+                if (transcript.isCoding()) flag |= TranscriptStore.CODING;
+                Optional<GenomicRegion> cds = transcript.cdsRegion();
+                if (cds.isPresent()) {
+                    flag |= TranscriptStore.HAS_CDS;
+                    cdsStart[t] = cds.get().startWithCoordinateSystem(zeroBased);
+                    cdsEnd[t] = cds.get().endWithCoordinateSystem(zeroBased);
+                }
+                hgvsOffset[t] = hgvsSymbols.size();
+                if (transcript.hgvsSymbol() != null) {
+                    flag |= TranscriptStore.HAS_HGVS_SYMBOL;
+                    hgvsSymbols.write(transcript.hgvsSymbol().getBytes(StandardCharsets.UTF_8));
+                }
+                flags[t] = flag;
+                txExonOffset[t] = e;
+                for (GenomicRegion exon : transcript.exons()) {
+                    exonStart[e] = exon.startWithCoordinateSystem(zeroBased);
+                    exonEnd[e] = exon.endWithCoordinateSystem(zeroBased);
+                    e++;
+                }
+                t++;
+            }
+            g++;
+        }
+        geneTranscriptOffset[nGenes] = t;
+        geneSymbolOffset[nGenes] = geneSymbols.size();
+        txExonOffset[nTranscripts] = e;
+        hgvsOffset[nTranscripts] = hgvsSymbols.size();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(contigIndex.size());
+        for (String contig : contigIndex.keySet()) {
+            byte[] utf8 = contig.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(utf8.length);
+            out.write(utf8);
+        }
+        out.writeInt(nGenes);
+        out.writeInt(nTranscripts);
+        out.writeInt(nExons);
+        out.writeInt(geneSymbols.size());
+        out.writeInt(hgvsSymbols.size());
+        for (int[] column : List.of(geneAccession, geneTranscriptOffset, geneSymbolOffset,
+                txAccession, txContig, txStart, txEnd, cdsStart, cdsEnd, txExonOffset, hgvsOffset,
+                exonStart, exonEnd)) {
+            for (int value : column) {
+                out.writeInt(value);
+            }
+        }
+        out.write(flags);
+        geneSymbols.writeTo(out);
+        hgvsSymbols.writeTo(out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+}
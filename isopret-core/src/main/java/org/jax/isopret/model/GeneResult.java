@@ -4,7 +4,11 @@ import org.jax.isopret.data.AccessionNumber;
 
 import java.util.*;
 
-public interface GeneResult {
+/**
+ * RNA-seq results of a gene and its isoforms. Results are ordered by their smallest ('most significant') p-value
+ * for expression or splicing.
+ */
+public interface GeneResult extends Comparable<GeneResult> {
 
 
     AccessionNumber getGeneAccession();
@@ -24,9 +28,6 @@ public interface GeneResult {
 
     List<Double> getSplicingPlist() ;
 
-    void addExpressionResult(double fc, double p);
-    void addTranscriptResult(AccessionNumber isoform, double expFC, double P);
-
 
     Map<AccessionNumber, TranscriptResult> getTranscriptMap();
 
@@ -59,5 +60,13 @@ public interface GeneResult {
 
     Set<TranscriptResult> getTranscriptResults();
 
-
+    /**
+     * Sort according to the smallest ('most significant') p value for expression or splicing. The key is recomputed
+     * for every comparison; use {@code GeneResultRanking} to rank all results of an experiment.
+     */
+    @Override
+    default int compareTo(GeneResult that) {
+        return Double.compare(Math.min(getExpressionP(), getSmallestSplicingP()),
+                Math.min(that.getExpressionP(), that.getSmallestSplicingP()));
+    }
 }
@@ -0,0 +1,60 @@
+package org.jax.isopret.core.impl.go;
+
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.ontology.data.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GoDagTest {
+
+    private static final TermId ROOT = TermId.of("GO:0000001");
+    private static final TermId LEFT = TermId.of("GO:0000002");
+    private static final TermId RIGHT = TermId.of("GO:0000003");
+    private static final TermId LEAF = TermId.of("GO:0000004");
+    private static final TermId ALT_ID = TermId.of("GO:0000005");
+
+    /** A diamond: LEAF has the parents LEFT and RIGHT, which both have the parent ROOT. */
+    private static final Ontology ONTOLOGY = ImmutableOntology.builder()
+            .metaInfo(Map.of("data-version", "test"))
+            .terms(List.of(Term.builder(ROOT).name("root").build(),
+                    Term.builder(LEFT).name("left").build(),
+                    Term.builder(RIGHT).name("right").build(),
+                    Term.builder(LEAF).name("leaf").altTermIds(List.of(ALT_ID)).build()))
+            .relationships(List.of(new Relationship(LEFT, ROOT, 1, RelationshipType.IS_A),
+                    new Relationship(RIGHT, ROOT, 2, RelationshipType.IS_A),
+                    new Relationship(LEAF, LEFT, 3, RelationshipType.IS_A),
+                    new Relationship(LEAF, RIGHT, 4, RelationshipType.IS_A)))
+            .build();
+
+    private static int[] indices(GoDag dag, TermId... termIds) {
+        int[] indices = new int[termIds.length];
+        for (int i = 0; i < termIds.length; i++) {
+            indices[i] = dag.index(termIds[i]);
+        }
+        Arrays.sort(indices);
+        return indices;
+    }
+
+    @Test
+    public void testAncestorClosure() {
+        GoDag dag = GoDag.of(ONTOLOGY);
+        assertEquals(4, dag.size());
+        int leaf = dag.index(LEAF);
+        assertEquals(LEAF, dag.termId(leaf));
+        assertArrayEquals(indices(dag, LEFT, RIGHT), dag.parents(leaf));
+        assertArrayEquals(indices(dag, ROOT, LEFT, RIGHT), dag.ancestors(leaf));
+        assertArrayEquals(indices(dag, ROOT), dag.ancestors(dag.index(LEFT)));
+        assertEquals(0, dag.ancestors(dag.index(ROOT)).length);
+    }
+
+    @Test
+    public void testAltIdsAndUnknownTerms() {
+        GoDag dag = GoDag.of(ONTOLOGY);
+        assertEquals(dag.index(LEAF), dag.index(ALT_ID));
+        assertEquals(-1, dag.index(TermId.of("GO:9999999")));
+    }
+}
@@ -0,0 +1,451 @@
+package org.jax.isopret.core.impl.go;
+
+import org.jax.isopret.data.GoMethod;
+import org.jax.isopret.data.MtcMethod;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.analysis.StudySet;
+import org.monarchinitiative.phenol.analysis.stats.*;
+import org.monarchinitiative.phenol.analysis.stats.mtc.*;
+import org.monarchinitiative.phenol.ontology.data.*;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GoEnrichmentEngineTest {
+    private static final double EPSILON = 1e-12;
+
+    private static final TermId ROOT = TermId.of("GO:0000001");
+    private static final TermId LEFT = TermId.of("GO:0000002");
+    private static final TermId RIGHT = TermId.of("GO:0000003");
+    private static final TermId LEAF = TermId.of("GO:0000004");
+
+    private static final Ontology ONTOLOGY = ImmutableOntology.builder()
+            .metaInfo(Map.of("data-version", "test"))
+            .terms(List.of(Term.builder(ROOT).name("root").build(),
+                    Term.builder(LEFT).name("left").build(),
+                    Term.builder(RIGHT).name("right").build(),
+                    Term.builder(LEAF).name("leaf").build()))
+            .relationships(List.of(new Relationship(LEFT, ROOT, 1, RelationshipType.IS_A),
+                    new Relationship(RIGHT, ROOT, 2, RelationshipType.IS_A),
+                    new Relationship(LEAF, LEFT, 3, RelationshipType.IS_A),
+                    new Relationship(LEAF, RIGHT, 4, RelationshipType.IS_A)))
+            .build();
+
+    private static double exactUpperTail(int populationSize, int marked, int n, int x) {
+        BigInteger numerator = BigInteger.ZERO;
+        for (int i = x; i <= Math.min(n, marked); i++) {
+            numerator = numerator.add(choose(marked, i).multiply(choose(populationSize - marked, n - i)));
+        }
+        return numerator.doubleValue() / choose(populationSize, n).doubleValue();
+    }
+
+    private static BigInteger choose(int n, int k) {
+        if (k < 0 || k > n) return BigInteger.ZERO;
+        BigInteger c = BigInteger.ONE;
+        for (int i = 0; i < k; i++) {
+            c = c.multiply(BigInteger.valueOf(n - i)).divide(BigInteger.valueOf(i + 1));
+        }
+        return c;
+    }
+
+    @Test
+    public void testUpperTailMatchesExactValue() {
+        LogFactorialHypergeometric hypergeometric = new LogFactorialHypergeometric(200);
+        int[][] cases = {{200, 30, 40, 0}, {200, 30, 40, 6}, {200, 30, 40, 15}, {200, 30, 40, 30}, {200, 30, 40, 31},
+                {50, 49, 10, 10}, {50, 1, 1, 1}, {120, 60, 60, 45}};
+        for (int[] c : cases) {
+            double expected = exactUpperTail(c[0], c[1], c[2], c[3]);
+            assertEquals(expected, hypergeometric.upperTail(c[0], c[1], c[2], c[3]), expected * 1e-10 + 1e-300,
+                    Arrays.toString(c));
+        }
+    }
+
+    @Test
+    public void testAdjustLikeR() {
+        double[] p = {0.03, 0.01, 0.05, 0.02, 0.04};
+        // p.adjust(c(0.03, 0.01, 0.05, 0.02, 0.04), method=...)
+        assertArrayEquals(new double[]{0.15, 0.05, 0.25, 0.1, 0.2}, GoEnrichmentEngine.adjust(MtcMethod.BONFERRONI, p), EPSILON);
+        assertArrayEquals(new double[]{0.09, 0.05, 0.09, 0.08, 0.09}, GoEnrichmentEngine.adjust(MtcMethod.BONFERRONI_HOLM, p), EPSILON);
+        assertArrayEquals(new double[]{0.05, 0.05, 0.05, 0.05, 0.05}, GoEnrichmentEngine.adjust(MtcMethod.BENJAMINI_HOCHBERG, p), EPSILON);
+        double q = 1 + 1 / 2.0 + 1 / 3.0 + 1 / 4.0 + 1 / 5.0;
+        assertArrayEquals(new double[]{0.05 * q, 0.05 * q, 0.05 * q, 0.05 * q, 0.05 * q}, GoEnrichmentEngine.adjust(MtcMethod.BENJAMINI_YEKUTIELI, p), EPSILON);
+        assertArrayEquals(p, GoEnrichmentEngine.adjust(MtcMethod.NONE, p), 0.0);
+    }
+
+    private static Set<TermId> genes(int from, int to) {
+        Set<TermId> genes = new HashSet<>();
+        for (int g = from; g < to; g++) {
+            genes.add(TermId.of("ENSG:" + g));
+        }
+        return genes;
+    }
+
+    /**
+     * Twenty genes: 0-3 are annotated to LEAF, 4-9 to LEFT, 10-19 to RIGHT.
+     */
+    private static GoEnrichmentEngine engine() {
+        return engine(null);
+    }
+
+    private static GoEnrichmentEngine engine(GoPermutationPValues permutationTest) {
+        Map<TermId, IsopretAnnotations> annotations = new HashMap<>();
+        for (int g = 0; g < 20; g++) {
+            TermId gene = TermId.of("ENSG:" + g);
+            TermId goId = g < 4 ? LEAF : g < 10 ? LEFT : RIGHT;
+            annotations.put(gene, new IsopretAnnotations(gene, List.of(new IsopretTermAnnotation(gene, goId))));
+        }
+        return new GoEnrichmentEngine(new IsopretAssociationContainer(ONTOLOGY, annotations), permutationTest);
+    }
+
+    /**
+     * The study set is genes 0-5.
+     */
+    @Test
+    public void testTermCountsAndParentChildPValues() {
+        Set<TermId> population = genes(0, 20);
+        population.add(TermId.of("ENSG:unannotated"));
+        Set<TermId> study = genes(0, 6);
+        GoEnrichmentEngine engine = engine();
+        GoDag dag = GoDag.of(ONTOLOGY);
+        GoEnrichmentEngine.Counts counts = engine.counts(study, population);
+        assertEquals(6, counts.studySize());
+        assertEquals(20, counts.populationSize());
+        assertEquals(20, counts.population()[dag.index(ROOT)]);
+        assertEquals(10, counts.population()[dag.index(LEFT)]);
+        assertEquals(14, counts.population()[dag.index(RIGHT)]);
+        assertEquals(6, counts.study()[dag.index(LEFT)]);
+        assertEquals(4, counts.study()[dag.index(RIGHT)]);
+        assertEquals(4, counts.study()[dag.index(LEAF)]);
+
+        int[] tested = counts.testedTerms();
+        assertEquals(4, tested.length);
+        Map<TermId, Double> tft = pValues(dag, tested, engine.rawPValues(GoMethod.TFT, counts, tested));
+        Map<TermId, Double> union = pValues(dag, tested, engine.rawPValues(GoMethod.PCunion, counts, tested));
+        Map<TermId, Double> intersection = pValues(dag, tested, engine.rawPValues(GoMethod.PCintersect, counts, tested));
+        assertEquals(exactUpperTail(20, 4, 6, 4), tft.get(LEAF), EPSILON);
+        assertEquals(exactUpperTail(20, 10, 6, 6), tft.get(LEFT), EPSILON);
+        // the parents of LEAF annotate all 20 genes, and 4 genes together
+        assertEquals(exactUpperTail(20, 4, 6, 4), union.get(LEAF), EPSILON);
+        assertEquals(exactUpperTail(4, 4, 4, 4), intersection.get(LEAF), EPSILON);
+        // root terms are compared to the population
+        assertEquals(1.0, union.get(ROOT), EPSILON);
+        assertEquals(exactUpperTail(20, 10, 6, 6), intersection.get(LEFT), EPSILON);
+
+        // only LEAF and LEFT have a p-value below 0.05
+        assertEquals(2, engine.calculatePVals(GoMethod.TFT, MtcMethod.NONE, study, population, 0.05).size());
+    }
+
+    private static Map<TermId, Double> pValues(GoDag dag, int[] tested, double[] p) {
+        Map<TermId, Double> map = new HashMap<>();
+        for (int j = 0; j < tested.length; j++) {
+            map.put(dag.termId(tested[j]), p[j]);
+        }
+        return map;
+    }
+
+    private static MultipleTestingCorrection phenolMtc(MtcMethod mtcMethod) {
+        return switch (mtcMethod) {
+            case BONFERRONI -> new Bonferroni();
+            case BONFERRONI_HOLM -> new BonferroniHolm();
+            case BENJAMINI_HOCHBERG -> new BenjaminiHochberg();
+            case BENJAMINI_YEKUTIELI -> new BenjaminiYekutieli();
+            case SIDAK -> new Sidak();
+            case NONE -> new NoMultipleTestingCorrection();
+        };
+    }
+
+    private static List<GoTerm2PValAndCounts> phenolPVals(GoMethod goMethod,
+                                                          MtcMethod mtcMethod,
+                                                          StudySet study,
+                                                          StudySet population) {
+        MultipleTestingCorrection mtc = phenolMtc(mtcMethod);
+        return switch (goMethod) {
+            case TFT -> new TermForTermPValueCalculation(ONTOLOGY, population, study, mtc).calculatePVals();
+            case PCunion -> new ParentChildUnionPValueCalculation(ONTOLOGY, population, study, mtc).calculatePVals();
+            case PCintersect -> new ParentChildIntersectionPValueCalculation(ONTOLOGY, population, study, mtc)
+                    .calculatePVals();
+            default -> throw new IllegalArgumentException("Not available in phenol: " + goMethod);
+        };
+    }
+
+    /**
+     * The engine reports the same terms, counts and raw and adjusted p-values as phenol's calculations on the same
+     * association container.
+     */
+    @Test
+    public void testMatchesPhenol() {
+        GoEnrichmentEngine engine = engine();
+        IsopretAssociationContainer container = engine.container();
+        Set<TermId> population = genes(0, 20);
+        for (Set<TermId> study : List.of(genes(0, 6), genes(2, 12), genes(8, 20))) {
+            StudySet studySet = new StudySet("study", container.getAssociationMap(study));
+            StudySet populationSet = new StudySet("population", container.getAssociationMap(population));
+            for (GoMethod goMethod : List.of(GoMethod.TFT, GoMethod.PCunion, GoMethod.PCintersect)) {
+                for (MtcMethod mtcMethod : MtcMethod.values()) {
+                    String name = goMethod + "/" + mtcMethod + " " + study.size();
+                    Map<TermId, GoTerm2PValAndCounts> expected = new HashMap<>();
+                    for (GoTerm2PValAndCounts result : phenolPVals(goMethod, mtcMethod, studySet, populationSet)) {
+                        expected.put(result.getItem(), result);
+                    }
+                    Map<TermId, GoTerm2PValAndCounts> actual = new HashMap<>();
+                    for (GoTerm2PValAndCounts result : engine.calculatePVals(goMethod, mtcMethod, study, population,
+                            Double.POSITIVE_INFINITY)) {
+                        actual.put(result.getItem(), result);
+                    }
+                    assertEquals(expected.keySet(), actual.keySet(), name);
+                    for (TermId goId : expected.keySet()) {
+                        assertSameResult(expected.get(goId), actual.get(goId), name + " " + goId.getValue());
+                    }
+                }
+            }
+        }
+    }
+
+    private static void assertSameResult(GoTerm2PValAndCounts expected, GoTerm2PValAndCounts actual, String name) {
+        assertEquals(expected.getAnnotatedStudyGenes(), actual.getAnnotatedStudyGenes(), name);
+        assertEquals(expected.getTotalStudyGenes(), actual.getTotalStudyGenes(), name);
+        assertEquals(expected.getAnnotatedPopulationGenes(), actual.getAnnotatedPopulationGenes(), name);
+        assertEquals(expected.getTotalPopulationGenes(), actual.getTotalPopulationGenes(), name);
+        assertEquals(expected.getRawPValue(), actual.getRawPValue(), EPSILON, name);
+        assertEquals(expected.getAdjustedPValue(), actual.getAdjustedPValue(), EPSILON, name);
+    }
+
+    @Test
+    public void testSweepMatchesSingleAnalyses() {
+        GoEnrichmentEngine engine = engine();
+        Set<TermId> population = genes(0, 20);
+        Set<TermId> study = genes(0, 6);
+        for (double reportThreshold : new double[]{0.05, Double.POSITIVE_INFINITY}) {
+            var sweep = engine.sweep(List.of(GoMethod.values()), List.of(MtcMethod.values()), study, population,
+                    reportThreshold);
+            for (GoMethod goMethod : GoMethod.values()) {
+                for (MtcMethod mtcMethod : MtcMethod.values()) {
+                    assertSameResults(engine.calculatePVals(goMethod, mtcMethod, study, population, reportThreshold),
+                            sweep.get(goMethod).get(mtcMethod), goMethod + "/" + mtcMethod);
+                }
+            }
+        }
+    }
+
+    /**
+     * Assert that both lists have results for the same terms, with the same counts and p-values.
+     */
+    private static void assertSameResults(List<GoTerm2PValAndCounts> expected,
+                                          List<GoTerm2PValAndCounts> actual,
+                                          String name) {
+        Map<TermId, GoTerm2PValAndCounts> expectedByTerm = new HashMap<>();
+        expected.forEach(result -> expectedByTerm.put(result.getItem(), result));
+        Map<TermId, GoTerm2PValAndCounts> actualByTerm = new HashMap<>();
+        actual.forEach(result -> actualByTerm.put(result.getItem(), result));
+        assertEquals(expected.size(), actual.size(), name);
+        assertEquals(expectedByTerm.keySet(), actualByTerm.keySet(), name);
+        for (TermId goId : expectedByTerm.keySet()) {
+            assertSameResult(expectedByTerm.get(goId), actualByTerm.get(goId), name + " " + goId.getValue());
+        }
+    }
+
+    @Test
+    public void testSweepOfItemSetsMatchesSweepOfIds() {
+        GoEnrichmentEngine engine = engine();
+        IsopretAssociationContainer container = engine.container();
+        long[] study = new long[(container.itemCount() + 63) >>> 6];
+        long[] population = new long[study.length];
+        for (int g = 0; g < 20; g++) {
+            int i = container.itemIndex(TermId.of("ENSG:" + g));
+            population[i >>> 6] |= 1L << i;
+            if (g < 6) study[i >>> 6] |= 1L << i;
+        }
+        List<GoMethod> goMethods = List.of(GoMethod.TFT, GoMethod.PCunion);
+        List<MtcMethod> mtcMethods = List.of(MtcMethod.NONE, MtcMethod.BONFERRONI, MtcMethod.BENJAMINI_HOCHBERG);
+        for (double reportThreshold : new double[]{0.05, Double.POSITIVE_INFINITY}) {
+            var bySet = engine.sweep(goMethods, mtcMethods, study, population, reportThreshold);
+            var byId = engine.sweep(goMethods, mtcMethods, genes(0, 6), genes(0, 20), reportThreshold);
+            for (GoMethod goMethod : goMethods) {
+                for (MtcMethod mtcMethod : mtcMethods) {
+                    assertSameResults(byId.get(goMethod).get(mtcMethod), bySet.get(goMethod).get(mtcMethod),
+                            goMethod + "/" + mtcMethod + " report " + reportThreshold);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gene g has the score g/20, so the study set for threshold x consists of the genes with g &le; 20x.
+     */
+    @Test
+    public void testThresholdSweepMatchesSingleAnalyses() {
+        GoEnrichmentEngine engine = engine();
+        Set<TermId> population = genes(0, 20);
+        Map<TermId, Double> scores = new HashMap<>();
+        for (int g = 0; g < 20; g++) {
+            scores.put(TermId.of("ENSG:" + g), g / 20.0);
+        }
+        double[] thresholds = {0.5, 0.0, 0.2, 0.3};
+        for (double reportThreshold : new double[]{0.05, Double.POSITIVE_INFINITY}) {
+            var sweep = engine.thresholdSweep(GoMethod.PCunion, MtcMethod.BENJAMINI_HOCHBERG, scores, thresholds,
+                    population, reportThreshold);
+            assertEquals(thresholds.length, sweep.size());
+            for (int j = 0; j < thresholds.length; j++) {
+                Set<TermId> study = genes(0, (int) Math.round(20 * thresholds[j]) + 1);
+                assertSameResults(engine.calculatePVals(GoMethod.PCunion, MtcMethod.BENJAMINI_HOCHBERG, study,
+                        population, reportThreshold), sweep.get(j), "threshold " + thresholds[j]);
+            }
+        }
+    }
+
+    /**
+     * The analysis runs as a task of a single-threaded executor and submits its own tasks to the same executor, as
+     * the GO analysis runner does with {@code --threads 1}; the calling thread does all the work.
+     */
+    @Test
+    public void testEngineOnBusySingleThreadExecutor() {
+        IsopretAssociationContainer container = engine().container();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            GoEnrichmentEngine engine = new GoEnrichmentEngine(container,
+                    new GoPermutationPValues(1000, 42L, 10, null), TermPruning.none(), executor);
+            var results = CompletableFuture.supplyAsync(() -> engine.calculatePVals(GoMethod.PCunion,
+                    MtcMethod.NONE, genes(0, 6), genes(0, 20), 1.0), executor).join();
+            assertEquals(4, results.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * With 20000 permutations, the empirical p-value of LEAF is close to the hypergeometric one, and the root, which
+     * annotates every gene, is stopped early with p-value 1.
+     */
+    @Test
+    public void testPermutationPValues() {
+        GoEnrichmentEngine engine = engine(new GoPermutationPValues(20000, 42L, 10, null));
+        GoDag dag = GoDag.of(ONTOLOGY);
+        GoEnrichmentEngine.Counts counts = engine.counts(genes(0, 6), genes(0, 20));
+        int[] tested = counts.testedTerms();
+        Map<TermId, Double> tft = pValues(dag, tested, engine.rawPValues(GoMethod.TFT, counts, tested));
+        assertEquals(exactUpperTail(20, 4, 6, 4), tft.get(LEAF), 0.002);
+        assertEquals(1.0, tft.get(ROOT), EPSILON);
+        assertEquals(tft, pValues(dag, tested, engine.rawPValues(GoMethod.TFT, counts, tested)));
+        Map<TermId, Double> union = pValues(dag, tested, engine.rawPValues(GoMethod.PCunion, counts, tested));
+        assertEquals(exactUpperTail(20, 4, 6, 4), union.get(LEAF), 0.002);
+    }
+
+    /**
+     * If every gene is a stratum of its own, every permutation reproduces the observed study set.
+     */
+    @Test
+    public void testStratifiedPermutationKeepsStudySet() {
+        Map<TermId, TermId> strata = new HashMap<>();
+        for (TermId gene : genes(0, 20)) {
+            strata.put(gene, gene);
+        }
+        GoEnrichmentEngine engine = engine(new GoPermutationPValues(1000, 42L, 10, strata));
+        GoEnrichmentEngine.Counts counts = engine.counts(genes(0, 6), genes(0, 20));
+        int[] tested = counts.testedTerms();
+        for (double p : engine.rawPValues(GoMethod.TFT, counts, tested)) {
+            assertEquals(1.0, p, EPSILON);
+        }
+    }
+
+    /**
+     * LEAF (genes 0-3) is significant, so elim removes its genes from LEFT, RIGHT and ROOT, and weight down-weights
+     * them in LEFT.
+     */
+    @Test
+    public void testElimAndWeight() {
+        GoEnrichmentEngine engine = engine();
+        GoDag dag = GoDag.of(ONTOLOGY);
+        GoEnrichmentEngine.Counts counts = engine.counts(genes(0, 6), genes(0, 20));
+        int[] tested = counts.testedTerms();
+        int[] bottomUp = dag.bottomUp(tested);
+        assertEquals(dag.index(LEAF), bottomUp[0]);
+        assertEquals(dag.index(ROOT), bottomUp[3]);
+        Map<TermId, Double> elim = pValues(dag, tested, engine.rawPValues(GoMethod.ELIM, counts, tested));
+        assertEquals(exactUpperTail(20, 4, 6, 4), elim.get(LEAF), EPSILON);
+        assertEquals(exactUpperTail(20, 6, 6, 2), elim.get(LEFT), EPSILON);
+        assertEquals(1.0, elim.get(RIGHT), EPSILON);
+        Map<TermId, Double> tft = pValues(dag, tested, engine.rawPValues(GoMethod.TFT, counts, tested));
+        Map<TermId, Double> weight = pValues(dag, tested, engine.rawPValues(GoMethod.WEIGHT, counts, tested));
+        assertEquals(tft.get(LEAF), weight.get(LEAF), EPSILON);
+        // the weight of genes 0-3 in LEFT is p(LEAF)/p(LEFT) = 0.57, so LEFT has 4 (of 6) study and 8 (of 10) population genes
+        assertEquals(exactUpperTail(20, 8, 6, 4), weight.get(LEFT), EPSILON);
+    }
+
+    /**
+     * The study set consists of exactly the genes annotated to LEFT (0-9), so MGSA should explain it by LEFT alone.
+     */
+    @Test
+    public void testMgsaFindsLeft() {
+        GoEnrichmentEngine engine = engine();
+        GoDag dag = GoDag.of(ONTOLOGY);
+        GoEnrichmentEngine.Counts counts = engine.counts(genes(0, 10), genes(0, 20));
+        int[] tested = counts.testedTerms();
+        MgsaSampler sampler = new MgsaSampler(engine.container(), counts, 4, 20000, 1L, Runnable::run);
+        Map<TermId, Double> posterior = pValues(dag, tested, sampler.posteriors(tested));
+        assertTrue(posterior.get(LEFT) > 0.5);
+        assertTrue(posterior.get(RIGHT) < 0.5);
+        assertTrue(posterior.get(ROOT) < 0.5);
+        assertEquals(4, sampler.diagnostics().chains());
+        assertTrue(sampler.diagnostics().maxRhat() >= 1.0);
+        // the same seed gives the same chains
+        MgsaSampler again = new MgsaSampler(engine.container(), counts, 4, 20000, 1L, Runnable::run);
+        assertArrayEquals(sampler.posteriors(tested), again.posteriors(tested), 0.0);
+    }
+
+    @Test
+    public void testEngineExposesMgsaDiagnostics() {
+        GoEnrichmentEngine engine = new GoEnrichmentEngine(engine().container(), null, TermPruning.none(),
+                Runnable::run, 7L);
+        assertNull(engine.mgsaDiagnostics());
+        engine.calculatePVals(GoMethod.MGSA, MtcMethod.NONE, genes(0, 10), genes(0, 20), 1.0);
+        assertEquals(MgsaSampler.DEFAULT_CHAINS, engine.mgsaDiagnostics().chains());
+        assertEquals(MgsaSampler.DEFAULT_STEPS, engine.mgsaDiagnostics().steps());
+    }
+
+    /**
+     * With 6 study genes, the minimum achievable p-values are 0.003 (LEAF), 0.005 (LEFT), 0.077 (RIGHT) and 1 (ROOT),
+     * so Tarone's procedure stops at k = 2 and only LEAF and LEFT are tested.
+     */
+    @Test
+    public void testTermPruning() {
+        GoDag dag = GoDag.of(ONTOLOGY);
+        GoEnrichmentEngine.Counts counts = engine().counts(genes(0, 6), genes(0, 20));
+        int[] tested = counts.testedTerms();
+        TermPruning tarone = new TermPruning(1, Integer.MAX_VALUE, true, 0.05);
+        TermPruning.Pruned pruned = tarone.prune(GoMethod.TFT, counts, tested);
+        assertEquals(Set.of(LEAF, LEFT), pValues(dag, pruned.terms(), new double[2]).keySet());
+        assertEquals(2, pruned.correctionFactor());
+        assertEquals(4, tarone.prune(GoMethod.PCunion, counts, tested).terms().length);
+        TermPruning size = new TermPruning(5, 15, false, 0.05);
+        assertEquals(Set.of(LEFT, RIGHT), pValues(dag, size.prune(GoMethod.TFT, counts, tested).terms(),
+                new double[2]).keySet());
+    }
+
+    /**
+     * With the 4 study genes of LEAF, the minimum achievable p-values are 0.0002 (LEAF), 0.043 (LEFT), 0.21 (RIGHT)
+     * and 1 (ROOT). Two terms are below 0.05, but only LEAF is below 0.05/2, so Tarone's procedure stops at k = 2 with
+     * one testable term, and the p-value of LEAF is corrected for 2 hypotheses.
+     */
+    @Test
+    public void testTaroneCorrectionFactorExceedsTestedTerms() {
+        GoEnrichmentEngine.Counts counts = engine().counts(genes(0, 4), genes(0, 20));
+        TermPruning tarone = new TermPruning(1, Integer.MAX_VALUE, true, 0.05);
+        TermPruning.Pruned pruned = tarone.prune(GoMethod.TFT, counts, counts.testedTerms());
+        assertEquals(1, pruned.terms().length);
+        assertEquals(2, pruned.correctionFactor());
+        GoEnrichmentEngine engine = new GoEnrichmentEngine(engine().container(), null, tarone);
+        double raw = exactUpperTail(20, 4, 4, 4);
+        var bonferroni = engine.calculatePVals(GoMethod.TFT, MtcMethod.BONFERRONI, genes(0, 4), genes(0, 20), 1.0);
+        assertEquals(1, bonferroni.size());
+        assertEquals(LEAF, bonferroni.get(0).getItem());
+        assertEquals(raw, bonferroni.get(0).getRawPValue(), EPSILON);
+        assertEquals(2 * raw, bonferroni.get(0).getAdjustedPValue(), EPSILON);
+        var sidak = engine.calculatePVals(GoMethod.TFT, MtcMethod.SIDAK, genes(0, 4), genes(0, 20), 1.0);
+        assertEquals(1.0 - Math.pow(1.0 - raw, 2), sidak.get(0).getAdjustedPValue(), EPSILON);
+    }
+}
@@ -0,0 +1,126 @@
+package org.jax.isopret.core.impl.go;
+
+import org.jax.isopret.data.AccessionNumber;
+import org.jax.isopret.data.EnsemblIdRegistry;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.ontology.data.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IsopretAssociationContainerTest {
+
+    private static final TermId ROOT = TermId.of("GO:0000001");
+    private static final TermId LEFT = TermId.of("GO:0000002");
+    private static final TermId RIGHT = TermId.of("GO:0000003");
+    private static final TermId LEAF = TermId.of("GO:0000004");
+
+    private static final TermId GENE1 = TermId.of("ENSG:000001");
+    private static final TermId GENE2 = TermId.of("ENSG:000002");
+    private static final TermId GENE3 = TermId.of("ENSG:000003");
+
+    private static final Ontology ONTOLOGY = ImmutableOntology.builder()
+            .metaInfo(Map.of("data-version", "test"))
+            .terms(List.of(Term.builder(ROOT).name("root").build(),
+                    Term.builder(LEFT).name("left").build(),
+                    Term.builder(RIGHT).name("right").build(),
+                    Term.builder(LEAF).name("leaf").build()))
+            .relationships(List.of(new Relationship(LEFT, ROOT, 1, RelationshipType.IS_A),
+                    new Relationship(RIGHT, ROOT, 2, RelationshipType.IS_A),
+                    new Relationship(LEAF, LEFT, 3, RelationshipType.IS_A),
+                    new Relationship(LEAF, RIGHT, 4, RelationshipType.IS_A)))
+            .build();
+
+    private static IsopretAnnotations annotations(TermId item, TermId... goIds) {
+        List<TermAnnotation> termAnnotations = Arrays.stream(goIds)
+                .<TermAnnotation>map(goId -> new IsopretTermAnnotation(item, goId))
+                .toList();
+        return new IsopretAnnotations(item, termAnnotations);
+    }
+
+    private static final IsopretAssociationContainer CONTAINER = new IsopretAssociationContainer(ONTOLOGY,
+            Map.of(GENE1, annotations(GENE1, LEAF),
+                    GENE2, annotations(GENE2, LEFT, TermId.of("GO:9999999")),
+                    GENE3, annotations(GENE3, RIGHT, ROOT)));
+
+    @Test
+    public void testDomainItemsAnnotatedByGoTermIncludeDescendents() {
+        assertEquals(Set.of(GENE1, GENE2, GENE3), CONTAINER.getDomainItemsAnnotatedByGoTerm(ROOT));
+        assertEquals(Set.of(GENE1, GENE2), CONTAINER.getDomainItemsAnnotatedByGoTerm(LEFT));
+        assertEquals(Set.of(GENE1, GENE3), CONTAINER.getDomainItemsAnnotatedByGoTerm(RIGHT));
+        assertEquals(Set.of(GENE1), CONTAINER.getDomainItemsAnnotatedByGoTerm(LEAF));
+        assertEquals(Set.of(), CONTAINER.getDomainItemsAnnotatedByGoTerm(TermId.of("GO:9999999")));
+        int[] leftItems = CONTAINER.getDomainItemIndicesAnnotatedByGoTerm(LEFT);
+        assertEquals(2, leftItems.length);
+        assertTrue(leftItems[0] < leftItems[1]);
+    }
+
+    @Test
+    public void testDomainItemsAnnotatedByOntologyTermAreDirect() {
+        assertEquals(Set.of(GENE3), CONTAINER.getDomainItemsAnnotatedByOntologyTerm(ROOT));
+        assertEquals(Set.of(GENE2), CONTAINER.getDomainItemsAnnotatedByOntologyTerm(LEFT));
+        assertEquals(Set.of(GENE1), CONTAINER.getDomainItemsAnnotatedByOntologyTerm(LEAF));
+    }
+
+    /**
+     * Ids that are not terms of the ontology are not in the inverted index and are still looked up with
+     * {@link IsopretAnnotations#containsAnnotation}.
+     */
+    @Test
+    public void testDomainItemsAnnotatedByIdOutsideOntology() {
+        assertEquals(Set.of(), CONTAINER.getDomainItemsAnnotatedByOntologyTerm(TermId.of("GO:9999999")));
+        assertEquals(Set.of(GENE2), CONTAINER.getDomainItemsAnnotatedByOntologyTerm(GENE2));
+    }
+
+    @Test
+    public void testItemIndexOfAccessionAndItemSet() {
+        int i1 = CONTAINER.itemIndex(AccessionNumber.ensgFromInt(1));
+        int i3 = CONTAINER.itemIndex(AccessionNumber.ensgFromInt(3));
+        assertEquals(CONTAINER.itemIndex(GENE1), i1);
+        assertEquals(CONTAINER.itemIndex(GENE3), i3);
+        assertEquals(-1, CONTAINER.itemIndex(AccessionNumber.ensgFromInt(4)));
+        assertEquals(-1, CONTAINER.itemIndex(AccessionNumber.enstFromInt(1)));
+        long[] itemSet = new long[(CONTAINER.itemCount() + 63) >>> 6];
+        itemSet[i1 >>> 6] |= 1L << i1;
+        itemSet[i3 >>> 6] |= 1L << i3;
+        assertEquals(CONTAINER.getAssociationMap(Set.of(GENE1, GENE3)).keySet(),
+                CONTAINER.getAssociationMap(itemSet).keySet());
+    }
+
+    /**
+     * Registered items are found by their registry index and use the shared TermIds of the registry; other items
+     * are still found by their ids, in any zero-padding.
+     */
+    @Test
+    public void testItemIndexOfRegisteredItems() {
+        EnsemblIdRegistry registry = EnsemblIdRegistry.builder()
+                .addGene(AccessionNumber.ensgFromInt(1))
+                .addGene(AccessionNumber.ensgFromInt(3))
+                .addGene(AccessionNumber.ensgFromInt(5))
+                .build();
+        TermId gene1 = AccessionNumber.ensgFromInt(1).toTermId();
+        TermId gene3 = AccessionNumber.ensgFromInt(3).toTermId();
+        IsopretAssociationContainer container = new IsopretAssociationContainer(ONTOLOGY, GoDag.of(ONTOLOGY), registry,
+                Map.of(gene1, annotations(gene1, LEAF),
+                        GENE2, annotations(GENE2, LEFT),
+                        gene3, annotations(gene3, RIGHT, ROOT)));
+        for (int g = 1; g <= 3; g++) {
+            AccessionNumber accession = AccessionNumber.ensgFromInt(g);
+            int i = container.itemIndex(accession);
+            assertTrue(i >= 0);
+            assertEquals(i, container.itemIndex(accession.toTermId()));
+        }
+        assertEquals(container.itemIndex(AccessionNumber.ensgFromInt(2)), container.itemIndex(GENE2));
+        assertEquals(GENE2, container.item(container.itemIndex(GENE2)));
+        assertSame(registry.geneTermId(registry.index(AccessionNumber.ensgFromInt(3))),
+                container.item(container.itemIndex(AccessionNumber.ensgFromInt(3))));
+        assertEquals(-1, container.itemIndex(AccessionNumber.ensgFromInt(5)));
+        assertEquals(-1, container.itemIndex(AccessionNumber.enstFromInt(1)));
+        assertEquals(-1, container.itemIndex(TermId.of("ENST:000001")));
+        assertEquals(Set.of(gene1, GENE2), container.getDomainItemsAnnotatedByGoTerm(LEFT));
+    }
+}
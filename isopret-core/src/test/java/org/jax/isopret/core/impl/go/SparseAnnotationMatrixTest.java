@@ -0,0 +1,55 @@
+package org.jax.isopret.core.impl.go;
+
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SparseAnnotationMatrixTest {
+
+    private static final TermId GO1 = TermId.of("GO:0000001");
+    private static final TermId GO2 = TermId.of("GO:0000002");
+    private static final TermId GO3 = TermId.of("GO:0000003");
+    private static final TermId TX1 = TermId.of("ENST:00000000001");
+    private static final TermId TX2 = TermId.of("ENST:00000000002");
+    private static final TermId TX3 = TermId.of("ENST:00000000003");
+    private static final TermId GENE = TermId.of("ENSG:00000000001");
+
+    @Test
+    public void testMergeAndMapView() {
+        SparseAnnotationMatrix mf = SparseAnnotationMatrix.builder().add(TX1, GO1).add(TX1, GO1).add(TX2, GO2).build();
+        SparseAnnotationMatrix bp = SparseAnnotationMatrix.builder().add(TX1, GO3).add(TX3, GO2).build();
+        SparseAnnotationMatrix merged = SparseAnnotationMatrix.merge(List.of(mf, bp));
+        assertEquals(3, merged.itemCount());
+        assertEquals(4, merged.annotationCount());
+        Map<TermId, Set<TermId>> expected = Map.of(TX1, Set.of(GO1, GO3), TX2, Set.of(GO2), TX3, Set.of(GO2));
+        assertEquals(expected, merged.asMap());
+        assertTrue(merged.asMap().get(TX1).contains(GO3));
+        assertFalse(merged.asMap().get(TX2).contains(GO1));
+        assertNull(merged.asMap().get(GENE));
+    }
+
+    @Test
+    public void testGroupRows() {
+        SparseAnnotationMatrix transcripts = SparseAnnotationMatrix.builder()
+                .add(TX1, GO1).add(TX2, GO1).add(TX2, GO2).add(TX3, GO3).build();
+        SparseAnnotationMatrix genes = transcripts.groupRows(tx -> tx.equals(TX3) ? null : GENE);
+        assertEquals(Map.of(GENE, Set.of(GO1, GO2)), genes.asMap());
+    }
+
+    @Test
+    public void testBinaryRoundTrip() throws IOException {
+        Map<TermId, Set<TermId>> annotations = Map.of(TX1, Set.of(GO1, GO2), TX2, Set.of(GO3));
+        byte[] bytes = SparseAnnotationMatrix.of(annotations).toByteArray();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        SparseAnnotationMatrix decoded = SparseAnnotationMatrix.read(buffer);
+        assertFalse(buffer.hasRemaining());
+        assertEquals(annotations, decoded.asMap());
+    }
+}
@@ -0,0 +1,61 @@
+package org.jax.isopret.core.impl.hgnc;
+
+import org.jax.isopret.data.AccessionNumber;
+import org.jax.isopret.data.Transcript;
+import org.jax.isopret.model.GeneModel;
+import org.jax.isopret.model.GeneSymbolAccession;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HgncIndexTest {
+
+    private static final Path HGNC_PATH = Paths.get("src/test/resources/hgnc/hgnc_complete_set_excerpt.txt");
+
+    private static final AccessionNumber ADAR = AccessionNumber.ensemblGene("ENSG00000160710");
+    private static final AccessionNumber FBN1 = AccessionNumber.ensemblGene("ENSG00000166147");
+
+    /** Only ADAR has a matching symbol; FBN1 is used with a different symbol and must not be found. */
+    private static final Map<GeneSymbolAccession, List<Transcript>> TRANSCRIPTS = Map.of(
+            new GeneSymbolAccession("ADAR", ADAR), List.of(),
+            new GeneSymbolAccession("NOT-FBN1", FBN1), List.of());
+
+    @Test
+    public void testReadRecords() {
+        List<HgncParser.HgncRecord> records = HgncParser.readRecords(HGNC_PATH);
+        assertEquals(6, records.size());
+        HgncParser.HgncRecord adar = records.get(5);
+        assertEquals(new HgncParser.HgncRecord("ADAR", "adenosine deaminase RNA specific", "103", 160710, "NM_001111"), adar);
+    }
+
+    @Test
+    public void testEncodeDecode() throws IOException {
+        List<HgncParser.HgncRecord> records = HgncParser.readRecords(HGNC_PATH);
+        ByteBuffer buffer = ByteBuffer.wrap(HgncIndex.encode(records));
+        assertEquals(records, HgncIndex.decode(buffer));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void testLoadWritesAndReadsIndex() throws IOException {
+        Path dir = Files.createTempDirectory("hgnc");
+        Path hgncFile = Files.copy(HGNC_PATH, dir.resolve("hgnc_complete_set.txt"));
+        Path indexFile = dir.resolve("hgnc_complete_set.index");
+        Map<AccessionNumber, GeneModel> expected = new HgncParser(hgncFile.toFile(), TRANSCRIPTS).ensemblMap();
+        assertEquals(Map.of(ADAR, expected.get(ADAR)), expected);
+        assertEquals(expected, HgncIndex.load(hgncFile, indexFile, TRANSCRIPTS));
+        assertTrue(Files.isRegularFile(indexFile));
+        assertEquals(expected, HgncIndex.load(hgncFile, indexFile, TRANSCRIPTS));
+        Files.delete(indexFile);
+        Files.delete(hgncFile);
+        Files.delete(dir);
+    }
+}
@@ -0,0 +1,73 @@
+package org.jax.isopret.core.impl.interpro;
+
+import org.jax.isopret.data.AccessionNumber;
+import org.jax.isopret.data.InterproAnnotation;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InterproAnnotationStoreTest {
+
+    private static final Path INTERPRO_ADAR_PATH = Paths.get("src/test/resources/interpro/ADAR_interpro.txt");
+
+    /**
+     * @return the annotations of the file in the way they used to be parsed, as lists of objects per gene
+     */
+    private static Map<AccessionNumber, List<InterproAnnotation>> annotationsFromLines() throws IOException {
+        List<String> lines = Files.readAllLines(INTERPRO_ADAR_PATH);
+        Map<AccessionNumber, List<InterproAnnotation>> annotations = new HashMap<>();
+        for (String line : lines.subList(1, lines.size())) {
+            InterproAnnotation.fromLine(line).ifPresent(a ->
+                    annotations.computeIfAbsent(a.getEnsg(), k -> new ArrayList<>()).add(a));
+        }
+        return annotations;
+    }
+
+    @Test
+    public void testParsedStoreEqualsAnnotationLists() throws IOException {
+        InterproAnnotationStore store = InterproDomainParser.getInterproAnnotationStore(INTERPRO_ADAR_PATH.toFile());
+        assertEquals(annotationsFromLines(), store.asMap());
+    }
+
+    @Test
+    public void testGeneAndTranscriptRanges() {
+        InterproAnnotationStore store = InterproAnnotationStore.builder()
+                .add(11, 2, 100, 1, 50)
+                .add(21, 1, 200, 5, 10)
+                .add(12, 2, 300, 7, 70)
+                .add(11, 2, 400, 60, 90)
+                .build();
+        assertEquals(4, store.size());
+        assertEquals(2, store.geneCount());
+        int g = store.geneIndex(2);
+        List<Integer> interpro = new ArrayList<>();
+        for (int row = store.geneFirstRow(g); row < store.geneEndRow(g); row++) {
+            interpro.add(store.interpro(row));
+        }
+        assertEquals(List.of(100, 300, 400), interpro); // order of the input within a gene
+        int t = store.transcriptIndex(11);
+        List<Integer> starts = new ArrayList<>();
+        for (int i = store.transcriptFirst(t); i < store.transcriptEnd(t); i++) {
+            starts.add(store.start(store.transcriptRow(i)));
+        }
+        assertEquals(List.of(1, 60), starts);
+        assertEquals(-1, store.geneIndex(3));
+        assertEquals(-1, store.transcriptIndex(13));
+    }
+
+    @Test
+    public void testBinaryRoundTrip() throws IOException {
+        Map<AccessionNumber, List<InterproAnnotation>> annotations = annotationsFromLines();
+        ByteBuffer buffer = ByteBuffer.wrap(InterproAnnotationStore.of(annotations).toByteArray());
+        InterproAnnotationStore decoded = InterproAnnotationStore.read(buffer);
+        assertFalse(buffer.hasRemaining());
+        assertEquals(annotations, decoded.asMap());
+    }
+}
@@ -0,0 +1,67 @@
+package org.jax.isopret.core.impl.rnaseqdata;
+
+import org.jax.isopret.data.AccessionNumber;
+import org.jax.isopret.model.GeneModel;
+import org.jax.isopret.model.GeneResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GeneResultRankingTest {
+
+    private static GeneResultImpl gene(int ensg, double log2fc, double p, double... isoformPs) {
+        AccessionNumber accession = AccessionNumber.ensgFromInt(ensg);
+        GeneModel model = new GeneModel("G" + ensg, "gene " + ensg, "", accession, "", List.of());
+        GeneResultImpl result = new GeneResultImpl(accession, model);
+        result.addExpressionResult(log2fc, p);
+        for (int k = 0; k < isoformPs.length; k++) {
+            result.addTranscriptResult(AccessionNumber.enstFromInt(100 * ensg + k), 1.0, isoformPs[k]);
+        }
+        return result;
+    }
+
+    private static List<Integer> ids(List<GeneResult> results) {
+        return results.stream().map(GeneResult::getEnsgId).toList();
+    }
+
+    private static final List<GeneResultImpl> GENES = List.of(
+            gene(1, 0.5, 0.3, 0.02),
+            gene(2, -2.0, 0.01),
+            gene(3, 1.0, 0.5, 0.6, 0.001),
+            gene(4, 0.1, 0.01, 0.9),
+            gene(5, -0.2, 0.8));
+
+    /**
+     * The ranking must be the same as sorting {@link GeneResultImpl} objects, with ties ranked by accession number.
+     */
+    @Test
+    public void testMinPMatchesComparable() {
+        GeneResultRanking ranking = GeneResultRanking.of(GeneResultStore.of(GENES));
+        List<Integer> expected = GENES.stream()
+                .sorted(Comparator.<GeneResultImpl>naturalOrder().thenComparing(GeneResultImpl::getGeneAccession))
+                .map(GeneResult::getEnsgId)
+                .toList();
+        assertEquals(expected, ids(ranking.ranked(GeneResultRanking.Key.MIN_P)));
+        Map<AccessionNumber, GeneResult> map = new HashMap<>();
+        GENES.forEach(g -> map.put(g.getGeneAccession(), g));
+        assertEquals(expected, ids(GeneResultRanking.of(map).ranked(GeneResultRanking.Key.MIN_P)));
+    }
+
+    @Test
+    public void testTopPageAndRange() {
+        GeneResultRanking ranking = GeneResultRanking.of(GeneResultStore.of(GENES));
+        assertEquals(List.of(2, 4), ids(ranking.top(GeneResultRanking.Key.EXPRESSION_P, 2)));
+        assertEquals(List.of(2, 3), ids(ranking.top(GeneResultRanking.Key.ABS_LOG2_FOLD_CHANGE, 2)));
+        assertEquals(List.of(3, 1, 4), ids(ranking.top(GeneResultRanking.Key.SPLICING_P, 3)));
+        assertEquals(List.of(1, 3), ids(ranking.page(GeneResultRanking.Key.EXPRESSION_P, 1, 2)));
+        assertEquals(List.of(5), ids(ranking.page(GeneResultRanking.Key.EXPRESSION_P, 2, 2)));
+        assertTrue(ranking.page(GeneResultRanking.Key.EXPRESSION_P, 3, 2).isEmpty());
+        assertEquals(List.of(2, 4, 1), ids(ranking.upTo(GeneResultRanking.Key.EXPRESSION_P, 0.3)));
+        assertEquals(List.of(3, 2, 4), ids(ranking.inRange(GeneResultRanking.Key.MIN_P, 0.001, 0.01)));
+        assertEquals(List.of(2, 3), ids(ranking.upTo(GeneResultRanking.Key.ABS_LOG2_FOLD_CHANGE, 1.0)));
+        assertEquals(List.of(1, 5), ids(ranking.inRange(GeneResultRanking.Key.ABS_LOG2_FOLD_CHANGE, 0.15, 0.9)));
+        assertEquals(5, ranking.top(GeneResultRanking.Key.MIN_P, 100).size());
+    }
+}
@@ -0,0 +1,107 @@
+package org.jax.isopret.core.impl.rnaseqdata;
+
+import org.jax.isopret.data.AccessionNumber;
+import org.jax.isopret.model.GeneModel;
+import org.jax.isopret.model.GeneResult;
+import org.jax.isopret.model.TranscriptResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GeneResultStoreTest {
+
+    private static GeneResultImpl gene(int ensg, double fc, double p, double... isoformPs) {
+        AccessionNumber accession = AccessionNumber.ensgFromInt(ensg);
+        GeneModel model = new GeneModel("G" + ensg, "gene " + ensg, "", accession, "", List.of());
+        GeneResultImpl result = new GeneResultImpl(accession, model);
+        result.addExpressionResult(fc, p);
+        for (int k = 0; k < isoformPs.length; k++) {
+            result.addTranscriptResult(AccessionNumber.enstFromInt(100 * ensg + k), 1.0 + k, isoformPs[k]);
+        }
+        return result;
+    }
+
+    /**
+     * The views of the store must give the same answers as the results the store was built from.
+     */
+    @Test
+    public void testViewsMatchSource() {
+        List<GeneResultImpl> source = List.of(
+                gene(30, 1.5, 0.001, 0.2, 0.01, 0.7),
+                gene(10, -0.5, 0.4),
+                gene(20, 0.1, 0.03, 0.9));
+        GeneResultStore store = GeneResultStore.of(source);
+        assertEquals(3, store.size());
+        assertEquals(4, store.isoformCount());
+        for (GeneResultImpl expected : source) {
+            GeneResult actual = store.get(expected.getGeneAccession());
+            assertNotNull(actual);
+            assertEquals(expected.getExpressionP(), actual.getExpressionP());
+            assertEquals(expected.getExpressionFoldChange(), actual.getExpressionFoldChange());
+            assertEquals(expected.getSmallestSplicingP(), actual.getSmallestSplicingP());
+            assertEquals(expected.getExpressedTranscriptCount(), actual.getExpressedTranscriptCount());
+            assertEquals(expected.getSignificantTranscriptCount(0.05), actual.getSignificantTranscriptCount(0.05));
+            assertEquals(expected.hasDifferentialSplicingResult(0.05), actual.hasDifferentialSplicingResult(0.05));
+            assertEquals(expected.getSplicingPlist().stream().sorted().toList(),
+                    actual.getSplicingPlist().stream().sorted().toList());
+            Map<AccessionNumber, TranscriptResult> transcripts = actual.getTranscriptMap();
+            expected.getTranscriptMap().forEach((acc, tr) -> {
+                assertTrue(actual.transcriptExpressed(acc));
+                assertEquals(tr.getPvalue(), transcripts.get(acc).getPvalue());
+                assertEquals(tr.getLog2FoldChange(), transcripts.get(acc).getLog2FoldChange());
+            });
+            assertEquals(expected.getTranscriptResults().size(), actual.getTranscriptResults().size());
+        }
+        assertNull(store.get(AccessionNumber.ensgFromInt(15)));
+        assertEquals(1.0, store.get(AccessionNumber.ensgFromInt(10)).getSmallestSplicingP());
+        assertFalse(store.get(AccessionNumber.ensgFromInt(10)).hasDifferentialSplicingResult(1.0));
+        // isoforms of another gene, or not in the results
+        GeneResult gene30 = store.get(AccessionNumber.ensgFromInt(30));
+        assertFalse(gene30.transcriptExpressed(AccessionNumber.enstFromInt(2000)));
+        assertFalse(gene30.transcriptExpressed(AccessionNumber.enstFromInt(3003)));
+        assertNull(gene30.getTranscriptMap().get(AccessionNumber.ensgFromInt(3001)));
+    }
+
+    /**
+     * Views and the results they were built from have the same natural order, by the smallest p-value.
+     */
+    @Test
+    public void testNaturalOrder() {
+        List<GeneResultImpl> source = List.of(
+                gene(30, 1.5, 0.04, 0.2, 0.01, 0.7),
+                gene(10, -0.5, 0.4),
+                gene(20, 0.1, 0.03, 0.9));
+        GeneResultStore store = GeneResultStore.of(source);
+        List<AccessionNumber> expected = List.of(AccessionNumber.ensgFromInt(30), AccessionNumber.ensgFromInt(20),
+                AccessionNumber.ensgFromInt(10));
+        assertEquals(expected, source.stream().sorted().map(GeneResult::getGeneAccession).toList());
+        assertEquals(expected, store.values().stream().sorted().map(GeneResult::getGeneAccession).toList());
+    }
+
+    @Test
+    public void testThresholdScans() {
+        GeneResultStore store = GeneResultStore.of(List.of(
+                gene(30, 1.5, 0.001, 0.2, 0.01, 0.7),
+                gene(10, -0.5, 0.4),
+                gene(20, 0.1, 0.03, 0.9)));
+        // genes are sorted by accession number: 10, 20, 30
+        assertArrayEquals(new int[]{1, 2}, store.genesWithExpressionPAtMost(0.05));
+        int[] isoforms = store.isoformsWithPAtMost(0.05);
+        assertEquals(1, isoforms.length);
+        assertEquals(AccessionNumber.enstFromInt(3001), store.isoform(isoforms[0]));
+        assertEquals(2, store.indexOf(AccessionNumber.ensgFromInt(30)));
+        assertEquals(3, store.isoformEnd(2) - store.isoformStart(2));
+    }
+
+    @Test
+    public void testViewsAreReadOnly() {
+        GeneResultStore store = GeneResultStore.of(List.of(gene(10, 1.0, 0.5, 0.1)));
+        GeneResult result = store.get(AccessionNumber.ensgFromInt(10));
+        assertThrows(UnsupportedOperationException.class,
+                () -> result.getTranscriptMap().put(AccessionNumber.enstFromInt(1), null));
+        assertThrows(UnsupportedOperationException.class, () -> store.put(AccessionNumber.ensgFromInt(11), result));
+    }
+}
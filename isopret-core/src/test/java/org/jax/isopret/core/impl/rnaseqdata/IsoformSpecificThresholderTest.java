@@ -0,0 +1,163 @@
+package org.jax.isopret.core.impl.rnaseqdata;
+
+import org.jax.isopret.core.impl.go.GoDag;
+import org.jax.isopret.core.impl.go.IsopretContainerFactory;
+import org.jax.isopret.data.AccessionNumber;
+import org.jax.isopret.data.EnsemblIdRegistry;
+import org.jax.isopret.model.GeneModel;
+import org.jax.isopret.model.GeneResult;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.analysis.AssociationContainer;
+import org.monarchinitiative.phenol.analysis.DirectAndIndirectTermAnnotations;
+import org.monarchinitiative.phenol.analysis.StudySet;
+import org.monarchinitiative.phenol.ontology.data.*;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IsoformSpecificThresholderTest {
+
+    private static final TermId ROOT = TermId.of("GO:0000001");
+    private static final TermId LEFT = TermId.of("GO:0000002");
+    private static final TermId RIGHT = TermId.of("GO:0000003");
+    private static final TermId LEAF = TermId.of("GO:0000004");
+
+    private static final Ontology ONTOLOGY = ImmutableOntology.builder()
+            .metaInfo(Map.of("data-version", "test"))
+            .terms(List.of(Term.builder(ROOT).name("root").build(),
+                    Term.builder(LEFT).name("left").build(),
+                    Term.builder(RIGHT).name("right").build(),
+                    Term.builder(LEAF).name("leaf").build()))
+            .relationships(List.of(new Relationship(LEFT, ROOT, 1, RelationshipType.IS_A),
+                    new Relationship(RIGHT, ROOT, 2, RelationshipType.IS_A),
+                    new Relationship(LEAF, LEFT, 3, RelationshipType.IS_A),
+                    new Relationship(LEAF, RIGHT, 4, RelationshipType.IS_A)))
+            .build();
+
+    private static GeneResultImpl gene(int ensg, double p, double... isoformPs) {
+        AccessionNumber accession = AccessionNumber.ensgFromInt(ensg);
+        GeneModel model = new GeneModel("G" + ensg, "gene " + ensg, "", accession, "", List.of());
+        GeneResultImpl result = new GeneResultImpl(accession, model);
+        result.addExpressionResult(1.0, p);
+        for (int k = 0; k < isoformPs.length; k++) {
+            result.addTranscriptResult(AccessionNumber.enstFromInt(100 * ensg + k), 1.0, isoformPs[k]);
+        }
+        return result;
+    }
+
+    /**
+     * Genes 1-4 and their isoforms are annotated; genes 1-3 are registered, so that the containers look up gene 4 by
+     * its id. Gene 5 has results but no annotations.
+     */
+    private static final List<GeneResultImpl> RESULTS = List.of(
+            gene(1, 0.001, 0.01, 0.5),
+            gene(2, 0.2, 0.001),
+            gene(3, 0.01),
+            gene(4, 0.03, 0.02, 0.04, 0.9),
+            gene(5, 0.001, 0.001));
+
+    private static final Map<TermId, Set<TermId>> GENE_TO_GO = Map.of(
+            TermId.of("ENSG:00000000001"), Set.of(LEAF),
+            TermId.of("ENSG:00000000002"), Set.of(LEFT),
+            TermId.of("ENSG:00000000003"), Set.of(RIGHT, ROOT),
+            TermId.of("ENSG:00000000004"), Set.of(LEFT, RIGHT));
+
+    private static final Map<TermId, Set<TermId>> TRANSCRIPT_TO_GO = Map.of(
+            TermId.of("ENST:00000000100"), Set.of(LEAF),
+            TermId.of("ENST:00000000101"), Set.of(RIGHT),
+            TermId.of("ENST:00000000200"), Set.of(LEFT),
+            TermId.of("ENST:00000000400"), Set.of(ROOT),
+            TermId.of("ENST:00000000401"), Set.of(LEAF));
+
+    private static final EnsemblIdRegistry REGISTRY = EnsemblIdRegistry.builder()
+            .addTranscript(AccessionNumber.ensgFromInt(1), AccessionNumber.enstFromInt(100))
+            .addTranscript(AccessionNumber.ensgFromInt(1), AccessionNumber.enstFromInt(101))
+            .addTranscript(AccessionNumber.ensgFromInt(2), AccessionNumber.enstFromInt(200))
+            .addGene(AccessionNumber.ensgFromInt(3))
+            .build();
+
+    /** Hides the type of the container, so that the thresholder selects the items by their ids. */
+    private record OpaqueContainer(AssociationContainer<TermId> container) implements AssociationContainer<TermId> {
+        public Map<TermId, List<TermId>> getOntologyTermToDomainItemsMap() {
+            return container.getOntologyTermToDomainItemsMap();
+        }
+
+        public Map<TermId, DirectAndIndirectTermAnnotations> getAssociationMap(Set<TermId> items) {
+            return container.getAssociationMap(items);
+        }
+
+        public Set<TermId> getAllAnnotatedGenes() {
+            return container.getAllAnnotatedGenes();
+        }
+
+        public Set<TermId> getDomainItemsAnnotatedByOntologyTerm(TermId tid) {
+            return container.getDomainItemsAnnotatedByOntologyTerm(tid);
+        }
+
+        public int getAnnotatingTermCount() {
+            return container.getAnnotatingTermCount();
+        }
+
+        public int getTotalAnnotationCount() {
+            return container.getTotalAnnotationCount();
+        }
+
+        public int getAnnotatedDomainItemCount() {
+            return container.getAnnotatedDomainItemCount();
+        }
+    }
+
+    private static Map<TermId, Set<TermId>> annotated(StudySet studySet) {
+        return studySet.getAnnotationMap().entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().getTotalAnnotatedDomainItemSet()));
+    }
+
+    private static Map<TermId, Set<TermId>> directlyAnnotated(StudySet studySet) {
+        return studySet.getAnnotationMap().entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().getDirectAnnotated()));
+    }
+
+    private static void assertSameStudySet(StudySet expected, StudySet actual) {
+        assertEquals(annotated(expected), annotated(actual), actual.getName());
+        assertEquals(directlyAnnotated(expected), directlyAnnotated(actual), actual.getName());
+    }
+
+    private static void assertSameSelection(IsoformSpecificThresholder expected, IsoformSpecificThresholder actual) {
+        assertSameStudySet(expected.getDgeStudy(), actual.getDgeStudy());
+        assertSameStudySet(expected.getDgePopulation(), actual.getDgePopulation());
+        assertSameStudySet(expected.getDasStudy(), actual.getDasStudy());
+        assertSameStudySet(expected.getDasPopulation(), actual.getDasPopulation());
+        assertEquals(expected.getDgeStudyItems(), actual.getDgeStudyItems());
+        assertEquals(expected.getDgePopulationItems(), actual.getDgePopulationItems());
+        assertEquals(expected.getDasStudyItems(), actual.getDasStudyItems());
+        assertEquals(expected.getDasPopulationItems(), actual.getDasPopulationItems());
+    }
+
+    /**
+     * Selecting the study and population items by their container indices must give the same study sets and
+     * populations as selecting them by their ids.
+     */
+    @Test
+    public void testSelectionByIndexMatchesSelectionById() {
+        IsopretContainerFactory factory = new IsopretContainerFactory(ONTOLOGY, GoDag.of(ONTOLOGY), REGISTRY,
+                TRANSCRIPT_TO_GO, GENE_TO_GO);
+        AssociationContainer<TermId> genes = factory.geneContainer();
+        AssociationContainer<TermId> transcripts = factory.transcriptContainer();
+        GeneResultStore store = GeneResultStore.of(RESULTS);
+        Map<AccessionNumber, GeneResult> map = new HashMap<>(store);
+        IsoformSpecificThresholder byIndex = IsoformSpecificThresholder.fromEdgeR(store, 0.05, genes, transcripts);
+        IsoformSpecificThresholder byId = IsoformSpecificThresholder.fromEdgeR(store, 0.05,
+                new OpaqueContainer(genes), new OpaqueContainer(transcripts));
+        IsoformSpecificThresholder byIdFromMap = IsoformSpecificThresholder.fromEdgeR(map, 0.05,
+                new OpaqueContainer(genes), new OpaqueContainer(transcripts));
+        assertSameSelection(byId, byIndex);
+        assertSameSelection(byId, byIdFromMap);
+        assertEquals(Set.of(TermId.of("ENSG:00000000001"), TermId.of("ENSG:00000000003"),
+                TermId.of("ENSG:00000000004")), annotated(byIndex.getDgeStudy()).get(ROOT));
+        assertEquals(Set.of(TermId.of("ENST:00000000100"), TermId.of("ENST:00000000200"),
+                TermId.of("ENST:00000000400"), TermId.of("ENST:00000000401")), annotated(byIndex.getDasStudy()).get(ROOT));
+        assertEquals(5, byIndex.getDgePopulationItems().size());
+    }
+}
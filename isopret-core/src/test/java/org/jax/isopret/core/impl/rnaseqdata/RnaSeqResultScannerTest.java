@@ -0,0 +1,116 @@
+package org.jax.isopret.core.impl.rnaseqdata;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RnaSeqResultScannerTest {
+
+    private static final Path HBADEALS_ADAR_PATH = Paths.get("src/test/resources/hbadeals/ADAR_HBADEALS.tsv");
+
+    private static double parse(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.US_ASCII);
+        return RnaSeqResultScanner.parseDouble(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    @Test
+    public void testParseDoubleIsIdenticalToJdk() {
+        for (String s : List.of("0", "1", "-0.0", "1e-05", "0.563281823470453", "-0.00850565803016342",
+                "1.54770825394965", "2.5E3", "1    ", "0.1234567890123456789", "1e-320", "NaN", "-Infinity")) {
+            assertEquals(Double.doubleToLongBits(Double.parseDouble(s)), Double.doubleToLongBits(parse(s)), s);
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            String s = Double.toString((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(20) - 10));
+            assertEquals(Double.parseDouble(s), parse(s), s);
+        }
+    }
+
+    @Test
+    public void testParseEnsemblIgnoresVersion() {
+        byte[] bytes = "ENST00000560355.1".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(560355, RnaSeqResultScanner.parseEnsembl(ByteBuffer.wrap(bytes), 0, bytes.length, 'T'));
+    }
+
+    /**
+     * The plain and the gzipped file must give the same values as {@link RnaSeqResultLine}.
+     */
+    @Test
+    public void testScanPlainAndGzippedFile() throws IOException {
+        List<String> lines = Files.readAllLines(HBADEALS_ADAR_PATH);
+        List<String> expected = new ArrayList<>();
+        for (String line : lines.subList(1, lines.size())) {
+            RnaSeqResultLine hline = RnaSeqResultLine.fromEnsembl(line);
+            int enst = hline.isIsoform() ? hline.isoform().getAccessionNumber() : RnaSeqResultScanner.EXPRESSION;
+            expected.add(hline.geneAccession().getAccessionNumber() + " " + enst + " " + hline.expFC() + " " + hline.raw_p());
+        }
+        Path gzipped = Files.createTempFile("adar", ".tsv.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzipped))) {
+            out.write(Files.readAllBytes(HBADEALS_ADAR_PATH));
+        }
+        for (Path path : List.of(HBADEALS_ADAR_PATH, gzipped)) {
+            List<String> observed = new ArrayList<>();
+            List<String> headers = new ArrayList<>();
+            RnaSeqResultScanner.scan(path.toFile(), headers::add,
+                    (ensg, enst, fc, p) -> observed.add(ensg + " " + enst + " " + fc + " " + p));
+            assertEquals(List.of(lines.get(0)), headers);
+            assertEquals(expected, observed);
+        }
+        Files.delete(gzipped);
+    }
+
+    private static class LineSink implements RnaSeqResultScanner.Sink {
+        private final List<String> lines = new ArrayList<>();
+
+        @Override
+        public void accept(int ensg, int enst, double foldChange, double p) {
+            lines.add(ensg + " " + enst + " " + foldChange + " " + p);
+        }
+    }
+
+    /**
+     * A file that is larger than several chunks must give the same lines in the same order when scanned in parallel.
+     */
+    @Test
+    public void testParallelScanKeepsLineOrder() throws IOException {
+        Random random = new Random(7);
+        StringBuilder sb = new StringBuilder("Gene\tIsoform\tExplogFC/FC\tP\n");
+        while (sb.length() < 3 * RnaSeqResultScanner.CHUNK_SIZE) {
+            int gene = random.nextInt(20_000);
+            sb.append(String.format("ENSG%011d\tExpression\t%s\t%s\n", gene, random.nextGaussian(), random.nextDouble()));
+            for (int i = 0; i < 3; i++) {
+                sb.append(String.format("ENSG%011d\tENST%011d.1\t%s\t%s\n", gene, 10 * gene + i, random.nextDouble(), random.nextDouble()));
+            }
+        }
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.US_ASCII);
+        Path plain = Files.createTempFile("results", ".tsv");
+        Files.write(plain, bytes);
+        Path gzipped = Files.createTempFile("results", ".tsv.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzipped))) {
+            out.write(bytes);
+        }
+        LineSink expected = new LineSink();
+        RnaSeqResultScanner.scan(plain.toFile(), header -> {}, expected);
+        for (Path path : List.of(plain, gzipped)) {
+            List<LineSink> chunks = RnaSeqResultScanner.scan(path.toFile(), header -> {}, LineSink::new, 4);
+            assertTrue(chunks.size() > 1);
+            List<String> observed = new ArrayList<>();
+            chunks.forEach(chunk -> observed.addAll(chunk.lines));
+            assertEquals(expected.lines, observed);
+        }
+        Files.delete(plain);
+        Files.delete(gzipped);
+    }
+}
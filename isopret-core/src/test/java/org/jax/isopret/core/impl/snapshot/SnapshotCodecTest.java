@@ -0,0 +1,84 @@
+package org.jax.isopret.core.impl.snapshot;
+
+import org.jax.isopret.core.impl.interpro.InterproAnnotationStore;
+import org.jax.isopret.data.AccessionNumber;
+import org.jax.isopret.data.InterproAnnotation;
+import org.jax.isopret.data.InterproEntry;
+import org.jax.isopret.data.InterproEntryType;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.ontology.data.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapshotCodecTest {
+
+    private static final TermId ROOT = TermId.of("GO:0000001");
+    private static final TermId CHILD = TermId.of("GO:0000002");
+    private static final TermId GRANDCHILD = TermId.of("GO:0000003");
+    private static final TermId ALT_ID = TermId.of("GO:0000009");
+
+    private static SnapshotInput input(byte[] bytes) {
+        return new SnapshotInput(ByteBuffer.wrap(bytes));
+    }
+
+    @Test
+    public void testOntologyRoundTrip() throws IOException {
+        Ontology ontology = ImmutableOntology.builder()
+                .metaInfo(Map.of("data-version", "test"))
+                .terms(List.of(Term.builder(ROOT).name("root").build(),
+                        Term.builder(CHILD).name("child").altTermIds(List.of(ALT_ID)).build(),
+                        Term.builder(GRANDCHILD).name("grandchild").build()))
+                .relationships(List.of(new Relationship(CHILD, ROOT, 1, RelationshipType.IS_A),
+                        new Relationship(GRANDCHILD, CHILD, 2, RelationshipType.IS_A)))
+                .build();
+        Ontology decoded = SnapshotCodec.decodeOntology(input(SnapshotCodec.encodeOntology(ontology)));
+        assertEquals(3, decoded.nonObsoleteTermIdCount());
+        assertEquals("test", decoded.getMetaInfo().get("data-version"));
+        assertEquals(CHILD, decoded.getPrimaryTermId(ALT_ID));
+        assertEquals("grandchild", decoded.getTermLabel(GRANDCHILD).orElseThrow());
+        assertTrue(decoded.graph().isAncestorOf(ROOT, GRANDCHILD));
+        // the alt id must not add a second copy of CHILD (which would show up as a self-loop)
+        assertEquals(3, decoded.graph().size());
+        assertEquals(List.of(ROOT), toList(decoded.graph().getParents(CHILD, false)));
+        assertEquals(List.of(GRANDCHILD), toList(decoded.graph().getChildren(CHILD, false)));
+    }
+
+    private static List<TermId> toList(Iterable<TermId> termIds) {
+        List<TermId> list = new ArrayList<>();
+        termIds.forEach(list::add);
+        return list;
+    }
+
+    @Test
+    public void testGoAnnotationRoundTrip() throws IOException {
+        TermId transcript = TermId.of("ENST:00000000001");
+        TermId gene = TermId.of("ENSG:00000000002");
+        byte[] bytes = SnapshotCodec.encodeGoAnnotations(Map.of(transcript, Set.of(CHILD, GRANDCHILD)),
+                Map.of(gene, Set.of(CHILD, GRANDCHILD)),
+                Map.of(transcript, gene));
+        SnapshotCodec.GoAnnotations decoded = SnapshotCodec.decodeGoAnnotations(input(bytes));
+        assertEquals(Set.of(CHILD, GRANDCHILD), decoded.transcriptToGoMap().get(transcript));
+        assertEquals(Set.of(CHILD, GRANDCHILD), decoded.geneToGoMap().get(gene));
+        assertEquals(gene, decoded.transcriptToGeneMap().get(transcript));
+    }
+
+    @Test
+    public void testInterproRoundTrip() throws IOException {
+        AccessionNumber ensg = AccessionNumber.ensemblGene("ENSG00000160710");
+        AccessionNumber enst = AccessionNumber.ensemblTranscript("ENST00000368474");
+        InterproEntry entry = new InterproEntry("IPR002466", InterproEntryType.DOMAIN, "Adenosine deaminase/editase");
+        InterproAnnotation annotation = new InterproAnnotation(enst, ensg, 2466, 837, 1172);
+        byte[] bytes = SnapshotCodec.encodeInterpro(Map.of(2466, entry),
+                InterproAnnotationStore.of(Map.of(ensg, List.of(annotation))));
+        SnapshotCodec.InterproData decoded = SnapshotCodec.decodeInterpro(input(bytes));
+        assertEquals(entry, decoded.descriptions().get(2466));
+        assertEquals(List.of(annotation), decoded.annotationStore().asMap().get(ensg));
+    }
+}
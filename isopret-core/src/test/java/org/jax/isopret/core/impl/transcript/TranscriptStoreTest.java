@@ -0,0 +1,57 @@
+package org.jax.isopret.core.impl.transcript;
+
+import org.jax.isopret.data.AccessionNumber;
+import org.jax.isopret.data.Transcript;
+import org.jax.isopret.model.GeneSymbolAccession;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.svart.*;
+import org.monarchinitiative.svart.assembly.GenomicAssemblies;
+import org.monarchinitiative.svart.assembly.GenomicAssembly;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TranscriptStoreTest {
+
+    private static final GenomicAssembly ASSEMBLY = GenomicAssemblies.GRCh38p13();
+
+    private static Transcript transcript(String contigName, Strand strand, String enst, boolean coding, int... exonBounds) {
+        Contig contig = ASSEMBLY.contigByName(contigName);
+        CoordinateSystem zeroBased = CoordinateSystem.zeroBased();
+        List<GenomicRegion> exons = new ArrayList<>();
+        for (int i = 0; i < exonBounds.length; i += 2) {
+            exons.add(GenomicRegion.of(contig, strand, zeroBased, exonBounds[i], exonBounds[i + 1]));
+        }
+        int start = exonBounds[0];
+        int end = exonBounds[exonBounds.length - 1];
+        GenomicRegion cds = GenomicRegion.of(contig, strand, zeroBased, start + 10, end - 10);
+        return Transcript.of(contig, strand, zeroBased, start, end, cds, AccessionNumber.ensemblTranscript(enst),
+                "ADAR", coding, exons);
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        GeneSymbolAccession adar = new GeneSymbolAccession("ADAR", AccessionNumber.ensemblGene("ENSG00000160710"));
+        GeneSymbolAccession tp53 = new GeneSymbolAccession("TP53", AccessionNumber.ensemblGene("ENSG00000141510"));
+        Transcript adar1 = transcript("1", Strand.NEGATIVE, "ENST00000368474", true, 1000, 1200, 1500, 1800);
+        Transcript adar2 = transcript("1", Strand.NEGATIVE, "ENST00000368471", false, 1000, 1200);
+        Transcript tp531 = transcript("17", Strand.POSITIVE, "ENST00000269305", true, 500, 700, 900, 1000, 1100, 1300);
+        Map<GeneSymbolAccession, List<Transcript>> transcripts = Map.of(adar, List.of(adar1, adar2), tp53, List.of(tp531));
+
+        TranscriptStore store = TranscriptStore.of(ByteBuffer.wrap(TranscriptStoreWriter.encode(transcripts)), ASSEMBLY);
+        assertEquals(2, store.geneCount());
+        assertEquals(3, store.transcriptCount());
+        Map<GeneSymbolAccession, List<Transcript>> decoded = store.asMap();
+        assertEquals(transcripts, decoded);
+        Transcript decodedTp53 = decoded.get(tp53).get(0);
+        assertEquals(tp531.getProteinLength(), decodedTp53.getProteinLength());
+        assertEquals(3, decodedTp53.exons().size());
+        assertFalse(decoded.get(adar).get(1).isCoding());
+        assertSame(decoded.get(adar), store.asMap().get(adar));
+    }
+}
@@ -61,5 +61,18 @@ public class ProbThresholdTest {
         assertEquals(0.1, probThreshold.getPepThreshold(), DELTA);
     }
 
-
+    @Test
+    public void testFinerResolutionAndCurve() {
+        double [] vals = {0.0, 0.1, 0.2, 0.25, 0.3};
+        PosteriorErrorProbThreshold threshold = new PosteriorErrorProbThreshold(vals, 0.01);
+        assertEquals(0.1, threshold.getPepThreshold(0.01, 0.01), DELTA);
+        // the mean of the PEPs below the candidate exceeds 0.04 from the candidate 0.101 on
+        assertEquals(0.1, threshold.getPepThreshold(0.04, 0.001), DELTA);
+        List<PosteriorErrorProbThreshold.FdrCurvePoint> curve = threshold.getFdrCurve(0.05, 1.0);
+        assertEquals(20, curve.size());
+        PosteriorErrorProbThreshold.FdrCurvePoint point = curve.get(4);
+        assertEquals(0.25, point.pepThreshold(), DELTA);
+        assertEquals(3, point.count());
+        assertEquals(0.1, point.fdr(), DELTA);
+    }
 }
@@ -0,0 +1,89 @@
+package org.jax.isopret.model;
+
+import org.jax.isopret.data.AccessionNumber;
+import org.jax.isopret.data.EnsemblIdRegistry;
+import org.jax.isopret.exception.IsopretRuntimeException;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EnsemblIdRegistryTest {
+
+    private static final AccessionNumber BRCA2 = AccessionNumber.ensemblGene("ENSG00000139618");
+    private static final AccessionNumber GENE_2 = AccessionNumber.ensgFromInt(42);
+    private static final AccessionNumber BRCA2_T1 = AccessionNumber.ensemblTranscript("ENST00000380152");
+    private static final AccessionNumber BRCA2_T2 = AccessionNumber.ensemblTranscript("ENST00000369985");
+    private static final AccessionNumber GENE_2_T1 = AccessionNumber.enstFromInt(7);
+
+    private static EnsemblIdRegistry registry() {
+        return EnsemblIdRegistry.builder()
+                .addTranscript(BRCA2, BRCA2_T1)
+                .addTranscript(BRCA2, BRCA2_T2)
+                .addTranscript(GENE_2, GENE_2_T1)
+                .build();
+    }
+
+    @Test
+    public void testDenseIndicesInAccessionOrder() {
+        EnsemblIdRegistry registry = registry();
+        assertEquals(2, registry.geneCount());
+        assertEquals(3, registry.transcriptCount());
+        assertEquals(0, registry.index(GENE_2));
+        assertEquals(1, registry.index(BRCA2));
+        assertEquals(0, registry.index(GENE_2_T1));
+        assertEquals(1, registry.index(BRCA2_T2));
+        assertEquals(2, registry.index(BRCA2_T1));
+        assertEquals(1, registry.geneOfTranscript(registry.index(BRCA2_T2)));
+        assertEquals(0, registry.geneOfTranscript(registry.index(GENE_2_T1)));
+        assertEquals(-1, registry.index(AccessionNumber.ensgFromInt(43)));
+        assertEquals(-1, registry.index(TermId.of("GO:0008150")));
+        assertEquals(2, registry.index(TermId.of("ENST:00000380152")));
+    }
+
+    @Test
+    public void testSharedInstances() {
+        EnsemblIdRegistry registry = registry();
+        TermId termId = registry.termId(AccessionNumber.ensemblGene("ENSG00000139618"));
+        assertEquals(TermId.of("ENSG:00000139618"), termId);
+        assertSame(termId, registry.termId(BRCA2));
+        assertSame(registry.intern(BRCA2), registry.intern(AccessionNumber.ensgFromInt(139618)));
+        assertSame(registry.intern(BRCA2_T1), registry.accession(TermId.of("ENST:00000380152")));
+        assertNull(registry.accession(TermId.of("ENSG:00000000001")));
+        // ids that are not registered are still converted
+        assertEquals(TermId.of("ENSG:00000000001"), registry.termId(AccessionNumber.ensgFromInt(1)));
+        Map<TermId, TermId> transcriptToGene = registry.transcriptToGeneIdMap();
+        assertEquals(3, transcriptToGene.size());
+        assertSame(termId, transcriptToGene.get(TermId.of("ENST:00000369985")));
+    }
+
+    /**
+     * A registry built from a transcript-to-gene map, e.g., of a snapshot, equals the registry of the accessions.
+     */
+    @Test
+    public void testBuildFromTranscriptToGeneIdMap() {
+        EnsemblIdRegistry expected = registry();
+        EnsemblIdRegistry.Builder builder = EnsemblIdRegistry.builder();
+        expected.transcriptToGeneIdMap().forEach((transcript, gene) -> builder.addTranscript(gene, transcript));
+        EnsemblIdRegistry registry = builder.build();
+        assertEquals(expected.transcriptToGeneIdMap(), registry.transcriptToGeneIdMap());
+        for (int t = 0; t < expected.transcriptCount(); t++) {
+            assertEquals(expected.transcript(t), registry.transcript(t));
+            assertEquals(expected.geneOfTranscript(t), registry.geneOfTranscript(t));
+        }
+        assertEquals(BRCA2, EnsemblIdRegistry.parseAccession(TermId.of("ENSG:139618")));
+        assertNull(EnsemblIdRegistry.parseAccession(TermId.of("GO:0008150")));
+        assertThrows(IsopretRuntimeException.class,
+                () -> EnsemblIdRegistry.builder().addTranscript(TermId.of("ENSG:1"), TermId.of("GO:0008150")));
+    }
+
+    @Test
+    public void testTermIdFormatting() {
+        assertEquals("ENSG:00000139618", BRCA2.toTermId().getValue());
+        assertEquals("ENST:00000000007", GENE_2_T1.toTermId().getValue());
+        assertEquals("ENSG00000000042", GENE_2.getAccessionString());
+        assertEquals("ENST01234567890", AccessionNumber.enstAccessionToString(1234567890));
+    }
+}
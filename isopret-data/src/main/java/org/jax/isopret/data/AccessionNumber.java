@@ -109,7 +109,7 @@ public class AccessionNumber implements Comparable<AccessionNumber> {
         if (ensg<1) {
             throw new IsopretRuntimeException("Negative integer used for Ensembl id:" + ensg);
         }
-        return String.format("ENSG%011d", ensg);
+        return zeroPadded("ENSG", ensg);
     }
 
     /**
@@ -138,7 +138,7 @@ public class AccessionNumber implements Comparable<AccessionNumber> {
         if (enst<1) {
             throw new IsopretRuntimeException("Negative integer used for Ensembl id:" + enst);
         }
-        return String.format("ENST%011d", enst);
+        return zeroPadded("ENST", enst);
     }
 
     public static AccessionNumber ensgFromInt(int ensg) {
@@ -164,8 +164,24 @@ public class AccessionNumber implements Comparable<AccessionNumber> {
             case GENE -> "ENSG";
             case TRANSCRIPT -> "ENST";
         };
-        String value = String.format("%s:%011d",prefix, this.accession);
-        return TermId.of(value);
+        return TermId.of(prefix, zeroPadded("", this.accession));
+    }
+
+    /**
+     * Same result as {@code String.format("%s%011d", prefix, accession)} for non-negative accessions, without
+     * parsing a format string (this is called for every gene and transcript of an analysis).
+     */
+    private static String zeroPadded(String prefix, int accession) {
+        String digits = Integer.toString(accession);
+        int padding = 11 - digits.length();
+        if (padding <= 0) {
+            return prefix + digits;
+        }
+        StringBuilder sb = new StringBuilder(prefix.length() + 11).append(prefix);
+        for (int i = 0; i < padding; i++) {
+            sb.append('0');
+        }
+        return sb.append(digits).toString();
     }
 
 
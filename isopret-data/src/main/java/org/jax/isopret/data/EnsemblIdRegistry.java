@@ -0,0 +1,256 @@
+package org.jax.isopret.data;
+
+import org.jax.isopret.exception.IsopretRuntimeException;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.*;
+
+/**
+ * Canonical registry of the Ensembl gene (ENSG) and transcript (ENST) ids of the reference data. The registry is
+ * built once and assigns every gene and every transcript a dense index ({@code 0 .. geneCount()-1} and
+ * {@code 0 .. transcriptCount()-1}, in the order of the accession numbers), so that per-gene and per-transcript data
+ * can be kept in arrays instead of hash maps. It also hands out one shared {@link AccessionNumber} and one shared
+ * {@link TermId} per id, which avoids formatting the same TermId again for every analysis.
+ */
+public final class EnsemblIdRegistry {
+
+    private final int[] geneKeys;
+    private final AccessionNumber[] genes;
+    private final TermId[] geneTermIds;
+
+    private final int[] transcriptKeys;
+    private final AccessionNumber[] transcripts;
+    private final TermId[] transcriptTermIds;
+    /** Index of the gene of each transcript. */
+    private final int[] transcriptGene;
+
+    private EnsemblIdRegistry(int[] geneKeys, int[] transcriptKeys, int[] transcriptGeneKeys) {
+        this.geneKeys = geneKeys;
+        this.genes = new AccessionNumber[geneKeys.length];
+        this.geneTermIds = new TermId[geneKeys.length];
+        for (int i = 0; i < geneKeys.length; i++) {
+            genes[i] = AccessionNumber.ensgFromInt(geneKeys[i]);
+            geneTermIds[i] = genes[i].toTermId();
+        }
+        this.transcriptKeys = transcriptKeys;
+        this.transcripts = new AccessionNumber[transcriptKeys.length];
+        this.transcriptTermIds = new TermId[transcriptKeys.length];
+        this.transcriptGene = new int[transcriptKeys.length];
+        for (int i = 0; i < transcriptKeys.length; i++) {
+            transcripts[i] = AccessionNumber.enstFromInt(transcriptKeys[i]);
+            transcriptTermIds[i] = transcripts[i].toTermId();
+            transcriptGene[i] = Arrays.binarySearch(geneKeys, transcriptGeneKeys[i]);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** @return a registry without genes and transcripts */
+    public static EnsemblIdRegistry empty() {
+        return new EnsemblIdRegistry(new int[0], new int[0], new int[0]);
+    }
+
+    public int geneCount() {
+        return genes.length;
+    }
+
+    public int transcriptCount() {
+        return transcripts.length;
+    }
+
+    /** @return index of the gene with integer accession {@code ensg}, or -1 if the gene is not registered */
+    public int geneIndex(int ensg) {
+        int i = Arrays.binarySearch(geneKeys, ensg);
+        return i < 0 ? -1 : i;
+    }
+
+    /** @return index of the transcript with integer accession {@code enst}, or -1 if the transcript is not registered */
+    public int transcriptIndex(int enst) {
+        int i = Arrays.binarySearch(transcriptKeys, enst);
+        return i < 0 ? -1 : i;
+    }
+
+    /**
+     * @return gene index of a gene accession or transcript index of a transcript accession, -1 if it is not registered
+     */
+    public int index(AccessionNumber accession) {
+        return accession.isGene() ?
+                geneIndex(accession.getAccessionNumber()) :
+                transcriptIndex(accession.getAccessionNumber());
+    }
+
+    /**
+     * @param termId an ENSG or ENST TermId
+     * @return gene or transcript index of the id, -1 if it is not registered or is not an Ensembl id
+     */
+    public int index(TermId termId) {
+        int accession = accession(termId.getId());
+        if (accession < 0) {
+            return -1;
+        }
+        return switch (termId.getPrefix()) {
+            case "ENSG" -> geneIndex(accession);
+            case "ENST" -> transcriptIndex(accession);
+            default -> -1;
+        };
+    }
+
+    public AccessionNumber gene(int geneIndex) {
+        return genes[geneIndex];
+    }
+
+    public AccessionNumber transcript(int transcriptIndex) {
+        return transcripts[transcriptIndex];
+    }
+
+    public TermId geneTermId(int geneIndex) {
+        return geneTermIds[geneIndex];
+    }
+
+    public TermId transcriptTermId(int transcriptIndex) {
+        return transcriptTermIds[transcriptIndex];
+    }
+
+    /** @return gene index of the gene of the transcript */
+    public int geneOfTranscript(int transcriptIndex) {
+        return transcriptGene[transcriptIndex];
+    }
+
+    /**
+     * @return the shared instance equal to {@code accession}, or {@code accession} itself if it is not registered
+     */
+    public AccessionNumber intern(AccessionNumber accession) {
+        int i = index(accession);
+        if (i < 0) {
+            return accession;
+        }
+        return accession.isGene() ? genes[i] : transcripts[i];
+    }
+
+    /**
+     * @return the shared TermId of {@code accession}; a new TermId is created if the accession is not registered
+     */
+    public TermId termId(AccessionNumber accession) {
+        int i = index(accession);
+        if (i < 0) {
+            return accession.toTermId();
+        }
+        return accession.isGene() ? geneTermIds[i] : transcriptTermIds[i];
+    }
+
+    /**
+     * @return the shared accession number of an ENSG or ENST TermId, or null if the id is not registered
+     */
+    public AccessionNumber accession(TermId termId) {
+        int i = index(termId);
+        if (i < 0) {
+            return null;
+        }
+        return termId.getPrefix().equals("ENSG") ? genes[i] : transcripts[i];
+    }
+
+    /**
+     * @return immutable map with key: transcript TermId (ENST), value: gene TermId (ENSG), built from the shared
+     * TermIds of the registry
+     */
+    public Map<TermId, TermId> transcriptToGeneIdMap() {
+        Map<TermId, TermId> transcriptToGene = new HashMap<>(2 * transcripts.length);
+        for (int i = 0; i < transcripts.length; i++) {
+            transcriptToGene.put(transcriptTermIds[i], geneTermIds[transcriptGene[i]]);
+        }
+        return Map.copyOf(transcriptToGene);
+    }
+
+    /**
+     * @param termId an ENSG or ENST TermId, registered or not
+     * @return the accession number of the id, or null if it is not a valid Ensembl id
+     */
+    public static AccessionNumber parseAccession(TermId termId) {
+        int accession = accession(termId.getId());
+        if (accession <= 0) {
+            return null;
+        }
+        return switch (termId.getPrefix()) {
+            case "ENSG" -> AccessionNumber.ensgFromInt(accession);
+            case "ENST" -> AccessionNumber.enstFromInt(accession);
+            default -> null;
+        };
+    }
+
+    /**
+     * @param id numeric part of an Ensembl TermId, e.g., {@code 00000139618}
+     * @return the accession as an integer, or -1 if the id is not a (non-negative) integer
+     */
+    private static int accession(String id) {
+        if (id.isEmpty() || id.length() > 11) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = 10 * value + (c - '0');
+        }
+        return value > Integer.MAX_VALUE ? -1 : (int) value;
+    }
+
+    /**
+     * Collects the gene and transcript ids of the reference data. Each transcript belongs to one gene; if a
+     * transcript is added more than once with different genes, the last gene is used.
+     */
+    public static final class Builder {
+
+        private final Set<Integer> genes = new HashSet<>();
+
+        private final Map<Integer, Integer> transcriptToGene = new HashMap<>();
+
+        private Builder() {
+        }
+
+        public Builder addGene(AccessionNumber gene) {
+            if (!gene.isGene()) {
+                throw new IsopretRuntimeException("Expected gene accession but got " + gene.getAccessionString());
+            }
+            genes.add(gene.getAccessionNumber());
+            return this;
+        }
+
+        public Builder addTranscript(AccessionNumber gene, AccessionNumber transcript) {
+            if (!transcript.isTranscript()) {
+                throw new IsopretRuntimeException("Expected transcript accession but got "
+                        + transcript.getAccessionString());
+            }
+            addGene(gene);
+            transcriptToGene.put(transcript.getAccessionNumber(), gene.getAccessionNumber());
+            return this;
+        }
+
+        /**
+         * Same as {@link #addTranscript(AccessionNumber, AccessionNumber)} for TermIds, e.g., the entries of a
+         * transcript-to-gene map.
+         */
+        public Builder addTranscript(TermId gene, TermId transcript) {
+            AccessionNumber geneAcc = parseAccession(gene);
+            AccessionNumber transcriptAcc = parseAccession(transcript);
+            if (geneAcc == null || transcriptAcc == null) {
+                throw new IsopretRuntimeException("Expected Ensembl ids but got " + gene.getValue() + " and "
+                        + transcript.getValue());
+            }
+            return addTranscript(geneAcc, transcriptAcc);
+        }
+
+        public EnsemblIdRegistry build() {
+            int[] geneKeys = genes.stream().mapToInt(Integer::intValue).sorted().toArray();
+            int[] transcriptKeys = transcriptToGene.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            int[] transcriptGeneKeys = new int[transcriptKeys.length];
+            for (int i = 0; i < transcriptKeys.length; i++) {
+                transcriptGeneKeys[i] = transcriptToGene.get(transcriptKeys[i]);
+            }
+            return new EnsemblIdRegistry(geneKeys, transcriptKeys, transcriptGeneKeys);
+        }
+    }
+}
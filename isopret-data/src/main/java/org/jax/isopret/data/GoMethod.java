@@ -1,7 +1,8 @@
 package org.jax.isopret.data;
 
 public enum GoMethod {
-    TFT("Term-for-Term"), PCunion("Parent-Child-Union"), PCintersect("Parent-Child-Intersection");
+    TFT("Term-for-Term"), PCunion("Parent-Child-Union"), PCintersect("Parent-Child-Intersection"),
+    ELIM("Elim"), WEIGHT("Weight"), MGSA("MGSA");
     private final String name;
 
     GoMethod(String name) {
@@ -13,6 +14,9 @@ public enum GoMethod {
             case TFT -> "Term-for-Term (TFT)";
             case PCunion -> "Parent-Child-Union (PCU)";
             case PCintersect -> "Parent-Child-Intersection (PCintersect)";
+            case ELIM -> "topGO elim (Elim)";
+            case WEIGHT -> "topGO weight (Weight)";
+            case MGSA -> "Model-based gene set analysis (MGSA)";
         };
     }
 
@@ -33,6 +37,15 @@ public enum GoMethod {
             case "parent-child-intersection", "parent-child-intersect", "parent-child intersect", "pc-intersection", "pc-intersect", "pci" -> {
                 return PCintersect;
             }
+            case "elim", "topgo-elim", "topgo elim" -> {
+                return ELIM;
+            }
+            case "weight", "topgo-weight", "topgo weight" -> {
+                return WEIGHT;
+            }
+            case "mgsa", "model-based gene set analysis" -> {
+                return MGSA;
+            }
             default -> {
                 System.err.printf("[ERROR] Did not recognize calculation (%s), using default (%s) instead.\n",
                         calculation, TFT);
@@ -74,7 +74,7 @@ public class MainController implements Initializable {
     @FXML
     private ProgressIndicator datasourcesDownloadProgressIndicator;
     private final ObservableList<String> goMethodList = FXCollections.observableArrayList("Term for Term",
-            "Parent-Child Union", "Parent-Child Intersect");
+            "Parent-Child Union", "Parent-Child Intersect", "topGO Elim", "topGO Weight", "MGSA");
     @FXML
     private ChoiceBox<String> goChoiceBox;
     private final ObservableList<String> mtcMethodList = FXCollections.observableArrayList(
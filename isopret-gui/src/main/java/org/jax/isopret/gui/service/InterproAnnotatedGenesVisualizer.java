@@ -4,6 +4,7 @@ import org.jax.isopret.core.analysis.InterproOverrepResult;
 import org.jax.isopret.data.GoTermIdPlusLabel;
 import org.jax.isopret.model.DisplayInterproAnnotation;
 import org.jax.isopret.data.AccessionNumber;
+import org.jax.isopret.data.EnsemblIdRegistry;
 import org.jax.isopret.model.AnnotatedGene;
 import org.jax.isopret.model.TranscriptResult;
 import org.jax.isopret.visualization.HtmlUtil;
@@ -41,6 +42,7 @@ public class InterproAnnotatedGenesVisualizer extends AnnotatedGenesVisualizer {
         List<AnnotatedGene> annotatedGeneList = isopretService.getAnnotatedGeneList();
         this.includedGenes = new ArrayList<>();
         Set<TermId> transcriptAccessions = new HashSet<>();
+        EnsemblIdRegistry registry = isopretService.getIdRegistry();
         for (AnnotatedGene gene : annotatedGeneList) {
             Map<AccessionNumber, List<DisplayInterproAnnotation>> transcriptMap = gene.getTranscriptToInterproHitMap();
             boolean includeThisGene = false;
@@ -56,7 +58,7 @@ public class InterproAnnotatedGenesVisualizer extends AnnotatedGenesVisualizer {
                         for (var dia : dialist) {
                             if (dia.getInterproEntry().getId() == targetInterproId) {
                                 includeThisGene = true;
-                                transcriptAccessions.add(acc.toTermId());
+                                transcriptAccessions.add(registry.termId(acc));
                             }
                         }
                     }
@@ -14,7 +14,6 @@ import org.jax.isopret.data.GoMethod;
 import org.jax.isopret.data.MtcMethod;
 import org.jax.isopret.data.Transcript;
 import org.jax.isopret.model.*;
-import org.jax.isopret.core.impl.hgnc.HgncParser;
 import org.jax.isopret.core.InterproMapper;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.TermId;
@@ -80,7 +79,7 @@ public class IsopretDataLoadTask extends Task<Integer>  {
                                MtcMethod mtcMethod,
                                RnaSeqAnalysisMethod rnaSeqMethod) {
         errors = new ArrayList<>();
-        this.provider = IsopretProvider.provider(downloadDirectory.toPath());
+        this.provider = IsopretProvider.provider(downloadDirectory.toPath(), Runtime.getRuntime().availableProcessors());
         this.rnaSeqResultsFile = hbaDealsFile;
         this.overrepMethod = goMethod;
         this.multipleTestingMethod = mtcMethod;
@@ -128,7 +127,8 @@ public class IsopretDataLoadTask extends Task<Integer>  {
         Map<TermId, Set<TermId>> gene2GoMap = provider.gene2GoMap();
         LOGGER.info("Loaded gene2GoMap with {} entries", gene2GoMap.size());
         isopretStatsBuilder.annotatedGeneCount(gene2GoMap.size());
-        IsopretContainerFactory isoContainerFac = new IsopretContainerFactory(geneOntology, transcript2GoMap, gene2GoMap);
+        IsopretContainerFactory isoContainerFac = new IsopretContainerFactory(geneOntology, provider.goDag(), provider.idRegistry(),
+                transcript2GoMap, gene2GoMap);
         transcriptContainer = isoContainerFac.transcriptContainer();
         geneContainer = isoContainerFac.geneContainer();
         updateProgress(0.55, 1);
@@ -140,9 +140,7 @@ public class IsopretDataLoadTask extends Task<Integer>  {
         isopretStatsBuilder.annotatedTranscripts(transcriptContainer.getAnnotatedDomainItemCount());
 
 
-        File hgncFile = provider.hgncCompleteSet().toFile();
-        HgncParser hgncParser = new HgncParser(hgncFile, geneSymbolAccessionListMap);
-        this.geneSymbolToModelMap = hgncParser.ensemblMap();
+        this.geneSymbolToModelMap = provider.ensemblGeneModelMap();
         updateProgress(0.65, 1); /* this will update the progress bar */
         updateMessage(String.format("Loaded Ensembl HGNC map with %d genes", geneSymbolToModelMap.size()));
         LOGGER.info(String.format("Loaded Ensembl HGNC map with %d genes", geneSymbolToModelMap.size()));
@@ -159,7 +157,8 @@ public class IsopretDataLoadTask extends Task<Integer>  {
         LOGGER.info(String.format("Loaded InterproMapper with %d descriptions", interproMapper.getInterproDescriptionCount()));
         updateProgress(0.80, 1); /* this will update the progress bar */
         Map<AccessionNumber, GeneResult> geneResultsMap =
-                RnaSeqResultsParser.parse(this.rnaSeqResultsFile, geneSymbolToModelMap, rnaSeqAnalysisMethod);
+                RnaSeqResultsParser.parse(this.rnaSeqResultsFile, geneSymbolToModelMap, provider.idRegistry(),
+                        rnaSeqAnalysisMethod, Runtime.getRuntime().availableProcessors());
         updateProgress(0.85, 1); /* this will update the progress bar */
         updateMessage(String.format("Loaded HBA-DEALS results with %d observed genes.", geneResultsMap.size()));
         if (this.rnaSeqAnalysisMethod == RnaSeqAnalysisMethod.HBADEALS) {
@@ -218,21 +217,6 @@ public class IsopretDataLoadTask extends Task<Integer>  {
         return dasResults;
     }
 
-    Map<TermId, TermId> createTranscriptToGeneIdMap(Map<GeneSymbolAccession, List<Transcript>> gene2transcript) {
-        Map<TermId, TermId> accessionNumberMap = new HashMap<>();
-        for (var entry : gene2transcript.entrySet()) {
-            var geneAcc = entry.getKey();
-            var geneTermId = geneAcc.accession().toTermId();
-            var transcriptList = entry.getValue();
-            for (var transcript: transcriptList) {
-                var transcriptAcc = transcript.accessionId();
-                var transcriptTermId = transcriptAcc.toTermId();
-                accessionNumberMap.put(transcriptTermId, geneTermId);
-            }
-        }
-        return Map.copyOf(accessionNumberMap); // immutable copy
-    }
-
     public Ontology getGeneOntology() {
         return geneOntology;
     }
@@ -7,6 +7,7 @@ import org.jax.isopret.core.analysis.IsopretStats;
 import org.jax.isopret.core.impl.rnaseqdata.RnaSeqAnalysisMethod;
 import org.jax.isopret.data.GoTermIdPlusLabel;
 import org.jax.isopret.data.AccessionNumber;
+import org.jax.isopret.data.EnsemblIdRegistry;
 import org.jax.isopret.model.AnnotatedGene;
 import org.jax.isopret.visualization.Visualizable;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
@@ -97,6 +98,9 @@ public interface IsopretService {
 
     List<AnnotatedGene> getAnnotatedGeneList();
     double getSplicingPepThreshold();
+
+    /** @return registry of the Ensembl ids that the GO annotations of the genes and transcripts refer to */
+    EnsemblIdRegistry getIdRegistry();
     Map<GoTermIdPlusLabel, Integer> getGoAnnotationsForTranscript(Set<TermId> annotatedItemTermIds);
 
 
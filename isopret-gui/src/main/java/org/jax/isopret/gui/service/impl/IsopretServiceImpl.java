@@ -6,6 +6,7 @@ import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 import org.jax.isopret.core.analysis.IsopretStats;
 import org.jax.isopret.core.impl.go.*;
+import org.jax.isopret.core.impl.rnaseqdata.GeneResultRanking;
 import org.jax.isopret.core.impl.rnaseqdata.IsoformSpecificThresholder;
 import org.jax.isopret.core.InterproMapper;
 import org.jax.isopret.core.impl.rnaseqdata.RnaSeqAnalysisMethod;
@@ -286,11 +287,8 @@ public class IsopretServiceImpl implements IsopretService  {
     @Override
     public List<Visualizable> getGeneVisualizables(Set<AccessionNumber> includedEnsgAccessionSet) {
         List<Visualizable> visualizables = new ArrayList<>();
-        // sort the raw results according to minimum p-values
-        List<GeneResult> results = thresholder.getRawResults().values()
-                .stream()
-                .sorted()
-                .toList();
+        // the raw results ranked by minimum p-value (precomputed by the thresholder)
+        List<GeneResult> results = thresholder.getRanking().ranked(GeneResultRanking.Key.MIN_P);
         for (GeneResult result : results) {
             AccessionNumber ensgAccession = result.getGeneAccession();
             // if this gene is in our included set.. (it should always be in geneAccessionToModelMap, but check here to avoid NPE
@@ -318,11 +316,8 @@ public class IsopretServiceImpl implements IsopretService  {
     @Override
     public List<Visualizable> getGeneVisualizables() {
         List<Visualizable> visualizables = new ArrayList<>();
-        // sort the raw results according to minimum p-values
-        List<GeneResult> results = thresholder.getRawResults().values()
-                .stream()
-                .sorted()
-                .toList();
+        // the raw results ranked by minimum p-value (precomputed by the thresholder)
+        List<GeneResult> results = thresholder.getRanking().ranked(GeneResultRanking.Key.MIN_P);
         for (GeneResult result : results) {
             List<Transcript> transcripts = result.getGeneModel().transcriptList();
             double splicingThreshold = thresholder.getSplicingPepThreshold();
@@ -344,11 +339,8 @@ public class IsopretServiceImpl implements IsopretService  {
     @Override
     public List<AnnotatedGene> getAnnotatedGeneList() {
         List<AnnotatedGene> annotatedGenes = new ArrayList<>();
-        // sort the raw results according to minimum p-values
-        List<GeneResult> results = thresholder.getRawResults().values()
-                .stream()
-                .sorted()
-                .toList();
+        // the raw results ranked by minimum p-value (precomputed by the thresholder)
+        List<GeneResult> results = thresholder.getRanking().ranked(GeneResultRanking.Key.MIN_P);
         for (GeneResult result : results) {
             List<Transcript> transcripts = result.getGeneModel().transcriptList();
             double splicingThreshold = thresholder.getSplicingPepThreshold();
@@ -394,6 +386,9 @@ public class IsopretServiceImpl implements IsopretService  {
             case TFT -> sb.append("Term-for-term analysis");
             case PCintersect -> sb.append("Parent-child intersection");
             case PCunion -> sb.append("Parent-child union");
+            case ELIM -> sb.append("topGO elim");
+            case WEIGHT -> sb.append("topGO weight");
+            case MGSA -> sb.append("MGSA");
         }
         sb.append(" (");
         switch (this.mtcMethod) {
@@ -492,7 +487,9 @@ public class IsopretServiceImpl implements IsopretService  {
                 .toList();
         // now figure out which of these genes are annotated to goId
         Set<TermId> domainIdSet = this.geneContainer.getDomainItemsAnnotatedByGoTerm(goId);
-        List<AccessionNumber> ensgAccessionList = dge.stream().filter(d -> domainIdSet.contains(d.getGeneAccession().toTermId()))
+        EnsemblIdRegistry registry = this.geneContainer.registry();
+        List<AccessionNumber> ensgAccessionList = dge.stream()
+                .filter(d -> domainIdSet.contains(registry.termId(d.getGeneAccession())))
                 .map(GeneResult::getGeneModel)
                 .map(GeneModel::ensemblGeneId)
                 .toList();
@@ -517,10 +514,11 @@ public class IsopretServiceImpl implements IsopretService  {
         Set<TermId> domainIdSet  = this.transcriptContainer.getDomainItemsAnnotatedByGoTerm(goId);
         // when we get here, the domain ids are transcript ids.
         LOGGER.info("getDasForGoTerm, domainIdSet.size={} for go={}", domainIdSet.size(), goId.getValue());
+        EnsemblIdRegistry registry = this.transcriptContainer.registry();
         Set<AccessionNumber> ensgAccessionSet = new HashSet<>();
         for (GeneResult result : das) {
             for (AccessionNumber transcriptAccession : result.getTranscriptMap().keySet()) {
-                if (domainIdSet.contains(transcriptAccession.toTermId())) {
+                if (domainIdSet.contains(registry.termId(transcriptAccession))) {
                     ensgAccessionSet.add(result.getGeneModel().ensemblGeneId());
                     break; // done with this gene
                 }
@@ -539,6 +537,11 @@ public class IsopretServiceImpl implements IsopretService  {
     public double getSplicingPepThreshold() {
         return thresholder.getSplicingPepThreshold();
     }
+
+    @Override
+    public EnsemblIdRegistry getIdRegistry() {
+        return transcriptContainer.registry();
+    }
     @Override
     public Map<GoTermIdPlusLabel, Integer> getGoAnnotationsForTranscript(Set<TermId> annotatedItemTermIds) {
         Map<GoTermIdPlusLabel, Integer> countMap = new HashMap<>();